@@ -0,0 +1,203 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+
+/**
+ * This class gives the benchmarks access to the Clustering and Fit classes. Those classes
+ * are in the default package, which cannot be imported, and JMH does not allow benchmarks in
+ * the default package, so the benchmarks reach them through method handles. The handles are
+ * static final, so the JIT inlines them like direct calls.
+ */
+final class ClusterFit {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+  static final Class<?> LIST_OF_POINTS = load("ListOfPoints");
+  static final Class<?> POINT = load("Point");
+  static final Class<?> LINE = load("Line");
+  static final Class<?> OPTIONS = load("KMeansOptions");
+  static final Class<?> RESULT = load("KMeansResult");
+
+  /**
+   * ListOfPoints(), as () Object.
+   */
+  static final MethodHandle NEW_LIST = constructor(LIST_OF_POINTS, MethodType.methodType(
+      void.class));
+
+  /**
+   * ListOfPoints.addPoints(double[], double[]), as (Object, double[], double[]) void.
+   */
+  static final MethodHandle ADD_POINTS = virtual(LIST_OF_POINTS, "addPoints",
+      MethodType.methodType(void.class, double[].class, double[].class));
+
+  /**
+   * ListOfPoints.fitLine(), as (Object) Object.
+   */
+  static final MethodHandle FIT_LINE = virtual(LIST_OF_POINTS, "fitLine",
+      MethodType.methodType(LINE));
+
+  /**
+   * ListOfPoints.kmeans(int, KMeansOptions), as (Object, int, Object) Object.
+   */
+  static final MethodHandle KMEANS = virtual(LIST_OF_POINTS, "kmeans",
+      MethodType.methodType(RESULT, int.class, OPTIONS));
+
+  /**
+   * ListOfPoints.kmeans(int), the original API, as (Object, int) ArrayList.
+   */
+  static final MethodHandle KMEANS_LEGACY = virtual(LIST_OF_POINTS, "kmeans",
+      MethodType.methodType(ArrayList.class, int.class));
+
+  /**
+   * Point(double, double), as (double, double) Object.
+   */
+  static final MethodHandle NEW_POINT = constructor(POINT, MethodType.methodType(void.class,
+      double.class, double.class));
+
+  /**
+   * Point.distance(Point), as (Object, Object) double.
+   */
+  static final MethodHandle DISTANCE = virtual(POINT, "distance",
+      MethodType.methodType(double.class, POINT));
+
+  private ClusterFit() {
+  }
+
+  /**
+   * Makes a new empty ListOfPoints.
+   *
+   * @return the list.
+   */
+  static Object newList() {
+    try {
+      return (Object) NEW_LIST.invokeExact();
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Makes KMeansOptions with the given settings.
+   *
+   * @param seed          is the seed.
+   * @param init          is the name of a KMeansOptions.Init constant.
+   * @param algorithm     is the name of a KMeansOptions.Algorithm constant.
+   * @param maxIterations is the iteration limit.
+   * @param parallelism   is the number of threads, 0 for every processor.
+   * @return the options.
+   */
+  static Object options(long seed, String init, String algorithm, int maxIterations,
+                        int parallelism) {
+    try {
+      Object options = OPTIONS.getConstructor(long.class).newInstance(seed);
+      Class<?> initType = load("KMeansOptions$Init");
+      Class<?> algorithmType = load("KMeansOptions$Algorithm");
+      OPTIONS.getMethod("init", initType).invoke(options, constant(initType, init));
+      OPTIONS.getMethod("algorithm", algorithmType)
+          .invoke(options, constant(algorithmType, algorithm));
+      OPTIONS.getMethod("maxIterations", int.class).invoke(options, maxIterations);
+      OPTIONS.getMethod("parallelism", int.class).invoke(options, parallelism);
+      return options;
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Gets an enum constant by name.
+   *
+   * @param type is the enum class.
+   * @param name is the name of the constant.
+   * @return the constant.
+   */
+  private static Object constant(Class<?> type, String name) {
+    for (Object value : type.getEnumConstants()) {
+      if (((Enum<?>) value).name().equals(name)) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("No " + type.getName() + " named " + name);
+  }
+
+  /**
+   * Loads a class of the default package.
+   *
+   * @param name is the name of the class.
+   * @return the class.
+   */
+  private static Class<?> load(String name) {
+    try {
+      return Class.forName(name);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Clustering and Fit classes are not on the classpath",
+          e);
+    }
+  }
+
+  /**
+   * Replaces the Clustering and Fit classes in a method type with Object.
+   *
+   * @param signature is the method type.
+   * @return the method type the benchmarks can name.
+   */
+  private static MethodType hide(MethodType signature) {
+    MethodType hidden = signature;
+    for (int i = 0; i < signature.parameterCount(); i++) {
+      if (isHidden(signature.parameterType(i))) {
+        hidden = hidden.changeParameterType(i, Object.class);
+      }
+    }
+    if (isHidden(signature.returnType())) {
+      hidden = hidden.changeReturnType(Object.class);
+    }
+    return hidden;
+  }
+
+  /**
+   * Checks if a class is one the benchmarks cannot name.
+   *
+   * @param type is the class.
+   * @return true for classes in the default package.
+   */
+  private static boolean isHidden(Class<?> type) {
+    return !type.isPrimitive() && !type.isArray() && type.getPackageName().isEmpty();
+  }
+
+  /**
+   * Finds a constructor, with the Clustering and Fit classes in its type
+   * replaced by Object.
+   *
+   * @param type      is the class.
+   * @param signature is the constructor's type.
+   * @return the handle.
+   */
+  private static MethodHandle constructor(Class<?> type, MethodType signature) {
+    try {
+      MethodHandle handle = LOOKUP.findConstructor(type, signature);
+      return handle.asType(hide(handle.type()));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Finds a public method, with the Clustering and Fit classes in its type
+   * replaced by Object.
+   *
+   * @param type      is the class.
+   * @param name      is the name of the method.
+   * @param signature is the method's type.
+   * @return the handle.
+   */
+  private static MethodHandle virtual(Class<?> type, String name, MethodType signature) {
+    try {
+      MethodHandle handle = LOOKUP.findVirtual(type, name, signature);
+      return handle.asType(hide(handle.type()));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * This class makes the data sets the benchmarks run on. Each one is built from a fixed seed,
+ * so every run and every commit measures the same points.
+ */
+final class Datasets {
+
+  /**
+   * The number of points generated and added at a time, so that building a large list does
+   * not need a second copy of the points.
+   */
+  private static final int BATCH = 1 << 16;
+
+  /**
+   * The number of blobs in the blobs data set.
+   */
+  static final int BLOBS = 8;
+
+  private Datasets() {
+  }
+
+  /**
+   * Makes a ListOfPoints of n points with the given distribution.
+   *
+   * @param distribution is "uniform" for points spread evenly over a square, "blobs" for
+   *                     BLOBS gaussian blobs around a circle, or "line" for points scattered
+   *                     around a line.
+   * @param n            is the number of points.
+   * @param seed         is the seed for the points.
+   * @return the list.
+   * @throws IllegalArgumentException if the distribution is not one of the three.
+   */
+  static Object build(String distribution, int n, long seed) throws IllegalArgumentException {
+    SplittableRandom random = new SplittableRandom(seed);
+    Object list = ClusterFit.newList();
+    double[] xs = new double[BATCH];
+    double[] ys = new double[BATCH];
+    for (int from = 0; from < n; from += BATCH) {
+      int count = Math.min(BATCH, n - from);
+      if (count < BATCH) {
+        xs = new double[count];
+        ys = new double[count];
+      }
+      fill(distribution, random, xs, ys);
+      try {
+        ClusterFit.ADD_POINTS.invokeExact(list, xs, ys);
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Fills two arrays with points of the given distribution.
+   *
+   * @param distribution is the name of the distribution.
+   * @param random       is the source of randomness.
+   * @param xs           is filled with xCoords.
+   * @param ys           is filled with yCoords.
+   * @throws IllegalArgumentException if the distribution is not known.
+   */
+  private static void fill(String distribution, SplittableRandom random, double[] xs,
+                           double[] ys) throws IllegalArgumentException {
+    switch (distribution) {
+      case "uniform":
+        for (int i = 0; i < xs.length; i++) {
+          xs[i] = random.nextDouble(-1000, 1000);
+          ys[i] = random.nextDouble(-1000, 1000);
+        }
+        break;
+      case "blobs":
+        for (int i = 0; i < xs.length; i++) {
+          double angle = 2 * Math.PI * random.nextInt(BLOBS) / BLOBS;
+          xs[i] = 500 * Math.cos(angle) + 40 * gaussian(random);
+          ys[i] = 500 * Math.sin(angle) + 40 * gaussian(random);
+        }
+        break;
+      case "line":
+        for (int i = 0; i < xs.length; i++) {
+          xs[i] = random.nextDouble(-1000, 1000);
+          ys[i] = 0.75 * xs[i] + 20 + 25 * gaussian(random);
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown distribution " + distribution);
+    }
+  }
+
+  /**
+   * Draws a standard normal value with the Box-Muller transform.
+   *
+   * @param random is the source of randomness.
+   * @return the value.
+   */
+  private static double gaussian(SplittableRandom random) {
+    double u = 1 - random.nextDouble();
+    return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+  }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures ListOfPoints.fitLine, which sums over every point on each call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FitLineBenchmark {
+
+  @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+  public int size;
+
+  @Param({"line", "uniform"})
+  public String distribution;
+
+  private Object points;
+
+  /**
+   * Builds the points once per trial.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    points = Datasets.build(distribution, size, 10);
+  }
+
+  /**
+   * Fits a line to the points.
+   *
+   * @return the Line, so the work is not optimized away.
+   * @throws Throwable if fitLine throws.
+   */
+  @Benchmark
+  public Object fitLine() throws Throwable {
+    return (Object) ClusterFit.FIT_LINE.invokeExact(points);
+  }
+}
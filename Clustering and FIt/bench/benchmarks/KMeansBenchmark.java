@@ -0,0 +1,78 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures a whole kMeans run, seeding included, through
+ * ListOfPoints.kmeans(int, KMeansOptions) with a fixed seed, so every run does the same
+ * iterations. A run that reaches the iteration limit is measured like any other.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class KMeansBenchmark {
+
+  @Param({"1000", "100000", "10000000"})
+  public int size;
+
+  @Param({"2", "8", "32"})
+  public int k;
+
+  @Param({"blobs", "uniform"})
+  public String distribution;
+
+  @Param({"LLOYD", "HAMERLY", "MINI_BATCH"})
+  public String algorithm;
+
+  @Param({"KMEANS_PLUS_PLUS"})
+  public String init;
+
+  @Param({"1"})
+  public int parallelism;
+
+  @Param({"100"})
+  public int maxIterations;
+
+  private Object points;
+  private Object options;
+
+  /**
+   * Builds the points and options once per trial.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    points = Datasets.build(distribution, size, 11);
+    options = ClusterFit.options(12, init, algorithm, maxIterations, parallelism);
+  }
+
+  /**
+   * Clusters the points.
+   *
+   * @return the KMeansResult, or the TimeoutException of a run that hit the limit.
+   * @throws Throwable if kmeans throws anything else.
+   */
+  @Benchmark
+  public Object kmeans() throws Throwable {
+    try {
+      return (Object) ClusterFit.KMEANS.invokeExact(points, k, options);
+    } catch (TimeoutException e) {
+      return e;
+    }
+  }
+}
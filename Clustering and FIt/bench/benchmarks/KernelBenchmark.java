@@ -0,0 +1,80 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark compares the vector and scalar kernels on the passes that use them: fitLine,
+ * and a kMeans run with Lloyd iterations and kMeans++ seeding. The backend is picked by the
+ * clusterfit.vector system property, which is read once, so every backend runs in forks of
+ * its own. The forks load jdk.incubator.vector; the vector backend also needs the classes of
+ * the vector folder on the classpath, otherwise both backends measure the scalar code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class KernelBenchmark {
+
+  @Param({"true", "false"})
+  public String vector;
+
+  @Param({"1000000"})
+  public int size;
+
+  @Param({"2", "8", "32"})
+  public int k;
+
+  private Object points;
+  private Object options;
+
+  /**
+   * Picks the backend, then builds the points and options once per trial.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    System.setProperty("clusterfit.vector", vector);
+    points = Datasets.build("blobs", size, 11);
+    options = ClusterFit.options(12, "KMEANS_PLUS_PLUS", "LLOYD", 20, 1);
+  }
+
+  /**
+   * Fits a line through the points.
+   *
+   * @return the Line.
+   * @throws Throwable if fitLine throws.
+   */
+  @Benchmark
+  public Object fitLine() throws Throwable {
+    return (Object) ClusterFit.FIT_LINE.invokeExact(points);
+  }
+
+  /**
+   * Clusters the points with at most 20 Lloyd iterations.
+   *
+   * @return the KMeansResult, or the TimeoutException of a run that hit the limit.
+   * @throws Throwable if kmeans throws anything else.
+   */
+  @Benchmark
+  public Object kmeans() throws Throwable {
+    try {
+      return (Object) ClusterFit.KMEANS.invokeExact(points, k, options);
+    } catch (TimeoutException e) {
+      return e;
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures the original ListOfPoints.kmeans(int), which seeds at random and
+ * boxes every label into an ArrayList. Its seed changes from call to call, so expect more
+ * spread than KMeansBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class LegacyKMeansBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int size;
+
+  @Param({"2", "8"})
+  public int k;
+
+  @Param({"blobs"})
+  public String distribution;
+
+  private Object points;
+
+  /**
+   * Builds the points once per trial.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    points = Datasets.build(distribution, size, 13);
+  }
+
+  /**
+   * Clusters the points.
+   *
+   * @return the labels, or the TimeoutException of a run that hit the limit.
+   * @throws Throwable if kmeans throws anything else.
+   */
+  @Benchmark
+  public Object kmeans() throws Throwable {
+    try {
+      return (ArrayList<?>) ClusterFit.KMEANS_LEGACY.invokeExact(points, k);
+    } catch (TimeoutException e) {
+      return e;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This benchmark measures Point.distance over a fixed set of point pairs, reported per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PointDistanceBenchmark {
+
+  private static final int PAIRS = 1024;
+
+  private Object[] from;
+  private Object[] to;
+
+  /**
+   * Makes the pairs of points.
+   *
+   * @throws Throwable if a Point cannot be made.
+   */
+  @Setup
+  public void setUp() throws Throwable {
+    SplittableRandom random = new SplittableRandom(14);
+    from = new Object[PAIRS];
+    to = new Object[PAIRS];
+    for (int i = 0; i < PAIRS; i++) {
+      from[i] = (Object) ClusterFit.NEW_POINT.invokeExact(random.nextDouble(-1000, 1000),
+          random.nextDouble(-1000, 1000));
+      to[i] = (Object) ClusterFit.NEW_POINT.invokeExact(random.nextDouble(-1000, 1000),
+          random.nextDouble(-1000, 1000));
+    }
+  }
+
+  /**
+   * Sums the distance of every pair.
+   *
+   * @return the sum, so the work is not optimized away.
+   * @throws Throwable if distance throws.
+   */
+  @Benchmark
+  @OperationsPerInvocation(PAIRS)
+  public double distance() throws Throwable {
+    double sum = 0;
+    for (int i = 0; i < PAIRS; i++) {
+      sum += (double) ClusterFit.DISTANCE.invokeExact(from[i], to[i]);
+    }
+    return sum;
+  }
+}
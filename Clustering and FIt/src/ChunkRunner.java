@@ -0,0 +1,182 @@
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * This class runs a pass over the points as a number of chunks, either one after the other on
+ * the calling thread or spread over the threads of an executor. The chunks are always the
+ * same fixed ranges of points, however many threads there are. A pass that keeps one partial
+ * result per chunk and merges them in chunk order gets exactly the same answer on one thread
+ * as on thirty-two.
+ */
+final class ChunkRunner implements AutoCloseable {
+
+  /**
+   * The number of points in every chunk but the last.
+   */
+  static final int CHUNK_SIZE = 1 << 16;
+
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final int parallelism;
+
+  /**
+   * Constructor for a runner.
+   *
+   * @param executor     is the executor to run chunks on, or null to run on the caller.
+   * @param ownsExecutor is true if the executor should be shut down by close.
+   * @param parallelism  is the number of chunks to run at once.
+   */
+  private ChunkRunner(ExecutorService executor, boolean ownsExecutor, int parallelism) {
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Makes a runner that runs every chunk on the calling thread.
+   *
+   * @return a sequential runner.
+   */
+  static ChunkRunner sequential() {
+    return new ChunkRunner(null, false, 1);
+  }
+
+  /**
+   * Makes a runner from the parallel settings in options. A supplied executor is used as it
+   * is, otherwise a parallelism above 1 gets a pool of its own that close shuts down.
+   *
+   * @param options is the options for the run.
+   * @return a runner for the run.
+   */
+  static ChunkRunner forOptions(KMeansOptions options) {
+    return create(options.getParallelism(), options.getExecutor());
+  }
+
+  /**
+   * Makes a runner for the given parallelism and executor.
+   *
+   * @param parallelism is the number of chunks to run at once. With an executor, 0 or 1
+   *                    uses the executor's own parallelism, or the number of processors if
+   *                    it has none. Without one, 0 uses the number of processors.
+   * @param executor    is the executor to use, or null.
+   * @return a runner.
+   */
+  static ChunkRunner create(int parallelism, ExecutorService executor) {
+    if (executor != null) {
+      if (parallelism <= 1) {
+        parallelism = executor instanceof ForkJoinPool
+            ? ((ForkJoinPool) executor).getParallelism()
+            : Runtime.getRuntime().availableProcessors();
+      }
+      return new ChunkRunner(executor, false, parallelism);
+    }
+    if (parallelism <= 0) {
+      parallelism = Runtime.getRuntime().availableProcessors();
+    }
+    if (parallelism == 1) {
+      return sequential();
+    }
+    return new ChunkRunner(new ForkJoinPool(parallelism), true, parallelism);
+  }
+
+  /**
+   * Gets the number of chunks that a pass over n points is split into.
+   *
+   * @param n is the number of points.
+   * @return the number of chunks.
+   */
+  static int chunkCount(int n) {
+    return (int) (((long) n + CHUNK_SIZE - 1) / CHUNK_SIZE);
+  }
+
+  /**
+   * Gets the number of chunks this runner runs at once.
+   *
+   * @return the parallelism.
+   */
+  int getParallelism() {
+    return this.parallelism;
+  }
+
+  /**
+   * Runs task for every chunk from 0 to chunks - 1 and waits for all of them. Each chunk
+   * runs exactly once, and two chunks never share a thread at the same time. An interrupt
+   * of the calling thread does not cut the pass short: run still waits for every chunk, so
+   * the pass is whole, and sets the interrupt flag again before it returns. Callers see the
+   * flag at their next check, such as RunBudget.exhausted.
+   *
+   * @param chunks is the number of chunks.
+   * @param task   is the work for one chunk, given the chunk number.
+   */
+  void run(int chunks, IntConsumer task) {
+    int workers = Math.min(parallelism, chunks);
+    if (executor == null || workers <= 1) {
+      for (int chunk = 0; chunk < chunks; chunk++) {
+        task.accept(chunk);
+      }
+      return;
+    }
+
+    // A few workers pull chunk numbers from a counter, so slow chunks even out.
+    AtomicInteger next = new AtomicInteger();
+    Runnable worker = () -> {
+      int chunk;
+      while ((chunk = next.getAndIncrement()) < chunks) {
+        task.accept(chunk);
+      }
+    };
+    ArrayList<Future<?>> futures = new ArrayList<Future<?>>(workers);
+    for (int i = 0; i < workers; i++) {
+      futures.add(executor.submit(worker));
+    }
+
+    // Wait for every worker, even after an interrupt or a failure, so no chunk is still
+    // writing into the caller's arrays once run returns or throws.
+    boolean interrupted = false;
+    Throwable failure = null;
+    for (Future<?> future : futures) {
+      boolean done = false;
+      while (!done) {
+        try {
+          future.get();
+          done = true;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+            next.set(chunks);
+          }
+          done = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    if (failure != null) {
+      throw new IllegalStateException(failure);
+    }
+  }
+
+  /**
+   * Shuts down the pool if this runner made it.
+   */
+  @Override
+  public void close() {
+    if (ownsExecutor) {
+      executor.shutdown();
+    }
+  }
+}
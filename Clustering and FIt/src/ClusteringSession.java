@@ -0,0 +1,105 @@
+import java.util.Arrays;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This class clusters a ListOfPoints again and again as points are added to it, starting
+ * each run from where the last one ended instead of from new seeds. It keeps the centers,
+ * the cluster of every point and, for Hamerly runs, the distance bounds of every point.
+ *
+ * <p>When only a few points were added since the last run, the old centers are already close
+ * to the answer and a run takes a few iterations. With the HAMERLY algorithm, the old points
+ * keep their bounds, so in each of those iterations only the new points and the points the
+ * bounds cannot settle are compared against every center. The clusters are the same as a
+ * Lloyd run from the old centers would give.
+ *
+ * <p>A session is made with ListOfPoints.clusteringSession and is not safe to use from more
+ * than one thread at a time.
+ */
+public class ClusteringSession {
+  private final PointColumns columns;
+  private final int k;
+  private final KMeansOptions options;
+  private final double[] centersX;
+  private final double[] centersY;
+  private final int[] counts;
+  private int[] clusters;
+  private KMeansStep step;
+  private KMeansResult lastResult;
+
+  /**
+   * Constructor for a session that has not run yet.
+   *
+   * @param columns is the points to cluster.
+   * @param k       is the number of clusters.
+   * @param options is the options for every run, which should not change while the session
+   *                is in use.
+   * @throws IllegalArgumentException if options picks the MINI_BATCH algorithm.
+   */
+  ClusteringSession(PointColumns columns, int k, KMeansOptions options)
+      throws IllegalArgumentException {
+    if (options.getAlgorithm() == KMeansOptions.Algorithm.MINI_BATCH) {
+      throw new IllegalArgumentException("Sessions run full iterations, use MiniBatchKMeans "
+          + "for mini-batch updates");
+    }
+    this.columns = columns;
+    this.k = k;
+    this.options = options;
+    this.centersX = new double[k];
+    this.centersY = new double[k];
+    this.counts = new int[k];
+    this.clusters = new int[0];
+    this.step = null;
+    this.lastResult = null;
+  }
+
+  /**
+   * Clusters the points as they are now. The first run seeds the centers as options says.
+   * Every run after that starts from the centers and clusters of the run before. The points
+   * added since then start without a cluster, so they are compared against every center;
+   * Lloyd runs compare every point against every center anyway, and Hamerly runs also
+   * settle the old points by their bounds.
+   *
+   * @return the clusters found. The result is not changed by later runs.
+   * @throws TimeoutException if the run reaches the iteration limit in options without the
+   *                          error settling below the tolerance. The session keeps where the
+   *                          run got to, so the next run goes on from there.
+   */
+  public KMeansResult recluster() throws TimeoutException {
+    int n = columns.size();
+    if (clusters.length < n) {
+      int old = clusters.length;
+      clusters = Arrays.copyOf(clusters, n);
+      Arrays.fill(clusters, old, n, -1);
+    }
+    try (ChunkRunner runner = ChunkRunner.forOptions(options)) {
+      if (step == null) {
+        KMeansSeeding.seed(columns, k, options, runner, centersX, centersY);
+        step = KMeans.newStep(options, n, k);
+      }
+      KMeansResult result = KMeans.iterate(columns, options, runner, step, centersX, centersY,
+          clusters, counts);
+      lastResult = new KMeansResult(clusters.clone(), centersX.clone(), centersY.clone(),
+          result.getInertia(), result.getIterations(), result.getDistanceComputations(),
+          result.getSkippedDistanceComputations(), result.getStatus());
+      return lastResult;
+    }
+  }
+
+  /**
+   * Gets the result of the last run.
+   *
+   * @return the last result, or null if the session has not run yet.
+   */
+  public KMeansResult getLastResult() {
+    return this.lastResult;
+  }
+
+  /**
+   * Gets the number of clusters.
+   *
+   * @return the number of clusters.
+   */
+  public int getK() {
+    return this.k;
+  }
+}
@@ -0,0 +1,316 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This class is a coreset of a List of Points: a few thousand weighted points whose kMeans
+ * cost for any k centers is close to the cost of the whole list. Clustering the coreset is
+ * far quicker than clustering the list, and its centers can then be used to label the list
+ * in one more pass.
+ *
+ * <p>The coreset is built by sensitivity sampling. A rough set of k centers is seeded on the
+ * whole list, and each point is scored by how much it can matter to the cost: points far
+ * from their rough center and points in small rough clusters score high. Each point is kept
+ * with probability proportional to its score, at most 1, and weighted by one over that
+ * probability, so the weighted cost of the coreset is an unbiased estimate of the cost of
+ * the list.
+ */
+public final class Coreset {
+  private final double[] xs;
+  private final double[] ys;
+  private final double[] weights;
+  private final long computed;
+
+  /**
+   * Constructor for a coreset. The arrays are kept, not copied.
+   *
+   * @param xs       is the xCoord of each point.
+   * @param ys       is the yCoord of each point.
+   * @param weights  is the weight of each point.
+   * @param computed is the number of distances computed to build the coreset.
+   */
+  Coreset(double[] xs, double[] ys, double[] weights, long computed) {
+    this.xs = xs;
+    this.ys = ys;
+    this.weights = weights;
+    this.computed = computed;
+  }
+
+  /**
+   * Builds a coreset of about size points. A list of size points or fewer is its own
+   * coreset, with every weight 1. Otherwise the rough centers are seeded as options says,
+   * and the points are kept by draws that depend only on the seed and their index.
+   *
+   * @param columns is the points.
+   * @param k       is the number of clusters the coreset is for.
+   * @param size    is the expected number of points in the coreset.
+   * @param options is the seed, seeding method and parallelism.
+   * @param runner  is the runner for the chunks of each pass over the points.
+   * @return the coreset.
+   */
+  static Coreset build(PointColumns columns, int k, int size, KMeansOptions options,
+                       ChunkRunner runner) {
+    int n = columns.size();
+    if (n <= size) {
+      double[] xs = new double[n];
+      double[] ys = new double[n];
+      double[] weights = new double[n];
+      copy(columns, 0, n, xs, ys);
+      Arrays.fill(weights, 1);
+      return new Coreset(xs, ys, weights, 0);
+    }
+
+    double[] roughX = new double[k];
+    double[] roughY = new double[k];
+    KMeansSeeding.seed(columns, k, options, runner, roughX, roughY);
+
+    // First pass: the size and cost of each rough cluster.
+    int chunks = ChunkRunner.chunkCount(n);
+    long[] chunkCounts = new long[chunks * k];
+    double[] chunkCosts = new double[chunks * k];
+    NearestCenters.forEachBlock(n, columns::load, roughX, roughY, k, runner,
+        (chunk, block, nearest, distances) -> {
+          int base = chunk * k;
+          for (int i = 0; i < block.length; i++) {
+            chunkCounts[base + nearest[i]]++;
+            chunkCosts[base + nearest[i]] = distances[i] + chunkCosts[base + nearest[i]];
+          }
+        });
+    long[] counts = new long[k];
+    double[] costs = new double[k];
+    double cost = 0;
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      for (int c = 0; c < k; c++) {
+        counts[c] += chunkCounts[chunk * k + c];
+        costs[c] = chunkCosts[chunk * k + c] + costs[c];
+      }
+    }
+    for (int c = 0; c < k; c++) {
+      cost = costs[c] + cost;
+    }
+
+    // The sensitivity bound of Bachem, Lucic and Krause: a point x in rough cluster C scores
+    // alpha d(x)^2 / mean + 2 alpha cost(C) / (|C| mean) + 4 n / |C|, where mean is the mean
+    // cost of a point. The scores of the points in C add up to alpha cost(C) / mean +
+    // 2 alpha cost(C) / mean + 4 n.
+    double alpha = 16 * (Math.log(k) + 2);
+    double mean = cost / n;
+    double perCost = mean > 0 ? alpha / mean : 0;
+    double[] clusterScores = new double[k];
+    double total = 0;
+    for (int c = 0; c < k; c++) {
+      if (counts[c] > 0) {
+        clusterScores[c] = (2 * perCost * costs[c] + 4.0 * n) / counts[c];
+        total = (3 * perCost * costs[c] + 4.0 * n) + total;
+      }
+    }
+
+    // Second pass: keep each point with probability size * score / total, at most 1.
+    double scale = size / total;
+    long drawSeed = new SplittableRandom(options.getSeed()).nextLong();
+    int[][] chunkPicks = new int[chunks][16];
+    double[][] chunkWeights = new double[chunks][16];
+    int[] chunkPicked = new int[chunks];
+    NearestCenters.forEachBlock(n, columns::load, roughX, roughY, k, runner,
+        (chunk, block, nearest, distances) -> {
+          int count = chunkPicked[chunk];
+          for (int i = 0; i < block.length; i++) {
+            double score = perCost * distances[i] + clusterScores[nearest[i]];
+            double probability = Math.min(1, scale * score);
+            int index = block.start + i;
+            if (KMeansSeeding.uniform(drawSeed, 0, index) < probability) {
+              if (count == chunkPicks[chunk].length) {
+                chunkPicks[chunk] = Arrays.copyOf(chunkPicks[chunk], count * 2);
+                chunkWeights[chunk] = Arrays.copyOf(chunkWeights[chunk], count * 2);
+              }
+              chunkPicks[chunk][count] = index;
+              chunkWeights[chunk][count] = 1 / probability;
+              count++;
+            }
+          }
+          chunkPicked[chunk] = count;
+        });
+
+    int picked = 0;
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      picked += chunkPicked[chunk];
+    }
+    double[] xs = new double[picked];
+    double[] ys = new double[picked];
+    double[] weights = new double[picked];
+    int at = 0;
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      for (int j = 0; j < chunkPicked[chunk]; j++) {
+        int index = chunkPicks[chunk][j];
+        xs[at] = columns.getX(index);
+        ys[at] = columns.getY(index);
+        weights[at] = chunkWeights[chunk][j];
+        at++;
+      }
+    }
+    return new Coreset(xs, ys, weights, 2L * n * k);
+  }
+
+  /**
+   * Copies a range of points out of the columns.
+   *
+   * @param columns is the points.
+   * @param from    is the first point to copy.
+   * @param count   is the number of points to copy.
+   * @param xs      is filled with the xCoord of each point.
+   * @param ys      is filled with the yCoord of each point.
+   */
+  private static void copy(PointColumns columns, int from, int count, double[] xs,
+                           double[] ys) {
+    PointBlock block = new PointBlock();
+    for (int start = from; start < from + count; start += PointColumns.BLOCK_SIZE) {
+      columns.load(start, Math.min(PointColumns.BLOCK_SIZE, from + count - start), block);
+      System.arraycopy(block.xs, block.offset, xs, block.start - from, block.length);
+      System.arraycopy(block.ys, block.offset, ys, block.start - from, block.length);
+    }
+  }
+
+  /**
+   * Gets the number of points in the coreset.
+   *
+   * @return the number of points.
+   */
+  public int size() {
+    return this.xs.length;
+  }
+
+  /**
+   * Gets a point of the coreset.
+   *
+   * @param i is the index of the point.
+   * @return the point.
+   * @throws IndexOutOfBoundsException if i is not the index of a point.
+   */
+  public Point getPoint(int i) throws IndexOutOfBoundsException {
+    return new Point(this.xs[i], this.ys[i]);
+  }
+
+  /**
+   * Gets the weight of a point of the coreset, the number of points of the list it stands
+   * for.
+   *
+   * @param i is the index of the point.
+   * @return the weight.
+   * @throws IndexOutOfBoundsException if i is not the index of a point.
+   */
+  public double getWeight(int i) throws IndexOutOfBoundsException {
+    return this.weights[i];
+  }
+
+  /**
+   * Gets the sum of the weights, an estimate of the number of points in the list.
+   *
+   * @return the total weight.
+   */
+  public double getTotalWeight() {
+    double total = 0;
+    for (double weight : this.weights) {
+      total = weight + total;
+    }
+    return total;
+  }
+
+  /**
+   * Finds k clusters of the coreset by weighted Lloyd iterations, where each point pulls its
+   * center by its weight. The first centers are the initial centers in options if it has
+   * them, otherwise they are picked by weighted kMeans++ from the seed in options. The
+   * labels of the result are the clusters of the coreset points, and its inertia is the
+   * weighted cost, an estimate of the cost of the centers on the whole list. The algorithm,
+   * restarts, time limit and listener in options are not used, since the coreset is small.
+   *
+   * @param k       is the number of clusters.
+   * @param options is the seed, initial centers, iteration limit and tolerance.
+   * @return the result for the coreset points.
+   * @throws TimeoutException         if the run reaches the iteration limit in options
+   *                                  without finding acceptable error threshold.
+   * @throws IllegalArgumentException if k is less than 1 or more than the size of the
+   *                                  coreset, or options has initial centers but not k
+   *                                  two-dimensional ones.
+   */
+  public KMeansResult kmeans(int k, KMeansOptions options)
+      throws TimeoutException, IllegalArgumentException {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be non-zero, positive int");
+    }
+
+    if (k > size()) {
+      throw new IllegalArgumentException("More clusters than points on graph.");
+    }
+
+    int n = size();
+    double[] centersX = new double[k];
+    double[] centersY = new double[k];
+    options.checkInitialCenters(k, 2);
+    double[] initialX = options.getInitialCentersX();
+    if (initialX != null) {
+      System.arraycopy(initialX, 0, centersX, 0, k);
+      System.arraycopy(options.getInitialCentersY(), 0, centersY, 0, k);
+    } else {
+      KMeansSeeding.weightedPlusPlus(xs, ys, weights, n, k,
+          new SplittableRandom(options.getSeed()), centersX, centersY);
+    }
+
+    int[] labels = new int[n];
+    double[] sumsX = new double[k];
+    double[] sumsY = new double[k];
+    double[] sumsW = new double[k];
+    double error = Double.POSITIVE_INFINITY;
+    for (int iteration = 1; iteration <= options.getMaxIterations(); iteration++) {
+      Arrays.fill(sumsX, 0);
+      Arrays.fill(sumsY, 0);
+      Arrays.fill(sumsW, 0);
+      double newError = 0;
+      for (int i = 0; i < n; i++) {
+        int nearest = KMeansSeeding.nearest(xs[i], ys[i], centersX, centersY, k);
+        double dx = xs[i] - centersX[nearest];
+        double dy = ys[i] - centersY[nearest];
+        labels[i] = nearest;
+        sumsX[nearest] = (weights[i] * xs[i]) + sumsX[nearest];
+        sumsY[nearest] = (weights[i] * ys[i]) + sumsY[nearest];
+        sumsW[nearest] = weights[i] + sumsW[nearest];
+        newError = (weights[i] * ((dx * dx) + (dy * dy))) + newError;
+      }
+      boolean empty = false;
+      for (int c = 0; c < k; c++) {
+        if (sumsW[c] > 0) {
+          centersX[c] = sumsX[c] / sumsW[c];
+          centersY[c] = sumsY[c] / sumsW[c];
+        } else {
+          empty = true;
+        }
+      }
+      if (KMeans.converged(error, newError, empty, options.getTolerance())) {
+        return new KMeansResult(labels, centersX, centersY, newError, iteration,
+            (long) iteration * n * k, 0, KMeansResult.Status.CONVERGED);
+      }
+      error = newError;
+    }
+    throw new TimeoutException("Ran too long -- No kMeans determined");
+  }
+
+  /**
+   * Labels every point of a list with its nearest center from a run on its coreset, in one
+   * pass split into the fixed chunks of the runner.
+   *
+   * @param columns is the points of the list.
+   * @param summary is the result of the run on the coreset.
+   * @param runner  is the runner for the chunks of the pass.
+   * @return the result for the list, with the centers, iterations and status of the run on
+   *         the coreset and the labels and inertia of the list.
+   */
+  KMeansResult label(PointColumns columns, KMeansResult summary, ChunkRunner runner) {
+    int n = columns.size();
+    int k = summary.getK();
+    double[] centersX = summary.getCentersX();
+    double[] centersY = summary.getCentersY();
+    int[] labels = new int[n];
+    double inertia = NearestCenters.label(columns, centersX, centersY, k, runner, labels);
+    return new KMeansResult(labels, centersX, centersY, inertia, summary.getIterations(),
+        computed + summary.getDistanceComputations() + (long) n * k, 0, summary.getStatus());
+  }
+}
@@ -0,0 +1,506 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class runs DBSCAN over the columns of a ListOfPoints, with the points bucketed into a
+ * uniform grid so that the neighbours of a point are only looked for in the cells near it.
+ *
+ * <p>The cells are a hair under eps / sqrt(2) wide, so any two points in the same cell are
+ * within eps of each other, and the points within eps of a cell lie in the 5 by 5 block of
+ * cells around it. A cell holding minPts points or more is all core points without measuring
+ * a distance, and two cells belong to the same cluster as soon as one pair of their core
+ * points is within eps. The run goes in passes over the cells:
+ * <ol>
+ *   <li>Sort the points by cell, on the calling thread.</li>
+ *   <li>Mark the core points, in parallel.</li>
+ *   <li>Find which neighbouring cells of core points connect, in parallel, and join them
+ *   in cell order.</li>
+ *   <li>Give each border point the cluster of its nearest core point, in parallel.</li>
+ * </ol>
+ * Every pass writes only to its own cells or in a fixed order. Clusters are numbered from 0
+ * in the order of their lowest point.
+ */
+final class Dbscan {
+
+  /**
+   * The label of a point in no cluster.
+   */
+  static final int NOISE = -1;
+
+  /**
+   * The number of cells handled by one task of a parallel pass.
+   */
+  static final int CELLS_PER_TASK = 1024;
+
+  private final double eps;
+  private final double squaredEps;
+  private final int minPts;
+  private final int n;
+
+  // The points sorted by cell, and the index of each in the list.
+  private final double[] xs;
+  private final double[] ys;
+  private final int[] order;
+
+  // The key of each cell in increasing order, and where its points start in the arrays.
+  private long[] cellKeys;
+  private int[] cellStarts;
+  private long height;
+
+  private final boolean[] core;
+  private final boolean[] coreCells;
+  private int[] parents;
+
+  /**
+   * Constructor for a run, which copies the points.
+   *
+   * @param columns is the points to cluster.
+   * @param eps     is the largest distance between neighbours.
+   * @param minPts  is the number of neighbours, itself included, that makes a core point.
+   */
+  private Dbscan(PointColumns columns, double eps, int minPts) {
+    this.eps = eps;
+    this.squaredEps = eps * eps;
+    this.minPts = minPts;
+    this.n = columns.size();
+    this.xs = new double[n];
+    this.ys = new double[n];
+    this.order = new int[n];
+    this.core = new boolean[n];
+    PointBlock block = new PointBlock();
+    for (int from = 0; from < n; from += PointColumns.BLOCK_SIZE) {
+      columns.load(from, Math.min(PointColumns.BLOCK_SIZE, n - from), block);
+      System.arraycopy(block.xs, block.offset, xs, from, block.length);
+      System.arraycopy(block.ys, block.offset, ys, from, block.length);
+    }
+    sortIntoCells();
+    this.coreCells = new boolean[cellKeys.length];
+  }
+
+  /**
+   * Clusters the points in columns. Lists of at least FitSums.PARALLEL_THRESHOLD points run
+   * on the common ForkJoinPool, smaller ones on the calling thread.
+   *
+   * @param columns is the points to cluster.
+   * @param eps     is the largest distance between neighbours.
+   * @param minPts  is the number of neighbours, itself included, that makes a core point.
+   * @return the cluster of each point, or NOISE.
+   * @throws IllegalArgumentException if eps is too small for the spread of the points.
+   */
+  static int[] run(PointColumns columns, double eps, int minPts)
+      throws IllegalArgumentException {
+    if (columns.size() < FitSums.PARALLEL_THRESHOLD) {
+      return run(columns, eps, minPts, ChunkRunner.sequential());
+    }
+    try (ChunkRunner runner = ChunkRunner.create(0, ForkJoinPool.commonPool())) {
+      return run(columns, eps, minPts, runner);
+    }
+  }
+
+  /**
+   * Clusters the points in columns, running the parallel passes on runner.
+   *
+   * @param columns is the points to cluster.
+   * @param eps     is the largest distance between neighbours.
+   * @param minPts  is the number of neighbours, itself included, that makes a core point.
+   * @param runner  is the runner for the tasks of each pass.
+   * @return the cluster of each point, or NOISE.
+   * @throws IllegalArgumentException if eps is too small for the spread of the points.
+   */
+  static int[] run(PointColumns columns, double eps, int minPts, ChunkRunner runner)
+      throws IllegalArgumentException {
+    if (columns.size() == 0) {
+      return new int[0];
+    }
+    Dbscan dbscan = new Dbscan(columns, eps, minPts);
+    int cells = dbscan.cellKeys.length;
+    int tasks = (cells + CELLS_PER_TASK - 1) / CELLS_PER_TASK;
+
+    runner.run(tasks, task -> dbscan.markCore(task * CELLS_PER_TASK,
+        Math.min(cells, (task + 1) * CELLS_PER_TASK)));
+
+    long[][] links = new long[tasks][];
+    runner.run(tasks, task -> links[task] = dbscan.findLinks(task * CELLS_PER_TASK,
+        Math.min(cells, (task + 1) * CELLS_PER_TASK)));
+    dbscan.parents = new int[cells];
+    for (int c = 0; c < cells; c++) {
+      dbscan.parents[c] = c;
+    }
+    for (long[] taskLinks : links) {
+      // The first element is the number of links found by the task.
+      for (int i = 1; i <= taskLinks[0]; i++) {
+        dbscan.union((int) (taskLinks[i] >>> 32), (int) taskLinks[i]);
+      }
+    }
+
+    int[] roots = new int[dbscan.n];
+    runner.run(tasks, task -> dbscan.findRoots(task * CELLS_PER_TASK,
+        Math.min(cells, (task + 1) * CELLS_PER_TASK), roots));
+    return dbscan.number(roots);
+  }
+
+  /**
+   * Sorts the points by the key of their cell, and fills in the cells. The key of the cell
+   * in column cx and row cy is cx * height + cy.
+   *
+   * @throws IllegalArgumentException if there would be too many cells for a key.
+   */
+  private void sortIntoCells() throws IllegalArgumentException {
+    double minX = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < n; i++) {
+      minX = Math.min(minX, xs[i]);
+      maxX = Math.max(maxX, xs[i]);
+      minY = Math.min(minY, ys[i]);
+      maxY = Math.max(maxY, ys[i]);
+    }
+    // A hair under eps / sqrt(2), so rounding can never put two points more than eps apart
+    // in one cell.
+    double side = eps / Math.sqrt(2) * (1 - 1e-9);
+    double width = Math.floor((maxX - minX) / side) + 1;
+    height = (long) (Math.floor((maxY - minY) / side) + 1);
+    if (!(width * height < (double) (1L << 62))) {
+      throw new IllegalArgumentException("eps is too small for the spread of the points");
+    }
+
+    long[] keys = new long[n];
+    int[] indices = new int[n];
+    long maxKey = 0;
+    for (int i = 0; i < n; i++) {
+      long cx = (long) ((xs[i] - minX) / side);
+      long cy = Math.min(height - 1, (long) ((ys[i] - minY) / side));
+      keys[i] = cx * height + cy;
+      indices[i] = i;
+      maxKey = Math.max(maxKey, keys[i]);
+    }
+    radixSort(keys, indices, 64 - Long.numberOfLeadingZeros(maxKey));
+
+    double[] sortedX = new double[n];
+    double[] sortedY = new double[n];
+    int cells = 0;
+    for (int i = 0; i < n; i++) {
+      sortedX[i] = xs[indices[i]];
+      sortedY[i] = ys[indices[i]];
+      if (i == 0 || keys[i] != keys[i - 1]) {
+        cells++;
+      }
+    }
+    System.arraycopy(sortedX, 0, xs, 0, n);
+    System.arraycopy(sortedY, 0, ys, 0, n);
+    System.arraycopy(indices, 0, order, 0, n);
+
+    cellKeys = new long[cells];
+    cellStarts = new int[cells + 1];
+    int cell = 0;
+    for (int i = 0; i < n; i++) {
+      if (i == 0 || keys[i] != keys[i - 1]) {
+        cellKeys[cell] = keys[i];
+        cellStarts[cell] = i;
+        cell++;
+      }
+    }
+    cellStarts[cells] = n;
+  }
+
+  /**
+   * Sorts keys and their indices together by key, keeping points with the same key in the
+   * order they came in, with one counting pass per byte of the keys.
+   *
+   * @param keys    is the keys to sort.
+   * @param indices is the index with each key.
+   * @param bits    is the number of low bits the keys use.
+   */
+  private static void radixSort(long[] keys, int[] indices, int bits) {
+    int n = keys.length;
+    long[] keysTo = new long[n];
+    int[] indicesTo = new int[n];
+    int[] counts = new int[257];
+    for (int shift = 0; shift < bits; shift += 8) {
+      Arrays.fill(counts, 0);
+      for (int i = 0; i < n; i++) {
+        counts[(int) ((keys[i] >>> shift) & 0xff) + 1]++;
+      }
+      for (int b = 0; b < 256; b++) {
+        counts[b + 1] += counts[b];
+      }
+      for (int i = 0; i < n; i++) {
+        int place = counts[(int) ((keys[i] >>> shift) & 0xff)]++;
+        keysTo[place] = keys[i];
+        indicesTo[place] = indices[i];
+      }
+      System.arraycopy(keysTo, 0, keys, 0, n);
+      System.arraycopy(indicesTo, 0, indices, 0, n);
+    }
+  }
+
+  /**
+   * Finds the cells whose points may be within eps of the points of a cell: the cells of the
+   * 5 by 5 block around it that hold any points. Each of the five columns of the block is a
+   * run of keys, found from where the cursor for that column was left. A task asks for its
+   * cells in increasing order, so the cursors only move forward.
+   *
+   * @param cell       is the cell.
+   * @param neighbours is filled with the neighbouring cells, the cell itself included.
+   * @param cursors    is where each column of the block was found last, -1 at first.
+   * @return the number of neighbouring cells.
+   */
+  private int neighbours(int cell, int[] neighbours, int[] cursors) {
+    long key = cellKeys[cell];
+    long cx = key / height;
+    long cy = key % height;
+    int count = 0;
+    for (int column = 0; column < 5; column++) {
+      long x = cx + column - 2;
+      if (x < 0) {
+        continue;
+      }
+      long first = x * height + Math.max(0, cy - 2);
+      long last = x * height + Math.min(height - 1, cy + 2);
+      int c = cursors[column];
+      int steps = 0;
+      while (c >= 0 && c < cellKeys.length && cellKeys[c] < first && steps < 8) {
+        c++;
+        steps++;
+      }
+      if (c < 0 || (c < cellKeys.length && cellKeys[c] < first)) {
+        c = Arrays.binarySearch(cellKeys, Math.max(c, 0), cellKeys.length, first);
+        if (c < 0) {
+          c = -c - 1;
+        }
+      }
+      cursors[column] = c;
+      for (; c < cellKeys.length && cellKeys[c] <= last; c++) {
+        neighbours[count++] = c;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Marks the core points of the cells [from, to).
+   *
+   * @param from is the first cell.
+   * @param to   is one past the last cell.
+   */
+  private void markCore(int from, int to) {
+    int[] near = new int[25];
+    int[] cursors = {-1, -1, -1, -1, -1};
+    for (int cell = from; cell < to; cell++) {
+      int start = cellStarts[cell];
+      int end = cellStarts[cell + 1];
+      if (end - start >= minPts) {
+        Arrays.fill(core, start, end, true);
+        coreCells[cell] = true;
+        continue;
+      }
+      int count = neighbours(cell, near, cursors);
+      for (int p = start; p < end; p++) {
+        // Points in the same cell are all within eps.
+        int found = end - start;
+        for (int c = 0; c < count && found < minPts; c++) {
+          if (near[c] == cell) {
+            continue;
+          }
+          for (int q = cellStarts[near[c]]; q < cellStarts[near[c] + 1]; q++) {
+            if (distance(p, q) <= squaredEps && ++found >= minPts) {
+              break;
+            }
+          }
+        }
+        if (found >= minPts) {
+          core[p] = true;
+          coreCells[cell] = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Finds the links from the core cells in [from, to) to later neighbouring core cells that
+   * have a pair of core points within eps.
+   *
+   * @param from is the first cell.
+   * @param to   is one past the last cell.
+   * @return the number of links, followed by each link as the first cell in the high half
+   *         and the second in the low half.
+   */
+  private long[] findLinks(int from, int to) {
+    int[] near = new int[25];
+    int[] cursors = {-1, -1, -1, -1, -1};
+    long[] links = new long[16];
+    int size = 0;
+    for (int cell = from; cell < to; cell++) {
+      if (!coreCells[cell]) {
+        continue;
+      }
+      int count = neighbours(cell, near, cursors);
+      for (int c = 0; c < count; c++) {
+        int other = near[c];
+        if (other > cell && coreCells[other] && connected(cell, other)) {
+          if (size + 2 > links.length) {
+            links = Arrays.copyOf(links, links.length * 2);
+          }
+          links[++size] = ((long) cell << 32) | other;
+        }
+      }
+    }
+    links[0] = size;
+    return links;
+  }
+
+  /**
+   * Checks if two cells have a pair of core points within eps.
+   *
+   * @param a is one cell.
+   * @param b is the other cell.
+   * @return true if they connect.
+   */
+  private boolean connected(int a, int b) {
+    for (int p = cellStarts[a]; p < cellStarts[a + 1]; p++) {
+      if (!core[p]) {
+        continue;
+      }
+      for (int q = cellStarts[b]; q < cellStarts[b + 1]; q++) {
+        if (core[q] && distance(p, q) <= squaredEps) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Joins the clusters of two cells, keeping the lower root.
+   *
+   * @param a is one cell.
+   * @param b is the other cell.
+   */
+  private void union(int a, int b) {
+    int rootA = find(a);
+    int rootB = find(b);
+    if (rootA < rootB) {
+      parents[rootB] = rootA;
+    } else if (rootB < rootA) {
+      parents[rootA] = rootB;
+    }
+  }
+
+  /**
+   * Finds the root cell of the cluster of a cell, halving the path on the way.
+   *
+   * @param cell is the cell.
+   * @return the root cell.
+   */
+  private int find(int cell) {
+    while (parents[cell] != cell) {
+      parents[cell] = parents[parents[cell]];
+      cell = parents[cell];
+    }
+    return cell;
+  }
+
+  /**
+   * Finds the root cell of every point in the cells [from, to). A core point takes the root
+   * of its cell, a border point the root of the cell of its nearest core point within eps,
+   * and a noise point gets NOISE. Only reads the joined cells, so the roots are looked up
+   * without changing them.
+   *
+   * @param from  is the first cell.
+   * @param to    is one past the last cell.
+   * @param roots is filled with the root of each point, by place in the sorted arrays.
+   */
+  private void findRoots(int from, int to, int[] roots) {
+    int[] near = new int[25];
+    int[] cursors = {-1, -1, -1, -1, -1};
+    for (int cell = from; cell < to; cell++) {
+      int start = cellStarts[cell];
+      int end = cellStarts[cell + 1];
+      int count = -1;
+      for (int p = start; p < end; p++) {
+        if (core[p]) {
+          roots[p] = root(cell);
+          continue;
+        }
+        if (count < 0) {
+          count = neighbours(cell, near, cursors);
+        }
+        int nearest = -1;
+        int nearestCell = -1;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < count; c++) {
+          if (!coreCells[near[c]]) {
+            continue;
+          }
+          for (int q = cellStarts[near[c]]; q < cellStarts[near[c] + 1]; q++) {
+            if (!core[q]) {
+              continue;
+            }
+            double distance = distance(p, q);
+            if (distance <= squaredEps && (distance < nearestDistance
+                || (distance == nearestDistance && order[q] < order[nearest]))) {
+              nearest = q;
+              nearestCell = near[c];
+              nearestDistance = distance;
+            }
+          }
+        }
+        roots[p] = nearest < 0 ? NOISE : root(nearestCell);
+      }
+    }
+  }
+
+  /**
+   * Finds the root of a cell without changing the links, so it can run on many threads.
+   *
+   * @param cell is the cell.
+   * @return the root cell.
+   */
+  private int root(int cell) {
+    while (parents[cell] != cell) {
+      cell = parents[cell];
+    }
+    return cell;
+  }
+
+  /**
+   * Numbers the clusters from 0 in the order of their lowest point.
+   *
+   * @param roots is the root cell of each point, by place in the sorted arrays.
+   * @return the cluster of each point, by its index in the list, or NOISE.
+   */
+  private int[] number(int[] roots) {
+    int[] byIndex = new int[n];
+    for (int p = 0; p < n; p++) {
+      byIndex[order[p]] = roots[p];
+    }
+    int[] clusterOfRoot = new int[cellKeys.length];
+    Arrays.fill(clusterOfRoot, NOISE);
+    int clusters = 0;
+    for (int i = 0; i < n; i++) {
+      int root = byIndex[i];
+      if (root == NOISE) {
+        continue;
+      }
+      if (clusterOfRoot[root] == NOISE) {
+        clusterOfRoot[root] = clusters++;
+      }
+      byIndex[i] = clusterOfRoot[root];
+    }
+    return byIndex;
+  }
+
+  /**
+   * Gets the squared distance between the points at two places in the sorted arrays.
+   *
+   * @param p is the place of one point.
+   * @param q is the place of the other.
+   * @return the squared distance.
+   */
+  private double distance(int p, int q) {
+    double dx = xs[p] - xs[q];
+    double dy = ys[p] - ys[q];
+    return (dx * dx) + (dy * dy);
+  }
+}
@@ -0,0 +1,358 @@
+import java.util.Arrays;
+
+/**
+ * This is a class that counts points into a grid of cells, one cell per pixel of the image it
+ * is meant for. Points with cluster labels are also counted into one grid per cluster, so the
+ * clusters can be told apart when the grid is drawn. The grids take the same memory for a
+ * thousand points as for fifty million, and adding points is one pass over them. On several
+ * threads, each thread after the first also counts into grids of its own that are added in
+ * at the end. Row 0 is the top of the image, like in a picture.
+ */
+public final class DensityGrid {
+
+  private final int width;
+  private final int height;
+  private final double xMin;
+  private final double xMax;
+  private final double yMin;
+  private final double yMax;
+  private final int[] totals;
+  private int[][] clusterCounts;
+  private int[] noiseCounts;
+  private long total;
+  private int parallelism;
+
+  /**
+   * Constructor for an empty grid.
+   *
+   * @param width  is the number of cells across, the width of the image.
+   * @param height is the number of cells down, the height of the image.
+   * @param xMin   is the x value at the left edge.
+   * @param xMax   is the x value at the right edge.
+   * @param yMin   is the y value at the bottom edge.
+   * @param yMax   is the y value at the top edge.
+   * @throws IllegalArgumentException if the grid has no cells, or the area is empty or not
+   *                                  finite.
+   */
+  public DensityGrid(int width, int height, double xMin, double xMax, double yMin,
+                     double yMax) throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("width and height must be non-zero, positive ints");
+    }
+    if ((long) width * height > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many cells for one grid");
+    }
+    if (!(xMin < xMax && yMin < yMax) || Double.isInfinite(xMax - xMin)
+        || Double.isInfinite(yMax - yMin)) {
+      throw new IllegalArgumentException("Dimensions must be a finite, non-empty area");
+    }
+    this.width = width;
+    this.height = height;
+    this.xMin = xMin;
+    this.xMax = xMax;
+    this.yMin = yMin;
+    this.yMax = yMax;
+    this.totals = new int[width * height];
+    this.clusterCounts = new int[0][];
+    this.noiseCounts = null;
+    this.total = 0;
+    this.parallelism = 1;
+  }
+
+  /**
+   * Sets the number of threads that count points. Each thread after the first needs grids
+   * of its own while it counts, as big as the grids it counts into.
+   *
+   * @param parallelism is the number of threads, or 0 for one per processor.
+   * @throws IllegalArgumentException if parallelism is negative.
+   */
+  public void setParallelism(int parallelism) throws IllegalArgumentException {
+    if (parallelism < 0) {
+      throw new IllegalArgumentException("parallelism must be 0 or a positive int");
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Counts the points of a list into the grid. Points outside the area are not counted.
+   *
+   * @param points is the points to count.
+   */
+  public void add(ListOfPoints points) {
+    count(points.getColumns(), null);
+  }
+
+  /**
+   * Counts the points of a list into the grid and into the grid of their cluster. Points
+   * with a negative label, such as the noise of dbscan, are counted into a noise grid.
+   *
+   * @param points is the points to count.
+   * @param labels is the cluster of each point, as from KMeansResult.getLabels or dbscan.
+   * @throws IllegalArgumentException if there is not one label per point.
+   */
+  public void add(ListOfPoints points, int[] labels) throws IllegalArgumentException {
+    if (labels.length != points.size()) {
+      throw new IllegalArgumentException("labels must have one label per point");
+    }
+    int clusters = clusterCounts.length;
+    boolean noise = false;
+    for (int label : labels) {
+      if (label < 0) {
+        noise = true;
+      } else if (label >= clusters) {
+        clusters = label + 1;
+      }
+    }
+    if (clusters > clusterCounts.length) {
+      int old = clusterCounts.length;
+      clusterCounts = Arrays.copyOf(clusterCounts, clusters);
+      for (int c = old; c < clusters; c++) {
+        clusterCounts[c] = new int[totals.length];
+      }
+    }
+    if (noise && noiseCounts == null) {
+      noiseCounts = new int[totals.length];
+    }
+    count(points.getColumns(), labels);
+  }
+
+  /**
+   * Gets the number of cells across.
+   *
+   * @return the width of the grid.
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Gets the number of cells down.
+   *
+   * @return the height of the grid.
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Gets the number of points in a cell.
+   *
+   * @param col is the column of the cell, from the left.
+   * @param row is the row of the cell, from the top.
+   * @return the number of points counted into the cell.
+   * @throws IndexOutOfBoundsException if there is no such cell.
+   */
+  public int getCount(int col, int row) throws IndexOutOfBoundsException {
+    return totals[cell(col, row)];
+  }
+
+  /**
+   * Gets the number of points of one cluster in a cell.
+   *
+   * @param cluster is the cluster, or -1 for the points with negative labels.
+   * @param col     is the column of the cell, from the left.
+   * @param row     is the row of the cell, from the top.
+   * @return the number of points of the cluster counted into the cell.
+   * @throws IndexOutOfBoundsException if there is no such cell.
+   */
+  public int getCount(int cluster, int col, int row) throws IndexOutOfBoundsException {
+    int[] counts = getClusterCounts(cluster);
+    int cell = cell(col, row);
+    return counts == null ? 0 : counts[cell];
+  }
+
+  /**
+   * Gets the number of clusters with a grid of their own, one more than the highest label
+   * counted.
+   *
+   * @return the number of clusters.
+   */
+  public int getClusters() {
+    return clusterCounts.length;
+  }
+
+  /**
+   * Gets the number of points counted into the grid.
+   *
+   * @return the number of points inside the area.
+   */
+  public long getTotal() {
+    return this.total;
+  }
+
+  /**
+   * Gets the highest count of any cell.
+   *
+   * @return the highest count.
+   */
+  public int getMaxCount() {
+    int max = 0;
+    for (int count : totals) {
+      max = Math.max(max, count);
+    }
+    return max;
+  }
+
+  /**
+   * Gets the counts of every cell, row by row from the top. The array is the grid itself.
+   *
+   * @return the counts.
+   */
+  int[] getTotals() {
+    return this.totals;
+  }
+
+  /**
+   * Gets the counts of one cluster, row by row from the top. The array is the grid itself.
+   *
+   * @param cluster is the cluster, or -1 for the points with negative labels.
+   * @return the counts, or null if no point of the cluster was counted.
+   */
+  int[] getClusterCounts(int cluster) {
+    if (cluster < 0) {
+      return noiseCounts;
+    }
+    return cluster < clusterCounts.length ? clusterCounts[cluster] : null;
+  }
+
+  /**
+   * Gets the index of a cell.
+   *
+   * @param col is the column of the cell.
+   * @param row is the row of the cell.
+   * @return the index of the cell in the counts.
+   * @throws IndexOutOfBoundsException if there is no such cell.
+   */
+  private int cell(int col, int row) throws IndexOutOfBoundsException {
+    if (col < 0 || col >= width || row < 0 || row >= height) {
+      throw new IndexOutOfBoundsException("No cell at " + col + ", " + row);
+    }
+    return row * width + col;
+  }
+
+  /**
+   * Counts points in one pass. The points are split into one range per thread, and each
+   * thread after the first counts its range into grids of its own, which are added into
+   * this grid at the end, so the threads need no locks.
+   *
+   * @param columns is the columns holding the points.
+   * @param labels  is the cluster of each point, or null.
+   */
+  private void count(PointColumns columns, int[] labels) {
+    int n = columns.size();
+    if (n == 0) {
+      return;
+    }
+    try (ChunkRunner runner = ChunkRunner.create(parallelism, null)) {
+      int parts = Math.min(runner.getParallelism(), ChunkRunner.chunkCount(n));
+      int[][] partTotals = new int[parts][];
+      int[][][] partClusters = new int[parts][][];
+      int[][] partNoise = new int[parts][];
+      partTotals[0] = totals;
+      partClusters[0] = clusterCounts;
+      partNoise[0] = noiseCounts;
+      for (int part = 1; part < parts; part++) {
+        partTotals[part] = new int[totals.length];
+        partClusters[part] = new int[clusterCounts.length][];
+      }
+      long[] counted = new long[parts];
+      runner.run(parts, part -> {
+        int from = (int) ((long) n * part / parts);
+        int to = (int) ((long) n * (part + 1) / parts);
+        PointBlock block = new PointBlock();
+        long inside = 0;
+        for (int start = from; start < to; start += PointColumns.BLOCK_SIZE) {
+          columns.load(start, Math.min(PointColumns.BLOCK_SIZE, to - start), block);
+          inside += countBlock(block, labels, part, partTotals, partClusters, partNoise);
+        }
+        counted[part] = inside;
+      });
+      for (long inside : counted) {
+        total += inside;
+      }
+
+      // Add the grids of the other threads in, a run of cells per task.
+      int cells = totals.length;
+      runner.run(ChunkRunner.chunkCount(cells), chunk -> {
+        int from = chunk * ChunkRunner.CHUNK_SIZE;
+        int to = Math.min(cells, from + ChunkRunner.CHUNK_SIZE);
+        for (int part = 1; part < parts; part++) {
+          addCells(partTotals[part], totals, from, to);
+          addCells(partNoise[part], noiseCounts, from, to);
+          for (int c = 0; c < clusterCounts.length; c++) {
+            addCells(partClusters[part][c], clusterCounts[c], from, to);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Adds a run of the cells of one grid into another.
+   *
+   * @param counts is the grid to add, or null if it has no counts.
+   * @param into   is the grid to add to.
+   * @param from   is the first cell.
+   * @param to     is the cell after the last.
+   */
+  private static void addCells(int[] counts, int[] into, int from, int to) {
+    if (counts == null) {
+      return;
+    }
+    for (int cell = from; cell < to; cell++) {
+      into[cell] += counts[cell];
+    }
+  }
+
+  /**
+   * Counts the points of a block into the grids of one thread. The right and bottom edges of
+   * the area count into the last column and row. The cluster and noise grids of a thread
+   * after the first are made when it first counts a point into them.
+   *
+   * @param block        is the block of points.
+   * @param labels       is the cluster of each point, or null.
+   * @param part         is the thread's part of the points.
+   * @param partTotals   is the grid of all points of each part.
+   * @param partClusters is the cluster grids of each part.
+   * @param partNoise    is the noise grid of each part.
+   * @return the number of points counted.
+   */
+  private long countBlock(PointBlock block, int[] labels, int part, int[][] partTotals,
+                          int[][][] partClusters, int[][] partNoise) {
+    double scaleX = width / (xMax - xMin);
+    double scaleY = height / (yMax - yMin);
+    double[] xs = block.xs;
+    double[] ys = block.ys;
+    int[] counts = partTotals[part];
+    int[][] clusters = partClusters[part];
+    long inside = 0;
+    for (int i = 0; i < block.length; i++) {
+      double rowPosition = (yMax - ys[block.offset + i]) * scaleY;
+      if (!(rowPosition >= 0 && rowPosition <= height)) {
+        continue;
+      }
+      double colPosition = (xs[block.offset + i] - xMin) * scaleX;
+      if (!(colPosition >= 0 && colPosition <= width)) {
+        continue;
+      }
+      int cell = Math.min((int) rowPosition, height - 1) * width
+          + Math.min((int) colPosition, width - 1);
+      counts[cell]++;
+      if (labels != null) {
+        int label = labels[block.start + i];
+        int[] grid = label < 0 ? partNoise[part] : clusters[label];
+        if (grid == null) {
+          grid = new int[counts.length];
+          if (label < 0) {
+            partNoise[part] = grid;
+          } else {
+            clusters[label] = grid;
+          }
+        }
+        grid[cell]++;
+      }
+      inside++;
+    }
+    return inside;
+  }
+}
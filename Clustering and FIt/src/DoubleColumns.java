@@ -0,0 +1,81 @@
+import java.util.Arrays;
+
+/**
+ * This class stores points as two growable double arrays on the heap.
+ */
+final class DoubleColumns extends PointColumns {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private double[] xs;
+  private double[] ys;
+  private int size;
+
+  /**
+   * Constructor for empty columns.
+   */
+  DoubleColumns() {
+    this.xs = new double[INITIAL_CAPACITY];
+    this.ys = new double[INITIAL_CAPACITY];
+    this.size = 0;
+  }
+
+  @Override
+  int size() {
+    return this.size;
+  }
+
+  @Override
+  double getX(int index) {
+    return this.xs[index];
+  }
+
+  @Override
+  double getY(int index) {
+    return this.ys[index];
+  }
+
+  @Override
+  void add(double x, double y) {
+    if (size == xs.length) {
+      grow(size + 1);
+    }
+    xs[size] = x;
+    ys[size] = y;
+    size++;
+  }
+
+  @Override
+  void addAll(double[] xs, double[] ys, int from, int count) {
+    if (size + count > this.xs.length) {
+      grow(size + count);
+    }
+    System.arraycopy(xs, from, this.xs, size, count);
+    System.arraycopy(ys, from, this.ys, size, count);
+    size += count;
+  }
+
+  @Override
+  PointBlock load(int from, int count, PointBlock block) {
+    block.xs = this.xs;
+    block.ys = this.ys;
+    block.offset = from;
+    block.start = from;
+    block.length = count;
+    return block;
+  }
+
+  /**
+   * Grows both columns so that they hold at least minCapacity points.
+   *
+   * @param minCapacity is the number of points that must fit.
+   */
+  private void grow(int minCapacity) {
+    int capacity = xs.length + (xs.length >> 1);
+    if (capacity < minCapacity || capacity < 0) {
+      capacity = minCapacity;
+    }
+    xs = Arrays.copyOf(xs, capacity);
+    ys = Arrays.copyOf(ys, capacity);
+  }
+}
@@ -0,0 +1,68 @@
+import java.util.Arrays;
+
+/**
+ * This class stores rows in one growable double array on the heap.
+ */
+final class DoubleRows extends VectorRows {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private double[] values;
+  private int size;
+
+  /**
+   * Constructor for empty rows.
+   *
+   * @param dimensions is the number of values in every row.
+   */
+  DoubleRows(int dimensions) {
+    super(dimensions);
+    this.values = new double[INITIAL_CAPACITY * dimensions];
+    this.size = 0;
+  }
+
+  @Override
+  int size() {
+    return this.size;
+  }
+
+  @Override
+  double get(int index, int dimension) {
+    return this.values[index * dimensions + dimension];
+  }
+
+  @Override
+  void addAll(double[] values, int from, int count) {
+    if (((long) size + count) * dimensions > this.values.length) {
+      grow(size + count);
+    }
+    System.arraycopy(values, from * dimensions, this.values, size * dimensions,
+        count * dimensions);
+    size += count;
+  }
+
+  @Override
+  RowBlock load(int from, int count, RowBlock block) {
+    block.values = this.values;
+    block.offset = from * dimensions;
+    block.start = from;
+    block.length = count;
+    return block;
+  }
+
+  /**
+   * Grows the array so that it holds at least minCapacity rows.
+   *
+   * @param minCapacity is the number of rows that must fit.
+   * @throws IllegalStateException if that many rows do not fit in one array.
+   */
+  private void grow(int minCapacity) throws IllegalStateException {
+    long needed = (long) minCapacity * dimensions;
+    if (needed > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("Too many values for one array");
+    }
+    long capacity = values.length + (values.length >> 1);
+    capacity = Math.min(Math.max(capacity, needed), Integer.MAX_VALUE - 8);
+    values = Arrays.copyOf(values, (int) capacity);
+  }
+}
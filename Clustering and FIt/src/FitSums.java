@@ -0,0 +1,163 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class adds up the sums a least squares line needs, [x, y, XX, XY], over the points
+ * of some columns. The points are summed in the fixed chunks of a ChunkRunner, each chunk on
+ * its own, and the chunk sums are added up in order, so the answer is the same on any number
+ * of threads.
+ */
+final class FitSums {
+
+  /**
+   * The number of points from which fitLine sums on all processors by itself.
+   */
+  static final int PARALLEL_THRESHOLD = 1 << 20;
+
+  private FitSums() {
+  }
+
+  /**
+   * Sums [x, y, XX, XY] over all points in columns. Lists of at least PARALLEL_THRESHOLD
+   * points are summed on the common ForkJoinPool, smaller ones on the calling thread.
+   *
+   * @param columns is the points to sum.
+   * @return the array with sums [x, y, XX, XY].
+   */
+  static double[] sum(PointColumns columns) {
+    if (columns.size() < PARALLEL_THRESHOLD) {
+      return sum(columns, ChunkRunner.sequential());
+    }
+    try (ChunkRunner runner = ChunkRunner.create(0, ForkJoinPool.commonPool())) {
+      return sum(columns, runner);
+    }
+  }
+
+  /**
+   * Sums [x, y, XX, XY] over all points in columns, running the chunks on runner.
+   *
+   * @param columns is the points to sum.
+   * @param runner  is the runner for the chunks.
+   * @return the array with sums [x, y, XX, XY].
+   */
+  static double[] sum(PointColumns columns, ChunkRunner runner) {
+    int n = columns.size();
+    int chunks = ChunkRunner.chunkCount(n);
+    double[] partials = new double[chunks * 4];
+    Kernels kernels = Kernels.get();
+    runner.run(chunks, chunk -> {
+      int from = chunk * ChunkRunner.CHUNK_SIZE;
+      int to = Math.min(n, from + ChunkRunner.CHUNK_SIZE);
+      double[] sums = new double[4];
+      PointBlock block = new PointBlock();
+      for (int start = from; start < to; start += PointColumns.BLOCK_SIZE) {
+        columns.load(start, Math.min(PointColumns.BLOCK_SIZE, to - start), block);
+        kernels.fitSums(block.xs, block.ys, block.offset, block.length, sums);
+      }
+      System.arraycopy(sums, 0, partials, chunk * 4, 4);
+    });
+
+    double[] sumArray = new double[4];
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      for (int j = 0; j < 4; j++) {
+        sumArray[j] = partials[chunk * 4 + j] + sumArray[j];
+      }
+    }
+    return sumArray;
+  }
+
+  /**
+   * Adds [x, y, XX, XY] for the points xs[offset .. offset + length) onto sums. The loop
+   * keeps four independent sets of sums over interleaved points, so the additions do not
+   * wait on each other and the JIT is free to pack them into vector registers. This is the
+   * scalar kernel, and the vector kernel adds in the same order.
+   *
+   * @param xs     is the array of xCoords.
+   * @param ys     is the array of yCoords.
+   * @param offset is the first point to add.
+   * @param length is the number of points to add.
+   * @param sums   is the array with sums [x, y, XX, XY] to add onto.
+   */
+  static void addBlock(double[] xs, double[] ys, int offset, int length, double[] sums) {
+    double sx0 = 0;
+    double sx1 = 0;
+    double sx2 = 0;
+    double sx3 = 0;
+    double sy0 = 0;
+    double sy1 = 0;
+    double sy2 = 0;
+    double sy3 = 0;
+    double sxx0 = 0;
+    double sxx1 = 0;
+    double sxx2 = 0;
+    double sxx3 = 0;
+    double sxy0 = 0;
+    double sxy1 = 0;
+    double sxy2 = 0;
+    double sxy3 = 0;
+
+    int end = offset + length;
+    int i = offset;
+    for (; i + 3 < end; i += 4) {
+      double x0 = xs[i];
+      double x1 = xs[i + 1];
+      double x2 = xs[i + 2];
+      double x3 = xs[i + 3];
+      double y0 = ys[i];
+      double y1 = ys[i + 1];
+      double y2 = ys[i + 2];
+      double y3 = ys[i + 3];
+      sx0 += x0;
+      sx1 += x1;
+      sx2 += x2;
+      sx3 += x3;
+      sy0 += y0;
+      sy1 += y1;
+      sy2 += y2;
+      sy3 += y3;
+      sxx0 += x0 * x0;
+      sxx1 += x1 * x1;
+      sxx2 += x2 * x2;
+      sxx3 += x3 * x3;
+      sxy0 += x0 * y0;
+      sxy1 += x1 * y1;
+      sxy2 += x2 * y2;
+      sxy3 += x3 * y3;
+    }
+    for (; i < end; i++) {
+      double x = xs[i];
+      double y = ys[i];
+      sx0 += x;
+      sy0 += y;
+      sxx0 += x * x;
+      sxy0 += x * y;
+    }
+
+    sums[0] += (sx0 + sx1) + (sx2 + sx3);
+    sums[1] += (sy0 + sy1) + (sy2 + sy3);
+    sums[2] += (sxx0 + sxx1) + (sxx2 + sxx3);
+    sums[3] += (sxy0 + sxy1) + (sxy2 + sxy3);
+  }
+
+  /**
+   * Makes the best fit line from the sums of n points.
+   *
+   * @param sumArray is the array with sums [x, y, XX, XY].
+   * @param n        is the number of points summed.
+   * @return the Line representing best fit.
+   */
+  static Line toLine(double[] sumArray, double n) {
+    double sumX = sumArray[0];
+    double sumY = sumArray[1];
+    double sumXX = sumArray[2];
+    double sumXY = sumArray[3];
+
+    double d = (sumXX * n) - (sumX * sumX);
+    double dm = (sumXY * n) - (sumX * sumY);
+    double db = (sumY * sumXX) - (sumX * sumXY);
+
+    double m = dm / d;
+    double b = db / d;
+
+    return new Line(m, b);
+  }
+}
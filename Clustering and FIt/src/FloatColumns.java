@@ -0,0 +1,90 @@
+import java.util.Arrays;
+
+/**
+ * This class stores points as two growable float arrays on the heap, half the memory of
+ * DoubleColumns. Each coordinate is rounded to the nearest float when it is added, which
+ * keeps about 7 significant digits. Blocks are widened into double arrays owned by the
+ * block, so the kernels, and every sum they build up, still work in double precision.
+ */
+final class FloatColumns extends PointColumns {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private float[] xs;
+  private float[] ys;
+  private int size;
+
+  /**
+   * Constructor for empty columns.
+   */
+  FloatColumns() {
+    this.xs = new float[INITIAL_CAPACITY];
+    this.ys = new float[INITIAL_CAPACITY];
+    this.size = 0;
+  }
+
+  @Override
+  int size() {
+    return this.size;
+  }
+
+  @Override
+  double getX(int index) {
+    return this.xs[index];
+  }
+
+  @Override
+  double getY(int index) {
+    return this.ys[index];
+  }
+
+  @Override
+  void add(double x, double y) {
+    if (size == xs.length) {
+      grow(size + 1);
+    }
+    xs[size] = (float) x;
+    ys[size] = (float) y;
+    size++;
+  }
+
+  @Override
+  void addAll(double[] xs, double[] ys, int from, int count) {
+    if (size + count > this.xs.length) {
+      grow(size + count);
+    }
+    for (int i = 0; i < count; i++) {
+      this.xs[size + i] = (float) xs[from + i];
+      this.ys[size + i] = (float) ys[from + i];
+    }
+    size += count;
+  }
+
+  @Override
+  PointBlock load(int from, int count, PointBlock block) {
+    block.ensureOwnCapacity(count);
+    block.start = from;
+    block.length = count;
+    double[] blockXs = block.xs;
+    double[] blockYs = block.ys;
+    for (int i = 0; i < count; i++) {
+      blockXs[i] = xs[from + i];
+      blockYs[i] = ys[from + i];
+    }
+    return block;
+  }
+
+  /**
+   * Grows both columns so that they hold at least minCapacity points.
+   *
+   * @param minCapacity is the number of points that must fit.
+   */
+  private void grow(int minCapacity) {
+    int capacity = xs.length + (xs.length >> 1);
+    if (capacity < minCapacity || capacity < 0) {
+      capacity = minCapacity;
+    }
+    xs = Arrays.copyOf(xs, capacity);
+    ys = Arrays.copyOf(ys, capacity);
+  }
+}
@@ -0,0 +1,79 @@
+import java.util.Arrays;
+
+/**
+ * This class stores rows in one growable float array on the heap, half the memory of
+ * DoubleRows. Each value is rounded to the nearest float when it is added, and blocks are
+ * widened into a double array owned by the block, so the kernels still work in double
+ * precision.
+ */
+final class FloatRows extends VectorRows {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private float[] values;
+  private int size;
+
+  /**
+   * Constructor for empty rows.
+   *
+   * @param dimensions is the number of values in every row.
+   */
+  FloatRows(int dimensions) {
+    super(dimensions);
+    this.values = new float[INITIAL_CAPACITY * dimensions];
+    this.size = 0;
+  }
+
+  @Override
+  int size() {
+    return this.size;
+  }
+
+  @Override
+  double get(int index, int dimension) {
+    return this.values[index * dimensions + dimension];
+  }
+
+  @Override
+  void addAll(double[] values, int from, int count) {
+    if (((long) size + count) * dimensions > this.values.length) {
+      grow(size + count);
+    }
+    int at = size * dimensions;
+    int first = from * dimensions;
+    for (int i = 0; i < count * dimensions; i++) {
+      this.values[at + i] = (float) values[first + i];
+    }
+    size += count;
+  }
+
+  @Override
+  RowBlock load(int from, int count, RowBlock block) {
+    int length = count * dimensions;
+    block.ensureOwnCapacity(length);
+    block.start = from;
+    block.length = count;
+    double[] blockValues = block.values;
+    int first = from * dimensions;
+    for (int i = 0; i < length; i++) {
+      blockValues[i] = values[first + i];
+    }
+    return block;
+  }
+
+  /**
+   * Grows the array so that it holds at least minCapacity rows.
+   *
+   * @param minCapacity is the number of rows that must fit.
+   * @throws IllegalStateException if that many rows do not fit in one array.
+   */
+  private void grow(int minCapacity) throws IllegalStateException {
+    long needed = (long) minCapacity * dimensions;
+    if (needed > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("Too many values for one array");
+    }
+    long capacity = values.length + (values.length >> 1);
+    capacity = Math.min(Math.max(capacity, needed), Integer.MAX_VALUE - 8);
+    values = Arrays.copyOf(values, (int) capacity);
+  }
+}
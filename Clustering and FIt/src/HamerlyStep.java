@@ -0,0 +1,183 @@
+import java.util.Arrays;
+
+/**
+ * This class is a kMeans iteration that uses the triangle inequality to skip distance
+ * computations, after Hamerly's algorithm. Each point keeps a lower bound on its distance to
+ * its second nearest center, and each center knows half the distance to its nearest other
+ * center. When the distance of a point to its own center is below either of those, no other
+ * center can be nearer and the other k - 1 distances are not computed.
+ *
+ * <p>The distance of every point to its own center is still computed on every iteration, so
+ * the error and the new centers are built from exactly the same numbers, in the same order,
+ * as a Lloyd pass. Only the points that the bounds cannot settle are compared against all of
+ * the centers, so the clusters match Lloyd's exactly.
+ */
+final class HamerlyStep extends KMeansStep {
+
+  /**
+   * Relative margin kept on the bounds, so rounding in the bounds can never skip a point
+   * that Lloyd would move, or one that is tied between two centers.
+   */
+  private static final double SLACK = 1e-9;
+
+  private final double[] oldCentersX;
+  private final double[] oldCentersY;
+  private final double[] halfGaps;
+  private double[] lower;
+  private double maxMove;
+  private double secondMove;
+  private int maxMover;
+  private boolean bounded;
+
+  /**
+   * Constructor for a Hamerly step.
+   *
+   * @param n is the number of points.
+   * @param k is the number of clusters.
+   */
+  HamerlyStep(int n, int k) {
+    super(k);
+    this.oldCentersX = new double[k];
+    this.oldCentersY = new double[k];
+    this.halfGaps = new double[k];
+    this.lower = new double[n];
+    this.maxMove = 0;
+    this.secondMove = 0;
+    this.maxMover = -1;
+    this.bounded = false;
+  }
+
+  @Override
+  void beforeAssign(int n, double[] centersX, double[] centersY) {
+    if (n > lower.length) {
+      // Points added since the last pass have no cluster yet, so their bounds are not read.
+      lower = Arrays.copyOf(lower, Math.max(n, lower.length + (lower.length >> 1)));
+    }
+    findHalfGaps(centersX, centersY);
+    System.arraycopy(centersX, 0, oldCentersX, 0, k);
+    System.arraycopy(centersY, 0, oldCentersY, 0, k);
+  }
+
+  @Override
+  void afterMove(double[] centersX, double[] centersY) {
+    findMoves(centersX, centersY);
+    bounded = true;
+  }
+
+  @Override
+  void assignChunk(PointColumns columns, int chunk, int from, int to, double[] centersX,
+                   double[] centersY, int[] clusters) {
+    double[] sumsX = new double[k];
+    double[] sumsY = new double[k];
+    int[] counts = new int[k];
+    double distanceCounter = 0;
+    long computed = 0;
+    long skipped = 0;
+    long reassigned = 0;
+
+    PointBlock block = new PointBlock();
+    for (int start = from; start < to; start += PointColumns.BLOCK_SIZE) {
+      columns.load(start, Math.min(PointColumns.BLOCK_SIZE, to - start), block);
+      double[] xs = block.xs;
+      double[] ys = block.ys;
+      for (int i = 0; i < block.length; i++) {
+        double x = xs[block.offset + i];
+        double y = ys[block.offset + i];
+        int index = block.start + i;
+
+        int nearest = clusters[index];
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        boolean settled = false;
+        if (bounded && nearest >= 0) {
+          // The centers moved since the bound was set, the second nearest by at most this.
+          lower[index] -= nearest == maxMover ? secondMove : maxMove;
+          double dx = x - centersX[nearest];
+          double dy = y - centersY[nearest];
+          nearestDistance = (dx * dx) + (dy * dy);
+          computed++;
+          double bound = Math.max(halfGaps[nearest], lower[index]);
+          settled = Math.sqrt(nearestDistance) < bound * (1 - SLACK);
+        }
+
+        if (settled) {
+          skipped += k - 1;
+        } else {
+          // Compare against every center, and keep the second nearest for the bound.
+          nearest = 0;
+          nearestDistance = Double.POSITIVE_INFINITY;
+          double secondDistance = Double.POSITIVE_INFINITY;
+          for (int c = 0; c < k; c++) {
+            double dx = x - centersX[c];
+            double dy = y - centersY[c];
+            double distance = (dx * dx) + (dy * dy);
+            if (distance < nearestDistance) {
+              secondDistance = nearestDistance;
+              nearestDistance = distance;
+              nearest = c;
+            } else if (distance < secondDistance) {
+              secondDistance = distance;
+            }
+          }
+          computed += k;
+          lower[index] = Math.sqrt(secondDistance);
+        }
+
+        if (watched && clusters[index] != nearest) {
+          reassigned++;
+        }
+        clusters[index] = nearest;
+        sumsX[nearest] = x + sumsX[nearest];
+        sumsY[nearest] = y + sumsY[nearest];
+        counts[nearest]++;
+        distanceCounter = nearestDistance + distanceCounter;
+      }
+    }
+    finishChunk(chunk, sumsX, sumsY, counts, distanceCounter, computed, skipped,
+        reassigned);
+  }
+
+  /**
+   * Finds half the distance from each center to its nearest other center.
+   *
+   * @param centersX is the xCoord of each center.
+   * @param centersY is the yCoord of each center.
+   */
+  private void findHalfGaps(double[] centersX, double[] centersY) {
+    int k = centersX.length;
+    Arrays.fill(halfGaps, Double.POSITIVE_INFINITY);
+    for (int c = 0; c < k; c++) {
+      for (int other = c + 1; other < k; other++) {
+        double dx = centersX[c] - centersX[other];
+        double dy = centersY[c] - centersY[other];
+        double gap = 0.5 * Math.sqrt((dx * dx) + (dy * dy));
+        halfGaps[c] = Math.min(halfGaps[c], gap);
+        halfGaps[other] = Math.min(halfGaps[other], gap);
+      }
+    }
+  }
+
+  /**
+   * Finds how far the centers moved in the last update, keeping the largest move, which
+   * center made it, and the second largest move.
+   *
+   * @param centersX is the xCoord of each center after the update.
+   * @param centersY is the yCoord of each center after the update.
+   */
+  private void findMoves(double[] centersX, double[] centersY) {
+    maxMove = 0;
+    secondMove = 0;
+    maxMover = -1;
+    for (int c = 0; c < centersX.length; c++) {
+      double dx = centersX[c] - oldCentersX[c];
+      double dy = centersY[c] - oldCentersY[c];
+      double move = Math.sqrt((dx * dx) + (dy * dy));
+      if (move > maxMove) {
+        secondMove = maxMove;
+        maxMove = move;
+        maxMover = c;
+      } else if (move > secondMove) {
+        secondMove = move;
+      }
+    }
+  }
+}
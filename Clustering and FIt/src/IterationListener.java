@@ -0,0 +1,17 @@
+/**
+ * This interface is told about every iteration of a kMeans run, for watching how a run goes.
+ * It is set with KMeansOptions.listener and called on the thread that started the run, after
+ * each iteration of Lloyd and Hamerly runs, restarts and clustering sessions. Mini-batch runs
+ * and chooseK do not call it.
+ *
+ * <p>When no listener is set, the runs do not time their phases or build the stats.
+ */
+public interface IterationListener {
+
+  /**
+   * Called after an iteration has assigned the points and moved the centers.
+   *
+   * @param stats is what the iteration did.
+   */
+  void iterationDone(IterationStats stats);
+}
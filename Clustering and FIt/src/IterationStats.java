@@ -0,0 +1,129 @@
+/**
+ * This class holds what one kMeans iteration did, for an IterationListener.
+ */
+public class IterationStats {
+  private final int restart;
+  private final int iteration;
+  private final double inertia;
+  private final long reassignments;
+  private final long assignNanos;
+  private final long updateNanos;
+  private final int[] emptyClusters;
+
+  /**
+   * Constructor for the stats of an iteration.
+   *
+   * @param restart       is the restart the iteration belongs to, 0 without restarts.
+   * @param iteration     is the number of the iteration in its run, from 1.
+   * @param inertia       is the sum of squared distances from the assignment pass.
+   * @param reassignments is the number of points moved to a different cluster.
+   * @param assignNanos   is the time taken to assign the points.
+   * @param updateNanos   is the time taken to merge the sums and move the centers.
+   * @param emptyClusters is the clusters left with no points, kept, not copied.
+   */
+  IterationStats(int restart, int iteration, double inertia, long reassignments,
+                 long assignNanos, long updateNanos, int[] emptyClusters) {
+    this.restart = restart;
+    this.iteration = iteration;
+    this.inertia = inertia;
+    this.reassignments = reassignments;
+    this.assignNanos = assignNanos;
+    this.updateNanos = updateNanos;
+    this.emptyClusters = emptyClusters;
+  }
+
+  /**
+   * Makes the stats of the iteration a step just ran.
+   *
+   * @param restart   is the restart the iteration belongs to, 0 without restarts.
+   * @param iteration is the number of the iteration in its run, from 1.
+   * @param inertia   is the error the step returned.
+   * @param step      is the step that ran the iteration.
+   * @param counts    is the number of points in each cluster after the iteration.
+   * @return the stats of the iteration.
+   */
+  static IterationStats of(int restart, int iteration, double inertia, KMeansStep step,
+                           int[] counts) {
+    int empty = 0;
+    for (int count : counts) {
+      if (count == 0) {
+        empty++;
+      }
+    }
+    int[] emptyClusters = new int[empty];
+    empty = 0;
+    for (int c = 0; c < counts.length; c++) {
+      if (counts[c] == 0) {
+        emptyClusters[empty++] = c;
+      }
+    }
+    return new IterationStats(restart, iteration, inertia, step.reassigned, step.assignNanos,
+        step.updateNanos, emptyClusters);
+  }
+
+  /**
+   * Gets the restart the iteration belongs to. Restarts run in rounds, so the iterations of
+   * different restarts arrive mixed together.
+   *
+   * @return the restart, 0 for runs without restarts.
+   */
+  public int getRestart() {
+    return this.restart;
+  }
+
+  /**
+   * Gets the number of the iteration in its run.
+   *
+   * @return the iteration, from 1.
+   */
+  public int getIteration() {
+    return this.iteration;
+  }
+
+  /**
+   * Gets the sum of squared distances between every point and the center it was assigned to
+   * in this iteration.
+   *
+   * @return the inertia after the assignment.
+   */
+  public double getInertia() {
+    return this.inertia;
+  }
+
+  /**
+   * Gets the number of points the iteration moved to a different cluster. In the first
+   * iteration of a new run every point counts as moved.
+   *
+   * @return the number of points reassigned.
+   */
+  public long getReassignments() {
+    return this.reassignments;
+  }
+
+  /**
+   * Gets the time the iteration took to assign every point to its nearest center.
+   *
+   * @return the assignment time in nanoseconds.
+   */
+  public long getAssignNanos() {
+    return this.assignNanos;
+  }
+
+  /**
+   * Gets the time the iteration took to merge the sums of the chunks and move the centers.
+   *
+   * @return the update time in nanoseconds.
+   */
+  public long getUpdateNanos() {
+    return this.updateNanos;
+  }
+
+  /**
+   * Gets the clusters left with no points by the iteration. Their centers did not move.
+   *
+   * @return the empty clusters, in increasing order. Not copied.
+   */
+  public int[] getEmptyClusters() {
+    return this.emptyClusters;
+  }
+}
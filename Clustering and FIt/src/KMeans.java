@@ -0,0 +1,209 @@
+import java.util.Arrays;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This class runs kMeans over the columns of a ListOfPoints. It seeds the centers and then
+ * runs iterations, computed by the KMeansStep picked in the options, until the error
+ * settles.
+ */
+final class KMeans {
+
+  private KMeans() {
+  }
+
+  /**
+   * Clusters the points in columns into k clusters.
+   *
+   * @param columns is the points to cluster.
+   * @param k       is the number of clusters, between 1 and the number of points.
+   * @param options is the options for the run.
+   * @return the clusters found.
+   * @throws TimeoutException if the run reaches the iteration limit or the time limit in
+   *                          options without the error settling below the tolerance.
+   *                          Mini-batch runs never throw it.
+   */
+  static KMeansResult run(PointColumns columns, int k, KMeansOptions options)
+      throws TimeoutException {
+    KMeansResult result = run(columns, k, options, new RunBudget(options, false));
+    if (result.getStatus() != KMeansResult.Status.CONVERGED
+        && options.getAlgorithm() != KMeansOptions.Algorithm.MINI_BATCH) {
+      throw new TimeoutException("Ran too long -- No kMeans determined");
+    }
+    return result;
+  }
+
+  /**
+   * Clusters the points in columns into k clusters, stopping at the iteration limit, the
+   * time limit or an interrupt of the calling thread with the clusters found so far.
+   *
+   * @param columns is the points to cluster.
+   * @param k       is the number of clusters, between 1 and the number of points.
+   * @param options is the options for the run.
+   * @return the clusters found, with the status saying how the run ended.
+   */
+  static KMeansResult runAnytime(PointColumns columns, int k, KMeansOptions options) {
+    return run(columns, k, options, new RunBudget(options, true));
+  }
+
+  /**
+   * Clusters the points in columns into k clusters within a budget.
+   *
+   * @param columns is the points to cluster.
+   * @param k       is the number of clusters, between 1 and the number of points.
+   * @param options is the options for the run.
+   * @param budget  is the time the run may take.
+   * @return the clusters found, with the status saying how the run ended.
+   */
+  private static KMeansResult run(PointColumns columns, int k, KMeansOptions options,
+                                  RunBudget budget) {
+    if (options.getAlgorithm() == KMeansOptions.Algorithm.MINI_BATCH) {
+      return MiniBatchKMeans.fit(columns, k, options, budget);
+    }
+    if (options.getRestarts() > 1 && options.getInitialCenters() == null) {
+      return KMeansRestarts.run(columns, k, options, budget);
+    }
+    int n = columns.size();
+    int[] clusters = new int[n];
+    Arrays.fill(clusters, -1);
+    double[] centersX = new double[k];
+    double[] centersY = new double[k];
+    int[] counts = new int[k];
+
+    try (ChunkRunner runner = ChunkRunner.forOptions(options)) {
+      KMeansSeeding.seed(columns, k, options, runner, centersX, centersY);
+      KMeansStep step = newStep(options, n, k);
+      return iterate(columns, options, budget, runner, step, centersX, centersY, clusters,
+          counts);
+    }
+  }
+
+  /**
+   * Runs iterations from the given centers until the error settles. The arrays are updated
+   * in place and kept by the result. The step may have been run before, so a run can go on
+   * from where an earlier one stopped.
+   *
+   * @param columns  is the points to cluster.
+   * @param options  is the options for the run.
+   * @param runner   is the runner for the chunks of each pass.
+   * @param step     is the step to run the iterations with.
+   * @param centersX is the xCoord of each starting center.
+   * @param centersY is the yCoord of each starting center.
+   * @param clusters is the cluster of each point, one per point.
+   * @param counts   is filled with the number of points in each cluster.
+   * @return the clusters found, with the distances counted by this run only.
+   * @throws TimeoutException if the run reaches the iteration limit or the time limit in
+   *                          options without the error settling below the tolerance.
+   */
+  static KMeansResult iterate(PointColumns columns, KMeansOptions options, ChunkRunner runner,
+                              KMeansStep step, double[] centersX, double[] centersY,
+                              int[] clusters, int[] counts) throws TimeoutException {
+    KMeansResult result = iterate(columns, options, new RunBudget(options, false), runner,
+        step, centersX, centersY, clusters, counts);
+    if (result.getStatus() != KMeansResult.Status.CONVERGED) {
+      throw new TimeoutException("Ran too long -- No kMeans determined");
+    }
+    return result;
+  }
+
+  /**
+   * Runs iterations from the given centers until the error settles or the budget runs out.
+   * At least one iteration runs, so every point has a cluster.
+   *
+   * @param columns  is the points to cluster.
+   * @param options  is the options for the run.
+   * @param budget   is the time the run may take.
+   * @param runner   is the runner for the chunks of each pass.
+   * @param step     is the step to run the iterations with.
+   * @param centersX is the xCoord of each starting center.
+   * @param centersY is the yCoord of each starting center.
+   * @param clusters is the cluster of each point, one per point.
+   * @param counts   is filled with the number of points in each cluster.
+   * @return the clusters found, with the distances counted by this run only and the status
+   *         saying how the run ended.
+   */
+  static KMeansResult iterate(PointColumns columns, KMeansOptions options, RunBudget budget,
+                              ChunkRunner runner, KMeansStep step, double[] centersX,
+                              double[] centersY, int[] clusters, int[] counts) {
+    long computed = step.computed;
+    long skipped = step.skipped;
+    double error = Double.POSITIVE_INFINITY;
+    int i = 0;
+    KMeansResult.Status status = null;
+    IterationListener listener = options.getListener();
+    while (status == null) {
+      double newError = step.step(runner, columns, centersX, centersY, clusters, counts);
+      i++;
+      if (listener != null) {
+        listener.iterationDone(IterationStats.of(0, i, newError, step, counts));
+      }
+      if (converged(error, newError, counts, options.getTolerance())) {
+        status = KMeansResult.Status.CONVERGED;
+      } else if (i >= options.getMaxIterations()) {
+        status = KMeansResult.Status.ITERATION_LIMIT;
+      } else {
+        status = budget.exhausted();
+      }
+      error = newError;
+    }
+    return new KMeansResult(clusters, centersX, centersY, error, i, step.computed - computed,
+        step.skipped - skipped, status);
+  }
+
+  /**
+   * Makes the step for the algorithm picked in options.
+   *
+   * @param options is the options for the run.
+   * @param n       is the number of points.
+   * @param k       is the number of clusters.
+   * @return a new step.
+   */
+  static KMeansStep newStep(KMeansOptions options, int n, int k) {
+    KMeansStep step;
+    if (options.getAlgorithm() == KMeansOptions.Algorithm.HAMERLY) {
+      step = new HamerlyStep(n, k);
+    } else {
+      step = new LloydStep(k);
+    }
+    step.watched = options.getListener() != null;
+    return step;
+  }
+
+  /**
+   * Checks if a run is done. It is done when the error changed by less than the tolerance
+   * relative to the last error. An error that stayed exactly the same is also done, unless
+   * some cluster is empty; then there are fewer places than clusters and no k clusters can
+   * be found.
+   *
+   * @param error     is the error after the last iteration.
+   * @param newError  is the error after this iteration.
+   * @param counts    is the number of points in each cluster.
+   * @param tolerance is the relative error threshold.
+   * @return true if the run is done.
+   */
+  static boolean converged(double error, double newError, int[] counts, double tolerance) {
+    boolean empty = false;
+    for (int c = 0; c < counts.length; c++) {
+      if (counts[c] == 0) {
+        empty = true;
+      }
+    }
+    return converged(error, newError, empty, tolerance);
+  }
+
+  /**
+   * Checks if a run is done, as converged above, given whether some cluster is empty.
+   *
+   * @param error     is the error after the last iteration.
+   * @param newError  is the error after this iteration.
+   * @param empty     is true if some cluster has no points.
+   * @param tolerance is the relative error threshold.
+   * @return true if the run is done.
+   */
+  static boolean converged(double error, double newError, boolean empty, double tolerance) {
+    double checkError = ((Math.abs(newError - error)) / error);
+    if (checkError < tolerance) {
+      return true;
+    }
+    return newError == error && !empty;
+  }
+}
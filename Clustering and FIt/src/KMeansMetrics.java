@@ -0,0 +1,141 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class is an IterationListener that keeps the stats of every iteration it is told
+ * about, for looking at after a run. Set it with KMeansOptions.listener; it keeps adding up
+ * over every run with those options until it is cleared.
+ */
+public class KMeansMetrics implements IterationListener {
+  private final ArrayList<IterationStats> iterations;
+
+  /**
+   * Constructor for an empty collector.
+   */
+  public KMeansMetrics() {
+    this.iterations = new ArrayList<IterationStats>();
+  }
+
+  @Override
+  public void iterationDone(IterationStats stats) {
+    iterations.add(stats);
+  }
+
+  /**
+   * Forgets every iteration kept so far.
+   */
+  public void clear() {
+    iterations.clear();
+  }
+
+  /**
+   * Gets the stats of every iteration, in the order they were told about.
+   *
+   * @return a read-only view of the stats.
+   */
+  public List<IterationStats> getStats() {
+    return Collections.unmodifiableList(iterations);
+  }
+
+  /**
+   * Gets the number of iterations kept.
+   *
+   * @return the number of iterations.
+   */
+  public int getIterationCount() {
+    return iterations.size();
+  }
+
+  /**
+   * Gets the inertia after each iteration.
+   *
+   * @return the inertias, one per iteration.
+   */
+  public double[] getInertias() {
+    double[] inertias = new double[iterations.size()];
+    for (int i = 0; i < inertias.length; i++) {
+      inertias[i] = iterations.get(i).getInertia();
+    }
+    return inertias;
+  }
+
+  /**
+   * Gets the number of points each iteration moved to a different cluster.
+   *
+   * @return the reassignments, one per iteration.
+   */
+  public long[] getReassignments() {
+    long[] reassignments = new long[iterations.size()];
+    for (int i = 0; i < reassignments.length; i++) {
+      reassignments[i] = iterations.get(i).getReassignments();
+    }
+    return reassignments;
+  }
+
+  /**
+   * Gets the time each iteration took to assign the points.
+   *
+   * @return the assignment times in nanoseconds, one per iteration.
+   */
+  public long[] getAssignNanos() {
+    long[] nanos = new long[iterations.size()];
+    for (int i = 0; i < nanos.length; i++) {
+      nanos[i] = iterations.get(i).getAssignNanos();
+    }
+    return nanos;
+  }
+
+  /**
+   * Gets the time each iteration took to merge the sums and move the centers.
+   *
+   * @return the update times in nanoseconds, one per iteration.
+   */
+  public long[] getUpdateNanos() {
+    long[] nanos = new long[iterations.size()];
+    for (int i = 0; i < nanos.length; i++) {
+      nanos[i] = iterations.get(i).getUpdateNanos();
+    }
+    return nanos;
+  }
+
+  /**
+   * Gets the total time spent assigning points over every iteration.
+   *
+   * @return the total assignment time in nanoseconds.
+   */
+  public long getTotalAssignNanos() {
+    long total = 0;
+    for (IterationStats stats : iterations) {
+      total += stats.getAssignNanos();
+    }
+    return total;
+  }
+
+  /**
+   * Gets the total time spent moving centers over every iteration.
+   *
+   * @return the total update time in nanoseconds.
+   */
+  public long getTotalUpdateNanos() {
+    long total = 0;
+    for (IterationStats stats : iterations) {
+      total += stats.getUpdateNanos();
+    }
+    return total;
+  }
+
+  /**
+   * Gets the number of times a cluster was left empty, counting each cluster once for every
+   * iteration that left it empty.
+   *
+   * @return the number of empty cluster events.
+   */
+  public int getEmptyClusterEvents() {
+    int events = 0;
+    for (IterationStats stats : iterations) {
+      events += stats.getEmptyClusters().length;
+    }
+    return events;
+  }
+}
@@ -0,0 +1,723 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class holds the settings for a run of kMeans. The seed is always given explicitly, so
+ * two runs with the same options on the same points give the same clusters.
+ */
+public class KMeansOptions {
+
+  /**
+   * The ways the first centers of a run can be picked.
+   */
+  public enum Init {
+    /**
+     * k different points picked uniformly at random.
+     */
+    RANDOM,
+    /**
+     * kMeans++ seeding, each new center is picked with probability proportional to its
+     * squared distance to the centers picked so far.
+     */
+    KMEANS_PLUS_PLUS,
+    /**
+     * kMeans|| seeding, a few rounds that each oversample many candidates at once, which are
+     * then reduced to k centers by weighted kMeans++.
+     */
+    KMEANS_PARALLEL
+  }
+
+  /**
+   * The ways each iteration of a run can be computed. LLOYD and HAMERLY give the same
+   * clusters.
+   */
+  public enum Algorithm {
+    /**
+     * Plain Lloyd iterations, every point is compared against every center.
+     */
+    LLOYD,
+    /**
+     * Hamerly's algorithm, bounds from the triangle inequality rule out most of the point to
+     * center distances. Keeps one more double per point for the bounds.
+     */
+    HAMERLY,
+    /**
+     * Mini-batch kMeans, each iteration moves the centers towards a random batch of points
+     * instead of every point. Far less work per iteration on large data, but the clusters are
+     * only close to the ones Lloyd finds. See MiniBatchKMeans.
+     */
+    MINI_BATCH
+  }
+
+  /**
+   * The ways mini-batch kMeans can pick how far a center moves towards a point.
+   */
+  public enum LearningRate {
+    /**
+     * A center moves 1 / n of the way, where n is the number of points it has been moved
+     * towards so far. The center is then the mean of those points.
+     */
+    PER_CENTER,
+    /**
+     * Like PER_CENTER, but never less than the minimum learning rate, so the centers keep
+     * following a stream whose clusters drift.
+     */
+    FLOORED
+  }
+
+  private long seed;
+  private Init init;
+  private Algorithm algorithm;
+  private int maxIterations;
+  private long timeLimitNanos;
+  private double tolerance;
+  private int parallelRounds;
+  private double oversampling;
+  private int parallelism;
+  private ExecutorService executor;
+  private int batchSize;
+  private LearningRate learningRate;
+  private double minLearningRate;
+  private int maxNoImprovement;
+  private double[] initialCenters;
+  private int initialDimensions;
+  private int restarts;
+  private boolean pruneRestarts;
+  private int silhouetteSample;
+  private int gapReferences;
+  private IterationListener listener;
+
+  /**
+   * Constructor for the default options with the given seed. The defaults are kMeans++
+   * seeding, Lloyd iterations, at most 100 iterations, a relative error threshold of 0.0001,
+   * and running on the calling thread. Mini-batch runs default to batches of 1024 points with
+   * the PER_CENTER learning rate, stopping after 10 batches without improvement.
+   *
+   * @param seed is the seed for the random choices made by the run.
+   */
+  public KMeansOptions(long seed) {
+    this.seed = seed;
+    this.init = Init.KMEANS_PLUS_PLUS;
+    this.algorithm = Algorithm.LLOYD;
+    this.maxIterations = 100;
+    this.timeLimitNanos = 0;
+    this.tolerance = 0.0001;
+    this.parallelRounds = 5;
+    this.oversampling = 2;
+    this.parallelism = 1;
+    this.executor = null;
+    this.batchSize = 1024;
+    this.learningRate = LearningRate.PER_CENTER;
+    this.minLearningRate = 0.01;
+    this.maxNoImprovement = 10;
+    this.initialCenters = null;
+    this.initialDimensions = 0;
+    this.restarts = 1;
+    this.pruneRestarts = false;
+    this.silhouetteSample = 1000;
+    this.gapReferences = 5;
+    this.listener = null;
+  }
+
+  /**
+   * Sets the seed for the random choices made by the run.
+   *
+   * @param seed is the new seed.
+   * @return these options.
+   */
+  public KMeansOptions seed(long seed) {
+    this.seed = seed;
+    return this;
+  }
+
+  /**
+   * Sets how the first centers are picked.
+   *
+   * @param init is the seeding method.
+   * @return these options.
+   * @throws IllegalArgumentException if init is null.
+   */
+  public KMeansOptions init(Init init) throws IllegalArgumentException {
+    if (init == null) {
+      throw new IllegalArgumentException("init cannot be null");
+    }
+    this.init = init;
+    return this;
+  }
+
+  /**
+   * Sets how each iteration is computed.
+   *
+   * @param algorithm is the algorithm for the iterations.
+   * @return these options.
+   * @throws IllegalArgumentException if algorithm is null.
+   */
+  public KMeansOptions algorithm(Algorithm algorithm) throws IllegalArgumentException {
+    if (algorithm == null) {
+      throw new IllegalArgumentException("algorithm cannot be null");
+    }
+    this.algorithm = algorithm;
+    return this;
+  }
+
+  /**
+   * Sets the most iterations a run may take before it gives up. A mini-batch run takes one
+   * batch per iteration, and stops without an error when it reaches the limit.
+   *
+   * @param maxIterations is the iteration limit.
+   * @return these options.
+   * @throws IllegalArgumentException if maxIterations is not positive.
+   */
+  public KMeansOptions maxIterations(int maxIterations) throws IllegalArgumentException {
+    if (maxIterations <= 0) {
+      throw new IllegalArgumentException("maxIterations must be positive");
+    }
+    this.maxIterations = maxIterations;
+    return this;
+  }
+
+  /**
+   * Sets how long a run may take, counted from when it starts. The limit is checked between
+   * iterations, so a run always finishes the iteration it is in and always runs at least one.
+   * A kmeans run that reaches it throws like one that reaches the iteration limit; an
+   * anytime run returns the clusters it has.
+   *
+   * @param duration is the time limit.
+   * @param unit     is the unit of duration.
+   * @return these options.
+   * @throws IllegalArgumentException if duration is not positive.
+   */
+  public KMeansOptions timeLimit(long duration, TimeUnit unit) throws IllegalArgumentException {
+    if (duration <= 0) {
+      throw new IllegalArgumentException("duration must be positive");
+    }
+    this.timeLimitNanos = Math.max(1, unit.toNanos(duration));
+    return this;
+  }
+
+  /**
+   * Sets the listener told about every iteration of a run. With no listener, which is the
+   * default, runs skip the timing and stats entirely.
+   *
+   * @param listener is the listener, or null for none.
+   * @return these options.
+   */
+  public KMeansOptions listener(IterationListener listener) {
+    this.listener = listener;
+    return this;
+  }
+
+  /**
+   * Sets the relative change in error below which a run is done.
+   *
+   * @param tolerance is the relative error threshold.
+   * @return these options.
+   * @throws IllegalArgumentException if tolerance is negative.
+   */
+  public KMeansOptions tolerance(double tolerance) throws IllegalArgumentException {
+    if (!(tolerance >= 0)) {
+      throw new IllegalArgumentException("tolerance cannot be negative");
+    }
+    this.tolerance = tolerance;
+    return this;
+  }
+
+  /**
+   * Sets the number of sampling rounds for kMeans|| seeding.
+   *
+   * @param rounds is the number of rounds.
+   * @return these options.
+   * @throws IllegalArgumentException if rounds is not positive.
+   */
+  public KMeansOptions parallelRounds(int rounds) throws IllegalArgumentException {
+    if (rounds <= 0) {
+      throw new IllegalArgumentException("rounds must be positive");
+    }
+    this.parallelRounds = rounds;
+    return this;
+  }
+
+  /**
+   * Sets the oversampling factor for kMeans|| seeding. Each round picks about
+   * oversampling * k candidates.
+   *
+   * @param oversampling is the oversampling factor.
+   * @return these options.
+   * @throws IllegalArgumentException if oversampling is not positive.
+   */
+  public KMeansOptions oversampling(double oversampling) throws IllegalArgumentException {
+    if (!(oversampling > 0)) {
+      throw new IllegalArgumentException("oversampling must be positive");
+    }
+    this.oversampling = oversampling;
+    return this;
+  }
+
+  /**
+   * Sets how many threads a run uses. The points are split into fixed chunks and each chunk
+   * keeps its own centroid sums, so the clusters are exactly the same for every parallelism.
+   * 1 runs on the calling thread, and 0 uses one thread per processor. Unless an executor is
+   * set, a run with more than one thread makes a pool of its own and shuts it down after.
+   *
+   * @param parallelism is the number of threads.
+   * @return these options.
+   * @throws IllegalArgumentException if parallelism is negative.
+   */
+  public KMeansOptions parallelism(int parallelism) throws IllegalArgumentException {
+    if (parallelism < 0) {
+      throw new IllegalArgumentException("parallelism cannot be negative");
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * Sets an executor for the run to use instead of a pool of its own. The executor is not
+   * shut down by the run. With a parallelism of 0 or 1 the run uses as many threads as a
+   * ForkJoinPool executor has, or one per processor for other executors.
+   *
+   * @param executor is the executor, or null to go back to the run's own threads.
+   * @return these options.
+   */
+  public KMeansOptions executor(ExecutorService executor) {
+    this.executor = executor;
+    return this;
+  }
+
+  /**
+   * Sets centers for the run to start from instead of seeding, for instance the centers of
+   * an earlier run. There must be k of them. The arrays are copied.
+   *
+   * @param centersX is the xCoord of each starting center, or null to go back to seeding.
+   * @param centersY is the yCoord of each starting center, or null to go back to seeding.
+   * @return these options.
+   * @throws IllegalArgumentException if only one array is null, or the arrays are empty or
+   *                                  not the same length.
+   */
+  public KMeansOptions initialCenters(double[] centersX, double[] centersY)
+      throws IllegalArgumentException {
+    if (centersX == null && centersY == null) {
+      this.initialCenters = null;
+      this.initialDimensions = 0;
+      return this;
+    }
+    if (centersX == null || centersY == null || centersX.length != centersY.length
+        || centersX.length == 0) {
+      throw new IllegalArgumentException("initial centers must be two arrays of equal length");
+    }
+    double[] centers = new double[2 * centersX.length];
+    for (int c = 0; c < centersX.length; c++) {
+      centers[2 * c] = centersX[c];
+      centers[2 * c + 1] = centersY[c];
+    }
+    this.initialCenters = centers;
+    this.initialDimensions = 2;
+    return this;
+  }
+
+  /**
+   * Sets centers of any number of dimensions for the run to start from instead of seeding,
+   * for a ListOfVectors. The centers are row-major like ListOfVectors.addAll: center c is
+   * centers[c * dimensions] to centers[(c + 1) * dimensions - 1]. There must be k of them,
+   * with the dimensions of the vectors. The array is copied.
+   *
+   * @param centers    is the values of the starting centers, or null to go back to seeding.
+   * @param dimensions is the number of dimensions of every center.
+   * @return these options.
+   * @throws IllegalArgumentException if dimensions is less than 1, or centers is empty or
+   *                                  does not hold whole centers.
+   */
+  public KMeansOptions initialCenters(double[] centers, int dimensions)
+      throws IllegalArgumentException {
+    if (centers == null) {
+      this.initialCenters = null;
+      this.initialDimensions = 0;
+      return this;
+    }
+    if (dimensions <= 0) {
+      throw new IllegalArgumentException("dimensions must be non-zero, positive int");
+    }
+    if (centers.length == 0 || centers.length % dimensions != 0) {
+      throw new IllegalArgumentException("initial centers must hold whole centers of "
+          + dimensions + " dimensions");
+    }
+    this.initialCenters = centers.clone();
+    this.initialDimensions = dimensions;
+    return this;
+  }
+
+  /**
+   * Sets how many times a run starts over from new seeds. Every restart gets its own seed,
+   * drawn from the seed of the run, and the restart with the lowest inertia is the result.
+   * The restarts run at the same time on as many threads as the parallelism allows, each
+   * one working through its points on a single thread. They move through their iterations
+   * together, so which restart wins never depends on how the threads are scheduled. Runs
+   * with initial centers, and mini-batch runs, ignore restarts.
+   *
+   * @param restarts is the number of restarts, 1 for a single run.
+   * @return these options.
+   * @throws IllegalArgumentException if restarts is not positive.
+   */
+  public KMeansOptions restarts(int restarts) throws IllegalArgumentException {
+    if (restarts <= 0) {
+      throw new IllegalArgumentException("restarts must be positive");
+    }
+    this.restarts = restarts;
+    return this;
+  }
+
+  /**
+   * Sets if restarts that are not expected to beat the best finished restart are stopped
+   * early. This is a heuristic: the error still to come off a restart is guessed from how
+   * fast its error has been dropping, so a stopped restart could have won, and the result
+   * can differ from finishing every restart. It is off by default.
+   *
+   * @param pruneRestarts is true to stop restarts that look hopeless early.
+   * @return these options.
+   */
+  public KMeansOptions pruneRestarts(boolean pruneRestarts) {
+    this.pruneRestarts = pruneRestarts;
+    return this;
+  }
+
+  /**
+   * Sets how many points chooseK samples to estimate the silhouette of each k. The work for
+   * the silhouette grows with the square of the sample, not with the number of points.
+   *
+   * @param silhouetteSample is the number of points sampled.
+   * @return these options.
+   * @throws IllegalArgumentException if silhouetteSample is less than 2.
+   */
+  public KMeansOptions silhouetteSample(int silhouetteSample)
+      throws IllegalArgumentException {
+    if (silhouetteSample < 2) {
+      throw new IllegalArgumentException("silhouetteSample must be at least 2");
+    }
+    this.silhouetteSample = silhouetteSample;
+    return this;
+  }
+
+  /**
+   * Sets how many uniformly random reference data sets chooseK clusters for the gap
+   * statistic of each k.
+   *
+   * @param gapReferences is the number of reference data sets.
+   * @return these options.
+   * @throws IllegalArgumentException if gapReferences is not positive.
+   */
+  public KMeansOptions gapReferences(int gapReferences) throws IllegalArgumentException {
+    if (gapReferences <= 0) {
+      throw new IllegalArgumentException("gapReferences must be positive");
+    }
+    this.gapReferences = gapReferences;
+    return this;
+  }
+
+  /**
+   * Sets the number of points in each batch of a mini-batch run.
+   *
+   * @param batchSize is the number of points per batch.
+   * @return these options.
+   * @throws IllegalArgumentException if batchSize is not positive.
+   */
+  public KMeansOptions batchSize(int batchSize) throws IllegalArgumentException {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("batchSize must be positive");
+    }
+    this.batchSize = batchSize;
+    return this;
+  }
+
+  /**
+   * Sets the learning rate schedule of a mini-batch run.
+   *
+   * @param learningRate is the schedule.
+   * @return these options.
+   * @throws IllegalArgumentException if learningRate is null.
+   */
+  public KMeansOptions learningRate(LearningRate learningRate)
+      throws IllegalArgumentException {
+    if (learningRate == null) {
+      throw new IllegalArgumentException("learningRate cannot be null");
+    }
+    this.learningRate = learningRate;
+    return this;
+  }
+
+  /**
+   * Sets the smallest learning rate for the FLOORED schedule.
+   *
+   * @param minLearningRate is the smallest fraction of the way a center moves.
+   * @return these options.
+   * @throws IllegalArgumentException if minLearningRate is not between 0 and 1.
+   */
+  public KMeansOptions minLearningRate(double minLearningRate)
+      throws IllegalArgumentException {
+    if (!(minLearningRate >= 0 && minLearningRate <= 1)) {
+      throw new IllegalArgumentException("minLearningRate must be between 0 and 1");
+    }
+    this.minLearningRate = minLearningRate;
+    return this;
+  }
+
+  /**
+   * Sets how many batches in a row a mini-batch run may go without its smoothed batch error
+   * dropping by more than the tolerance before it stops.
+   *
+   * @param maxNoImprovement is the number of batches.
+   * @return these options.
+   * @throws IllegalArgumentException if maxNoImprovement is not positive.
+   */
+  public KMeansOptions maxNoImprovement(int maxNoImprovement)
+      throws IllegalArgumentException {
+    if (maxNoImprovement <= 0) {
+      throw new IllegalArgumentException("maxNoImprovement must be positive");
+    }
+    this.maxNoImprovement = maxNoImprovement;
+    return this;
+  }
+
+  /**
+   * Gets the seed.
+   *
+   * @return the seed for the run.
+   */
+  public long getSeed() {
+    return this.seed;
+  }
+
+  /**
+   * Gets the seeding method.
+   *
+   * @return how the first centers are picked.
+   */
+  public Init getInit() {
+    return this.init;
+  }
+
+  /**
+   * Gets the algorithm for the iterations.
+   *
+   * @return how each iteration is computed.
+   */
+  public Algorithm getAlgorithm() {
+    return this.algorithm;
+  }
+
+  /**
+   * Gets the iteration limit.
+   *
+   * @return the most iterations a run may take.
+   */
+  public int getMaxIterations() {
+    return this.maxIterations;
+  }
+
+  /**
+   * Gets the time limit of a run.
+   *
+   * @return the time limit in nanoseconds, or 0 if there is none.
+   */
+  public long getTimeLimitNanos() {
+    return this.timeLimitNanos;
+  }
+
+  /**
+   * Gets the listener told about every iteration.
+   *
+   * @return the listener, or null if there is none.
+   */
+  public IterationListener getListener() {
+    return this.listener;
+  }
+
+  /**
+   * Gets the relative error threshold.
+   *
+   * @return the tolerance for the run.
+   */
+  public double getTolerance() {
+    return this.tolerance;
+  }
+
+  /**
+   * Gets the number of kMeans|| sampling rounds.
+   *
+   * @return the number of rounds.
+   */
+  public int getParallelRounds() {
+    return this.parallelRounds;
+  }
+
+  /**
+   * Gets the kMeans|| oversampling factor.
+   *
+   * @return the oversampling factor.
+   */
+  public double getOversampling() {
+    return this.oversampling;
+  }
+
+  /**
+   * Gets the number of threads for the run.
+   *
+   * @return the parallelism.
+   */
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  /**
+   * Gets the executor for the run.
+   *
+   * @return the executor, or null if the run uses its own threads.
+   */
+  public ExecutorService getExecutor() {
+    return this.executor;
+  }
+
+  /**
+   * Gets the number of points in each mini-batch.
+   *
+   * @return the batch size.
+   */
+  public int getBatchSize() {
+    return this.batchSize;
+  }
+
+  /**
+   * Gets the mini-batch learning rate schedule.
+   *
+   * @return the schedule.
+   */
+  public LearningRate getLearningRate() {
+    return this.learningRate;
+  }
+
+  /**
+   * Gets the smallest learning rate for the FLOORED schedule.
+   *
+   * @return the smallest learning rate.
+   */
+  public double getMinLearningRate() {
+    return this.minLearningRate;
+  }
+
+  /**
+   * Gets the number of batches without improvement that stops a mini-batch run.
+   *
+   * @return the number of batches.
+   */
+  public int getMaxNoImprovement() {
+    return this.maxNoImprovement;
+  }
+
+  /**
+   * Gets the xCoords of the centers to start from.
+   *
+   * @return a copy of the xCoords, or null if the run seeds its own centers or the centers
+   *         are not two-dimensional.
+   */
+  public double[] getInitialCentersX() {
+    return initialDimensions == 2 ? coordinates(0) : null;
+  }
+
+  /**
+   * Gets the yCoords of the centers to start from.
+   *
+   * @return a copy of the yCoords, or null if the run seeds its own centers or the centers
+   *         are not two-dimensional.
+   */
+  public double[] getInitialCentersY() {
+    return initialDimensions == 2 ? coordinates(1) : null;
+  }
+
+  /**
+   * Gets one coordinate of every two-dimensional initial center.
+   *
+   * @param dimension is 0 for the xCoords and 1 for the yCoords.
+   * @return the coordinates.
+   */
+  private double[] coordinates(int dimension) {
+    double[] coordinates = new double[initialCenters.length / 2];
+    for (int c = 0; c < coordinates.length; c++) {
+      coordinates[c] = initialCenters[2 * c + dimension];
+    }
+    return coordinates;
+  }
+
+  /**
+   * Gets the centers to start from, row-major.
+   *
+   * @return a copy of the values of the centers, or null if the run seeds its own centers.
+   */
+  public double[] getInitialCenters() {
+    return initialCenters == null ? null : initialCenters.clone();
+  }
+
+  /**
+   * Gets the number of dimensions of the centers to start from.
+   *
+   * @return the number of dimensions, or 0 if the run seeds its own centers.
+   */
+  public int getInitialDimensions() {
+    return this.initialDimensions;
+  }
+
+  /**
+   * Checks that the centers to start from, if there are any, fit a run.
+   *
+   * @param k          is the number of clusters of the run.
+   * @param dimensions is the number of dimensions of the points of the run.
+   * @throws IllegalArgumentException if there are initial centers but not k of them, or they
+   *                                  do not have the dimensions of the points.
+   */
+  void checkInitialCenters(int k, int dimensions) throws IllegalArgumentException {
+    if (initialCenters == null) {
+      return;
+    }
+    if (initialDimensions != dimensions) {
+      throw new IllegalArgumentException("Initial centers in options must have " + dimensions
+          + " dimensions");
+    }
+    if (initialCenters.length != k * dimensions) {
+      throw new IllegalArgumentException("There must be k initial centers");
+    }
+  }
+
+  /**
+   * Gets the number of restarts.
+   *
+   * @return the number of restarts.
+   */
+  public int getRestarts() {
+    return this.restarts;
+  }
+
+  /**
+   * Gets if hopeless restarts are stopped early.
+   *
+   * @return true if restarts are pruned.
+   */
+  public boolean getPruneRestarts() {
+    return this.pruneRestarts;
+  }
+
+  /**
+   * Gets the number of points sampled for the silhouette in chooseK.
+   *
+   * @return the silhouette sample size.
+   */
+  public int getSilhouetteSample() {
+    return this.silhouetteSample;
+  }
+
+  /**
+   * Gets the number of reference data sets for the gap statistic in chooseK.
+   *
+   * @return the number of reference data sets.
+   */
+  public int getGapReferences() {
+    return this.gapReferences;
+  }
+}
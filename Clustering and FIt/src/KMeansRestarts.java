@@ -0,0 +1,189 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * This class runs several kMeans restarts from different seeds at the same time and keeps
+ * the one with the lowest inertia. All of the restarts read the same point columns.
+ *
+ * <p>The restarts move in rounds: each round runs one iteration of every restart still
+ * going, spread over the threads of a ChunkRunner with one restart per task, and then checks
+ * them in order on the calling thread. Which restarts finish, win, or are pruned is decided
+ * only between rounds.
+ */
+final class KMeansRestarts {
+
+  private KMeansRestarts() {
+  }
+
+  /**
+   * Clusters the points in columns options.getRestarts() times and keeps the best run. The
+   * budget is checked between rounds; when it runs out, the best finished restart is kept,
+   * or if none has finished, the restart with the lowest error so far.
+   *
+   * @param columns is the points to cluster.
+   * @param k       is the number of clusters, between 1 and the number of points.
+   * @param options is the options for the run.
+   * @param budget  is the time the run may take.
+   * @return the restart with the lowest inertia, with the distances counted over every
+   *         restart. The status is CONVERGED only if every restart finished or was pruned,
+   *         or if some restart finished and the rest reached the iteration limit.
+   */
+  static KMeansResult run(PointColumns columns, int k, KMeansOptions options,
+                          RunBudget budget) {
+    int restarts = options.getRestarts();
+    long[] seeds = new long[restarts];
+    SplittableRandom random = new SplittableRandom(options.getSeed());
+    seeds[0] = options.getSeed();
+    for (int r = 1; r < restarts; r++) {
+      seeds[r] = random.nextLong();
+    }
+
+    Restart[] runs = new Restart[restarts];
+    try (ChunkRunner runner = ChunkRunner.forOptions(options)) {
+      runner.run(restarts, r -> runs[r] = new Restart(columns, k, options, seeds[r], r));
+      IterationListener listener = options.getListener();
+
+      ArrayList<Restart> active = new ArrayList<Restart>();
+      for (Restart run : runs) {
+        active.add(run);
+      }
+      Restart best = null;
+      KMeansResult.Status stopped = null;
+      for (int i = 0; i < options.getMaxIterations() && !active.isEmpty() && stopped == null;
+           i++) {
+        Restart[] round = active.toArray(new Restart[0]);
+        runner.run(round.length, r -> round[r].advance(columns, options.getTolerance()));
+
+        active.clear();
+        for (Restart run : round) {
+          if (listener != null) {
+            listener.iterationDone(IterationStats.of(run.index, run.iterations, run.error,
+                run.step, run.counts));
+          }
+          if (!run.converged) {
+            active.add(run);
+          } else if (best == null || run.error < best.error) {
+            best = run;
+          }
+        }
+        if (best != null && options.getPruneRestarts()) {
+          double bestError = best.error;
+          active.removeIf(run -> run.cannotBeat(bestError));
+        }
+        stopped = budget.exhausted();
+      }
+
+      KMeansResult.Status status = KMeansResult.Status.CONVERGED;
+      if (stopped != null && !active.isEmpty()) {
+        status = stopped;
+      } else if (best == null) {
+        status = KMeansResult.Status.ITERATION_LIMIT;
+      }
+      if (best == null) {
+        for (Restart run : active) {
+          if (best == null || run.error < best.error) {
+            best = run;
+          }
+        }
+      }
+      long computed = 0;
+      long skipped = 0;
+      for (Restart run : runs) {
+        computed += run.step.computed;
+        skipped += run.step.skipped;
+      }
+      return new KMeansResult(best.clusters, best.centersX, best.centersY, best.error,
+          best.iterations, computed, skipped, status);
+    }
+  }
+
+  /**
+   * This class is one restart, with its own centers, clusters and step.
+   */
+  private static final class Restart {
+    final double[] centersX;
+    final double[] centersY;
+    final int[] clusters;
+    final int[] counts;
+    final KMeansStep step;
+    final int index;
+    double error;
+    double lastDrop;
+    double dropBefore;
+    int iterations;
+    boolean converged;
+
+    /**
+     * Constructor for a restart, which seeds its centers.
+     *
+     * @param columns is the points to cluster.
+     * @param k       is the number of clusters.
+     * @param options is the options for the run.
+     * @param seed    is the seed of this restart.
+     * @param index   is the number of this restart.
+     */
+    Restart(PointColumns columns, int k, KMeansOptions options, long seed, int index) {
+      int n = columns.size();
+      this.centersX = new double[k];
+      this.centersY = new double[k];
+      this.clusters = new int[n];
+      Arrays.fill(clusters, -1);
+      this.counts = new int[k];
+      KMeansSeeding.seed(columns, k, options, seed, ChunkRunner.sequential(), centersX,
+          centersY);
+      this.step = KMeans.newStep(options, n, k);
+      this.index = index;
+      this.error = Double.POSITIVE_INFINITY;
+      this.lastDrop = Double.NaN;
+      this.dropBefore = Double.NaN;
+      this.iterations = 0;
+      this.converged = false;
+    }
+
+    /**
+     * Runs one iteration on the calling thread.
+     *
+     * @param columns   is the points to cluster.
+     * @param tolerance is the relative error threshold.
+     */
+    void advance(PointColumns columns, double tolerance) {
+      double newError = step.step(ChunkRunner.sequential(), columns, centersX, centersY,
+          clusters, counts);
+      converged = KMeans.converged(error, newError, counts, tolerance);
+      dropBefore = lastDrop;
+      lastDrop = error - newError;
+      error = newError;
+      iterations++;
+    }
+
+    /**
+     * Guesses if this restart can still end below the given error. The error of a kMeans
+     * run never goes up, and the drops from one iteration to the next usually shrink by
+     * about the same factor, so the drops still to come are guessed as the rest of that
+     * geometric series. It is only a guess, not a bound, which is why pruning is off
+     * unless options asks for it.
+     *
+     * @param bestError is the error to beat.
+     * @return true if this restart is not expected to beat bestError.
+     */
+    boolean cannotBeat(double bestError) {
+      if (error <= bestError) {
+        return false;
+      }
+      if (!(lastDrop > 0)) {
+        // Stuck above the best, it will settle where it is.
+        return true;
+      }
+      if (Double.isNaN(dropBefore) || Double.isInfinite(dropBefore)) {
+        return false;
+      }
+      double ratio = lastDrop / dropBefore;
+      if (ratio >= 1) {
+        return false;
+      }
+      double expected = error - (lastDrop * ratio / (1 - ratio));
+      return expected > bestError;
+    }
+  }
+}
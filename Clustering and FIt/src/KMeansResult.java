@@ -0,0 +1,157 @@
+/**
+ * This class holds the outcome of a kMeans run: the cluster of every point, the centers of
+ * the clusters, and how the run went.
+ */
+public class KMeansResult {
+
+  /**
+   * How a run ended.
+   */
+  public enum Status {
+    /**
+     * The error settled below the tolerance.
+     */
+    CONVERGED,
+    /**
+     * The run reached the iteration limit before the error settled.
+     */
+    ITERATION_LIMIT,
+    /**
+     * The run reached the time limit before the error settled.
+     */
+    DEADLINE,
+    /**
+     * The thread running an anytime run was interrupted before the error settled.
+     */
+    INTERRUPTED
+  }
+
+  private final int[] labels;
+  private final double[] centersX;
+  private final double[] centersY;
+  private final double inertia;
+  private final int iterations;
+  private final long distanceComputations;
+  private final long skippedDistanceComputations;
+  private final Status status;
+
+  /**
+   * Constructor for a kMeans result. The arrays are kept, not copied.
+   *
+   * @param labels     is the cluster of each point.
+   * @param centersX   is the xCoord of each cluster center.
+   * @param centersY   is the yCoord of each cluster center.
+   * @param inertia    is the sum of squared distances from the last assignment pass.
+   * @param iterations is the number of iterations the run took.
+   * @param computed   is the number of point to center distances computed.
+   * @param skipped    is the number of point to center distances ruled out by bounds.
+   * @param status     is how the run ended.
+   */
+  KMeansResult(int[] labels, double[] centersX, double[] centersY, double inertia,
+               int iterations, long computed, long skipped, Status status) {
+    this.labels = labels;
+    this.centersX = centersX;
+    this.centersY = centersY;
+    this.inertia = inertia;
+    this.iterations = iterations;
+    this.distanceComputations = computed;
+    this.skippedDistanceComputations = skipped;
+    this.status = status;
+  }
+
+  /**
+   * Gets the cluster of every point. The ith element is the cluster of the ith point. The
+   * array is not copied, so it should not be changed. It is empty for an OutOfCoreKMeans run,
+   * which writes the clusters to a file instead.
+   *
+   * @return the array of clusters.
+   */
+  public int[] getLabels() {
+    return this.labels;
+  }
+
+  /**
+   * Gets the number of clusters.
+   *
+   * @return the number of clusters.
+   */
+  public int getK() {
+    return this.centersX.length;
+  }
+
+  /**
+   * Gets the center of a cluster.
+   *
+   * @param cluster is the cluster to get the center of.
+   * @return the center of the cluster as a Point.
+   */
+  public Point getCentroid(int cluster) {
+    return new Point(centersX[cluster], centersY[cluster]);
+  }
+
+  /**
+   * Gets the sum of squared distances between every point and the center it was assigned to
+   * in the last pass of the run.
+   *
+   * @return the inertia of the clustering.
+   */
+  public double getInertia() {
+    return this.inertia;
+  }
+
+  /**
+   * Gets the number of iterations the run took.
+   *
+   * @return the number of iterations.
+   */
+  public int getIterations() {
+    return this.iterations;
+  }
+
+  /**
+   * Gets the number of point to center distances the iterations computed.
+   *
+   * @return the number of distances computed.
+   */
+  public long getDistanceComputations() {
+    return this.distanceComputations;
+  }
+
+  /**
+   * Gets the number of point to center distances a Lloyd run would have computed, but that
+   * the algorithm ruled out without computing them. Always 0 for Lloyd iterations.
+   *
+   * @return the number of distances skipped.
+   */
+  public long getSkippedDistanceComputations() {
+    return this.skippedDistanceComputations;
+  }
+
+  /**
+   * Gets how the run ended. Only anytime runs and mini-batch runs return results that did
+   * not converge.
+   *
+   * @return the status of the run.
+   */
+  public Status getStatus() {
+    return this.status;
+  }
+
+  /**
+   * Gets the xCoords of the centers. Not copied.
+   *
+   * @return the xCoord of each center.
+   */
+  double[] getCentersX() {
+    return this.centersX;
+  }
+
+  /**
+   * Gets the yCoords of the centers. Not copied.
+   *
+   * @return the yCoord of each center.
+   */
+  double[] getCentersY() {
+    return this.centersY;
+  }
+}
@@ -0,0 +1,678 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.SplittableRandom;
+
+/**
+ * This class picks the first centers for a kMeans run. All of the random choices come from
+ * the seed in the options, so the same options always pick the same centers.
+ */
+final class KMeansSeeding {
+
+  /**
+   * The most weighted Lloyd iterations used to reduce the kMeans|| candidates to k centers.
+   */
+  private static final int CANDIDATE_ITERATIONS = 20;
+
+  /**
+   * This interface is the points centers are picked from, seen through their indices, so
+   * that random and kMeans++ seeding pick from the columns of a ListOfPoints and the rows of
+   * a ListOfVectors alike.
+   */
+  interface Space {
+
+    /**
+     * Gets the number of points.
+     *
+     * @return the number of points.
+     */
+    int size();
+
+    /**
+     * Makes a point a center.
+     *
+     * @param c     is the center.
+     * @param index is the point.
+     */
+    void setCenter(int c, int index);
+
+    /**
+     * Lowers the squared distance of every point to its nearest center where one of the
+     * centers first to last - 1 is closer, and sums the distances. The sum of each chunk is
+     * kept in chunkTotals, and the chunk sums are added up in order.
+     *
+     * @param first       is the first of the new centers.
+     * @param last        is one past the last of the new centers.
+     * @param distances   is the squared distance of each point to its nearest center so far.
+     * @param chunkTotals is filled with the sum of the updated distances in each chunk.
+     * @return the sum of the updated distances.
+     */
+    double closerTo(int first, int last, double[] distances, double[] chunkTotals);
+  }
+
+  /**
+   * This class is the points of a PointColumns as a space to pick centers from.
+   */
+  private static final class PointSpace implements Space {
+    private final PointColumns columns;
+    private final ChunkRunner runner;
+    private final double[] centersX;
+    private final double[] centersY;
+
+    /**
+     * Constructor for the space of some columns.
+     *
+     * @param columns  is the points.
+     * @param runner   is the runner for the chunks of each pass over the points.
+     * @param centersX is the xCoord of each center.
+     * @param centersY is the yCoord of each center.
+     */
+    PointSpace(PointColumns columns, ChunkRunner runner, double[] centersX,
+               double[] centersY) {
+      this.columns = columns;
+      this.runner = runner;
+      this.centersX = centersX;
+      this.centersY = centersY;
+    }
+
+    @Override
+    public int size() {
+      return columns.size();
+    }
+
+    @Override
+    public void setCenter(int c, int index) {
+      centersX[c] = columns.getX(index);
+      centersY[c] = columns.getY(index);
+    }
+
+    @Override
+    public double closerTo(int first, int last, double[] distances, double[] chunkTotals) {
+      return KMeansSeeding.closerTo(columns, runner, centersX, centersY, first, last,
+          distances, null, chunkTotals);
+    }
+  }
+
+  private KMeansSeeding() {
+  }
+
+  /**
+   * Picks k centers from the points in columns using the seeding method in options, or
+   * copies the initial centers in options if it has them.
+   *
+   * @param columns  is the points to pick centers from.
+   * @param k        is the number of centers to pick.
+   * @param options  is the options for the run.
+   * @param runner   is the runner for the chunks of each pass over the points.
+   * @param centersX is filled with the xCoord of each center.
+   * @param centersY is filled with the yCoord of each center.
+   * @throws IllegalArgumentException if options has initial centers but not k
+   *                                  two-dimensional ones.
+   */
+  static void seed(PointColumns columns, int k, KMeansOptions options, ChunkRunner runner,
+                   double[] centersX, double[] centersY) throws IllegalArgumentException {
+    seed(columns, k, options, options.getSeed(), runner, centersX, centersY);
+  }
+
+  /**
+   * Picks k centers like seed, but from the given seed instead of the one in options.
+   *
+   * @param columns  is the points to pick centers from.
+   * @param k        is the number of centers to pick.
+   * @param options  is the options for the run.
+   * @param seed     is the seed for the random choices.
+   * @param runner   is the runner for the chunks of each pass over the points.
+   * @param centersX is filled with the xCoord of each center.
+   * @param centersY is filled with the yCoord of each center.
+   * @throws IllegalArgumentException if options has initial centers but not k
+   *                                  two-dimensional ones.
+   */
+  static void seed(PointColumns columns, int k, KMeansOptions options, long seed,
+                   ChunkRunner runner, double[] centersX, double[] centersY)
+      throws IllegalArgumentException {
+    options.checkInitialCenters(k, 2);
+    double[] initialX = options.getInitialCentersX();
+    if (initialX != null) {
+      System.arraycopy(initialX, 0, centersX, 0, k);
+      System.arraycopy(options.getInitialCentersY(), 0, centersY, 0, k);
+      return;
+    }
+    SplittableRandom random = new SplittableRandom(seed);
+    switch (options.getInit()) {
+      case RANDOM:
+        randomCenters(columns, k, random, centersX, centersY);
+        break;
+      case KMEANS_PARALLEL:
+        parallelCenters(columns, k, options, runner, random, centersX, centersY);
+        break;
+      default:
+        plusPlusCenters(columns, k, runner, random, centersX, centersY);
+        break;
+    }
+  }
+
+  /**
+   * Picks k different points uniformly at random as the centers.
+   *
+   * @param columns  is the points to pick centers from.
+   * @param k        is the number of centers to pick.
+   * @param random   is the source of random choices.
+   * @param centersX is filled with the xCoord of each center.
+   * @param centersY is filled with the yCoord of each center.
+   */
+  static void randomCenters(PointColumns columns, int k, SplittableRandom random,
+                            double[] centersX, double[] centersY) {
+    randomCenters(new PointSpace(columns, ChunkRunner.sequential(), centersX, centersY), k,
+        random);
+  }
+
+  /**
+   * Picks k different points of a space uniformly at random as the centers.
+   *
+   * @param space  is the points to pick centers from.
+   * @param k      is the number of centers to pick.
+   * @param random is the source of random choices.
+   */
+  static void randomCenters(Space space, int k, SplittableRandom random) {
+    // Floyd's algorithm, k distinct indices without shuffling the whole range.
+    int n = space.size();
+    HashSet<Integer> picked = new HashSet<Integer>();
+    int c = 0;
+    for (int j = n - k; j < n; j++) {
+      int index = random.nextInt(j + 1);
+      if (!picked.add(index)) {
+        index = j;
+        picked.add(index);
+      }
+      space.setCenter(c, index);
+      c++;
+    }
+  }
+
+  /**
+   * Picks k centers by kMeans++. The first center is a random point, and each center after
+   * that is a point picked with probability proportional to its squared distance to the
+   * nearest center so far.
+   *
+   * @param columns  is the points to pick centers from.
+   * @param k        is the number of centers to pick.
+   * @param runner   is the runner for the chunks of each pass over the points.
+   * @param random   is the source of random choices.
+   * @param centersX is filled with the xCoord of each center.
+   * @param centersY is filled with the yCoord of each center.
+   */
+  static void plusPlusCenters(PointColumns columns, int k, ChunkRunner runner,
+                              SplittableRandom random, double[] centersX, double[] centersY) {
+    plusPlusCenters(new PointSpace(columns, runner, centersX, centersY), k, random);
+  }
+
+  /**
+   * Picks k centers of a space by kMeans++.
+   *
+   * @param space  is the points to pick centers from.
+   * @param k      is the number of centers to pick.
+   * @param random is the source of random choices.
+   */
+  static void plusPlusCenters(Space space, int k, SplittableRandom random) {
+    int n = space.size();
+    double[] distances = new double[n];
+    Arrays.fill(distances, Double.POSITIVE_INFINITY);
+    double[] chunkTotals = new double[ChunkRunner.chunkCount(n)];
+    HashSet<Integer> picked = new HashSet<Integer>();
+
+    int first = random.nextInt(n);
+    picked.add(first);
+    space.setCenter(0, first);
+    double total = space.closerTo(0, 1, distances, chunkTotals);
+
+    plusPlusFrom(space, 1, k, random, distances, chunkTotals, total, picked);
+  }
+
+  /**
+   * Picks one more center by kMeans++, for growing the centers of a k - 1 cluster solution
+   * into a start for k clusters. Centers 0 to k - 2 are kept and center k - 1 is a point
+   * picked with probability proportional to its squared distance to the nearest of them.
+   *
+   * @param columns  is the points to pick the center from.
+   * @param k        is the number of centers after the new one.
+   * @param runner   is the runner for the chunks of each pass over the points.
+   * @param random   is the source of random choices.
+   * @param centersX is the xCoord of each center, center k - 1 is filled in.
+   * @param centersY is the yCoord of each center, center k - 1 is filled in.
+   */
+  static void addPlusPlusCenter(PointColumns columns, int k, ChunkRunner runner,
+                                SplittableRandom random, double[] centersX,
+                                double[] centersY) {
+    PointSpace space = new PointSpace(columns, runner, centersX, centersY);
+    int n = columns.size();
+    double[] distances = new double[n];
+    Arrays.fill(distances, Double.POSITIVE_INFINITY);
+    double[] chunkTotals = new double[ChunkRunner.chunkCount(n)];
+    double total = space.closerTo(0, k - 1, distances, chunkTotals);
+    plusPlusFrom(space, k - 1, k, random, distances, chunkTotals, total,
+        new HashSet<Integer>());
+  }
+
+  /**
+   * Picks centers start to k - 1 by kMeans++, given the squared distance of every point to
+   * the centers already picked.
+   *
+   * @param space       is the points to pick centers from.
+   * @param start       is the first center to pick.
+   * @param k           is the number of centers wanted in total.
+   * @param random      is the source of random choices.
+   * @param distances   is the squared distance of each point to its nearest center so far.
+   * @param chunkTotals is the sum of distances in each chunk of points.
+   * @param total       is the sum of distances.
+   * @param picked      is the indices of the points already used as centers.
+   */
+  private static void plusPlusFrom(Space space, int start, int k, SplittableRandom random,
+                                   double[] distances, double[] chunkTotals, double total,
+                                   HashSet<Integer> picked) {
+    int n = space.size();
+    for (int c = start; c < k; c++) {
+      int index;
+      if (total > 0) {
+        index = sampleChunks(distances, n, chunkTotals, total, random);
+      } else {
+        // Every point sits on a center already, so any unused point will do.
+        index = random.nextInt(n);
+        while (picked.contains(index)) {
+          index = (index + 1) % n;
+        }
+      }
+      picked.add(index);
+      space.setCenter(c, index);
+      if (c + 1 < k) {
+        total = space.closerTo(c, c + 1, distances, chunkTotals);
+      }
+    }
+  }
+
+  /**
+   * Picks k centers by kMeans||. Starting from one random point, each round keeps every
+   * point with probability oversampling * k * d / total, where d is its squared distance to
+   * the nearest candidate. After the rounds each candidate is weighted by the number of
+   * points nearest to it, and the weighted candidates are clustered down to k centers.
+   *
+   * @param columns  is the points to pick centers from.
+   * @param k        is the number of centers to pick.
+   * @param options  is the options holding the rounds and oversampling factor.
+   * @param runner   is the runner for the chunks of each pass over the points.
+   * @param random   is the source of random choices.
+   * @param centersX is filled with the xCoord of each center.
+   * @param centersY is filled with the yCoord of each center.
+   */
+  static void parallelCenters(PointColumns columns, int k, KMeansOptions options,
+                              ChunkRunner runner, SplittableRandom random, double[] centersX,
+                              double[] centersY) {
+    int n = columns.size();
+    double[] distances = new double[n];
+    Arrays.fill(distances, Double.POSITIVE_INFINITY);
+    int[] owners = new int[n];
+    int chunks = ChunkRunner.chunkCount(n);
+    double[] chunkTotals = new double[chunks];
+    int[][] chunkPicks = new int[chunks][];
+
+    int[] candidates = new int[Math.max(16, k)];
+    double[] candidatesX = new double[candidates.length];
+    double[] candidatesY = new double[candidates.length];
+    int candidateCount = 0;
+    int first = random.nextInt(n);
+    candidates[0] = first;
+    candidatesX[0] = columns.getX(first);
+    candidatesY[0] = columns.getY(first);
+    candidateCount++;
+    double total = closerTo(columns, runner, candidatesX, candidatesY, 0, 1, distances,
+        owners, chunkTotals);
+
+    double expected = options.getOversampling() * k;
+    long roundSeed = random.nextLong();
+    for (int round = 0; round < options.getParallelRounds() && total > 0; round++) {
+      // Every point makes its own draw, so the chunks can draw in any order.
+      final int currentRound = round;
+      final double currentTotal = total;
+      runner.run(chunks, chunk -> {
+        int from = chunk * ChunkRunner.CHUNK_SIZE;
+        int to = Math.min(n, from + ChunkRunner.CHUNK_SIZE);
+        int[] picks = new int[16];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+          double distance = distances[i];
+          if (distance > 0
+              && uniform(roundSeed, currentRound, i) * currentTotal < expected * distance) {
+            if (count == picks.length) {
+              picks = Arrays.copyOf(picks, count * 2);
+            }
+            picks[count++] = i;
+          }
+        }
+        chunkPicks[chunk] = Arrays.copyOf(picks, count);
+      });
+
+      int roundStart = candidateCount;
+      for (int chunk = 0; chunk < chunks; chunk++) {
+        for (int i : chunkPicks[chunk]) {
+          if (candidateCount == candidates.length) {
+            candidates = Arrays.copyOf(candidates, candidates.length * 2);
+            candidatesX = Arrays.copyOf(candidatesX, candidates.length);
+            candidatesY = Arrays.copyOf(candidatesY, candidates.length);
+          }
+          candidates[candidateCount] = i;
+          candidatesX[candidateCount] = columns.getX(i);
+          candidatesY[candidateCount] = columns.getY(i);
+          candidateCount++;
+        }
+      }
+      if (candidateCount > roundStart) {
+        total = closerTo(columns, runner, candidatesX, candidatesY, roundStart, candidateCount,
+            distances, owners, chunkTotals);
+      }
+    }
+
+    if (candidateCount <= k) {
+      // Too few candidates, use them all and fill the rest in by kMeans++.
+      HashSet<Integer> picked = new HashSet<Integer>();
+      for (int j = 0; j < candidateCount; j++) {
+        picked.add(candidates[j]);
+        centersX[j] = candidatesX[j];
+        centersY[j] = candidatesY[j];
+      }
+      plusPlusFrom(new PointSpace(columns, runner, centersX, centersY), candidateCount, k,
+          random, distances, chunkTotals, total, picked);
+      return;
+    }
+
+    double[] weights = new double[candidateCount];
+    for (int i = 0; i < n; i++) {
+      weights[owners[i]]++;
+    }
+    weightedPlusPlus(candidatesX, candidatesY, weights, candidateCount, k, random, centersX,
+        centersY);
+    weightedLloyd(candidatesX, candidatesY, weights, candidateCount, k, centersX, centersY,
+        CANDIDATE_ITERATIONS);
+  }
+
+  /**
+   * Picks k centers from weighted points by kMeans++, where each point is picked with
+   * probability proportional to its weight times its squared distance to the nearest center
+   * so far.
+   *
+   * @param xs       is the xCoord of each point.
+   * @param ys       is the yCoord of each point.
+   * @param weights  is the weight of each point.
+   * @param n        is the number of points.
+   * @param k        is the number of centers to pick, at most n.
+   * @param random   is the source of random choices.
+   * @param centersX is filled with the xCoord of each center.
+   * @param centersY is filled with the yCoord of each center.
+   */
+  static void weightedPlusPlus(double[] xs, double[] ys, double[] weights, int n, int k,
+                               SplittableRandom random, double[] centersX, double[] centersY) {
+    double[] scores = new double[n];
+    boolean[] picked = new boolean[n];
+
+    double totalWeight = 0;
+    for (int i = 0; i < n; i++) {
+      totalWeight = weights[i] + totalWeight;
+    }
+    int index = totalWeight > 0 ? sample(weights, n, totalWeight, random) : random.nextInt(n);
+    for (int c = 0; c < k; c++) {
+      if (c > 0) {
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+          total = scores[i] + total;
+        }
+        if (total > 0) {
+          index = sample(scores, n, total, random);
+        } else {
+          index = random.nextInt(n);
+          while (picked[index]) {
+            index = (index + 1) % n;
+          }
+        }
+      }
+      picked[index] = true;
+      centersX[c] = xs[index];
+      centersY[c] = ys[index];
+
+      // Score is weight times squared distance to the nearest center so far.
+      for (int i = 0; i < n; i++) {
+        double dx = xs[i] - centersX[c];
+        double dy = ys[i] - centersY[c];
+        double score = weights[i] * ((dx * dx) + (dy * dy));
+        if (c == 0 || score < scores[i]) {
+          scores[i] = score;
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs Lloyd iterations on weighted points, starting from the given centers, until no
+   * point changes cluster or the iteration limit is reached.
+   *
+   * @param xs            is the xCoord of each point.
+   * @param ys            is the yCoord of each point.
+   * @param weights       is the weight of each point.
+   * @param n             is the number of points.
+   * @param k             is the number of centers.
+   * @param centersX      is the xCoord of each center, it is updated in place.
+   * @param centersY      is the yCoord of each center, it is updated in place.
+   * @param maxIterations is the most iterations to run.
+   */
+  static void weightedLloyd(double[] xs, double[] ys, double[] weights, int n, int k,
+                            double[] centersX, double[] centersY, int maxIterations) {
+    int[] labels = new int[n];
+    Arrays.fill(labels, -1);
+    double[] sumsX = new double[k];
+    double[] sumsY = new double[k];
+    double[] sumsW = new double[k];
+    for (int iteration = 0; iteration < maxIterations; iteration++) {
+      Arrays.fill(sumsX, 0);
+      Arrays.fill(sumsY, 0);
+      Arrays.fill(sumsW, 0);
+      boolean changed = false;
+      for (int i = 0; i < n; i++) {
+        int nearest = nearest(xs[i], ys[i], centersX, centersY, k);
+        if (nearest != labels[i]) {
+          labels[i] = nearest;
+          changed = true;
+        }
+        sumsX[nearest] = (weights[i] * xs[i]) + sumsX[nearest];
+        sumsY[nearest] = (weights[i] * ys[i]) + sumsY[nearest];
+        sumsW[nearest] = weights[i] + sumsW[nearest];
+      }
+      if (!changed) {
+        return;
+      }
+      for (int c = 0; c < k; c++) {
+        if (sumsW[c] > 0) {
+          centersX[c] = sumsX[c] / sumsW[c];
+          centersY[c] = sumsY[c] / sumsW[c];
+        }
+      }
+    }
+  }
+
+  /**
+   * Finds the nearest center to a point. Ties go to the lowest center.
+   *
+   * @param x        is the xCoord of the point.
+   * @param y        is the yCoord of the point.
+   * @param centersX is the xCoord of each center.
+   * @param centersY is the yCoord of each center.
+   * @param k        is the number of centers.
+   * @return the index of the nearest center.
+   */
+  static int nearest(double x, double y, double[] centersX, double[] centersY, int k) {
+    int nearest = 0;
+    double nearestDistance = Double.POSITIVE_INFINITY;
+    for (int c = 0; c < k; c++) {
+      double dx = x - centersX[c];
+      double dy = y - centersY[c];
+      double distance = (dx * dx) + (dy * dy);
+      if (distance < nearestDistance) {
+        nearestDistance = distance;
+        nearest = c;
+      }
+    }
+    return nearest;
+  }
+
+  /**
+   * Lowers the squared distance of every point to its nearest center where one of the
+   * centers first to last - 1 is closer, and sums the distances. The sum of each chunk is
+   * kept in chunkTotals, and the chunk sums are added up in order.
+   *
+   * @param columns     is the points.
+   * @param runner      is the runner for the chunks of the pass.
+   * @param centersX    is the xCoord of each center.
+   * @param centersY    is the yCoord of each center.
+   * @param first       is the first of the new centers.
+   * @param last        is one past the last of the new centers.
+   * @param distances   is the squared distance of each point to its nearest center so far.
+   * @param owners      if not null, is set to the nearest new center where one is closer.
+   * @param chunkTotals is filled with the sum of the updated distances in each chunk.
+   * @return the sum of the updated distances.
+   */
+  private static double closerTo(PointColumns columns, ChunkRunner runner, double[] centersX,
+                                 double[] centersY, int first, int last, double[] distances,
+                                 int[] owners, double[] chunkTotals) {
+    int n = columns.size();
+    int chunks = ChunkRunner.chunkCount(n);
+    Kernels kernels = Kernels.get();
+    boolean vector = kernels.isVector() && owners == null;
+    runner.run(chunks, chunk -> {
+      int from = chunk * ChunkRunner.CHUNK_SIZE;
+      int to = Math.min(n, from + ChunkRunner.CHUNK_SIZE);
+      double total = 0;
+      PointBlock block = new PointBlock();
+      for (int start = from; start < to; start += PointColumns.BLOCK_SIZE) {
+        columns.load(start, Math.min(PointColumns.BLOCK_SIZE, to - start), block);
+        if (vector) {
+          // Without owners only the distances matter, one center at a time over the block.
+          for (int c = first; c < last; c++) {
+            kernels.lowerDistances(block.xs, block.ys, block.offset, block.length,
+                centersX[c], centersY[c], distances, block.start);
+          }
+          for (int i = 0; i < block.length; i++) {
+            total = distances[block.start + i] + total;
+          }
+          continue;
+        }
+        double[] xs = block.xs;
+        double[] ys = block.ys;
+        for (int i = 0; i < block.length; i++) {
+          double x = xs[block.offset + i];
+          double y = ys[block.offset + i];
+          int index = block.start + i;
+          double nearest = distances[index];
+          for (int c = first; c < last; c++) {
+            double dx = x - centersX[c];
+            double dy = y - centersY[c];
+            double distance = (dx * dx) + (dy * dy);
+            if (distance < nearest) {
+              nearest = distance;
+              if (owners != null) {
+                owners[index] = c;
+              }
+            }
+          }
+          distances[index] = nearest;
+          total = nearest + total;
+        }
+      }
+      chunkTotals[chunk] = total;
+    });
+
+    double total = 0;
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      total = chunkTotals[chunk] + total;
+    }
+    return total;
+  }
+
+  /**
+   * Picks a point with probability proportional to its score, using the chunk sums to go
+   * straight to the chunk that holds the pick.
+   *
+   * @param scores      is the score of each point, none negative.
+   * @param n           is the number of points.
+   * @param chunkTotals is the sum of the scores in each chunk.
+   * @param total       is the sum of the scores, more than zero.
+   * @param random      is the source of random choices.
+   * @return the index of the picked point.
+   */
+  private static int sampleChunks(double[] scores, int n, double[] chunkTotals, double total,
+                                  SplittableRandom random) {
+    double target = random.nextDouble() * total;
+    double running = 0;
+    int chunks = ChunkRunner.chunkCount(n);
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      if (running + chunkTotals[chunk] <= target) {
+        running = chunkTotals[chunk] + running;
+        continue;
+      }
+      int from = chunk * ChunkRunner.CHUNK_SIZE;
+      int to = Math.min(n, from + ChunkRunner.CHUNK_SIZE);
+      for (int i = from; i < to; i++) {
+        if (scores[i] > 0) {
+          running = scores[i] + running;
+          if (running > target) {
+            return i;
+          }
+        }
+      }
+    }
+    // Rounding in the running sum can leave the target just out of reach.
+    int last = n - 1;
+    while (last > 0 && !(scores[last] > 0)) {
+      last--;
+    }
+    return last;
+  }
+
+  /**
+   * Picks an index with probability proportional to its score.
+   *
+   * @param scores is the score of each index, none negative.
+   * @param n      is the number of indices.
+   * @param total  is the sum of the scores, more than zero.
+   * @param random is the source of random choices.
+   * @return the picked index.
+   */
+  private static int sample(double[] scores, int n, double total, SplittableRandom random) {
+    double target = random.nextDouble() * total;
+    double running = 0;
+    int last = -1;
+    for (int i = 0; i < n; i++) {
+      if (scores[i] > 0) {
+        running = scores[i] + running;
+        last = i;
+        if (running > target) {
+          return i;
+        }
+      }
+    }
+    // Rounding in the running sum can leave the target just out of reach.
+    return last;
+  }
+
+  /**
+   * Gets a uniform number in [0, 1) for one point in one round. The number depends only on
+   * the seed, the round and the index, so points can be visited in any order.
+   *
+   * @param seed  is the seed for the rounds.
+   * @param round is the round.
+   * @param index is the index of the point.
+   * @return a number in [0, 1).
+   */
+  static double uniform(long seed, int round, int index) {
+    // SplitMix64 finalizer over the combined inputs.
+    long z = seed + (round + 1) * 0x9E3779B97F4A7C15L + index * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    z = z ^ (z >>> 31);
+    return (z >>> 11) * 0x1.0p-53;
+  }
+}
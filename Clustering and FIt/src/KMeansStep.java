@@ -0,0 +1,249 @@
+import java.util.Arrays;
+
+/**
+ * This class is one way of running a kMeans iteration. Every kind of step assigns each point
+ * to its nearest center, breaking ties towards the lowest cluster, and adds up the new
+ * centers in the order of the points. That way every kind of step gives exactly the same
+ * clusters from the same starting centers, and they only differ in how much work they do.
+ *
+ * <p>The points are handled in the fixed chunks of a ChunkRunner. Each chunk writes its own
+ * centroid sums, counts and error, and the chunks are merged in order once they are all
+ * done, so no two threads ever write to the same place and the result does not depend on
+ * the number of threads.
+ */
+abstract class KMeansStep {
+
+  /**
+   * The number of point to center distances computed so far.
+   */
+  long computed;
+
+  /**
+   * The number of point to center distances a plain Lloyd pass would have computed, but this
+   * step could rule out without computing.
+   */
+  long skipped;
+
+  /**
+   * The number of points the last step moved to a different cluster, if watched.
+   */
+  long reassigned;
+
+  /**
+   * True if an iteration listener is watching, so the steps time their phases and count
+   * the points that move. Both are skipped otherwise to keep the passes lean.
+   */
+  boolean watched;
+
+  /**
+   * The time the last step took to assign the points, if watched.
+   */
+  long assignNanos;
+
+  /**
+   * The time the last step took to merge the chunks and move the centers, if watched.
+   */
+  long updateNanos;
+
+  final int k;
+
+  private double[] partialSumsX;
+  private double[] partialSumsY;
+  private int[] partialCounts;
+  private double[] partialErrors;
+  private long[] partialComputed;
+  private long[] partialSkipped;
+  private long[] partialReassigned;
+
+  private final double[] sumsX;
+  private final double[] sumsY;
+
+  /**
+   * Constructor for a step.
+   *
+   * @param k is the number of clusters.
+   */
+  KMeansStep(int k) {
+    this.k = k;
+    this.sumsX = new double[k];
+    this.sumsY = new double[k];
+    this.partialErrors = new double[0];
+  }
+
+  /**
+   * Runs one iteration. Assigns every point to its nearest center and then moves every
+   * center that has points to the mean of its points. A center that lost all of its points
+   * stays where it was.
+   *
+   * <p>A step may be run again after points have been added to the end of the columns. The
+   * clusters array must then be grown to match, with any value for the new points. A
+   * point counts as reassigned when its new cluster differs from the one in clusters.
+   *
+   * @param runner   is the runner for the chunks of the pass.
+   * @param columns  is the points to cluster.
+   * @param centersX is the xCoord of each center, it is updated to the new centers.
+   * @param centersY is the yCoord of each center, it is updated to the new centers.
+   * @param clusters is filled with the cluster of each point.
+   * @param counts   is filled with the number of points in each cluster.
+   * @return the sum of squared distances of the points to the centers they were assigned to.
+   */
+  final double step(ChunkRunner runner, PointColumns columns, double[] centersX,
+                    double[] centersY, int[] clusters, int[] counts) {
+    int n = columns.size();
+    int chunks = ChunkRunner.chunkCount(n);
+    if (partialErrors.length < chunks) {
+      partialSumsX = new double[chunks * k];
+      partialSumsY = new double[chunks * k];
+      partialCounts = new int[chunks * k];
+      partialErrors = new double[chunks];
+      partialComputed = new long[chunks];
+      partialSkipped = new long[chunks];
+      partialReassigned = new long[chunks];
+    }
+    long started = watched ? System.nanoTime() : 0;
+    beforeAssign(n, centersX, centersY);
+    runner.run(chunks, chunk -> {
+      int from = chunk * ChunkRunner.CHUNK_SIZE;
+      int to = Math.min(n, from + ChunkRunner.CHUNK_SIZE);
+      assignChunk(columns, chunk, from, to, centersX, centersY, clusters);
+    });
+    long assigned = watched ? System.nanoTime() : 0;
+
+    // Merge the chunks in order.
+    mergeChunks(partialSumsX, chunks, k, sumsX);
+    mergeChunks(partialSumsY, chunks, k, sumsY);
+    mergeChunks(partialCounts, chunks, k, counts);
+    double distanceCounter = 0;
+    reassigned = 0;
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      distanceCounter = partialErrors[chunk] + distanceCounter;
+      computed += partialComputed[chunk];
+      skipped += partialSkipped[chunk];
+      reassigned += partialReassigned[chunk];
+    }
+
+    moveCenters(sumsX, counts, k, 1, centersX);
+    moveCenters(sumsY, counts, k, 1, centersY);
+    afterMove(centersX, centersY);
+    if (watched) {
+      assignNanos = assigned - started;
+      updateNanos = System.nanoTime() - assigned;
+    }
+    return distanceCounter;
+  }
+
+  /**
+   * Adds up the sums of the chunks, chunk by chunk in order.
+   *
+   * @param partial is the sums of each chunk, width of them per chunk.
+   * @param chunks  is the number of chunks.
+   * @param width   is the number of sums of a chunk.
+   * @param sums    is set to the sums over every chunk.
+   */
+  static void mergeChunks(double[] partial, int chunks, int width, double[] sums) {
+    Arrays.fill(sums, 0, width, 0);
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      int base = chunk * width;
+      for (int j = 0; j < width; j++) {
+        sums[j] = partial[base + j] + sums[j];
+      }
+    }
+  }
+
+  /**
+   * Adds up the counts of the chunks.
+   *
+   * @param partial is the counts of each chunk, width of them per chunk.
+   * @param chunks  is the number of chunks.
+   * @param width   is the number of counts of a chunk.
+   * @param counts  is set to the counts over every chunk.
+   */
+  static void mergeChunks(int[] partial, int chunks, int width, int[] counts) {
+    Arrays.fill(counts, 0, width, 0);
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      int base = chunk * width;
+      for (int j = 0; j < width; j++) {
+        counts[j] += partial[base + j];
+      }
+    }
+  }
+
+  /**
+   * Moves every center that has points to the mean of its points. A center that lost all of
+   * its points stays where it was.
+   *
+   * @param sums    is the sums of the points of each center, width of them per center.
+   * @param counts  is the number of points of each center.
+   * @param k       is the number of centers.
+   * @param width   is the number of values of a center.
+   * @param centers is the centers, width values per center, updated in place.
+   */
+  static void moveCenters(double[] sums, int[] counts, int k, int width, double[] centers) {
+    for (int c = 0; c < k; c++) {
+      if (counts[c] > 0) {
+        for (int j = 0; j < width; j++) {
+          centers[c * width + j] = sums[c * width + j] / counts[c];
+        }
+      }
+    }
+  }
+
+  /**
+   * Stores the results of one chunk at the chunk's place in the partial arrays.
+   *
+   * @param chunk      is the number of the chunk.
+   * @param sumsX      is the sum of the xCoords in each cluster.
+   * @param sumsY      is the sum of the yCoords in each cluster.
+   * @param counts     is the number of points in each cluster.
+   * @param error      is the sum of squared distances for the chunk.
+   * @param computed   is the number of distances computed.
+   * @param skipped    is the number of distances skipped.
+   * @param reassigned is the number of points moved to a different cluster.
+   */
+  final void finishChunk(int chunk, double[] sumsX, double[] sumsY, int[] counts,
+                         double error, long computed, long skipped, long reassigned) {
+    int base = chunk * k;
+    System.arraycopy(sumsX, 0, partialSumsX, base, k);
+    System.arraycopy(sumsY, 0, partialSumsY, base, k);
+    System.arraycopy(counts, 0, partialCounts, base, k);
+    partialErrors[chunk] = error;
+    partialComputed[chunk] = computed;
+    partialSkipped[chunk] = skipped;
+    partialReassigned[chunk] = reassigned;
+  }
+
+  /**
+   * Assigns the points [from, to) of one chunk to their nearest centers, and ends by handing
+   * the sums, counts and error of the chunk to finishChunk.
+   *
+   * @param columns  is the points to cluster.
+   * @param chunk    is the number of the chunk.
+   * @param from     is the first point of the chunk.
+   * @param to       is one past the last point of the chunk.
+   * @param centersX is the xCoord of each center.
+   * @param centersY is the yCoord of each center.
+   * @param clusters is filled with the cluster of each point in the chunk.
+   */
+  abstract void assignChunk(PointColumns columns, int chunk, int from, int to,
+                            double[] centersX, double[] centersY, int[] clusters);
+
+  /**
+   * Called before the points are assigned, on the calling thread. n may be larger than in
+   * the last call if points were added since.
+   *
+   * @param n        is the number of points.
+   * @param centersX is the xCoord of each center.
+   * @param centersY is the yCoord of each center.
+   */
+  void beforeAssign(int n, double[] centersX, double[] centersY) {
+  }
+
+  /**
+   * Called after the centers have moved, on the calling thread.
+   *
+   * @param centersX is the xCoord of each center after the move.
+   * @param centersY is the yCoord of each center after the move.
+   */
+  void afterMove(double[] centersX, double[] centersY) {
+  }
+}
@@ -0,0 +1,173 @@
+/**
+ * This class holds the outcome of ListOfPoints.chooseK: the scores of every k that was tried
+ * and the k each score picks.
+ *
+ * <p>The elbow is the k where the inertia curve bends most, found as the point furthest
+ * below the straight line from its first to its last point. The silhouette is estimated on a
+ * sample of the points and is highest for the best separated clusters. The gap statistic
+ * compares the inertia of the points to that of uniformly random points over the same box,
+ * and picks the smallest k whose gap is within one standard error of the largest gap. The
+ * recommended k is the gap statistic's.
+ */
+public class KSelection {
+  private final int kMin;
+  private final double[] inertias;
+  private final int[] iterations;
+  private final double[] silhouettes;
+  private final double[] gaps;
+  private final double[] gapErrors;
+  private final int elbowK;
+  private final int silhouetteK;
+  private final int gapK;
+
+  /**
+   * Constructor for a k selection. The arrays hold one value per k from kMin up, and are
+   * kept, not copied.
+   *
+   * @param kMin        is the smallest k tried.
+   * @param inertias    is the inertia of each k.
+   * @param iterations  is the number of iterations each k took.
+   * @param silhouettes is the sampled silhouette of each k, NaN for k = 1.
+   * @param gaps        is the gap statistic of each k.
+   * @param gapErrors   is the standard error of each gap.
+   * @param elbowK      is the k picked by the elbow.
+   * @param silhouetteK is the k picked by the silhouette.
+   * @param gapK        is the k picked by the gap statistic.
+   */
+  KSelection(int kMin, double[] inertias, int[] iterations, double[] silhouettes,
+             double[] gaps, double[] gapErrors, int elbowK, int silhouetteK, int gapK) {
+    this.kMin = kMin;
+    this.inertias = inertias;
+    this.iterations = iterations;
+    this.silhouettes = silhouettes;
+    this.gaps = gaps;
+    this.gapErrors = gapErrors;
+    this.elbowK = elbowK;
+    this.silhouetteK = silhouetteK;
+    this.gapK = gapK;
+  }
+
+  /**
+   * Gets the recommended number of clusters, the one picked by the gap statistic.
+   *
+   * @return the recommended k.
+   */
+  public int getRecommendedK() {
+    return this.gapK;
+  }
+
+  /**
+   * Gets the number of clusters picked by the elbow of the inertia curve.
+   *
+   * @return the elbow k.
+   */
+  public int getElbowK() {
+    return this.elbowK;
+  }
+
+  /**
+   * Gets the number of clusters with the highest sampled silhouette.
+   *
+   * @return the silhouette k, or kMin if only k = 1 was tried.
+   */
+  public int getSilhouetteK() {
+    return this.silhouetteK;
+  }
+
+  /**
+   * Gets the number of clusters picked by the gap statistic.
+   *
+   * @return the gap k.
+   */
+  public int getGapK() {
+    return this.gapK;
+  }
+
+  /**
+   * Gets the smallest k tried.
+   *
+   * @return the smallest k.
+   */
+  public int getKMin() {
+    return this.kMin;
+  }
+
+  /**
+   * Gets the largest k tried.
+   *
+   * @return the largest k.
+   */
+  public int getKMax() {
+    return this.kMin + inertias.length - 1;
+  }
+
+  /**
+   * Gets the inertia of the clusters found for k, the sum of squared distances between
+   * every point and its center.
+   *
+   * @param k is the number of clusters.
+   * @return the inertia for k.
+   * @throws IllegalArgumentException if k was not tried.
+   */
+  public double getInertia(int k) throws IllegalArgumentException {
+    return inertias[index(k)];
+  }
+
+  /**
+   * Gets the number of iterations the run for k took.
+   *
+   * @param k is the number of clusters.
+   * @return the number of iterations for k.
+   * @throws IllegalArgumentException if k was not tried.
+   */
+  public int getIterations(int k) throws IllegalArgumentException {
+    return iterations[index(k)];
+  }
+
+  /**
+   * Gets the mean silhouette of a sample of the points for k, between -1 and 1.
+   *
+   * @param k is the number of clusters.
+   * @return the silhouette for k, or NaN for k = 1.
+   * @throws IllegalArgumentException if k was not tried.
+   */
+  public double getSilhouette(int k) throws IllegalArgumentException {
+    return silhouettes[index(k)];
+  }
+
+  /**
+   * Gets the gap statistic for k.
+   *
+   * @param k is the number of clusters.
+   * @return the gap for k.
+   * @throws IllegalArgumentException if k was not tried.
+   */
+  public double getGap(int k) throws IllegalArgumentException {
+    return gaps[index(k)];
+  }
+
+  /**
+   * Gets the standard error of the gap statistic for k.
+   *
+   * @param k is the number of clusters.
+   * @return the standard error of the gap for k.
+   * @throws IllegalArgumentException if k was not tried.
+   */
+  public double getGapError(int k) throws IllegalArgumentException {
+    return gapErrors[index(k)];
+  }
+
+  /**
+   * Finds the place of k in the arrays.
+   *
+   * @param k is the number of clusters.
+   * @return the index for k.
+   * @throws IllegalArgumentException if k was not tried.
+   */
+  private int index(int k) throws IllegalArgumentException {
+    if (k < kMin || k > getKMax()) {
+      throw new IllegalArgumentException("k = " + k + " was not tried");
+    }
+    return k - kMin;
+  }
+}
@@ -0,0 +1,376 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.SplittableRandom;
+
+/**
+ * This class runs kMeans for a range of k and scores each k, for ListOfPoints.chooseK.
+ *
+ * <p>The range is cut into fixed segments of SEGMENT_LENGTH values of k, and the segments
+ * run in parallel on the chunk runner. Within a segment the first k is seeded by kMeans++,
+ * and every k after that starts from the centers found for k - 1 plus one new center picked
+ * by kMeans++, so it only needs a few iterations. The segments and all of their seeds are
+ * fixed before the sweep starts.
+ */
+final class KSweep {
+
+  /**
+   * The number of values of k swept one after the other by one task.
+   */
+  static final int SEGMENT_LENGTH = 4;
+
+  /**
+   * The number of points in each reference data set for the gap statistic, unless there
+   * are fewer points, or more clusters to try. A reference set holds twice kMax points if
+   * there are that many, so every k swept has enough points to pick its centers from and
+   * still has some error left at kMax.
+   */
+  static final int GAP_REFERENCE_SIZE = 2000;
+
+  private KSweep() {
+  }
+
+  /**
+   * Clusters the points for every k from kMin to kMax and scores them.
+   *
+   * @param columns is the points.
+   * @param kMin    is the smallest k, at least 1.
+   * @param kMax    is the largest k, at most the number of points.
+   * @param options is the options for the runs and the scores.
+   * @return the scores and the k each one picks.
+   */
+  static KSelection run(PointColumns columns, int kMin, int kMax, KMeansOptions options) {
+    int n = columns.size();
+    int count = kMax - kMin + 1;
+    int segments = (count + SEGMENT_LENGTH - 1) / SEGMENT_LENGTH;
+    int references = options.getGapReferences();
+    SplittableRandom random = new SplittableRandom(options.getSeed());
+
+    // Data set 0 is the points, the others are the references for the gap statistic.
+    PointColumns[] dataSets = new PointColumns[references + 1];
+    dataSets[0] = columns;
+    double[] box = boundingBox(columns);
+    int referenceSize = (int) Math.min(n, Math.max(GAP_REFERENCE_SIZE, 2L * kMax));
+    for (int b = 1; b <= references; b++) {
+      DoubleColumns reference = new DoubleColumns();
+      for (int i = 0; i < referenceSize; i++) {
+        reference.add(box[0] + random.nextDouble() * (box[1] - box[0]),
+            box[2] + random.nextDouble() * (box[3] - box[2]));
+      }
+      dataSets[b] = reference;
+    }
+    long[][] seeds = new long[dataSets.length][segments];
+    for (long[] seedsOfSet : seeds) {
+      for (int s = 0; s < segments; s++) {
+        seedsOfSet[s] = random.nextLong();
+      }
+    }
+    int[] sample = sampleIndices(n, Math.min(n, options.getSilhouetteSample()), random);
+    double[] sampleX = new double[sample.length];
+    double[] sampleY = new double[sample.length];
+    for (int i = 0; i < sample.length; i++) {
+      sampleX[i] = columns.getX(sample[i]);
+      sampleY[i] = columns.getY(sample[i]);
+    }
+
+    double[][] inertias = new double[dataSets.length][count];
+    int[] iterations = new int[count];
+    double[] silhouettes = new double[count];
+    try (ChunkRunner runner = ChunkRunner.forOptions(options)) {
+      runner.run(segments * dataSets.length, task -> {
+        int set = task / segments;
+        int segment = task % segments;
+        int kFrom = kMin + segment * SEGMENT_LENGTH;
+        int kTo = Math.min(kMax, kFrom + SEGMENT_LENGTH - 1);
+        sweepSegment(dataSets[set], kFrom, kTo, options, seeds[set][segment], (k, error,
+            iterationCount, clusters) -> {
+          inertias[set][k - kMin] = error;
+          if (set == 0) {
+            iterations[k - kMin] = iterationCount;
+            silhouettes[k - kMin] = silhouette(sample, sampleX, sampleY, clusters, k);
+          }
+        });
+      });
+    }
+
+    // Gap statistic, with the mean squared distance so the reference sets may be smaller.
+    double[] gaps = new double[count];
+    double[] gapErrors = new double[count];
+    for (int i = 0; i < count; i++) {
+      double mean = 0;
+      for (int b = 1; b <= references; b++) {
+        mean += logMean(inertias[b][i], referenceSize);
+      }
+      mean /= references;
+      double variance = 0;
+      for (int b = 1; b <= references; b++) {
+        double d = logMean(inertias[b][i], referenceSize) - mean;
+        variance += d * d;
+      }
+      variance /= references;
+      gaps[i] = mean - logMean(inertias[0][i], n);
+      gapErrors[i] = Math.sqrt(variance) * Math.sqrt(1 + 1.0 / references);
+    }
+
+    return new KSelection(kMin, inertias[0], iterations, silhouettes, gaps, gapErrors,
+        kMin + elbow(inertias[0]), kMin + bestSilhouette(silhouettes), kMin + gapPick(gaps,
+        gapErrors));
+  }
+
+  /**
+   * This interface takes the outcome of one k of a segment.
+   */
+  interface KListener {
+    /**
+     * Takes the outcome of one k.
+     *
+     * @param k          is the number of clusters.
+     * @param inertia    is the inertia of the clusters found.
+     * @param iterations is the number of iterations the run took.
+     * @param clusters   is the cluster of each point, only valid during the call.
+     */
+    void found(int k, double inertia, int iterations, int[] clusters);
+  }
+
+  /**
+   * Clusters the points for every k from kFrom to kTo, each starting from the one before.
+   * A k that reaches the iteration limit is scored where it stopped.
+   *
+   * @param columns  is the points.
+   * @param kFrom    is the first k.
+   * @param kTo      is the last k.
+   * @param options  is the options for the runs.
+   * @param seed     is the seed for the segment.
+   * @param listener is told the outcome of each k.
+   */
+  private static void sweepSegment(PointColumns columns, int kFrom, int kTo,
+                                   KMeansOptions options, long seed, KListener listener) {
+    int n = columns.size();
+    ChunkRunner sequential = ChunkRunner.sequential();
+    SplittableRandom random = new SplittableRandom(seed);
+    int[] clusters = new int[n];
+    double[] centersX = new double[kFrom];
+    double[] centersY = new double[kFrom];
+    KMeansSeeding.plusPlusCenters(columns, kFrom, sequential, random, centersX, centersY);
+    for (int k = kFrom; k <= kTo; k++) {
+      if (k > kFrom) {
+        centersX = Arrays.copyOf(centersX, k);
+        centersY = Arrays.copyOf(centersY, k);
+        KMeansSeeding.addPlusPlusCenter(columns, k, sequential, random, centersX, centersY);
+      }
+      KMeansStep step = KMeans.newStep(options, n, k);
+      int[] counts = new int[k];
+      double error = Double.POSITIVE_INFINITY;
+      int i = 0;
+      while (i < options.getMaxIterations()) {
+        double newError = step.step(sequential, columns, centersX, centersY, clusters, counts);
+        i++;
+        boolean done = KMeans.converged(error, newError, counts, options.getTolerance());
+        error = newError;
+        if (done) {
+          break;
+        }
+      }
+      listener.found(k, error, i, clusters);
+    }
+  }
+
+  /**
+   * Estimates the mean silhouette from a sample of the points. For each sampled point, a is
+   * its mean distance to the other sampled points of its cluster and b the smallest mean
+   * distance to the sampled points of another cluster; its silhouette is
+   * (b - a) / max(a, b), or 0 if it is alone in its cluster.
+   *
+   * @param sample   is the index of each sampled point.
+   * @param sampleX  is the xCoord of each sampled point.
+   * @param sampleY  is the yCoord of each sampled point.
+   * @param clusters is the cluster of every point.
+   * @param k        is the number of clusters.
+   * @return the mean silhouette of the sample, or NaN if k is 1.
+   */
+  static double silhouette(int[] sample, double[] sampleX, double[] sampleY, int[] clusters,
+                           int k) {
+    if (k < 2) {
+      return Double.NaN;
+    }
+    int m = sample.length;
+    int[] labels = new int[m];
+    int[] sizes = new int[k];
+    for (int i = 0; i < m; i++) {
+      labels[i] = clusters[sample[i]];
+      sizes[labels[i]]++;
+    }
+    double[] sums = new double[k];
+    double total = 0;
+    for (int i = 0; i < m; i++) {
+      Arrays.fill(sums, 0);
+      for (int j = 0; j < m; j++) {
+        double dx = sampleX[i] - sampleX[j];
+        double dy = sampleY[i] - sampleY[j];
+        sums[labels[j]] += Math.sqrt((dx * dx) + (dy * dy));
+      }
+      int own = labels[i];
+      if (sizes[own] < 2) {
+        continue;
+      }
+      double a = sums[own] / (sizes[own] - 1);
+      double b = Double.POSITIVE_INFINITY;
+      for (int c = 0; c < k; c++) {
+        if (c != own && sizes[c] > 0) {
+          b = Math.min(b, sums[c] / sizes[c]);
+        }
+      }
+      if (b == Double.POSITIVE_INFINITY) {
+        continue;
+      }
+      double spread = Math.max(a, b);
+      if (spread > 0) {
+        total += (b - a) / spread;
+      }
+    }
+    return total / m;
+  }
+
+  /**
+   * Finds the elbow of an inertia curve, the point furthest below the straight line from
+   * the first point of the curve to the last, with both axes scaled to [0, 1].
+   *
+   * @param inertias is the inertia of each k.
+   * @return the index of the elbow, 0 if there are fewer than three points.
+   */
+  static int elbow(double[] inertias) {
+    int count = inertias.length;
+    if (count < 3) {
+      return 0;
+    }
+    double first = inertias[0];
+    double last = inertias[count - 1];
+    double high = Double.NEGATIVE_INFINITY;
+    double low = Double.POSITIVE_INFINITY;
+    for (double inertia : inertias) {
+      high = Math.max(high, inertia);
+      low = Math.min(low, inertia);
+    }
+    if (!(high > low)) {
+      return 0;
+    }
+    int best = 0;
+    double bestDrop = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < count; i++) {
+      double x = (double) i / (count - 1);
+      double line = (first + (last - first) * x - low) / (high - low);
+      double drop = line - (inertias[i] - low) / (high - low);
+      if (drop > bestDrop) {
+        bestDrop = drop;
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Finds the k with the highest silhouette.
+   *
+   * @param silhouettes is the silhouette of each k.
+   * @return the index of the highest silhouette, 0 if none is a number.
+   */
+  private static int bestSilhouette(double[] silhouettes) {
+    int best = 0;
+    double bestScore = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < silhouettes.length; i++) {
+      if (silhouettes[i] > bestScore) {
+        bestScore = silhouettes[i];
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Gets the log of the mean squared distance of a clustering. An inertia of zero, where
+   * every point sits on its center as at k = n, is taken as the smallest normal double, so
+   * the log stays finite: a perfect fit of the points against an imperfect one of the
+   * references gives a large gap, and a perfect fit of both gives a gap near zero.
+   *
+   * @param inertia is the sum of squared distances.
+   * @param size    is the number of points.
+   * @return the log of the mean squared distance.
+   */
+  private static double logMean(double inertia, int size) {
+    return Math.log(Math.max(inertia, Double.MIN_NORMAL) / size);
+  }
+
+  /**
+   * Picks k by the gap statistic: the smallest k whose gap is within one standard error of
+   * the largest gap. Taking the largest gap instead of the first k that beats the next one
+   * keeps a poor split into two or three clusters from stopping the search at k = 1.
+   *
+   * @param gaps      is the gap of each k.
+   * @param gapErrors is the standard error of each gap.
+   * @return the index of the k picked.
+   */
+  private static int gapPick(double[] gaps, double[] gapErrors) {
+    int best = 0;
+    for (int i = 1; i < gaps.length; i++) {
+      if (gaps[i] > gaps[best]) {
+        best = i;
+      }
+    }
+    for (int i = 0; i < best; i++) {
+      if (gaps[i] >= gaps[best] - gapErrors[best]) {
+        return i;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Finds the smallest box around the points.
+   *
+   * @param columns is the points.
+   * @return the smallest xCoord, largest xCoord, smallest yCoord and largest yCoord.
+   */
+  private static double[] boundingBox(PointColumns columns) {
+    double[] box = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+        Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+    int n = columns.size();
+    PointBlock block = new PointBlock();
+    for (int from = 0; from < n; from += PointColumns.BLOCK_SIZE) {
+      columns.load(from, Math.min(PointColumns.BLOCK_SIZE, n - from), block);
+      for (int i = 0; i < block.length; i++) {
+        double x = block.xs[block.offset + i];
+        double y = block.ys[block.offset + i];
+        box[0] = Math.min(box[0], x);
+        box[1] = Math.max(box[1], x);
+        box[2] = Math.min(box[2], y);
+        box[3] = Math.max(box[3], y);
+      }
+    }
+    return box;
+  }
+
+  /**
+   * Picks m different indices from 0 to n - 1, uniformly at random.
+   *
+   * @param n      is the number of indices to pick from.
+   * @param m      is the number of indices to pick.
+   * @param random is the source of random choices.
+   * @return the indices, in increasing order.
+   */
+  private static int[] sampleIndices(int n, int m, SplittableRandom random) {
+    // Floyd's algorithm, like the random seeding.
+    HashSet<Integer> picked = new HashSet<Integer>();
+    for (int j = n - m; j < n; j++) {
+      int index = random.nextInt(j + 1);
+      if (!picked.add(index)) {
+        picked.add(j);
+      }
+    }
+    int[] indices = new int[m];
+    int i = 0;
+    for (int index : picked) {
+      indices[i++] = index;
+    }
+    Arrays.sort(indices);
+    return indices;
+  }
+}
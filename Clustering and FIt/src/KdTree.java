@@ -0,0 +1,643 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class is a KD-tree over a snapshot of points, for nearest neighbour, radius and box
+ * queries in about log n time each instead of a scan over every point.
+ *
+ * <p>The tree has no node objects. The points are copied into three flat arrays and reordered
+ * so that every subtree is a range of them: the node of a range [lo, hi) is the point in the
+ * middle, the points before it are its left subtree and the points after it its right one.
+ * Each node splits across whichever axis its range is wider along. Ranges of LEAF_SIZE points
+ * or fewer are leaves that queries just scan. The top of the tree is split on the calling
+ * thread and the subtrees below it are built in parallel; every split is decided by the points
+ * alone.
+ *
+ * <p>Points added to the list after the tree is built are not in it. Queries give back the
+ * indices of the points in the list, and are safe to run from many threads at once.
+ */
+public class KdTree {
+
+  /**
+   * The most points in a range that is scanned instead of split.
+   */
+  static final int LEAF_SIZE = 8;
+
+  /**
+   * The number of subtrees the top of the tree is split into for a parallel build.
+   */
+  static final int SUBTREES = 64;
+
+  private final double[] xs;
+  private final double[] ys;
+  private final int[] indices;
+  private final boolean[] splitsOnY;
+
+  /**
+   * Constructor for a tree over the points in columns.
+   *
+   * @param columns is the points.
+   * @param runner  is the runner for the subtrees of the build.
+   */
+  KdTree(PointColumns columns, ChunkRunner runner) {
+    int n = columns.size();
+    this.xs = new double[n];
+    this.ys = new double[n];
+    this.indices = new int[n];
+    this.splitsOnY = new boolean[n];
+    PointBlock block = new PointBlock();
+    for (int from = 0; from < n; from += PointColumns.BLOCK_SIZE) {
+      columns.load(from, Math.min(PointColumns.BLOCK_SIZE, n - from), block);
+      System.arraycopy(block.xs, block.offset, xs, from, block.length);
+      System.arraycopy(block.ys, block.offset, ys, from, block.length);
+    }
+    build(runner);
+  }
+
+  /**
+   * Constructor for a tree over the points (xs[i], ys[i]) for i below count, such as the
+   * centers of a clustering. The arrays are copied.
+   *
+   * @param xs     is the xCoord of each point.
+   * @param ys     is the yCoord of each point.
+   * @param count  is the number of points.
+   * @param runner is the runner for the subtrees of the build.
+   */
+  KdTree(double[] xs, double[] ys, int count, ChunkRunner runner) {
+    this.xs = Arrays.copyOf(xs, count);
+    this.ys = Arrays.copyOf(ys, count);
+    this.indices = new int[count];
+    this.splitsOnY = new boolean[count];
+    build(runner);
+  }
+
+  /**
+   * Builds a tree over the points in columns. Lists of at least FitSums.PARALLEL_THRESHOLD
+   * points are built on the common ForkJoinPool, smaller ones on the calling thread.
+   *
+   * @param columns is the points.
+   * @return the tree.
+   */
+  static KdTree build(PointColumns columns) {
+    if (columns.size() < FitSums.PARALLEL_THRESHOLD) {
+      return new KdTree(columns, ChunkRunner.sequential());
+    }
+    try (ChunkRunner runner = ChunkRunner.create(0, ForkJoinPool.commonPool())) {
+      return new KdTree(columns, runner);
+    }
+  }
+
+  /**
+   * Orders the arrays into the tree. The top levels are split here until there are about
+   * SUBTREES ranges, and then the ranges are built on runner.
+   *
+   * @param runner is the runner for the subtrees.
+   */
+  private void build(ChunkRunner runner) {
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = i;
+    }
+    ArrayList<int[]> ranges = new ArrayList<int[]>();
+    ranges.add(new int[] {0, indices.length});
+    boolean split = true;
+    while (split && ranges.size() < SUBTREES) {
+      split = false;
+      ArrayList<int[]> next = new ArrayList<int[]>();
+      for (int[] range : ranges) {
+        if (range[1] - range[0] <= LEAF_SIZE) {
+          next.add(range);
+        } else {
+          int mid = splitRange(range[0], range[1]);
+          next.add(new int[] {range[0], mid});
+          next.add(new int[] {mid + 1, range[1]});
+          split = true;
+        }
+      }
+      ranges = next;
+    }
+    int[][] subtrees = ranges.toArray(new int[0][]);
+    runner.run(subtrees.length, s -> buildRange(subtrees[s][0], subtrees[s][1]));
+  }
+
+  /**
+   * Builds the subtree of the range [lo, hi).
+   *
+   * @param lo is the first point of the range.
+   * @param hi is one past the last point of the range.
+   */
+  private void buildRange(int lo, int hi) {
+    while (hi - lo > LEAF_SIZE) {
+      int mid = splitRange(lo, hi);
+      // Recurse into the smaller side so the stack stays shallow.
+      if (mid - lo < hi - mid - 1) {
+        buildRange(lo, mid);
+        lo = mid + 1;
+      } else {
+        buildRange(mid + 1, hi);
+        hi = mid;
+      }
+    }
+  }
+
+  /**
+   * Makes the middle of [lo, hi) a node: picks the wider axis of the range and moves the
+   * median along it to the middle, the points below it before and the points above it after.
+   *
+   * @param lo is the first point of the range.
+   * @param hi is one past the last point of the range.
+   * @return the middle of the range.
+   */
+  private int splitRange(int lo, int hi) {
+    double minX = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = lo; i < hi; i++) {
+      minX = Math.min(minX, xs[i]);
+      maxX = Math.max(maxX, xs[i]);
+      minY = Math.min(minY, ys[i]);
+      maxY = Math.max(maxY, ys[i]);
+    }
+    boolean onY = maxY - minY > maxX - minX;
+    int mid = (lo + hi) >>> 1;
+    select(onY ? ys : xs, lo, hi - 1, mid);
+    splitsOnY[mid] = onY;
+    return mid;
+  }
+
+  /**
+   * Reorders [left, right] so that the point at target is where it would be if the range
+   * were sorted by keys, with no larger key before it and no smaller key after it.
+   *
+   * @param keys   is the coordinate to order by, xs or ys.
+   * @param left   is the first point of the range.
+   * @param right  is the last point of the range.
+   * @param target is the place to fill.
+   */
+  private void select(double[] keys, int left, int right, int target) {
+    while (right > left) {
+      // Median of three for the pivot, so sorted input does not go quadratic.
+      int middle = (left + right) >>> 1;
+      if (keys[middle] < keys[left]) {
+        swap(middle, left);
+      }
+      if (keys[right] < keys[left]) {
+        swap(right, left);
+      }
+      if (keys[right] < keys[middle]) {
+        swap(right, middle);
+      }
+      double pivot = keys[middle];
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (keys[i] < pivot) {
+          i++;
+        }
+        while (keys[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(i, j);
+          i++;
+          j--;
+        }
+      }
+      if (target <= j) {
+        right = j;
+      } else if (target >= i) {
+        left = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Swaps two points in the arrays.
+   *
+   * @param a is the place of one point.
+   * @param b is the place of the other.
+   */
+  private void swap(int a, int b) {
+    double x = xs[a];
+    xs[a] = xs[b];
+    xs[b] = x;
+    double y = ys[a];
+    ys[a] = ys[b];
+    ys[b] = y;
+    int index = indices[a];
+    indices[a] = indices[b];
+    indices[b] = index;
+  }
+
+  /**
+   * Gets the number of points in the tree.
+   *
+   * @return the number of points.
+   */
+  public int size() {
+    return indices.length;
+  }
+
+  /**
+   * Finds the point nearest to (x, y). Of points equally near, the lowest index wins.
+   *
+   * @param x is the xCoord to search from.
+   * @param y is the yCoord to search from.
+   * @return the index of the nearest point, or -1 if the tree is empty.
+   */
+  public int nearest(double x, double y) {
+    int[] nearest = nearest(x, y, 1);
+    return nearest.length == 0 ? -1 : nearest[0];
+  }
+
+  /**
+   * Finds the k points nearest to (x, y). Of points equally near, lower indices come first.
+   *
+   * @param x is the xCoord to search from.
+   * @param y is the yCoord to search from.
+   * @param k is the number of points to find. If the tree has fewer, all of them are found.
+   * @return the indices of the points, nearest first.
+   * @throws IllegalArgumentException if k is not positive.
+   */
+  public int[] nearest(double x, double y, int k) throws IllegalArgumentException {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be non-zero, positive int");
+    }
+    Neighbours neighbours = new Neighbours(Math.min(k, size()));
+    if (neighbours.capacity > 0) {
+      nearest(x, y, 0, size(), neighbours);
+    }
+    return neighbours.sorted();
+  }
+
+  /**
+   * Finds the point nearest to each of the points queryXs[offset .. offset + length), with
+   * the same answers as Kernels.nearest gives for the points of the tree as centers: ties go
+   * to the lowest index, and a query with no finite distance to any point gets index 0 and
+   * distance infinity.
+   *
+   * @param queryXs   is the array of xCoords to search from.
+   * @param queryYs   is the array of yCoords to search from.
+   * @param offset    is the place of the first query in the arrays.
+   * @param length    is the number of queries.
+   * @param nearest   is filled from index 0 with the index of the nearest point to each query.
+   * @param distances is filled from index 0 with the squared distance to that point.
+   */
+  void nearest(double[] queryXs, double[] queryYs, int offset, int length, int[] nearest,
+               double[] distances) {
+    Neighbours best = new Neighbours(1);
+    for (int i = 0; i < length; i++) {
+      best.size = 0;
+      if (size() > 0) {
+        nearest(queryXs[offset + i], queryYs[offset + i], 0, size(), best);
+      }
+      if (best.size > 0 && best.distances[0] < Double.POSITIVE_INFINITY) {
+        nearest[i] = best.indices[0];
+        distances[i] = best.distances[0];
+      } else {
+        nearest[i] = 0;
+        distances[i] = Double.POSITIVE_INFINITY;
+      }
+    }
+  }
+
+  /**
+   * Searches the range [lo, hi) for points nearer than the furthest neighbour so far.
+   *
+   * @param x          is the xCoord to search from.
+   * @param y          is the yCoord to search from.
+   * @param lo         is the first point of the range.
+   * @param hi         is one past the last point of the range.
+   * @param neighbours is the nearest points so far.
+   */
+  private void nearest(double x, double y, int lo, int hi, Neighbours neighbours) {
+    if (hi - lo <= LEAF_SIZE) {
+      for (int i = lo; i < hi; i++) {
+        neighbours.offer(distance(x, y, i), indices[i]);
+      }
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    neighbours.offer(distance(x, y, mid), indices[mid]);
+    double gap = splitsOnY[mid] ? y - ys[mid] : x - xs[mid];
+    if (gap < 0) {
+      nearest(x, y, lo, mid, neighbours);
+      if (gap * gap <= neighbours.worst()) {
+        nearest(x, y, mid + 1, hi, neighbours);
+      }
+    } else {
+      nearest(x, y, mid + 1, hi, neighbours);
+      if (gap * gap <= neighbours.worst()) {
+        nearest(x, y, lo, mid, neighbours);
+      }
+    }
+  }
+
+  /**
+   * Finds every point within radius of (x, y), edge included.
+   *
+   * @param x      is the xCoord of the center.
+   * @param y      is the yCoord of the center.
+   * @param radius is the largest distance from the center.
+   * @return the indices of the points, in increasing order.
+   * @throws IllegalArgumentException if radius is negative.
+   */
+  public int[] withinRadius(double x, double y, double radius) throws IllegalArgumentException {
+    if (!(radius >= 0)) {
+      throw new IllegalArgumentException("radius cannot be negative");
+    }
+    IndexList found = new IndexList(true);
+    withinRadius(x, y, radius * radius, 0, size(), found);
+    return found.sorted();
+  }
+
+  /**
+   * Counts the points within radius of (x, y), edge included, without listing them.
+   *
+   * @param x      is the xCoord of the center.
+   * @param y      is the yCoord of the center.
+   * @param radius is the largest distance from the center.
+   * @return the number of points.
+   * @throws IllegalArgumentException if radius is negative.
+   */
+  public int countWithinRadius(double x, double y, double radius)
+      throws IllegalArgumentException {
+    if (!(radius >= 0)) {
+      throw new IllegalArgumentException("radius cannot be negative");
+    }
+    IndexList found = new IndexList(false);
+    withinRadius(x, y, radius * radius, 0, size(), found);
+    return found.size;
+  }
+
+  /**
+   * Adds the points of [lo, hi) within the squared radius to found.
+   *
+   * @param x       is the xCoord of the center.
+   * @param y       is the yCoord of the center.
+   * @param squared is the squared radius.
+   * @param lo      is the first point of the range.
+   * @param hi      is one past the last point of the range.
+   * @param found   is the list to add to.
+   */
+  private void withinRadius(double x, double y, double squared, int lo, int hi,
+                            IndexList found) {
+    if (hi - lo <= LEAF_SIZE) {
+      for (int i = lo; i < hi; i++) {
+        if (distance(x, y, i) <= squared) {
+          found.add(indices[i]);
+        }
+      }
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    if (distance(x, y, mid) <= squared) {
+      found.add(indices[mid]);
+    }
+    double gap = splitsOnY[mid] ? y - ys[mid] : x - xs[mid];
+    if (gap <= 0 || gap * gap <= squared) {
+      withinRadius(x, y, squared, lo, mid, found);
+    }
+    if (gap >= 0 || gap * gap <= squared) {
+      withinRadius(x, y, squared, mid + 1, hi, found);
+    }
+  }
+
+  /**
+   * Finds every point in the box from (minX, minY) to (maxX, maxY), edges included.
+   *
+   * @param minX is the smallest xCoord of the box.
+   * @param minY is the smallest yCoord of the box.
+   * @param maxX is the largest xCoord of the box.
+   * @param maxY is the largest yCoord of the box.
+   * @return the indices of the points, in increasing order.
+   * @throws IllegalArgumentException if the box has a min above its max.
+   */
+  public int[] inBox(double minX, double minY, double maxX, double maxY)
+      throws IllegalArgumentException {
+    if (!(minX <= maxX && minY <= maxY)) {
+      throw new IllegalArgumentException("The box min cannot be above the box max");
+    }
+    IndexList found = new IndexList(true);
+    inBox(minX, minY, maxX, maxY, 0, size(), found);
+    return found.sorted();
+  }
+
+  /**
+   * Adds the points of [lo, hi) inside the box to found.
+   *
+   * @param minX  is the smallest xCoord of the box.
+   * @param minY  is the smallest yCoord of the box.
+   * @param maxX  is the largest xCoord of the box.
+   * @param maxY  is the largest yCoord of the box.
+   * @param lo    is the first point of the range.
+   * @param hi    is one past the last point of the range.
+   * @param found is the list to add to.
+   */
+  private void inBox(double minX, double minY, double maxX, double maxY, int lo, int hi,
+                     IndexList found) {
+    if (hi - lo <= LEAF_SIZE) {
+      for (int i = lo; i < hi; i++) {
+        if (xs[i] >= minX && xs[i] <= maxX && ys[i] >= minY && ys[i] <= maxY) {
+          found.add(indices[i]);
+        }
+      }
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    double x = xs[mid];
+    double y = ys[mid];
+    if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+      found.add(indices[mid]);
+    }
+    double split = splitsOnY[mid] ? y : x;
+    double min = splitsOnY[mid] ? minY : minX;
+    double max = splitsOnY[mid] ? maxY : maxX;
+    if (min <= split) {
+      inBox(minX, minY, maxX, maxY, lo, mid, found);
+    }
+    if (max >= split) {
+      inBox(minX, minY, maxX, maxY, mid + 1, hi, found);
+    }
+  }
+
+  /**
+   * Gets the squared distance from (x, y) to the point at place i.
+   *
+   * @param x is the xCoord.
+   * @param y is the yCoord.
+   * @param i is the place of the point in the arrays.
+   * @return the squared distance.
+   */
+  private double distance(double x, double y, int i) {
+    double dx = x - xs[i];
+    double dy = y - ys[i];
+    return (dx * dx) + (dy * dy);
+  }
+
+  /**
+   * This class is the k nearest points found so far, as a max heap on distance with the
+   * index breaking ties, so the furthest is on top.
+   */
+  private static final class Neighbours {
+    final int capacity;
+    final double[] distances;
+    final int[] indices;
+    int size;
+
+    /**
+     * Constructor for an empty heap.
+     *
+     * @param capacity is the number of points to keep.
+     */
+    Neighbours(int capacity) {
+      this.capacity = capacity;
+      this.distances = new double[capacity];
+      this.indices = new int[capacity];
+      this.size = 0;
+    }
+
+    /**
+     * Gets the squared distance a point has to beat to get in.
+     *
+     * @return the squared distance of the furthest point kept, or infinity if not full.
+     */
+    double worst() {
+      return size < capacity ? Double.POSITIVE_INFINITY : distances[0];
+    }
+
+    /**
+     * Keeps a point if it is among the nearest so far.
+     *
+     * @param distance is the squared distance of the point.
+     * @param index    is the index of the point.
+     */
+    void offer(double distance, int index) {
+      if (size < capacity) {
+        int i = size++;
+        while (i > 0) {
+          int parent = (i - 1) >>> 1;
+          if (!before(distances[parent], indices[parent], distance, index)) {
+            break;
+          }
+          distances[i] = distances[parent];
+          indices[i] = indices[parent];
+          i = parent;
+        }
+        distances[i] = distance;
+        indices[i] = index;
+      } else if (before(distance, index, distances[0], indices[0])) {
+        siftDown(distance, index);
+      }
+    }
+
+    /**
+     * Puts a point on top in place of the furthest one and moves it down to its place.
+     *
+     * @param distance is the squared distance of the point.
+     * @param index    is the index of the point.
+     */
+    private void siftDown(double distance, int index) {
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size
+            && before(distances[child], indices[child], distances[child + 1],
+            indices[child + 1])) {
+          child++;
+        }
+        if (!before(distance, index, distances[child], indices[child])) {
+          break;
+        }
+        distances[i] = distances[child];
+        indices[i] = indices[child];
+        i = child;
+      }
+      distances[i] = distance;
+      indices[i] = index;
+    }
+
+    /**
+     * Checks if one point is nearer than another, the lower index winning a tie.
+     *
+     * @param distanceA is the squared distance of the first point.
+     * @param indexA    is the index of the first point.
+     * @param distanceB is the squared distance of the second point.
+     * @param indexB    is the index of the second point.
+     * @return true if the first point comes before the second.
+     */
+    private static boolean before(double distanceA, int indexA, double distanceB,
+                                  int indexB) {
+      return distanceA < distanceB || (distanceA == distanceB && indexA < indexB);
+    }
+
+    /**
+     * Empties the heap into an array, nearest first.
+     *
+     * @return the indices of the points kept, nearest first.
+     */
+    int[] sorted() {
+      int[] sorted = new int[size];
+      while (size > 0) {
+        sorted[size - 1] = indices[0];
+        size--;
+        if (size > 0) {
+          siftDown(distances[size], indices[size]);
+        }
+      }
+      return sorted;
+    }
+  }
+
+  /**
+   * This class is a growable list of point indices, or just a count of them.
+   */
+  private static final class IndexList {
+    final boolean keep;
+    int[] values;
+    int size;
+
+    /**
+     * Constructor for an empty list.
+     *
+     * @param keep is true to keep the indices, false to only count them.
+     */
+    IndexList(boolean keep) {
+      this.keep = keep;
+      this.values = new int[keep ? 16 : 0];
+      this.size = 0;
+    }
+
+    /**
+     * Adds an index.
+     *
+     * @param index is the index to add.
+     */
+    void add(int index) {
+      if (keep) {
+        if (size == values.length) {
+          values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = index;
+      }
+      size++;
+    }
+
+    /**
+     * Gets the indices added, in increasing order.
+     *
+     * @return the sorted indices.
+     */
+    int[] sorted() {
+      int[] sorted = Arrays.copyOf(values, size);
+      Arrays.sort(sorted);
+      return sorted;
+    }
+  }
+}
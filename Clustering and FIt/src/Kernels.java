@@ -0,0 +1,119 @@
+/**
+ * This class is the set of inner loops that the passes over the points spend their time in.
+ * There are two backends. ScalarKernels is plain Java and always there. VectorKernels uses the
+ * jdk.incubator.vector module to work on several points per instruction; it lives in the
+ * vector source folder, since it only compiles and runs with --add-modules
+ * jdk.incubator.vector. The vector backend is used when its class is on the classpath, the
+ * module is loaded and the processor has vector registers, and the scalar one otherwise.
+ * Setting the system property clusterfit.vector to false forces the scalar backend.
+ *
+ * <p>Both backends give exactly the same answers: the vector code does the same additions
+ * and multiplications in the same order, only several at a time.
+ */
+abstract class Kernels {
+
+  private static final Kernels INSTANCE = load();
+
+  /**
+   * Gets the backend in use.
+   *
+   * @return the kernels.
+   */
+  static Kernels get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Picks the vector backend if it can run, otherwise the scalar one.
+   *
+   * @return the kernels.
+   */
+  private static Kernels load() {
+    if (!Boolean.parseBoolean(System.getProperty("clusterfit.vector", "true"))) {
+      return new ScalarKernels();
+    }
+    try {
+      Kernels vector = (Kernels) Class.forName("VectorKernels").getDeclaredConstructor()
+          .newInstance();
+      if (vector.usable()) {
+        return vector;
+      }
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // The vector backend was not compiled in or its module is not loaded.
+    }
+    return new ScalarKernels();
+  }
+
+  /**
+   * Gets the name of the backend, for reports.
+   *
+   * @return the name.
+   */
+  abstract String name();
+
+  /**
+   * Checks if this is the vector backend. The scalar kernels are no quicker than the same
+   * loop written inline, and inline the loop can do its other work on each point at once,
+   * so callers keep their own loop when this is false.
+   *
+   * @return true for the vector backend.
+   */
+  boolean isVector() {
+    return false;
+  }
+
+  /**
+   * Checks if the backend can run well on this machine.
+   *
+   * @return true if the backend should be used.
+   */
+  boolean usable() {
+    return true;
+  }
+
+  /**
+   * Finds the nearest of k centers to each of the points xs[offset .. offset + length).
+   * Ties go to the lowest center, and a point with no finite distance to any center goes to
+   * center 0 with distance infinity.
+   *
+   * @param xs        is the array of xCoords.
+   * @param ys        is the array of yCoords.
+   * @param offset    is the first point.
+   * @param length    is the number of points.
+   * @param centersX  is the xCoord of each center.
+   * @param centersY  is the yCoord of each center.
+   * @param k         is the number of centers.
+   * @param nearest   is filled from index 0 with the nearest center of each point.
+   * @param distances is filled from index 0 with the squared distance to that center.
+   */
+  abstract void nearest(double[] xs, double[] ys, int offset, int length, double[] centersX,
+                        double[] centersY, int k, int[] nearest, double[] distances);
+
+  /**
+   * Lowers the squared distance of each of the points xs[offset .. offset + length) to one
+   * center, where the center is closer than the distance so far.
+   *
+   * @param xs        is the array of xCoords.
+   * @param ys        is the array of yCoords.
+   * @param offset    is the first point.
+   * @param length    is the number of points.
+   * @param x         is the xCoord of the center.
+   * @param y         is the yCoord of the center.
+   * @param distances is the squared distance of each point so far, from index to on.
+   * @param to        is the index in distances of the first point.
+   */
+  abstract void lowerDistances(double[] xs, double[] ys, int offset, int length, double x,
+                               double y, double[] distances, int to);
+
+  /**
+   * Adds [x, y, XX, XY] for the points xs[offset .. offset + length) onto sums, in the order
+   * of FitSums.addBlock.
+   *
+   * @param xs     is the array of xCoords.
+   * @param ys     is the array of yCoords.
+   * @param offset is the first point to add.
+   * @param length is the number of points to add.
+   * @param sums   is the array with sums [x, y, XX, XY] to add onto.
+   */
+  abstract void fitSums(double[] xs, double[] ys, int offset, int length, double[] sums);
+}
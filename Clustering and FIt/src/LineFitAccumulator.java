@@ -0,0 +1,127 @@
+/**
+ * This class keeps a least squares line fit up to date as points come and go. It holds the
+ * number of points, their means, and the sums of squares and products about the means
+ * (Welford's form), instead of raw sums of x, XX and XY. Adding, removing and merging all
+ * take constant time, and the centered sums do not lose precision when the points sit far
+ * from the origin.
+ */
+public class LineFitAccumulator {
+  private long count;
+  private double meanX;
+  private double meanY;
+  private double sumXX;
+  private double sumXY;
+
+  /**
+   * Constructor for an accumulator with no points.
+   */
+  public LineFitAccumulator() {
+    this.count = 0;
+    this.meanX = 0;
+    this.meanY = 0;
+    this.sumXX = 0;
+    this.sumXY = 0;
+  }
+
+  /**
+   * Adds a point to the fit.
+   *
+   * @param x is the xCoord of the point.
+   * @param y is the yCoord of the point.
+   */
+  public void add(double x, double y) {
+    count++;
+    double dx = x - meanX;
+    meanX += dx / count;
+    meanY += (y - meanY) / count;
+    sumXX += dx * (x - meanX);
+    sumXY += dx * (y - meanY);
+  }
+
+  /**
+   * Removes a point that was added before from the fit.
+   *
+   * @param x is the xCoord of the point.
+   * @param y is the yCoord of the point.
+   * @throws IllegalStateException if there are no points to remove.
+   */
+  public void remove(double x, double y) throws IllegalStateException {
+    if (count == 0) {
+      throw new IllegalStateException("No points to remove");
+    }
+    if (count == 1) {
+      clear();
+      return;
+    }
+    // Undo add: the means before the point was added, then the terms it added.
+    double oldMeanX = meanX - (x - meanX) / (count - 1);
+    double oldMeanY = meanY - (y - meanY) / (count - 1);
+    sumXX -= (x - oldMeanX) * (x - meanX);
+    sumXY -= (x - oldMeanX) * (y - meanY);
+    meanX = oldMeanX;
+    meanY = oldMeanY;
+    count--;
+  }
+
+  /**
+   * Adds all of the points of another accumulator to this one. The other accumulator is not
+   * changed.
+   *
+   * @param other is the accumulator to merge in.
+   */
+  public void merge(LineFitAccumulator other) {
+    if (other.count == 0) {
+      return;
+    }
+    if (count == 0) {
+      count = other.count;
+      meanX = other.meanX;
+      meanY = other.meanY;
+      sumXX = other.sumXX;
+      sumXY = other.sumXY;
+      return;
+    }
+    long total = count + other.count;
+    double dx = other.meanX - meanX;
+    double dy = other.meanY - meanY;
+    double weight = (double) count * other.count / total;
+    sumXX += other.sumXX + dx * dx * weight;
+    sumXY += other.sumXY + dx * dy * weight;
+    meanX += dx * other.count / total;
+    meanY += dy * other.count / total;
+    count = total;
+  }
+
+  /**
+   * Removes every point from the fit.
+   */
+  public void clear() {
+    count = 0;
+    meanX = 0;
+    meanY = 0;
+    sumXX = 0;
+    sumXY = 0;
+  }
+
+  /**
+   * Gets the number of points in the fit.
+   *
+   * @return the number of points.
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Gets the best fit line for the points so far. With fewer than two different xCoords
+   * there is no single best line, and the slope and intercept are NaN, like fitLine in
+   * ListOfPoints.
+   *
+   * @return the Line representing best fit.
+   */
+  public Line currentLine() {
+    double m = sumXY / sumXX;
+    double b = meanY - (m * meanX);
+    return new Line(m, b);
+  }
+}
@@ -1,4 +1,5 @@
 import java.util.ArrayList;
+import java.util.Random;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -7,13 +8,41 @@ import java.util.concurrent.TimeoutException;
  */
 public class ListOfPoints {
 
-  private ArrayList<Point> pointArrayList;
+  private PointColumns columns;
+  private PointListView pointView;
+  private LineFitAccumulator lineFit;
 
   /**
    * Constructor for a new ListOfPoints.
    */
   public ListOfPoints() {
-    this.pointArrayList = new ArrayList<Point>();
+    this.columns = new DoubleColumns();
+    this.pointView = null;
+    this.lineFit = null;
+  }
+
+  /**
+   * Constructor for a ListOfPoints over existing columns.
+   *
+   * @param columns is the storage of the points.
+   */
+  ListOfPoints(PointColumns columns) {
+    this.columns = columns;
+    this.pointView = null;
+    this.lineFit = null;
+  }
+
+  /**
+   * Makes an empty list that stores its coordinates as floats, in half the memory of a
+   * plain list. Every coordinate added is rounded to the nearest float, about 7 significant
+   * digits. The sums inside fitLine, kmeans and the other algorithms are still kept in
+   * double precision, so they give the same answers as a plain list holding the rounded
+   * coordinates.
+   *
+   * @return the empty list.
+   */
+  public static ListOfPoints singlePrecision() {
+    return new ListOfPoints(new FloatColumns());
   }
 
   /**
@@ -23,146 +52,173 @@ public class ListOfPoints {
    * @param y is the yCoord for the point to be added.
    */
   public void addPoint(double x, double y) {
-    pointArrayList.add(new Point(x, y));
+    columns.add(x, y);
+    if (lineFit != null) {
+      // The columns may round the point, and the fit must see what they hold.
+      int last = columns.size() - 1;
+      lineFit.add(columns.getX(last), columns.getY(last));
+    }
   }
 
   /**
-   * Returns the list of points so far.
+   * Adds a batch of points to the end of the list. The ith point added is (xs[i], ys[i]).
    *
-   * @return the list of points so far.
+   * @param xs is the array of xCoords for the points to be added.
+   * @param ys is the array of yCoords for the points to be added.
+   * @throws IllegalArgumentException if the two arrays are not the same length.
    */
-  public ArrayList<Point> getPointArrayList() {
-    return this.pointArrayList;
+  public void addPoints(double[] xs, double[] ys) throws IllegalArgumentException {
+    if (xs.length != ys.length) {
+      throw new IllegalArgumentException("x and y arrays must be the same length");
+    }
+    addPoints(xs, ys, xs.length);
   }
 
   /**
-   * Calculates sum of x values for this list of points.
+   * Adds the first count points of a batch to the end of the list, for callers that reuse
+   * the same arrays for every batch.
    *
-   * @return the sum of x points in this list of points.
+   * @param xs    is the array of xCoords for the points to be added.
+   * @param ys    is the array of yCoords for the points to be added.
+   * @param count is the number of points to add from the front of the arrays.
    */
-  private double sumX() {
-    int i = 0;
-    Point currentPoint;
-    double sumOfX = 0;
-
-    while (pointArrayList.size() > i) {
-      currentPoint = pointArrayList.get(i);
-      sumOfX = currentPoint.getxCoor() + sumOfX;
-      i++;
+  void addPoints(double[] xs, double[] ys, int count) {
+    int first = columns.size();
+    columns.addAll(xs, ys, 0, count);
+    if (lineFit != null) {
+      for (int i = 0; i < count; i++) {
+        lineFit.add(columns.getX(first + i), columns.getY(first + i));
+      }
     }
-
-    return sumOfX;
   }
 
   /**
-   * Calculates the sum of y values for this list of points.
+   * Gets the number of points in this list.
    *
-   * @return the sum value of y values for this list of points.
+   * @return the number of points in this list.
    */
-  private double sumY() {
-    int i = 0;
-    Point currentPoint;
-    double sumOfY = 0;
-
-    while (pointArrayList.size() > i) {
-      currentPoint = pointArrayList.get(i);
-      sumOfY = currentPoint.getyCoor() + sumOfY;
-      i++;
-    }
-
-    return sumOfY;
+  public int size() {
+    return columns.size();
   }
 
   /**
-   * Calculates sum of XX values for this list of points.
+   * Returns the list of points so far. The points are stored as columns, so the list is only
+   * built the first time it is asked for, and then brought up to date with the points added
+   * since the last call. The list is read only; add points with addPoint or addPoints.
    *
-   * @return the sum of XX points in this list of points.
+   * @return the list of points so far, which throws UnsupportedOperationException if it is
+   *         changed.
    */
-  private double sumXX() {
-    int i = 0;
-    Point currentPoint;
-    double sumOfXX = 0;
-
-    while (pointArrayList.size() > i) {
-      currentPoint = pointArrayList.get(i);
-      sumOfXX = Math.pow(currentPoint.getxCoor(), 2) + sumOfXX;
-      i++;
+  public ArrayList<Point> getPointArrayList() {
+    if (pointView == null) {
+      pointView = new PointListView(columns.size());
     }
+    pointView.update(columns);
+    return this.pointView;
+  }
 
-    return sumOfXX;
+  /**
+   * Gets the columns storing the points of this list.
+   *
+   * @return the columns for this list.
+   */
+  PointColumns getColumns() {
+    return this.columns;
   }
 
   /**
-   * Calculates sum of XY values for this list of points.
+   * Keeps a running line fit attached to this list. The points already in the list are
+   * added to it once, and every point added after that is added to it as well, so fitLine
+   * answers in constant time however long the list grows. Attaching again returns the
+   * accumulator that is already attached.
    *
-   * @return the sum of XY for points in this list of points.
+   * @return the attached accumulator.
    */
-  private double sumXY() {
-    int i = 0;
-    Point currentPoint;
-    double sumOfXY = 0;
-
-    while (pointArrayList.size() > i) {
-      currentPoint = pointArrayList.get(i);
-      sumOfXY = (currentPoint.getxCoor() * currentPoint.getyCoor()) + sumOfXY;
-      i++;
+  public LineFitAccumulator attachLineFit() {
+    if (lineFit == null) {
+      LineFitAccumulator accumulator = new LineFitAccumulator();
+      PointBlock block = new PointBlock();
+      int n = columns.size();
+      for (int from = 0; from < n; from += PointColumns.BLOCK_SIZE) {
+        columns.load(from, Math.min(PointColumns.BLOCK_SIZE, n - from), block);
+        for (int i = 0; i < block.length; i++) {
+          accumulator.add(block.xs[block.offset + i], block.ys[block.offset + i]);
+        }
+      }
+      lineFit = accumulator;
     }
+    return this.lineFit;
+  }
 
-    return sumOfXY;
+  /**
+   * Stops keeping a running line fit, fitLine goes back to summing the list.
+   */
+  public void detachLineFit() {
+    this.lineFit = null;
   }
 
   /**
-   * Array based summing of this list of points. Finds x, y, XX, and XY. This is better than
-   * iterating the list 4 times to get the sums.
+   * This function returns the best fit line for this set of points. With a line fit
+   * attached the line comes straight from it. Otherwise the list is summed, on all
+   * processors for lists of a million points or more.
    *
-   * @return the array with sums [x, y, XX, XY].
+   * @return the Line representing best fit.
    */
-  private double[] sumArray() {
-    double[] sumArray;
-
-    sumArray = new double[4];
-    int i = 0;
-    Point currentPoint;
-
-    while (pointArrayList.size() > i) {
-      currentPoint = pointArrayList.get(i);
-      sumArray[0] = currentPoint.getxCoor() + sumArray[0];
-      sumArray[1] = currentPoint.getyCoor() + sumArray[1];
-      sumArray[2] = Math.pow(currentPoint.getxCoor(), 2) + sumArray[2];
-      sumArray[3] = (currentPoint.getxCoor() * currentPoint.getyCoor()) + sumArray[3];
-      i++;
+  public Line fitLine() {
+    if (lineFit != null) {
+      return lineFit.currentLine();
     }
-    return sumArray;
+    return FitSums.toLine(FitSums.sum(columns), columns.size());
   }
 
   /**
-   * This function returns the best fit line for this set of points.
+   * This function returns the best fit line for this set of points, summing the points on
+   * the given number of threads. The line is the same for any number of threads. The list
+   * is always summed, even with a line fit attached.
    *
+   * @param parallelism is the number of threads to use, 0 for one per processor.
    * @return the Line representing best fit.
+   * @throws IllegalArgumentException if parallelism is negative.
    */
-  public Line fitLine() {
-
-    double[] sumArray = this.sumArray();
-
-    double sumX = sumArray[0];
-    double sumY = sumArray[1];
-    double sumXX = sumArray[2];
-    double sumXY = sumArray[3];
-    double n = this.pointArrayList.size();
-
-
-    double d = (sumXX * n) - (sumX * sumX);
-    double dm = (sumXY * n) - (sumX * sumY);
-    double db = (sumY * sumXX) - (sumX * sumXY);
+  public Line fitLine(int parallelism) throws IllegalArgumentException {
+    if (parallelism < 0) {
+      throw new IllegalArgumentException("parallelism cannot be negative");
+    }
+    try (ChunkRunner runner = ChunkRunner.create(parallelism, null)) {
+      return FitSums.toLine(FitSums.sum(columns, runner), columns.size());
+    }
+  }
 
-    double m = dm / d;
-    double b = db / d;
+  /**
+   * Builds a KD-tree over the points in this list, for nearest neighbour, radius and box
+   * queries. The tree holds the points as they are now. Lists of a million points or more
+   * are built on all processors.
+   *
+   * @return the tree.
+   */
+  public KdTree kdTree() {
+    return KdTree.build(columns);
+  }
 
-    return new Line(m, b);
+  /**
+   * Builds a KD-tree over the points in this list on the given number of threads. The tree
+   * is the same for any number of threads.
+   *
+   * @param parallelism is the number of threads to use, 0 for one per processor.
+   * @return the tree.
+   * @throws IllegalArgumentException if parallelism is negative.
+   */
+  public KdTree kdTree(int parallelism) throws IllegalArgumentException {
+    if (parallelism < 0) {
+      throw new IllegalArgumentException("parallelism cannot be negative");
+    }
+    try (ChunkRunner runner = ChunkRunner.create(parallelism, null)) {
+      return new KdTree(columns, runner);
+    }
   }
 
   /**
-   * Finds the clusters for this List of Points.
+   * Finds the clusters for this List of Points. The first centers are picked at random.
    *
    * @param k is the number of clusters to cluster points by.
    * @return a list of integers with ith element of list corresponding to cluster for ith element
@@ -173,135 +229,271 @@ public class ListOfPoints {
    *                                     to 0 and larger than number of data points.
    */
   public ArrayList<Integer> kmeans(int k) throws TimeoutException, IllegalArgumentException {
+    KMeansOptions options = new KMeansOptions(new Random().nextLong())
+        .init(KMeansOptions.Init.RANDOM);
+    int[] clusters = kmeans(k, options).getLabels();
+
+    ArrayList<Integer> clusterList = new ArrayList<Integer>(clusters.length);
+    for (int i = 0; i < clusters.length; i++) {
+      clusterList.add(clusters[i]);
+    }
+    return clusterList;
+  }
+
+  /**
+   * Finds the clusters for this List of Points with the given options. Runs with the same
+   * options on the same points give the same clusters.
+   *
+   * @param k       is the number of clusters to cluster points by.
+   * @param options is the seeding method, seed and limits for the run.
+   * @return the result holding the cluster of every point and the cluster centers.
+   * @throws TimeoutException         if the run reaches the iteration limit in options without
+   *                                  finding acceptable error threshold.
+   * @throws IllegalArgumentException if the k is invalid due to being less than or equal
+   *                                  to 0 and larger than number of data points.
+   */
+  public KMeansResult kmeans(int k, KMeansOptions options)
+      throws TimeoutException, IllegalArgumentException {
 
     // Check if K is valid and throw IllegalArguementException if not
     if (k <= 0) {
       throw new IllegalArgumentException("k must be non-zero, positive int");
     }
 
-    if (k > this.pointArrayList.size()) {
+    if (k > columns.size()) {
       throw new IllegalArgumentException("More clusters than points on graph.");
     }
 
-    // Initialize the error to infinity
-    double error = Double.POSITIVE_INFINITY;
-    double threshhold = 0.0001;
-
-    // Initialize list for integers with max distance.
-    ArrayList<Integer> clusterList;
-    ArrayList<Double> distanceList;
-    clusterList = new ArrayList<Integer>();
-    distanceList = new ArrayList<Double>();
-    for (int i = 0; i < pointArrayList.size(); i++) {
-      clusterList.add(0);
-      distanceList.add(Double.MAX_VALUE);
+    return KMeans.run(columns, k, options);
+  }
+
+  /**
+   * Finds the clusters for this List of Points within the iteration limit and time limit in
+   * options, and returns the best clusters found by then instead of throwing. The run also
+   * stops, after the iteration it is in, when the calling thread is interrupted; the
+   * interrupt flag is left set. The status of the result says why the run ended.
+   *
+   * @param k       is the number of clusters to cluster points by.
+   * @param options is the seeding method, seed and limits for the run.
+   * @return the result holding the cluster of every point, the cluster centers and the
+   *         status of the run.
+   * @throws IllegalArgumentException if the k is invalid due to being less than or equal
+   *                                  to 0 and larger than number of data points.
+   */
+  public KMeansResult kmeansAnytime(int k, KMeansOptions options)
+      throws IllegalArgumentException {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be non-zero, positive int");
     }
 
-    // Loop once for each random cluster center chosen. Initial building of cluster points.
-    for (int i = 0; i < k; i++) {
-      // Get the element in list that is the current center.
-      int center = (int) (Math.random() * pointArrayList.size());
-      Point currentCenter = pointArrayList.get(center);
-      for (int j = 0; j < pointArrayList.size(); j++) {
-        double distance = pointArrayList.get(j).distance(currentCenter);
-        double currentDistance = distanceList.get(j);
-        if (distance < currentDistance) {
-          distanceList.set(j, distance);
-          clusterList.set(j, i);
-        }
-      }
+    if (k > columns.size()) {
+      throw new IllegalArgumentException("More clusters than points on graph.");
     }
-    // Now iterate 100 times assigning new clusters and checking error.
-    for (int i = 0; i < 100; i++) {
-      dataCluster(k, clusterList, distanceList);
-      double newError = currentError(k, clusterList, distanceList);
-      double checkError = ((Math.abs(newError - error)) / error);
-      i++;
-      if (checkError < threshhold) {
-        return clusterList;
-      }
-      error = newError;
+
+    return KMeans.runAnytime(columns, k, options);
+  }
+
+  /**
+   * Builds a coreset of this List of Points for k clusters: about size weighted points whose
+   * kMeans cost for any k centers is close to that of the whole list. Runs with the same
+   * options on the same points give the same coreset.
+   *
+   * @param k       is the number of clusters the coreset is for.
+   * @param size    is the expected number of points in the coreset, a few thousand is
+   *                usually plenty.
+   * @param options is the seed, seeding method for the rough centers and parallelism.
+   * @return the coreset, the points themselves with weight 1 if there are no more than size.
+   * @throws IllegalArgumentException if the k is invalid due to being less than or equal
+   *                                  to 0 and larger than number of data points, or size
+   *                                  is less than k.
+   */
+  public Coreset coreset(int k, int size, KMeansOptions options)
+      throws IllegalArgumentException {
+    checkCoreset(k, size);
+    try (ChunkRunner runner = ChunkRunner.forOptions(options)) {
+      return Coreset.build(columns, k, size, options, runner);
     }
-    throw new TimeoutException("Ran too long -- No kMeans determined");
   }
 
   /**
-   * This function mutates cluster list for each point based on the current centers and
-   * distances.
+   * Finds approximate clusters for this List of Points by clustering a coreset of about
+   * size points, then labelling every point with its nearest center in one pass. The cost
+   * is a pass to seed rough centers, two passes to build the coreset and one to label,
+   * however many iterations the clustering takes.
    *
-   * @param k            is the number of clusters.
-   * @param clusters     is the current list of clusters.
-   * @param distanceList is the list of minimum distances.
+   * @param k       is the number of clusters to cluster points by.
+   * @param size    is the expected number of points in the coreset.
+   * @param options is the seed, seeding method, limits and parallelism for the run.
+   * @return the result holding the cluster of every point, the cluster centers and the
+   *         inertia of the whole list.
+   * @throws TimeoutException         if the run on the coreset reaches the iteration limit
+   *                                  in options without finding acceptable error threshold.
+   * @throws IllegalArgumentException if the k is invalid due to being less than or equal
+   *                                  to 0 and larger than number of data points, or size
+   *                                  is less than k.
    */
-  private void dataCluster(int k, ArrayList<Integer> clusters,
-                           ArrayList<Double> distanceList) {
-
-    for (int i = 0; i < k; i++) {
-      // Calculate center for a cluster
-      double x = 0;
-      double y = 0;
-      int count = 0;
-      for (int j = 0; j < pointArrayList.size(); j++) {
-        if (clusters.get(j) == (i)) {
-          x = pointArrayList.get(j).getxCoor() + x;
-          y = pointArrayList.get(j).getyCoor() + y;
-          count++;
-        }
-      }
-      x = x / count;
-      y = y / count;
-      Point currentCenter = new Point(x, y);
-      // Iterate through the list and assign to minimum distance cluster
-      for (int j = 0; j < pointArrayList.size(); j++) {
-        double distance = pointArrayList.get(j).distance(currentCenter);
-        double currentDistance = distanceList.get(j);
-        if (distance < currentDistance) {
-          distanceList.set(j, distance);
-          clusters.set(j, i);
-        }
+  public KMeansResult kmeansCoreset(int k, int size, KMeansOptions options)
+      throws TimeoutException, IllegalArgumentException {
+    checkCoreset(k, size);
+    try (ChunkRunner runner = ChunkRunner.forOptions(options)) {
+      Coreset coreset = Coreset.build(columns, k, size, options, runner);
+      if (k > coreset.size()) {
+        throw new IllegalArgumentException("Coreset has fewer points than clusters");
       }
+      return coreset.label(columns, coreset.kmeans(k, options), runner);
     }
   }
 
   /**
-   * This function calculates an error given cluster list and distances.
+   * Checks the arguments of coreset.
    *
-   * @param k         is the number of clusters.
-   * @param clusters  is the current cluster list.
-   * @param distances is the current distance list.
-   * @return the double value of the current error.
+   * @param k    is the number of clusters.
+   * @param size is the expected number of points in the coreset.
+   * @throws IllegalArgumentException if k or size is invalid.
    */
-  private double currentError(int k, ArrayList<Integer> clusters,
-                              ArrayList<Double> distances) {
-
-    double distanceCounter = 0;
-
-    for (int i = 0; i < k; i++) {
-      // Calculate center for a cluster
-      double x = 0;
-      double y = 0;
-      int count = 0;
-      for (int j = 0; j < pointArrayList.size(); j++) {
-        if (clusters.get(j) == i) {
-          x = pointArrayList.get(j).getxCoor() + x;
-          y = pointArrayList.get(j).getyCoor() + y;
-          count++;
-        }
-      }
-      x = x / count;
-      y = y / count;
-      Point currentCenter = new Point(x, y);
-
-      for (int j = 0; j < pointArrayList.size(); j++) {
-        if (clusters.get(j) == i) {
-          double distance = pointArrayList.get(j).distance(currentCenter);
-          distances.set(j, distance);
-          distanceCounter = distances.get(j) + distanceCounter;
-        }
-      }
+  private void checkCoreset(int k, int size) throws IllegalArgumentException {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be non-zero, positive int");
+    }
+
+    if (k > columns.size()) {
+      throw new IllegalArgumentException("More clusters than points on graph.");
+    }
+
+    if (size < k) {
+      throw new IllegalArgumentException("Coreset size must be at least k");
+    }
+  }
+
+  /**
+   * Clusters this List of Points by density with DBSCAN. A point with at least minPts points
+   * within eps of it, itself included, is a core point. Core points within eps of each other
+   * are in the same cluster, and a point within eps of a core point joins the cluster of the
+   * nearest one. Every other point is noise. Lists of a million points or more are clustered
+   * on all processors.
+   *
+   * @param eps    is the largest distance between neighbours.
+   * @param minPts is the number of neighbours that makes a core point.
+   * @return the cluster of each point, numbered from 0 in the order of their first point, or
+   *         -1 for noise.
+   * @throws IllegalArgumentException if eps is not positive or is too small for the spread
+   *                                  of the points, or minPts is not positive.
+   */
+  public int[] dbscan(double eps, int minPts) throws IllegalArgumentException {
+    checkDbscan(eps, minPts);
+    return Dbscan.run(columns, eps, minPts);
+  }
+
+  /**
+   * Clusters this List of Points by density with DBSCAN on the given number of threads. The
+   * labels are the same for any number of threads.
+   *
+   * @param eps         is the largest distance between neighbours.
+   * @param minPts      is the number of neighbours that makes a core point.
+   * @param parallelism is the number of threads to use, 0 for one per processor.
+   * @return the cluster of each point, numbered from 0 in the order of their first point, or
+   *         -1 for noise.
+   * @throws IllegalArgumentException if eps is not positive or is too small for the spread
+   *                                  of the points, minPts is not positive or parallelism is
+   *                                  negative.
+   */
+  public int[] dbscan(double eps, int minPts, int parallelism)
+      throws IllegalArgumentException {
+    checkDbscan(eps, minPts);
+    if (parallelism < 0) {
+      throw new IllegalArgumentException("parallelism cannot be negative");
+    }
+    try (ChunkRunner runner = ChunkRunner.create(parallelism, null)) {
+      return Dbscan.run(columns, eps, minPts, runner);
+    }
+  }
+
+  /**
+   * Checks the arguments of dbscan.
+   *
+   * @param eps    is the largest distance between neighbours.
+   * @param minPts is the number of neighbours that makes a core point.
+   * @throws IllegalArgumentException if eps or minPts is not positive.
+   */
+  private static void checkDbscan(double eps, int minPts) throws IllegalArgumentException {
+    if (!(eps > 0) || Double.isInfinite(eps)) {
+      throw new IllegalArgumentException("eps must be positive");
+    }
+    if (minPts <= 0) {
+      throw new IllegalArgumentException("minPts must be positive");
     }
-    distanceCounter = distanceCounter / pointArrayList.size();
-    return distanceCounter;
   }
-}
 
+  /**
+   * Starts a clustering session for this List of Points. The session clusters the points
+   * each time it is asked, and every run after the first starts from the centers and
+   * clusters of the run before, so clustering again after adding a few points takes only a
+   * few iterations.
+   *
+   * @param k       is the number of clusters to cluster points by.
+   * @param options is the seeding method, seed, algorithm and limits for every run.
+   * @return a session that has not run yet.
+   * @throws IllegalArgumentException if the k is invalid due to being less than or equal
+   *                                  to 0 and larger than number of data points, or the
+   *                                  options pick the MINI_BATCH algorithm.
+   */
+  public ClusteringSession clusteringSession(int k, KMeansOptions options)
+      throws IllegalArgumentException {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be non-zero, positive int");
+    }
+
+    if (k > columns.size()) {
+      throw new IllegalArgumentException("More clusters than points on graph.");
+    }
+
+    return new ClusteringSession(columns, k, options);
+  }
+
+  /**
+   * Clusters this List of Points for every k from kMin to kMax and scores each k by the
+   * elbow of the inertia curve, a sampled silhouette and the gap statistic. Each run uses a
+   * random seed, like kmeans(k).
+   *
+   * @param kMin is the smallest number of clusters to try.
+   * @param kMax is the largest number of clusters to try.
+   * @return the scores of every k and the recommended k.
+   * @throws IllegalArgumentException if kMin is less than 1, kMax is less than kMin or kMax
+   *                                  is larger than the number of data points.
+   */
+  public KSelection chooseK(int kMin, int kMax) throws IllegalArgumentException {
+    return chooseK(kMin, kMax, new KMeansOptions(new Random().nextLong()));
+  }
+
+  /**
+   * Clusters this List of Points for every k from kMin to kMax and scores each k by the
+   * elbow of the inertia curve, a sampled silhouette and the gap statistic. The values of k
+   * are swept in parallel, and each k starts from the centers found for the k before it.
+   * Runs with the same options on the same points give the same scores. A k that reaches
+   * the iteration limit is scored where it stopped, and the MINI_BATCH algorithm sweeps with
+   * Lloyd iterations.
+   *
+   * @param kMin    is the smallest number of clusters to try.
+   * @param kMax    is the largest number of clusters to try.
+   * @param options is the seed, algorithm, limits, parallelism and score settings.
+   * @return the scores of every k and the recommended k.
+   * @throws IllegalArgumentException if kMin is less than 1, kMax is less than kMin or kMax
+   *                                  is larger than the number of data points.
+   */
+  public KSelection chooseK(int kMin, int kMax, KMeansOptions options)
+      throws IllegalArgumentException {
+    if (kMin <= 0) {
+      throw new IllegalArgumentException("kMin must be non-zero, positive int");
+    }
+
+    if (kMax < kMin) {
+      throw new IllegalArgumentException("kMax must not be less than kMin");
+    }
+
+    if (kMax > columns.size()) {
+      throw new IllegalArgumentException("More clusters than points on graph.");
+    }
+
+    return KSweep.run(columns, kMin, kMax, options);
+  }
+}
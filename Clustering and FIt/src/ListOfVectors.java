@@ -0,0 +1,204 @@
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This is a class representing a list of vectors that all have the same number of
+ * dimensions, such as feature vectors. The vectors are stored one after another in one flat
+ * row-major array, of doubles, or of floats for a single precision list, instead of one
+ * object per vector. A list of two-dimensional vectors clusters exactly like a ListOfPoints
+ * of the same points.
+ */
+public class ListOfVectors {
+
+  private final VectorRows rows;
+
+  /**
+   * Constructor for a new empty ListOfVectors.
+   *
+   * @param dimensions is the number of dimensions of every vector.
+   * @throws IllegalArgumentException if dimensions is less than 1.
+   */
+  public ListOfVectors(int dimensions) throws IllegalArgumentException {
+    this(new DoubleRows(checkDimensions(dimensions)));
+  }
+
+  /**
+   * Constructor for a ListOfVectors over existing rows.
+   *
+   * @param rows is the storage of the vectors.
+   */
+  ListOfVectors(VectorRows rows) {
+    this.rows = rows;
+  }
+
+  /**
+   * Makes an empty list that stores its values as floats, in half the memory of a plain
+   * list. Every value added is rounded to the nearest float, and the sums inside kmeans are
+   * still kept in double precision.
+   *
+   * @param dimensions is the number of dimensions of every vector.
+   * @return the empty list.
+   * @throws IllegalArgumentException if dimensions is less than 1.
+   */
+  public static ListOfVectors singlePrecision(int dimensions) throws IllegalArgumentException {
+    return new ListOfVectors(new FloatRows(checkDimensions(dimensions)));
+  }
+
+  /**
+   * Checks a number of dimensions.
+   *
+   * @param dimensions is the number of dimensions.
+   * @return the number of dimensions.
+   * @throws IllegalArgumentException if dimensions is less than 1.
+   */
+  private static int checkDimensions(int dimensions) throws IllegalArgumentException {
+    if (dimensions <= 0) {
+      throw new IllegalArgumentException("dimensions must be non-zero, positive int");
+    }
+    return dimensions;
+  }
+
+  /**
+   * Gets the number of dimensions of every vector in this list.
+   *
+   * @return the number of dimensions.
+   */
+  public int getDimensions() {
+    return rows.dimensions;
+  }
+
+  /**
+   * Gets the number of vectors in this list.
+   *
+   * @return the number of vectors in this list.
+   */
+  public int size() {
+    return rows.size();
+  }
+
+  /**
+   * Adds a new vector to the end of the list.
+   *
+   * @param vector is the values of the vector to be added.
+   * @throws IllegalArgumentException if the vector does not have the list's dimensions.
+   */
+  public void add(double... vector) throws IllegalArgumentException {
+    if (vector.length != rows.dimensions) {
+      throw new IllegalArgumentException("vector must have " + rows.dimensions
+          + " dimensions");
+    }
+    rows.addAll(vector, 0, 1);
+  }
+
+  /**
+   * Adds a batch of vectors to the end of the list. The values are row-major: vector i is
+   * values[i * dimensions] to values[(i + 1) * dimensions - 1].
+   *
+   * @param values is the values of the vectors to be added.
+   * @throws IllegalArgumentException if the length of values is not a multiple of the
+   *                                  list's dimensions.
+   */
+  public void addAll(double[] values) throws IllegalArgumentException {
+    if (values.length % rows.dimensions != 0) {
+      throw new IllegalArgumentException("values must hold whole vectors of "
+          + rows.dimensions + " dimensions");
+    }
+    rows.addAll(values, 0, values.length / rows.dimensions);
+  }
+
+  /**
+   * Gets one value of a vector.
+   *
+   * @param index     is the position of the vector.
+   * @param dimension is the dimension of the value.
+   * @return the value.
+   * @throws IndexOutOfBoundsException if there is no such vector or dimension.
+   */
+  public double get(int index, int dimension) throws IndexOutOfBoundsException {
+    if (index < 0 || index >= rows.size() || dimension < 0 || dimension >= rows.dimensions) {
+      throw new IndexOutOfBoundsException("No value at " + index + ", " + dimension);
+    }
+    return rows.get(index, dimension);
+  }
+
+  /**
+   * Gets a vector.
+   *
+   * @param index is the position of the vector.
+   * @return a copy of the vector.
+   * @throws IndexOutOfBoundsException if there is no such vector.
+   */
+  public double[] getVector(int index) throws IndexOutOfBoundsException {
+    if (index < 0 || index >= rows.size()) {
+      throw new IndexOutOfBoundsException("No vector at " + index);
+    }
+    double[] vector = new double[rows.dimensions];
+    for (int j = 0; j < vector.length; j++) {
+      vector[j] = rows.get(index, j);
+    }
+    return vector;
+  }
+
+  /**
+   * Finds the clusters for this List of Vectors with the given options, by Lloyd
+   * iterations. Runs with the same options on the same vectors give the same clusters. The
+   * seed, seeding method, initial centers, limits, tolerance and parallelism in options are
+   * used, and the algorithm, restarts and listener are not. Seeding is random or kMeans++;
+   * kMeans|| seeding picks by kMeans++ instead, with the same seed. Initial centers must
+   * have the dimensions of the vectors, as set by KMeansOptions.initialCenters(double[], int).
+   *
+   * @param k       is the number of clusters to cluster vectors by.
+   * @param options is the seeding method, seed and limits for the run.
+   * @return the result holding the cluster of every vector and the cluster centers.
+   * @throws TimeoutException         if the run reaches the iteration limit or time limit in
+   *                                  options without finding acceptable error threshold.
+   * @throws IllegalArgumentException if the k is invalid due to being less than or equal
+   *                                  to 0 and larger than number of vectors, or options has
+   *                                  initial centers that do not fit.
+   */
+  public VectorKMeansResult kmeans(int k, KMeansOptions options)
+      throws TimeoutException, IllegalArgumentException {
+    checkK(k);
+    VectorKMeansResult result = VectorKMeans.run(rows, k, options,
+        new RunBudget(options, false));
+    if (result.getStatus() != KMeansResult.Status.CONVERGED) {
+      throw new TimeoutException("Ran too long -- No kMeans determined");
+    }
+    return result;
+  }
+
+  /**
+   * Finds the clusters for this List of Vectors like kmeans, but returns the best clusters
+   * found by the iteration limit or time limit instead of throwing. The run also stops,
+   * after the iteration it is in, when the calling thread is interrupted; the interrupt
+   * flag is left set. The status of the result says why the run ended.
+   *
+   * @param k       is the number of clusters to cluster vectors by.
+   * @param options is the seeding method, seed and limits for the run.
+   * @return the result holding the cluster of every vector, the cluster centers and the
+   *         status of the run.
+   * @throws IllegalArgumentException if the k is invalid due to being less than or equal
+   *                                  to 0 and larger than number of vectors, or options has
+   *                                  initial centers that do not fit.
+   */
+  public VectorKMeansResult kmeansAnytime(int k, KMeansOptions options)
+      throws IllegalArgumentException {
+    checkK(k);
+    return VectorKMeans.run(rows, k, options, new RunBudget(options, true));
+  }
+
+  /**
+   * Checks the number of clusters.
+   *
+   * @param k is the number of clusters.
+   * @throws IllegalArgumentException if k is invalid.
+   */
+  private void checkK(int k) throws IllegalArgumentException {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be non-zero, positive int");
+    }
+
+    if (k > rows.size()) {
+      throw new IllegalArgumentException("More clusters than points on graph.");
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/**
+ * This class is the plain Lloyd iteration. One pass over the points assigns every point to
+ * its nearest center, and builds up the sums for the new centers and the error as it goes.
+ */
+final class LloydStep extends KMeansStep {
+
+  /**
+   * Constructor for a Lloyd step.
+   *
+   * @param k is the number of clusters.
+   */
+  LloydStep(int k) {
+    super(k);
+  }
+
+  @Override
+  void assignChunk(PointColumns columns, int chunk, int from, int to, double[] centersX,
+                   double[] centersY, int[] clusters) {
+    // Sums are kept local to the chunk and copied out at the end, so threads working on
+    // neighbouring chunks do not fight over the same cache lines.
+    double[] sumsX = new double[k];
+    double[] sumsY = new double[k];
+    int[] counts = new int[k];
+    double distanceCounter = 0;
+    long reassigned = 0;
+
+    Kernels kernels = Kernels.get();
+    boolean vector = kernels.isVector();
+    int[] nearestCenters = vector ? new int[PointColumns.BLOCK_SIZE] : null;
+    double[] nearestDistances = vector ? new double[PointColumns.BLOCK_SIZE] : null;
+    PointBlock block = new PointBlock();
+    for (int start = from; start < to; start += PointColumns.BLOCK_SIZE) {
+      columns.load(start, Math.min(PointColumns.BLOCK_SIZE, to - start), block);
+      double[] xs = block.xs;
+      double[] ys = block.ys;
+      if (vector) {
+        kernels.nearest(xs, ys, block.offset, block.length, centersX, centersY, k,
+            nearestCenters, nearestDistances);
+      }
+      for (int i = 0; i < block.length; i++) {
+        double x = xs[block.offset + i];
+        double y = ys[block.offset + i];
+
+        // Find the nearest center. Ties go to the lowest cluster.
+        int nearest = 0;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        if (vector) {
+          nearest = nearestCenters[i];
+          nearestDistance = nearestDistances[i];
+        } else {
+          for (int c = 0; c < k; c++) {
+            double dx = x - centersX[c];
+            double dy = y - centersY[c];
+            double distance = (dx * dx) + (dy * dy);
+            if (distance < nearestDistance) {
+              nearestDistance = distance;
+              nearest = c;
+            }
+          }
+        }
+
+        if (watched && clusters[block.start + i] != nearest) {
+          reassigned++;
+        }
+        clusters[block.start + i] = nearest;
+        sumsX[nearest] = x + sumsX[nearest];
+        sumsY[nearest] = y + sumsY[nearest];
+        counts[nearest]++;
+        distanceCounter = nearestDistance + distanceCounter;
+      }
+    }
+    finishChunk(chunk, sumsX, sumsY, counts, distanceCounter, (long) (to - from) * k, 0,
+        reassigned);
+  }
+}
@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class reads the points of a binary point file straight from the file, which is mapped
+ * into memory instead of read onto the heap. Each column is mapped as a run of windows of at
+ * most WINDOW_SIZE points, since one mapping cannot be larger than 2 GB. Blocks are copied
+ * from the mapping into arrays owned by the block, so the kernels see plain double arrays.
+ * The columns are read-only.
+ */
+final class MappedColumns extends PointColumns {
+
+  private static final int WINDOW_SHIFT = 27;
+
+  /**
+   * The number of points in every window but the last, 1 GB of doubles.
+   */
+  static final int WINDOW_SIZE = 1 << WINDOW_SHIFT;
+
+  private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+
+  private final DoubleBuffer[] xWindows;
+  private final DoubleBuffer[] yWindows;
+  private final int size;
+
+  /**
+   * Constructor for columns mapped from an open file.
+   *
+   * @param channel is the file, open for reading. It can be closed once this returns.
+   * @param xStart  is the position in bytes of the first xCoord.
+   * @param yStart  is the position in bytes of the first yCoord.
+   * @param size    is the number of points.
+   * @throws IOException if the file cannot be mapped.
+   */
+  MappedColumns(FileChannel channel, long xStart, long yStart, int size) throws IOException {
+    this.size = size;
+    this.xWindows = map(channel, xStart, size);
+    this.yWindows = map(channel, yStart, size);
+  }
+
+  /**
+   * Maps one column of the file as a run of windows.
+   *
+   * @param channel is the file.
+   * @param start   is the position in bytes of the first value of the column.
+   * @param size    is the number of values in the column.
+   * @return the windows, in order.
+   * @throws IOException if the file cannot be mapped.
+   */
+  private static DoubleBuffer[] map(FileChannel channel, long start, int size)
+      throws IOException {
+    int windows = (int) (((long) size + WINDOW_SIZE - 1) >>> WINDOW_SHIFT);
+    DoubleBuffer[] column = new DoubleBuffer[windows];
+    for (int w = 0; w < windows; w++) {
+      long first = (long) w << WINDOW_SHIFT;
+      long count = Math.min(WINDOW_SIZE, size - first);
+      column[w] = channel.map(FileChannel.MapMode.READ_ONLY, start + first * Double.BYTES,
+          count * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+    return column;
+  }
+
+  @Override
+  int size() {
+    return this.size;
+  }
+
+  @Override
+  double getX(int index) {
+    return xWindows[index >>> WINDOW_SHIFT].get(index & WINDOW_MASK);
+  }
+
+  @Override
+  double getY(int index) {
+    return yWindows[index >>> WINDOW_SHIFT].get(index & WINDOW_MASK);
+  }
+
+  /**
+   * Not supported, a mapped file is read-only.
+   *
+   * @throws UnsupportedOperationException always.
+   */
+  @Override
+  void add(double x, double y) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("Points read from a point file are read-only");
+  }
+
+  /**
+   * Not supported, a mapped file is read-only.
+   *
+   * @throws UnsupportedOperationException always.
+   */
+  @Override
+  void addAll(double[] xs, double[] ys, int from, int count)
+      throws UnsupportedOperationException {
+    throw new UnsupportedOperationException("Points read from a point file are read-only");
+  }
+
+  @Override
+  PointBlock load(int from, int count, PointBlock block) {
+    block.ensureOwnCapacity(count);
+    block.start = from;
+    block.length = count;
+    int done = 0;
+    while (done < count) {
+      int index = from + done;
+      int window = index >>> WINDOW_SHIFT;
+      int inWindow = index & WINDOW_MASK;
+      int length = Math.min(count - done, WINDOW_SIZE - inWindow);
+      xWindows[window].get(inWindow, block.xs, done, length);
+      yWindows[window].get(inWindow, block.ys, done, length);
+      done += length;
+    }
+    return block;
+  }
+}
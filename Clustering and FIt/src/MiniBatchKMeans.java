@@ -0,0 +1,332 @@
+import java.util.SplittableRandom;
+
+/**
+ * This class is mini-batch kMeans (Sculley, 2010). Instead of visiting every point in every
+ * iteration, each iteration assigns a small batch of points to their nearest centers and then
+ * moves each of those centers part of the way towards each of its points. The work per
+ * iteration depends on the batch size, not on the number of points.
+ *
+ * <p>Points can be fed in as they arrive with partialFit. They are held until a full batch
+ * is ready; the first full batch also seeds the centers, using the seeding method in the
+ * options. ListOfPoints.kmeans uses the same updates with the MINI_BATCH algorithm, drawing
+ * each batch at random from the whole list.
+ *
+ * <p>A MiniBatchKMeans is not safe to use from more than one thread at a time.
+ */
+public class MiniBatchKMeans {
+
+  /**
+   * The number of batches' worth of points sampled to seed the centers of a full run.
+   */
+  private static final int SEED_BATCHES = 3;
+
+  private final int k;
+  private final KMeansOptions options;
+  private final SplittableRandom random;
+  private final double[] centersX;
+  private final double[] centersY;
+  private final long[] counts;
+  private final double[] batchX;
+  private final double[] batchY;
+  private final int[] batchLabels;
+  private int buffered;
+  private boolean seeded;
+  private long seen;
+  private long population;
+  private int batches;
+  private long distanceComputations;
+  private double smoothedError;
+  private double bestError;
+  private int noImprovement;
+
+  /**
+   * Constructor for a model with no centers yet.
+   *
+   * @param k       is the number of clusters.
+   * @param options is the options for the run, which should not change while the model is
+   *                in use.
+   * @throws IllegalArgumentException if k is not positive.
+   */
+  public MiniBatchKMeans(int k, KMeansOptions options) throws IllegalArgumentException {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be non-zero, positive int");
+    }
+    this.k = k;
+    this.options = options;
+    this.random = new SplittableRandom(options.getSeed());
+    this.centersX = new double[k];
+    this.centersY = new double[k];
+    this.counts = new long[k];
+    int capacity = Math.max(k, options.getBatchSize());
+    this.batchX = new double[capacity];
+    this.batchY = new double[capacity];
+    this.batchLabels = new int[capacity];
+    this.buffered = 0;
+    this.seeded = false;
+    this.seen = 0;
+    this.population = 0;
+    this.batches = 0;
+    this.distanceComputations = 0;
+    this.smoothedError = Double.NaN;
+    this.bestError = Double.POSITIVE_INFINITY;
+    this.noImprovement = 0;
+  }
+
+  /**
+   * Runs mini-batch kMeans over all of the points in columns. The centers are seeded from a
+   * random sample of a few batches, then each iteration learns from a batch drawn at random
+   * from all of the points. The run stops after the iteration limit, or once the smoothed
+   * batch error has gone maxNoImprovement batches without dropping by more than the tolerance.
+   * It also stops early when the budget runs out. A last pass assigns every point to its
+   * nearest center.
+   *
+   * @param columns is the points to cluster.
+   * @param k       is the number of clusters, between 1 and the number of points.
+   * @param options is the options for the run.
+   * @param budget  is the time the run may take.
+   * @return the clusters found, with the status saying how the run ended.
+   */
+  static KMeansResult fit(PointColumns columns, int k, KMeansOptions options,
+                          RunBudget budget) {
+    int n = columns.size();
+    MiniBatchKMeans model = new MiniBatchKMeans(k, options);
+    model.population = n;
+
+    try (ChunkRunner runner = ChunkRunner.forOptions(options)) {
+      int sampleSize = (int) Math.min(n, (long) SEED_BATCHES * model.batchX.length);
+      if (sampleSize == n) {
+        KMeansSeeding.seed(columns, k, options, runner, model.centersX, model.centersY);
+      } else {
+        DoubleColumns sample = new DoubleColumns();
+        for (int i = 0; i < sampleSize; i++) {
+          int index = model.random.nextInt(n);
+          sample.add(columns.getX(index), columns.getY(index));
+        }
+        KMeansSeeding.seed(sample, k, options, ChunkRunner.sequential(), model.centersX,
+            model.centersY);
+      }
+      model.seeded = true;
+
+      int batchSize = Math.min(options.getBatchSize(), n);
+      KMeansResult.Status status = null;
+      while (status == null) {
+        for (int i = 0; i < batchSize; i++) {
+          int index = model.random.nextInt(n);
+          model.batchX[i] = columns.getX(index);
+          model.batchY[i] = columns.getY(index);
+        }
+        model.learn(batchSize);
+        if (model.hasConverged()) {
+          status = KMeansResult.Status.CONVERGED;
+        } else if (model.batches >= options.getMaxIterations()) {
+          status = KMeansResult.Status.ITERATION_LIMIT;
+        } else {
+          status = budget.exhausted();
+        }
+      }
+
+      int[] labels = new int[n];
+      double inertia = model.label(columns, runner, labels);
+      return new KMeansResult(labels, model.centersX, model.centersY, inertia, model.batches,
+          model.distanceComputations + (long) n * k, 0, status);
+    }
+  }
+
+  /**
+   * Adds a point from a stream. Once a batch of points has built up, the centers learn from
+   * it.
+   *
+   * @param x is the xCoord of the point.
+   * @param y is the yCoord of the point.
+   */
+  public void partialFit(double x, double y) {
+    batchX[buffered] = x;
+    batchY[buffered] = y;
+    buffered++;
+    seen++;
+    if (buffered == batchX.length) {
+      flush();
+    }
+  }
+
+  /**
+   * Adds a batch of points from a stream. The ith point added is (xs[i], ys[i]).
+   *
+   * @param xs is the array of xCoords for the points to be added.
+   * @param ys is the array of yCoords for the points to be added.
+   * @throws IllegalArgumentException if the two arrays are not the same length.
+   */
+  public void partialFit(double[] xs, double[] ys) throws IllegalArgumentException {
+    if (xs.length != ys.length) {
+      throw new IllegalArgumentException("x and y arrays must be the same length");
+    }
+    for (int i = 0; i < xs.length; i++) {
+      partialFit(xs[i], ys[i]);
+    }
+  }
+
+  /**
+   * Learns from the points held back since the last batch, without waiting for a full
+   * batch. Before the centers are seeded, this seeds them if at least k points have been
+   * added, and otherwise does nothing.
+   */
+  public void flush() {
+    if (buffered == 0 || (!seeded && buffered < k)) {
+      return;
+    }
+    if (!seeded) {
+      DoubleColumns first = new DoubleColumns();
+      first.addAll(batchX, batchY, 0, buffered);
+      KMeansSeeding.seed(first, k, options, ChunkRunner.sequential(), centersX, centersY);
+      seeded = true;
+    }
+    learn(buffered);
+    buffered = 0;
+  }
+
+  /**
+   * Finds the cluster of a point, the one with the nearest center. Ties go to the lowest
+   * cluster.
+   *
+   * @param x is the xCoord of the point.
+   * @param y is the yCoord of the point.
+   * @return the cluster of the point.
+   * @throws IllegalStateException if the centers have not been seeded yet.
+   */
+  public int predict(double x, double y) throws IllegalStateException {
+    if (!seeded) {
+      throw new IllegalStateException("No centers yet, fewer than k points have been added");
+    }
+    return KMeansSeeding.nearest(x, y, centersX, centersY, k);
+  }
+
+  /**
+   * Checks if the centers have been seeded, so predict can be used.
+   *
+   * @return true once there are centers.
+   */
+  public boolean hasCenters() {
+    return this.seeded;
+  }
+
+  /**
+   * Checks if the smoothed batch error has stopped improving, maxNoImprovement batches in a
+   * row without dropping by more than the tolerance.
+   *
+   * @return true if learning has settled.
+   */
+  public boolean hasConverged() {
+    return noImprovement >= options.getMaxNoImprovement();
+  }
+
+  /**
+   * Gets the number of clusters.
+   *
+   * @return the number of clusters.
+   */
+  public int getK() {
+    return this.k;
+  }
+
+  /**
+   * Gets the current center of a cluster.
+   *
+   * @param cluster is the cluster to get the center of.
+   * @return the center of the cluster as a Point.
+   * @throws IllegalStateException if the centers have not been seeded yet.
+   */
+  public Point getCentroid(int cluster) throws IllegalStateException {
+    if (!seeded) {
+      throw new IllegalStateException("No centers yet, fewer than k points have been added");
+    }
+    return new Point(centersX[cluster], centersY[cluster]);
+  }
+
+  /**
+   * Gets the number of batches learned from so far.
+   *
+   * @return the number of batches.
+   */
+  public int getBatches() {
+    return this.batches;
+  }
+
+  /**
+   * Gets the smoothed mean squared distance from a batch point to its center, an estimate of
+   * the error per point of the current centers.
+   *
+   * @return the smoothed batch error, or NaN before the first batch.
+   */
+  public double getSmoothedError() {
+    return this.smoothedError;
+  }
+
+  /**
+   * Assigns the first m points of the batch to their nearest centers, then moves each center
+   * towards each of its points in turn, and updates the smoothed error.
+   *
+   * @param m is the number of points in the batch.
+   */
+  private void learn(int m) {
+    // Assign against the centers as they were at the start of the batch.
+    double error = 0;
+    for (int i = 0; i < m; i++) {
+      double x = batchX[i];
+      double y = batchY[i];
+      int nearest = 0;
+      double nearestDistance = Double.POSITIVE_INFINITY;
+      for (int c = 0; c < k; c++) {
+        double dx = x - centersX[c];
+        double dy = y - centersY[c];
+        double distance = (dx * dx) + (dy * dy);
+        if (distance < nearestDistance) {
+          nearestDistance = distance;
+          nearest = c;
+        }
+      }
+      batchLabels[i] = nearest;
+      error = nearestDistance + error;
+    }
+    distanceComputations += (long) m * k;
+
+    boolean floored = options.getLearningRate() == KMeansOptions.LearningRate.FLOORED;
+    double minRate = options.getMinLearningRate();
+    for (int i = 0; i < m; i++) {
+      int c = batchLabels[i];
+      counts[c]++;
+      double rate = 1.0 / counts[c];
+      if (floored && rate < minRate) {
+        rate = minRate;
+      }
+      centersX[c] += rate * (batchX[i] - centersX[c]);
+      centersY[c] += rate * (batchY[i] - centersY[c]);
+    }
+    batches++;
+
+    // An exponentially weighted average of the batch error, weighted so that it covers
+    // about half of the points, or of the points seen so far for a stream.
+    double batchError = error / m;
+    long window = population > 0 ? population : seen;
+    double alpha = Math.min(1.0, 2.0 * m / (window + 1));
+    smoothedError = Double.isNaN(smoothedError)
+        ? batchError : (smoothedError * (1 - alpha)) + (batchError * alpha);
+    if (smoothedError < bestError * (1 - options.getTolerance())) {
+      bestError = smoothedError;
+      noImprovement = 0;
+    } else {
+      noImprovement++;
+    }
+  }
+
+  /**
+   * Assigns every point to its nearest center, and sums the squared distances.
+   *
+   * @param columns is the points.
+   * @param runner  is the runner for the chunks of the pass.
+   * @param labels  is filled with the cluster of each point.
+   * @return the sum of squared distances.
+   */
+  private double label(PointColumns columns, ChunkRunner runner, int[] labels) {
+    return NearestCenters.label(columns, centersX, centersY, k, runner, labels);
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * This class is the pass that finds the nearest center of every point, for the algorithms
+ * that label points or weigh them by their nearest center once the centers are known. The
+ * points are split into the fixed chunks of a ChunkRunner and read a block at a time, and
+ * the nearest centers of each block are found by Kernels.nearest, or for TREE_CENTERS centers
+ * or more by a KdTree over the centers, which gives the same answers in fewer distances.
+ */
+final class NearestCenters {
+
+  /**
+   * The fewest centers that are searched through a KdTree instead of one by one.
+   */
+  static final int TREE_CENTERS = 128;
+
+  /**
+   * This interface loads a run of consecutive points into a block, like PointColumns.load.
+   */
+  interface Loader {
+
+    /**
+     * Loads points from to from + count - 1 into a block.
+     *
+     * @param from  is the first point.
+     * @param count is the number of points.
+     * @param block is the block to point at the points.
+     */
+    void load(int from, int count, PointBlock block);
+  }
+
+  /**
+   * This interface is what a pass does with each block once its nearest centers are found.
+   * Blocks of one chunk come in order on one thread.
+   */
+  interface BlockAction {
+
+    /**
+     * Uses the nearest centers of a block of points.
+     *
+     * @param chunk     is the chunk the block is in.
+     * @param block     is the block of points.
+     * @param nearest   is the nearest center of each point of the block, from index 0.
+     * @param distances is the squared distance of each point to its nearest center.
+     */
+    void accept(int chunk, PointBlock block, int[] nearest, double[] distances);
+  }
+
+  /**
+   * Not for instances.
+   */
+  private NearestCenters() {
+  }
+
+  /**
+   * Finds the nearest center of every point, block by block, and hands each block to the
+   * action. Ties go to the lowest center.
+   *
+   * @param n        is the number of points.
+   * @param loader   is how to load the points.
+   * @param centersX is the xCoord of each center.
+   * @param centersY is the yCoord of each center.
+   * @param k        is the number of centers.
+   * @param runner   is the runner for the chunks of the pass.
+   * @param action   is what to do with each block.
+   */
+  static void forEachBlock(int n, Loader loader, double[] centersX, double[] centersY, int k,
+                           ChunkRunner runner, BlockAction action) {
+    Kernels kernels = Kernels.get();
+    KdTree tree = k >= TREE_CENTERS && finite(centersX, centersY, k)
+        ? new KdTree(centersX, centersY, k, ChunkRunner.sequential()) : null;
+    runner.run(ChunkRunner.chunkCount(n), chunk -> {
+      int from = chunk * ChunkRunner.CHUNK_SIZE;
+      int to = Math.min(n, from + ChunkRunner.CHUNK_SIZE);
+      int[] nearest = new int[PointColumns.BLOCK_SIZE];
+      double[] distances = new double[PointColumns.BLOCK_SIZE];
+      PointBlock block = new PointBlock();
+      for (int start = from; start < to; start += PointColumns.BLOCK_SIZE) {
+        loader.load(start, Math.min(PointColumns.BLOCK_SIZE, to - start), block);
+        if (tree != null) {
+          tree.nearest(block.xs, block.ys, block.offset, block.length, nearest, distances);
+        } else {
+          kernels.nearest(block.xs, block.ys, block.offset, block.length, centersX, centersY,
+              k, nearest, distances);
+        }
+        action.accept(chunk, block, nearest, distances);
+      }
+    });
+  }
+
+  /**
+   * Checks that every center is finite, since the tree only gives the answers of
+   * Kernels.nearest for finite centers.
+   *
+   * @param centersX is the xCoord of each center.
+   * @param centersY is the yCoord of each center.
+   * @param k        is the number of centers.
+   * @return true if no coordinate is infinite or NaN.
+   */
+  private static boolean finite(double[] centersX, double[] centersY, int k) {
+    for (int c = 0; c < k; c++) {
+      if (!Double.isFinite(centersX[c]) || !Double.isFinite(centersY[c])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Labels every point with its nearest center, and sums the squared distances chunk by
+   * chunk in order.
+   *
+   * @param columns  is the points.
+   * @param centersX is the xCoord of each center.
+   * @param centersY is the yCoord of each center.
+   * @param k        is the number of centers.
+   * @param runner   is the runner for the chunks of the pass.
+   * @param labels   is filled with the nearest center of each point.
+   * @return the sum of squared distances.
+   */
+  static double label(PointColumns columns, double[] centersX, double[] centersY, int k,
+                      ChunkRunner runner, int[] labels) {
+    int n = columns.size();
+    int chunks = ChunkRunner.chunkCount(n);
+    double[] chunkErrors = new double[chunks];
+    forEachBlock(n, columns::load, centersX, centersY, k, runner,
+        (chunk, block, nearest, distances) -> {
+          double error = chunkErrors[chunk];
+          for (int i = 0; i < block.length; i++) {
+            labels[block.start + i] = nearest[i];
+            error = distances[i] + error;
+          }
+          chunkErrors[chunk] = error;
+        });
+
+    double error = 0;
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      error = chunkErrors[chunk] + error;
+    }
+    return error;
+  }
+}
@@ -0,0 +1,538 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class runs kMeans over a point file too large to hold in memory. Every iteration reads
+ * the whole file from disk in chunks of CHUNK_POINTS points, assigns the points of each chunk
+ * to their nearest centers and adds them to the centroid sums, and moves the centers once the
+ * file has been read. Only two chunks and the sums are ever held in memory.
+ *
+ * <p>The file may be a text point file, read like PointFileReader reads it, or a binary point
+ * file written by PointDataFile, which is read without mapping it and may hold more than
+ * Integer.MAX_VALUE points. While one chunk is being clustered, a background thread reads the
+ * next one into a second buffer, so the disk and the processors are busy at the same time.
+ *
+ * <p>The labels are not kept. Once the centers are found, one more pass assigns every point to
+ * its nearest center and writes the clusters to a sidecar file, as one little-endian int per
+ * point in the order of the points in the file.
+ */
+public final class OutOfCoreKMeans {
+
+  /**
+   * The number of points in each chunk read from the file.
+   */
+  static final int CHUNK_POINTS = 1 << 20;
+
+  /**
+   * The smallest number of points sampled to seed the centers.
+   */
+  static final int SEED_SAMPLE = 1 << 16;
+
+  private OutOfCoreKMeans() {
+  }
+
+  /**
+   * Clusters the points in a file into k clusters and writes the cluster of every point to
+   * a labels file.
+   *
+   * @param points  is the path of the text or binary point file.
+   * @param k       is the number of clusters.
+   * @param options is the options for the run.
+   * @param labels  is the path of the labels file to write, replaced if it exists.
+   * @return the result, as for ListOfPoints.kmeansAnytime but with no labels in it.
+   * @throws IOException              if the files cannot be read or written.
+   * @throws IllegalArgumentException if k is less than 1 or more than the number of points.
+   */
+  public static KMeansResult run(String points, int k, KMeansOptions options, String labels)
+      throws IOException, IllegalArgumentException {
+    return run(Paths.get(points), k, options, Paths.get(labels));
+  }
+
+  /**
+   * Clusters the points in a file into k clusters and writes the cluster of every point to
+   * a labels file. The centers are seeded as options says from a random sample of the points.
+   * The iterations are Lloyd iterations whatever the algorithm in options, and they run
+   * until the error settles below the tolerance, or the iteration limit or time limit is
+   * reached. Like an anytime run, it does not throw at a limit, and the status of the result
+   * says how it ended. If the calling thread is interrupted, the run stops without writing
+   * the labels, leaving any labels file already there as it was, and the status is
+   * INTERRUPTED.
+   *
+   * @param points  is the path of the text or binary point file.
+   * @param k       is the number of clusters.
+   * @param options is the options for the run.
+   * @param labels  is the path of the labels file to write, replaced once every label is
+   *                written.
+   * @return the centers, inertia, iterations and status of the run. The labels of the result
+   *         are empty, since they are in the labels file.
+   * @throws IOException              if the files cannot be read or written.
+   * @throws IllegalArgumentException if k is less than 1 or more than the number of points.
+   */
+  public static KMeansResult run(Path points, int k, KMeansOptions options, Path labels)
+      throws IOException, IllegalArgumentException {
+    return run(() -> PointDataFile.isPointFile(points)
+        ? new PointDataStream(points) : new PointFileReader(points), k, options, labels,
+        CHUNK_POINTS);
+  }
+
+  /**
+   * This interface opens the point source again for each pass.
+   */
+  interface Opener {
+    /**
+     * Opens the points from the start.
+     *
+     * @return the points.
+     * @throws IOException if the points cannot be opened.
+     */
+    PointSource open() throws IOException;
+  }
+
+  /**
+   * Clusters the points of a source that can be read again and again.
+   *
+   * @param opener      is how to open the points for each pass.
+   * @param k           is the number of clusters.
+   * @param options     is the options for the run.
+   * @param labels      is the path of the labels file to write.
+   * @param chunkPoints is the number of points in each chunk.
+   * @return the result, with empty labels.
+   * @throws IOException              if the files cannot be read or written.
+   * @throws IllegalArgumentException if k is less than 1 or more than the number of points.
+   */
+  static KMeansResult run(Opener opener, int k, KMeansOptions options, Path labels,
+                          int chunkPoints) throws IOException, IllegalArgumentException {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be non-zero, positive int");
+    }
+    RunBudget budget = new RunBudget(options, true);
+    ExecutorService io = Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, "point-prefetch");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try (ChunkRunner runner = ChunkRunner.forOptions(options)) {
+      Pass pass = new Pass(k, chunkPoints);
+      double[] centersX = new double[k];
+      double[] centersY = new double[k];
+      long n;
+      try {
+        n = seed(opener, io, k, options, runner, chunkPoints, centersX, centersY);
+      } catch (InterruptedIOException | ClosedByInterruptException e) {
+        Thread.currentThread().interrupt();
+        return new KMeansResult(new int[0], centersX, centersY, Double.NaN, 0, 0, 0,
+            KMeansResult.Status.INTERRUPTED);
+      }
+
+      double error = Double.POSITIVE_INFINITY;
+      int iterations = 0;
+      long computed = 0;
+      KMeansResult.Status status = null;
+      while (status == null) {
+        double newError;
+        try {
+          newError = pass.iterate(opener, io, runner, centersX, centersY, null);
+        } catch (InterruptedIOException | ClosedByInterruptException e) {
+          Thread.currentThread().interrupt();
+          status = KMeansResult.Status.INTERRUPTED;
+          break;
+        }
+        iterations++;
+        computed += n * k;
+        boolean empty = false;
+        for (int c = 0; c < k; c++) {
+          if (pass.counts[c] == 0) {
+            empty = true;
+          } else {
+            centersX[c] = pass.sumsX[c] / pass.counts[c];
+            centersY[c] = pass.sumsY[c] / pass.counts[c];
+          }
+        }
+        if (KMeans.converged(error, newError, empty, options.getTolerance())) {
+          status = KMeansResult.Status.CONVERGED;
+        } else if (iterations >= options.getMaxIterations()) {
+          status = KMeansResult.Status.ITERATION_LIMIT;
+        } else {
+          status = budget.exhausted();
+        }
+        error = newError;
+      }
+
+      if (status != KMeansResult.Status.INTERRUPTED) {
+        try {
+          writeLabels(pass, opener, io, runner, centersX, centersY, labels);
+          computed += n * k;
+        } catch (InterruptedIOException | ClosedByInterruptException e) {
+          Thread.currentThread().interrupt();
+          status = KMeansResult.Status.INTERRUPTED;
+        }
+      }
+      return new KMeansResult(new int[0], centersX, centersY,
+          iterations == 0 ? Double.NaN : error, iterations, computed, 0, status);
+    } finally {
+      io.shutdownNow();
+    }
+  }
+
+  /**
+   * Writes the labels pass to a partial file beside the labels file, and moves it over the
+   * labels file once every label is written. If the pass fails or is interrupted, the partial
+   * file is deleted and any labels file already there is left as it was.
+   *
+   * @param pass     is the pass to run.
+   * @param opener   is how to open the points.
+   * @param io       is the thread to read chunks on.
+   * @param runner   is the runner for the pieces of each chunk.
+   * @param centersX is the xCoord of each center.
+   * @param centersY is the yCoord of each center.
+   * @param labels   is the path of the labels file to write.
+   * @throws IOException if the points cannot be read or the labels written.
+   */
+  private static void writeLabels(Pass pass, Opener opener, ExecutorService io,
+                                  ChunkRunner runner, double[] centersX, double[] centersY,
+                                  Path labels) throws IOException {
+    Path target = labels.toAbsolutePath();
+    Path partial = Files.createTempFile(target.getParent(), target.getFileName() + ".",
+        ".part");
+    try {
+      try (FileChannel out = FileChannel.open(partial, StandardOpenOption.WRITE)) {
+        pass.iterate(opener, io, runner, centersX, centersY, out);
+      }
+      try {
+        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(partial);
+    }
+  }
+
+  /**
+   * Reads the points once to count them and keep a uniform random sample, then seeds the
+   * centers from the sample.
+   *
+   * @param opener      is how to open the points.
+   * @param io          is the thread to read chunks on.
+   * @param k           is the number of clusters.
+   * @param options     is the options for the run.
+   * @param runner      is the runner for the seeding.
+   * @param chunkPoints is the number of points in each chunk.
+   * @param centersX    is filled with the xCoord of each center.
+   * @param centersY    is filled with the yCoord of each center.
+   * @return the number of points.
+   * @throws IOException              if the points cannot be read.
+   * @throws IllegalArgumentException if there are fewer than k points.
+   */
+  private static long seed(Opener opener, ExecutorService io, int k, KMeansOptions options,
+                           ChunkRunner runner, int chunkPoints, double[] centersX,
+                           double[] centersY) throws IOException, IllegalArgumentException {
+    int capacity = Math.max(SEED_SAMPLE, 4 * k);
+    double[] sampleX = new double[capacity];
+    double[] sampleY = new double[capacity];
+    SplittableRandom random = new SplittableRandom(options.getSeed());
+    long n = 0;
+    try (PointSource source = opener.open();
+         Prefetcher prefetcher = new Prefetcher(source, io, chunkPoints)) {
+      Chunk chunk;
+      while ((chunk = prefetcher.next()) != null) {
+        for (int i = 0; i < chunk.count; i++) {
+          // Reservoir sampling: point n replaces a sampled point with chance capacity / n.
+          long place = n < capacity ? n : random.nextLong(n + 1);
+          if (place < capacity) {
+            sampleX[(int) place] = chunk.xs[i];
+            sampleY[(int) place] = chunk.ys[i];
+          }
+          n++;
+        }
+      }
+    }
+    if (k > n) {
+      throw new IllegalArgumentException("More clusters than points on graph.");
+    }
+    DoubleColumns sample = new DoubleColumns();
+    for (int i = 0; i < Math.min(n, capacity); i++) {
+      sample.add(sampleX[i], sampleY[i]);
+    }
+    KMeansSeeding.seed(sample, k, options, runner, centersX, centersY);
+    return n;
+  }
+
+  /**
+   * This class is a buffer for one chunk of points.
+   */
+  private static final class Chunk {
+    final double[] xs;
+    final double[] ys;
+    int count;
+
+    /**
+     * Constructor for an empty chunk.
+     *
+     * @param capacity is the most points the chunk holds.
+     */
+    Chunk(int capacity) {
+      this.xs = new double[capacity];
+      this.ys = new double[capacity];
+      this.count = 0;
+    }
+
+    /**
+     * Points a block at a run of the points in the chunk, without copying them.
+     *
+     * @param from  is the first point.
+     * @param count is the number of points.
+     * @param block is the block to point at the points.
+     */
+    void load(int from, int count, PointBlock block) {
+      block.xs = this.xs;
+      block.ys = this.ys;
+      block.offset = from;
+      block.start = from;
+      block.length = count;
+    }
+  }
+
+  /**
+   * This class reads a source into two chunks in turn on a background thread, so the next
+   * chunk is read while the last one is used. A chunk handed out by next stays untouched until
+   * next is called again.
+   */
+  private static final class Prefetcher implements AutoCloseable {
+    private final PointSource source;
+    private final ExecutorService io;
+    private final Chunk[] chunks;
+    private int turn;
+    private Future<Chunk> pending;
+
+    /**
+     * Constructor for a prefetcher, which starts reading the first chunk.
+     *
+     * @param source      is the points to read.
+     * @param io          is the thread to read on.
+     * @param chunkPoints is the number of points in each chunk.
+     */
+    Prefetcher(PointSource source, ExecutorService io, int chunkPoints) {
+      this.source = source;
+      this.io = io;
+      this.chunks = new Chunk[] {new Chunk(chunkPoints), new Chunk(chunkPoints)};
+      this.turn = 0;
+      this.pending = fill(chunks[0]);
+    }
+
+    /**
+     * Starts reading into a chunk.
+     *
+     * @param chunk is the chunk to fill.
+     * @return the chunk once it is filled.
+     */
+    private Future<Chunk> fill(Chunk chunk) {
+      return io.submit(() -> {
+        chunk.count = source.read(chunk.xs, chunk.ys);
+        return chunk;
+      });
+    }
+
+    /**
+     * Waits for the next chunk and starts reading the one after it.
+     *
+     * @return the next chunk, or null at the end of the points.
+     * @throws IOException if the points cannot be read, or InterruptedIOException if the
+     *                     calling thread is interrupted while waiting.
+     */
+    Chunk next() throws IOException {
+      if (pending == null) {
+        return null;
+      }
+      Chunk chunk = await(pending);
+      if (chunk.count <= 0) {
+        pending = null;
+        return null;
+      }
+      turn ^= 1;
+      pending = fill(chunks[turn]);
+      return chunk;
+    }
+
+    /**
+     * Waits for a read to finish.
+     *
+     * @param read is the read.
+     * @return the chunk read.
+     * @throws IOException if the read failed, or InterruptedIOException if the calling thread
+     *                     is interrupted while waiting.
+     */
+    private static Chunk await(Future<Chunk> read) throws IOException {
+      try {
+        return read.get();
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException("Interrupted while reading points");
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IOException("Reading points failed", e.getCause());
+      }
+    }
+
+    /**
+     * Waits for any read still going, so the source can be closed after this.
+     */
+    @Override
+    public void close() {
+      if (pending != null) {
+        try {
+          pending.get();
+        } catch (InterruptedException e) {
+          pending.cancel(true);
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+          // The read failed after it was no longer needed.
+        }
+        pending = null;
+      }
+    }
+  }
+
+  /**
+   * This class is one pass over the points: it assigns every point to its nearest center and
+   * adds up the centroid sums, chunk by chunk. Each chunk is split into the fixed chunks of a
+   * ChunkRunner, and their sums are merged in order, so the sums are the same for any number
+   * of threads.
+   */
+  private static final class Pass {
+    final int k;
+    final double[] sumsX;
+    final double[] sumsY;
+    final long[] counts;
+    private final double[] partialSumsX;
+    private final double[] partialSumsY;
+    private final long[] partialCounts;
+    private final double[] partialErrors;
+    private final int[] labels;
+    private final ByteBuffer labelBytes;
+
+    /**
+     * Constructor for a pass.
+     *
+     * @param k           is the number of clusters.
+     * @param chunkPoints is the number of points in each chunk.
+     */
+    Pass(int k, int chunkPoints) {
+      int pieces = ChunkRunner.chunkCount(chunkPoints);
+      this.k = k;
+      this.sumsX = new double[k];
+      this.sumsY = new double[k];
+      this.counts = new long[k];
+      this.partialSumsX = new double[pieces * k];
+      this.partialSumsY = new double[pieces * k];
+      this.partialCounts = new long[pieces * k];
+      this.partialErrors = new double[pieces];
+      this.labels = new int[chunkPoints];
+      this.labelBytes = ByteBuffer.allocateDirect(chunkPoints * Integer.BYTES)
+          .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Reads every point once, assigning each to its nearest center.
+     *
+     * @param opener   is how to open the points.
+     * @param io       is the thread to read chunks on.
+     * @param runner   is the runner for the pieces of each chunk.
+     * @param centersX is the xCoord of each center.
+     * @param centersY is the yCoord of each center.
+     * @param out      is the labels file to write the cluster of every point to, or null.
+     * @return the sum of squared distances of the points to their nearest centers.
+     * @throws IOException if the points cannot be read or the labels written.
+     */
+    double iterate(Opener opener, ExecutorService io, ChunkRunner runner, double[] centersX,
+                   double[] centersY, FileChannel out) throws IOException {
+      Arrays.fill(sumsX, 0);
+      Arrays.fill(sumsY, 0);
+      Arrays.fill(counts, 0);
+      double error = 0;
+      try (PointSource source = opener.open();
+           Prefetcher prefetcher = new Prefetcher(source, io, labels.length)) {
+        Chunk chunk;
+        while ((chunk = prefetcher.next()) != null) {
+          error = assign(chunk, runner, centersX, centersY) + error;
+          if (out != null) {
+            labelBytes.clear();
+            IntBuffer ints = labelBytes.asIntBuffer();
+            ints.put(labels, 0, chunk.count);
+            labelBytes.limit(chunk.count * Integer.BYTES);
+            while (labelBytes.hasRemaining()) {
+              out.write(labelBytes);
+            }
+          }
+        }
+      }
+      return error;
+    }
+
+    /**
+     * Assigns the points of one chunk and adds them to the sums.
+     *
+     * @param chunk    is the chunk.
+     * @param runner   is the runner for the pieces of the chunk.
+     * @param centersX is the xCoord of each center.
+     * @param centersY is the yCoord of each center.
+     * @return the sum of squared distances of the chunk.
+     */
+    private double assign(Chunk chunk, ChunkRunner runner, double[] centersX,
+                          double[] centersY) {
+      int count = chunk.count;
+      int pieces = ChunkRunner.chunkCount(count);
+      Arrays.fill(partialSumsX, 0, pieces * k, 0);
+      Arrays.fill(partialSumsY, 0, pieces * k, 0);
+      Arrays.fill(partialCounts, 0, pieces * k, 0);
+      Arrays.fill(partialErrors, 0, pieces, 0);
+      NearestCenters.forEachBlock(count, chunk::load, centersX, centersY, k, runner,
+          (piece, block, nearest, distances) -> {
+            int base = piece * k;
+            double distanceCounter = partialErrors[piece];
+            for (int i = 0; i < block.length; i++) {
+              double x = block.xs[block.offset + i];
+              double y = block.ys[block.offset + i];
+              int c = base + nearest[i];
+              labels[block.start + i] = nearest[i];
+              partialSumsX[c] = x + partialSumsX[c];
+              partialSumsY[c] = y + partialSumsY[c];
+              partialCounts[c]++;
+              distanceCounter = distances[i] + distanceCounter;
+            }
+            partialErrors[piece] = distanceCounter;
+          });
+
+      double error = 0;
+      for (int piece = 0; piece < pieces; piece++) {
+        int base = piece * k;
+        for (int c = 0; c < k; c++) {
+          sumsX[c] = partialSumsX[base + c] + sumsX[c];
+          sumsY[c] = partialSumsY[base + c] + sumsY[c];
+          counts[c] += partialCounts[base + c];
+        }
+        error = partialErrors[piece] + error;
+      }
+      return error;
+    }
+  }
+}
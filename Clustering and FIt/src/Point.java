@@ -43,8 +43,8 @@ public class Point {
     double dx;
     double dy;
 
-    dx = Math.pow((this.xCoor - p.getxCoor()), 2);
-    dy = Math.pow((this.yCoor - p.getyCoor()), 2);
+    dx = (this.xCoor - p.getxCoor()) * (this.xCoor - p.getxCoor());
+    dy = (this.yCoor - p.getyCoor()) * (this.yCoor - p.getyCoor());
 
     distance = Math.sqrt((dx + dy));
 
@@ -0,0 +1,33 @@
+/**
+ * This class is a window over a run of consecutive points from a PointColumns, seen as two
+ * double arrays. Point {@code start + i} is at {@code xs[offset + i]} and
+ * {@code ys[offset + i]} for {@code 0 <= i < length}. Heap columns hand out their own arrays,
+ * so loading a block does not copy anything. Columns that are not double arrays copy the
+ * points into arrays owned by the block instead, which are kept for the next load.
+ */
+final class PointBlock {
+  double[] xs;
+  double[] ys;
+  int offset;
+  int start;
+  int length;
+  private double[] ownXs;
+  private double[] ownYs;
+
+  /**
+   * Points xs and ys at the arrays owned by this block, made big enough for count points,
+   * and sets offset to 0.
+   *
+   * @param count is the number of points the arrays must hold.
+   */
+  void ensureOwnCapacity(int count) {
+    if (ownXs == null || ownXs.length < count) {
+      int capacity = Math.max(count, PointColumns.BLOCK_SIZE);
+      ownXs = new double[capacity];
+      ownYs = new double[capacity];
+    }
+    xs = ownXs;
+    ys = ownYs;
+    offset = 0;
+  }
+}
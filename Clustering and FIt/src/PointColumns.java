@@ -0,0 +1,63 @@
+/**
+ * This class is the storage behind a ListOfPoints. Points are kept as columns of
+ * coordinates instead of one object per point, and the algorithms read them either one
+ * point at a time or a block at a time.
+ */
+abstract class PointColumns {
+
+  /**
+   * The number of points algorithms read from the columns at once.
+   */
+  static final int BLOCK_SIZE = 4096;
+
+  /**
+   * Gets the number of points in these columns.
+   *
+   * @return the number of points stored.
+   */
+  abstract int size();
+
+  /**
+   * Gets the x value of a point.
+   *
+   * @param index is the position of the point.
+   * @return the x value of the point at index.
+   */
+  abstract double getX(int index);
+
+  /**
+   * Gets the y value of a point.
+   *
+   * @param index is the position of the point.
+   * @return the y value of the point at index.
+   */
+  abstract double getY(int index);
+
+  /**
+   * Appends a point to the end of the columns.
+   *
+   * @param x is the x value of the point.
+   * @param y is the y value of the point.
+   */
+  abstract void add(double x, double y);
+
+  /**
+   * Appends count points taken from the given arrays starting at from.
+   *
+   * @param xs    is the array of x values.
+   * @param ys    is the array of y values.
+   * @param from  is the first position to copy from.
+   * @param count is the number of points to copy.
+   */
+  abstract void addAll(double[] xs, double[] ys, int from, int count);
+
+  /**
+   * Points block at the points [from, from + count).
+   *
+   * @param from  is the first point of the block.
+   * @param count is the number of points in the block.
+   * @param block is the block to fill in, it is reused between calls.
+   * @return the block that was passed in.
+   */
+  abstract PointBlock load(int from, int count, PointBlock block);
+}
@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class writes and opens binary point files, so a data set only has to be parsed from
+ * text once. A point file is a 24 byte header followed by every xCoord and then every yCoord,
+ * as little-endian doubles. The header is the 8 ASCII bytes "LOPOINTS", the format version
+ * and a reserved int, and the number of points as a long, all little-endian.
+ *
+ * <p>Opening a point file maps it into memory instead of reading it, so it takes about as
+ * long for ten gigabytes as for ten points. fitLine and kmeans read the points straight from
+ * the mapping a block at a time.
+ */
+public final class PointDataFile {
+
+  private static final long MAGIC = 0x53544e494f504f4cL;
+  private static final int VERSION = 1;
+  static final int HEADER_BYTES = 24;
+  private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+  private PointDataFile() {
+  }
+
+  /**
+   * Writes the points of a ListOfPoints to a point file, replacing the file if it exists.
+   *
+   * @param lop  is the points to write.
+   * @param path is the path of the file to write.
+   * @throws IOException if the file cannot be written.
+   */
+  public static void write(ListOfPoints lop, String path) throws IOException {
+    write(lop, Paths.get(path));
+  }
+
+  /**
+   * Writes the points of a ListOfPoints to a point file, replacing the file if it exists.
+   *
+   * @param lop  is the points to write.
+   * @param path is the path of the file to write.
+   * @throws IOException if the file cannot be written.
+   */
+  public static void write(ListOfPoints lop, Path path) throws IOException {
+    PointColumns columns = lop.getColumns();
+    int n = columns.size();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE)
+          .order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putLong(MAGIC);
+      buffer.putInt(VERSION);
+      buffer.putInt(0);
+      buffer.putLong(n);
+      writeColumn(channel, buffer, columns, true);
+      writeColumn(channel, buffer, columns, false);
+      buffer.flip();
+      writeFully(channel, buffer);
+    }
+  }
+
+  /**
+   * Opens a point file as a ListOfPoints whose points are read from the mapped file. The
+   * list is read-only, so addPoint and addPoints throw UnsupportedOperationException. The
+   * mapping lasts until the list is garbage collected.
+   *
+   * @param path is the path of the file to open.
+   * @return the points of the file.
+   * @throws IOException if the file cannot be read or is not a point file.
+   */
+  public static ListOfPoints open(String path) throws IOException {
+    return open(Paths.get(path));
+  }
+
+  /**
+   * Opens a point file as a ListOfPoints whose points are read from the mapped file. The
+   * list is read-only, so addPoint and addPoints throw UnsupportedOperationException. The
+   * mapping lasts until the list is garbage collected.
+   *
+   * @param path is the path of the file to open.
+   * @return the points of the file.
+   * @throws IOException if the file cannot be read or is not a point file.
+   */
+  public static ListOfPoints open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long n = readCount(channel, path);
+      if (n > Integer.MAX_VALUE) {
+        throw new IOException("Too many points to open as a list " + n + ": " + path);
+      }
+      return new ListOfPoints(new MappedColumns(channel, HEADER_BYTES,
+          HEADER_BYTES + n * Double.BYTES, (int) n));
+    }
+  }
+
+  /**
+   * Checks if a file starts like a point file.
+   *
+   * @param path is the path of the file.
+   * @return true if the file starts with the point file magic bytes.
+   * @throws IOException if the file cannot be read.
+   */
+  static boolean isPointFile(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer magic = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      while (magic.hasRemaining()) {
+        if (channel.read(magic) < 0) {
+          return false;
+        }
+      }
+      magic.flip();
+      return magic.getLong() == MAGIC;
+    }
+  }
+
+  /**
+   * Reads and checks the header of a point file.
+   *
+   * @param channel is the file, open for reading at its start.
+   * @param path    is the path of the file, for messages.
+   * @return the number of points in the file.
+   * @throws IOException if the file cannot be read or is not a point file.
+   */
+  static long readCount(FileChannel channel, Path path) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    while (header.hasRemaining()) {
+      if (channel.read(header) < 0) {
+        throw new IOException("Not a point file: " + path);
+      }
+    }
+    header.flip();
+    if (header.getLong() != MAGIC) {
+      throw new IOException("Not a point file: " + path);
+    }
+    int version = header.getInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported point file version " + version + ": " + path);
+    }
+    header.getInt();
+    long n = header.getLong();
+    if (n < 0 || n > (Long.MAX_VALUE - HEADER_BYTES) / (2 * Double.BYTES)) {
+      throw new IOException("Bad point count " + n + ": " + path);
+    }
+    long columnBytes = n * Double.BYTES;
+    if (channel.size() != HEADER_BYTES + 2 * columnBytes) {
+      throw new IOException("Point file is " + channel.size() + " bytes, expected "
+          + (HEADER_BYTES + 2 * columnBytes) + ": " + path);
+    }
+    return n;
+  }
+
+  /**
+   * Writes one column of points through the buffer, a block at a time.
+   *
+   * @param channel is the file to write.
+   * @param buffer  is the write buffer, which may already hold bytes.
+   * @param columns is the points to write.
+   * @param x       is true to write the xCoords, false for the yCoords.
+   * @throws IOException if the file cannot be written.
+   */
+  private static void writeColumn(FileChannel channel, ByteBuffer buffer, PointColumns columns,
+                                  boolean x) throws IOException {
+    int n = columns.size();
+    PointBlock block = new PointBlock();
+    for (int from = 0; from < n; from += PointColumns.BLOCK_SIZE) {
+      columns.load(from, Math.min(PointColumns.BLOCK_SIZE, n - from), block);
+      double[] values = x ? block.xs : block.ys;
+      for (int i = 0; i < block.length; i++) {
+        if (buffer.remaining() < Double.BYTES) {
+          buffer.flip();
+          writeFully(channel, buffer);
+          buffer.clear();
+        }
+        buffer.putDouble(values[block.offset + i]);
+      }
+    }
+  }
+
+  /**
+   * Writes everything left in the buffer to the file.
+   *
+   * @param channel is the file to write.
+   * @param buffer  is the bytes to write, ready to be read.
+   * @throws IOException if the file cannot be written.
+   */
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
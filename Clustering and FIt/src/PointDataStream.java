@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class reads a binary point file from the start, a batch at a time, without mapping it.
+ * Each batch is two positioned reads, one from the xCoord column and one from the yCoord
+ * column, so the file may hold more points than fit in memory or in an int.
+ */
+final class PointDataStream implements PointSource {
+  private final FileChannel channel;
+  private final Path path;
+  private final long count;
+  private long position;
+  private ByteBuffer buffer;
+
+  /**
+   * Constructor for a stream of the given point file.
+   *
+   * @param path is the path of the point file.
+   * @throws IOException if the file cannot be read or is not a point file.
+   */
+  PointDataStream(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      this.count = PointDataFile.readCount(channel, path);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    this.path = path;
+    this.position = 0;
+    this.buffer = ByteBuffer.allocateDirect(0);
+  }
+
+  /**
+   * Gets the number of points in the file.
+   *
+   * @return the number of points.
+   */
+  long getCount() {
+    return this.count;
+  }
+
+  @Override
+  public int read(double[] xs, double[] ys) throws IOException {
+    int max = Math.min(xs.length, ys.length);
+    if (position == count && max > 0) {
+      return -1;
+    }
+    int batch = (int) Math.min(max, count - position);
+    if (buffer.capacity() < batch * Double.BYTES) {
+      buffer = ByteBuffer.allocateDirect(batch * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    readColumn(PointDataFile.HEADER_BYTES, xs, batch);
+    readColumn(PointDataFile.HEADER_BYTES + count * Double.BYTES, ys, batch);
+    position += batch;
+    return batch;
+  }
+
+  /**
+   * Reads the next batch of one column.
+   *
+   * @param start  is the position in bytes of the first value of the column.
+   * @param values is filled with the values.
+   * @param batch  is the number of values to read.
+   * @throws IOException if the file cannot be read.
+   */
+  private void readColumn(long start, double[] values, int batch) throws IOException {
+    buffer.clear();
+    buffer.limit(batch * Double.BYTES);
+    long at = start + position * Double.BYTES;
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, at + buffer.position());
+      if (read < 0) {
+        throw new IOException("Point file ended early: " + path);
+      }
+    }
+    buffer.flip();
+    DoubleBuffer doubles = buffer.asDoubleBuffer();
+    doubles.get(values, 0, batch);
+  }
+
+  /**
+   * Closes the file.
+   *
+   * @throws IOException if the file cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
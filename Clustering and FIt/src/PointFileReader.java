@@ -0,0 +1,331 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class reads pairs of numbers from a text file of points, like the files read with a
+ * Scanner in LineFitTest. Values may be separated by any mix of spaces, tabs, line breaks,
+ * commas and semicolons, and every two values make a point.
+ *
+ * <p>The file is read through a FileChannel into a direct buffer and the numbers are parsed
+ * straight from the bytes, without making a String for each value. Numbers with up to 15
+ * significant digits and a small decimal exponent, which is nearly every number written by
+ * hand or by a program, are converted exactly with a single multiply or divide. Anything
+ * else is handed to Double.parseDouble, so every value comes out the same as it would from
+ * Scanner.
+ */
+public class PointFileReader implements PointSource {
+
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  /**
+   * The longest a single value may be, in bytes.
+   */
+  private static final int MAX_TOKEN = 1024;
+
+  /**
+   * The number of points readInto reads at a time.
+   */
+  private static final int BATCH = 8192;
+
+  /**
+   * Powers of ten that are exact as doubles.
+   */
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private boolean endOfFile;
+  private long bufferStart;
+
+  /**
+   * Constructor for a reader of the given file.
+   *
+   * @param path is the path of the file to read.
+   * @throws IOException if the file cannot be opened.
+   */
+  public PointFileReader(String path) throws IOException {
+    this(Paths.get(path));
+  }
+
+  /**
+   * Constructor for a reader of the given file.
+   *
+   * @param path is the path of the file to read.
+   * @throws IOException if the file cannot be opened.
+   */
+  public PointFileReader(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    this.buffer.flip();
+    this.endOfFile = false;
+    this.bufferStart = 0;
+  }
+
+  /**
+   * Reads all of the points in a file into a new ListOfPoints.
+   *
+   * @param path is the path of the file to read.
+   * @return a ListOfPoints with the points of the file in order.
+   * @throws IOException if the file cannot be read or is not a list of pairs of numbers.
+   */
+  public static ListOfPoints readPoints(String path) throws IOException {
+    ListOfPoints lop = new ListOfPoints();
+    readInto(path, lop);
+    return lop;
+  }
+
+  /**
+   * Reads all of the points in a file onto the end of a ListOfPoints.
+   *
+   * @param path is the path of the file to read.
+   * @param lop  is the list to add the points to.
+   * @throws IOException if the file cannot be read or is not a list of pairs of numbers.
+   */
+  public static void readInto(String path, ListOfPoints lop) throws IOException {
+    try (PointFileReader reader = new PointFileReader(path)) {
+      double[] xs = new double[BATCH];
+      double[] ys = new double[BATCH];
+      int count;
+      while ((count = reader.read(xs, ys)) > 0) {
+        lop.addPoints(xs, ys, count);
+      }
+    }
+  }
+
+  /**
+   * Reads the next points of the file into two arrays, as many as fit or as many as are
+   * left.
+   *
+   * @param xs is filled with the xCoords of the points read.
+   * @param ys is filled with the yCoords of the points read.
+   * @return the number of points read, or -1 if the end of the file was reached before any.
+   * @throws IOException if the file cannot be read, has something other than numbers in it,
+   *                     or ends after half a point.
+   */
+  @Override
+  public int read(double[] xs, double[] ys) throws IOException {
+    int max = Math.min(xs.length, ys.length);
+    int count = 0;
+    while (count < max && skipSeparators()) {
+      double x = nextNumber();
+      if (!skipSeparators()) {
+        throw new IOException("File ends with an xCoord that has no yCoord");
+      }
+      double y = nextNumber();
+      xs[count] = x;
+      ys[count] = y;
+      count++;
+    }
+    if (count == 0 && max > 0) {
+      return -1;
+    }
+    return count;
+  }
+
+  /**
+   * Closes the file.
+   *
+   * @throws IOException if the file cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Moves past any separators.
+   *
+   * @return true if there is a value to read, false at the end of the file.
+   * @throws IOException if the file cannot be read.
+   */
+  private boolean skipSeparators() throws IOException {
+    while (true) {
+      int position = buffer.position();
+      int limit = buffer.limit();
+      while (position < limit && isSeparator(buffer.get(position))) {
+        position++;
+      }
+      buffer.position(position);
+      if (position < limit) {
+        return true;
+      }
+      if (!fill()) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Parses the value at the current position and moves past it.
+   *
+   * @return the value.
+   * @throws IOException if the value is not a number.
+   */
+  private double nextNumber() throws IOException {
+    if (buffer.remaining() < MAX_TOKEN && !endOfFile) {
+      fill();
+    }
+    int start = buffer.position();
+    int limit = buffer.limit();
+    int position = start;
+
+    boolean negative = false;
+    byte b = buffer.get(position);
+    if (b == '-' || b == '+') {
+      negative = b == '-';
+      position++;
+    }
+
+    // Up to 18 significant digits fit in a long. Past 15 the value is not exact in a double,
+    // so it takes the slow path anyway.
+    long mantissa = 0;
+    int digits = 0;
+    int exponent = 0;
+    boolean anyDigits = false;
+    while (position < limit && (b = buffer.get(position)) >= '0' && b <= '9') {
+      anyDigits = true;
+      if (digits < 18) {
+        mantissa = mantissa * 10 + (b - '0');
+        if (mantissa != 0) {
+          digits++;
+        }
+      } else {
+        digits++;
+        exponent++;
+      }
+      position++;
+    }
+    if (position < limit && buffer.get(position) == '.') {
+      position++;
+      while (position < limit && (b = buffer.get(position)) >= '0' && b <= '9') {
+        anyDigits = true;
+        if (digits < 18) {
+          mantissa = mantissa * 10 + (b - '0');
+          exponent--;
+          if (mantissa != 0) {
+            digits++;
+          }
+        } else {
+          digits++;
+        }
+        position++;
+      }
+    }
+    if (anyDigits && position < limit && ((b = buffer.get(position)) == 'e' || b == 'E')) {
+      position++;
+      boolean negativeExponent = false;
+      if (position < limit && ((b = buffer.get(position)) == '-' || b == '+')) {
+        negativeExponent = b == '-';
+        position++;
+      }
+      int power = 0;
+      boolean anyPowerDigits = false;
+      while (position < limit && (b = buffer.get(position)) >= '0' && b <= '9') {
+        anyPowerDigits = true;
+        if (power < 100000) {
+          power = power * 10 + (b - '0');
+        }
+        position++;
+      }
+      if (!anyPowerDigits) {
+        return slowNumber(start);
+      }
+      exponent += negativeExponent ? -power : power;
+    }
+
+    boolean atEnd = position == limit || isSeparator(buffer.get(position));
+    if (!anyDigits || !atEnd) {
+      return slowNumber(start);
+    }
+
+    double value;
+    if (mantissa == 0) {
+      value = 0;
+    } else if (digits <= 15 && exponent >= 0 && exponent <= 22) {
+      value = mantissa * POWERS_OF_TEN[exponent];
+    } else if (digits <= 15 && exponent < 0 && exponent >= -22) {
+      value = mantissa / POWERS_OF_TEN[-exponent];
+    } else {
+      return slowNumber(start);
+    }
+    buffer.position(position);
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parses the value starting at start with Double.parseDouble, for the values the fast
+   * path cannot do exactly, and moves past it.
+   *
+   * @param start is the position of the first byte of the value.
+   * @return the value.
+   * @throws IOException if the value is not a number.
+   */
+  private double slowNumber(int start) throws IOException {
+    int limit = buffer.limit();
+    int end = start;
+    while (end < limit && !isSeparator(buffer.get(end))) {
+      end++;
+    }
+    if (end == limit && !endOfFile) {
+      throw new IOException("Value longer than " + MAX_TOKEN + " bytes at byte "
+          + (bufferStart + start));
+    }
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    String token = new String(bytes, StandardCharsets.US_ASCII);
+    try {
+      double value = Double.parseDouble(token);
+      buffer.position(end);
+      return value;
+    } catch (NumberFormatException e) {
+      throw new IOException("Not a number at byte " + (bufferStart + start) + ": " + token);
+    }
+  }
+
+  /**
+   * Moves the bytes not read yet to the front of the buffer and reads more of the file after
+   * them.
+   *
+   * @return true if any bytes were read.
+   * @throws IOException if the file cannot be read.
+   */
+  private boolean fill() throws IOException {
+    if (endOfFile) {
+      return false;
+    }
+    bufferStart += buffer.position();
+    buffer.compact();
+    int total = 0;
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer);
+      if (read < 0) {
+        endOfFile = true;
+        break;
+      }
+      total += read;
+    }
+    buffer.flip();
+    return total > 0;
+  }
+
+  /**
+   * Checks if a byte separates two values.
+   *
+   * @param b is the byte.
+   * @return true for spaces, tabs, line breaks, commas and semicolons.
+   */
+  private static boolean isSeparator(byte b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == ',' || b == ';'
+        || b == '\f';
+  }
+}
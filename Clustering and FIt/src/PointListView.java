@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * This class is the list of points handed out by ListOfPoints.getPointArrayList. It is an
+ * ArrayList, as the method has always returned, but it can only be read: every method that
+ * would change it throws UnsupportedOperationException. Only ListOfPoints appends to it, to
+ * bring it up to date with its columns.
+ */
+final class PointListView extends ArrayList<Point> {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Constructor for an empty view.
+   *
+   * @param capacity is the number of points to make room for.
+   */
+  PointListView(int capacity) {
+    super(capacity);
+  }
+
+  /**
+   * Appends the points of the columns that are not in the view yet.
+   *
+   * @param columns is the columns the view is built from.
+   */
+  void update(PointColumns columns) {
+    int n = columns.size();
+    ensureCapacity(n);
+    for (int i = size(); i < n; i++) {
+      super.add(new Point(columns.getX(i), columns.getY(i)));
+    }
+  }
+
+  /**
+   * Gets the exception thrown by every method that would change the view.
+   *
+   * @return the exception.
+   */
+  private static UnsupportedOperationException readOnly() {
+    return new UnsupportedOperationException(
+        "The list of points is read only, add points to the ListOfPoints");
+  }
+
+  @Override
+  public boolean add(Point point) {
+    throw readOnly();
+  }
+
+  @Override
+  public void add(int index, Point point) {
+    throw readOnly();
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends Point> points) {
+    throw readOnly();
+  }
+
+  @Override
+  public boolean addAll(int index, Collection<? extends Point> points) {
+    throw readOnly();
+  }
+
+  @Override
+  public Point set(int index, Point point) {
+    throw readOnly();
+  }
+
+  @Override
+  public Point remove(int index) {
+    throw readOnly();
+  }
+
+  @Override
+  public boolean remove(Object point) {
+    throw readOnly();
+  }
+
+  @Override
+  public boolean removeAll(Collection<?> points) {
+    throw readOnly();
+  }
+
+  @Override
+  public boolean retainAll(Collection<?> points) {
+    throw readOnly();
+  }
+
+  @Override
+  public boolean removeIf(Predicate<? super Point> filter) {
+    throw readOnly();
+  }
+
+  @Override
+  protected void removeRange(int fromIndex, int toIndex) {
+    throw readOnly();
+  }
+
+  @Override
+  public void replaceAll(UnaryOperator<Point> operator) {
+    throw readOnly();
+  }
+
+  @Override
+  public void sort(Comparator<? super Point> comparator) {
+    throw readOnly();
+  }
+
+  @Override
+  public void clear() {
+    throw readOnly();
+  }
+
+  @Override
+  public List<Point> subList(int fromIndex, int toIndex) {
+    return Collections.unmodifiableList(super.subList(fromIndex, toIndex));
+  }
+}
@@ -0,0 +1,19 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * This interface is a stream of points read a batch at a time, such as a text point file or
+ * a binary point file read from the start without mapping it.
+ */
+interface PointSource extends Closeable {
+
+  /**
+   * Reads the next points into two arrays, as many as fit or as many as are left.
+   *
+   * @param xs is filled with the xCoords of the points read.
+   * @param ys is filled with the yCoords of the points read.
+   * @return the number of points read, or -1 if there were none left.
+   * @throws IOException if the points cannot be read.
+   */
+  int read(double[] xs, double[] ys) throws IOException;
+}
@@ -0,0 +1,569 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+
+/**
+ * This is a class that plots points and lines into an image. The pixels are written straight
+ * into the int array behind an ARGB BufferedImage, and whole columns of points are drawn in
+ * one call, colored by one color or by a cluster label each. The image is split into
+ * horizontal bands drawn on threads of their own, and every band draws the points in list
+ * order. For millions of points, count them into a DensityGrid and draw that with
+ * addDensity instead.
+ */
+public class RasterPlotter {
+
+  /**
+   * The ways the counts of a DensityGrid can be turned into how strongly a pixel is colored.
+   */
+  public enum ToneMap {
+    /**
+     * In proportion to the count. A few crowded cells hide everything else.
+     */
+    LINEAR,
+    /**
+     * In proportion to the log of one more than the count, so sparse cells still show.
+     */
+    LOG,
+    /**
+     * By the share of non-empty cells with the same count or less, which spreads the cells
+     * evenly over the whole range of shades.
+     */
+    EQUALIZED
+  }
+
+  private static final Color[] DEFAULT_PALETTE = {
+      new Color(0x1F77B4), new Color(0xFF7F0E), new Color(0x2CA02C), new Color(0xD62728),
+      new Color(0x9467BD), new Color(0x8C564B), new Color(0xE377C2), new Color(0x7F7F7F),
+      new Color(0xBCBD22), new Color(0x17BECF)};
+
+  private final int width;
+  private final int height;
+  private final BufferedImage image;
+  private final int[] pixels;
+  private double xMin;
+  private double xMax;
+  private double yMin;
+  private double yMax;
+  private int pointSize;
+  private int[] palette;
+  private int noiseColor;
+  private int parallelism;
+
+  /**
+   * Constructor for a new white image. The plotted area starts out as 0 to width by 0 to
+   * height.
+   *
+   * @param width  is the width of the image in pixels.
+   * @param height is the height of the image in pixels.
+   * @throws IllegalArgumentException if width or height is less than 1.
+   */
+  public RasterPlotter(int width, int height) throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("width and height must be non-zero, positive ints");
+    }
+    this.width = width;
+    this.height = height;
+    this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    this.xMin = 0;
+    this.xMax = width;
+    this.yMin = 0;
+    this.yMax = height;
+    this.pointSize = 3;
+    setPalette(DEFAULT_PALETTE);
+    this.noiseColor = Color.LIGHT_GRAY.getRGB();
+    this.parallelism = 1;
+    clear(Color.WHITE);
+  }
+
+  /**
+   * Sets the area of the plane shown in the image. Points outside it are not drawn.
+   *
+   * @param xMin is the x value at the left edge.
+   * @param xMax is the x value at the right edge.
+   * @param yMin is the y value at the bottom edge.
+   * @param yMax is the y value at the top edge.
+   * @throws IllegalArgumentException if the area is empty or not finite.
+   */
+  public void setDimensions(double xMin, double xMax, double yMin, double yMax)
+      throws IllegalArgumentException {
+    if (!(xMin < xMax && yMin < yMax) || Double.isInfinite(xMax - xMin)
+        || Double.isInfinite(yMax - yMin)) {
+      throw new IllegalArgumentException("Dimensions must be a finite, non-empty area");
+    }
+    this.xMin = xMin;
+    this.xMax = xMax;
+    this.yMin = yMin;
+    this.yMax = yMax;
+  }
+
+  /**
+   * Sets the size of the square drawn for each point.
+   *
+   * @param pointSize is the width of the square in pixels.
+   * @throws IllegalArgumentException if pointSize is less than 1.
+   */
+  public void setPointSize(int pointSize) throws IllegalArgumentException {
+    if (pointSize <= 0) {
+      throw new IllegalArgumentException("pointSize must be non-zero, positive int");
+    }
+    this.pointSize = pointSize;
+  }
+
+  /**
+   * Sets the colors of the clusters. Cluster c gets color c, going round again when there
+   * are more clusters than colors.
+   *
+   * @param colors is the colors of the clusters.
+   * @throws IllegalArgumentException if there are no colors.
+   */
+  public void setPalette(Color... colors) throws IllegalArgumentException {
+    if (colors.length == 0) {
+      throw new IllegalArgumentException("Palette must have at least one color");
+    }
+    int[] argb = new int[colors.length];
+    for (int i = 0; i < colors.length; i++) {
+      argb[i] = colors[i].getRGB();
+    }
+    this.palette = argb;
+  }
+
+  /**
+   * Sets the color of points with a negative label, such as the noise of dbscan.
+   *
+   * @param color is the color of those points.
+   */
+  public void setNoiseColor(Color color) {
+    this.noiseColor = color.getRGB();
+  }
+
+  /**
+   * Sets the number of threads that draw points.
+   *
+   * @param parallelism is the number of threads, or 0 for one per processor.
+   * @throws IllegalArgumentException if parallelism is negative.
+   */
+  public void setParallelism(int parallelism) throws IllegalArgumentException {
+    if (parallelism < 0) {
+      throw new IllegalArgumentException("parallelism must be 0 or a positive int");
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Fills the whole image with one color.
+   *
+   * @param background is the color to fill with.
+   */
+  public void clear(Color background) {
+    Arrays.fill(pixels, background.getRGB());
+  }
+
+  /**
+   * Draws every point of a list in one color.
+   *
+   * @param points is the points to draw.
+   * @param color  is the color of the points.
+   */
+  public void addPoints(ListOfPoints points, Color color) {
+    render(points.getColumns(), null, null, color.getRGB());
+  }
+
+  /**
+   * Draws every point of a list in the color of its cluster.
+   *
+   * @param points is the points to draw.
+   * @param labels is the cluster of each point, as from KMeansResult.getLabels or dbscan.
+   * @throws IllegalArgumentException if there is not one label per point.
+   */
+  public void addPoints(ListOfPoints points, int[] labels) throws IllegalArgumentException {
+    checkLabels(points.size(), labels);
+    render(points.getColumns(), null, labels, 0);
+  }
+
+  /**
+   * Draws points given as columns in one color.
+   *
+   * @param xs    is the x values of the points.
+   * @param ys    is the y values of the points.
+   * @param color is the color of the points.
+   * @throws IllegalArgumentException if the arrays are not the same length.
+   */
+  public void addPoints(double[] xs, double[] ys, Color color) throws IllegalArgumentException {
+    render(null, wrap(xs, ys), null, color.getRGB());
+  }
+
+  /**
+   * Draws points given as columns in the color of their clusters.
+   *
+   * @param xs     is the x values of the points.
+   * @param ys     is the y values of the points.
+   * @param labels is the cluster of each point.
+   * @throws IllegalArgumentException if the arrays are not all the same length.
+   */
+  public void addPoints(double[] xs, double[] ys, int[] labels)
+      throws IllegalArgumentException {
+    PointBlock block = wrap(xs, ys);
+    checkLabels(xs.length, labels);
+    render(null, block, labels, 0);
+  }
+
+  /**
+   * Draws a line between two points of the plane, one pixel wide.
+   *
+   * @param x1    is the x value of the first end.
+   * @param y1    is the y value of the first end.
+   * @param x2    is the x value of the second end.
+   * @param y2    is the y value of the second end.
+   * @param color is the color of the line.
+   */
+  public void addLine(double x1, double y1, double x2, double y2, Color color) {
+    double scaleX = width / (xMax - xMin);
+    double scaleY = height / (yMax - yMin);
+    double col1 = (x1 - xMin) * scaleX;
+    double row1 = (yMax - y1) * scaleY;
+    double col2 = (x2 - xMin) * scaleX;
+    double row2 = (yMax - y2) * scaleY;
+
+    // Clip the line to the image first, so a line far off the image costs nothing.
+    double enter = 0;
+    double leave = 1;
+    double[] p = {col1 - col2, col2 - col1, row1 - row2, row2 - row1};
+    double[] q = {col1, width - col1, row1, height - row1};
+    for (int i = 0; i < 4; i++) {
+      if (p[i] == 0) {
+        if (q[i] < 0) {
+          return;
+        }
+      } else {
+        double t = q[i] / p[i];
+        if (p[i] < 0) {
+          enter = Math.max(enter, t);
+        } else {
+          leave = Math.min(leave, t);
+        }
+      }
+    }
+    if (!(enter <= leave)) {
+      return;
+    }
+
+    // Walk the pixels between the clipped ends with Bresenham's steps.
+    int col = pixel(col1 + enter * (col2 - col1), width);
+    int row = pixel(row1 + enter * (row2 - row1), height);
+    int toCol = pixel(col1 + leave * (col2 - col1), width);
+    int toRow = pixel(row1 + leave * (row2 - row1), height);
+    int dc = Math.abs(toCol - col);
+    int dr = -Math.abs(toRow - row);
+    int stepCol = col < toCol ? 1 : -1;
+    int stepRow = row < toRow ? 1 : -1;
+    int argb = color.getRGB();
+    int err = dc + dr;
+    while (true) {
+      pixels[row * width + col] = argb;
+      if (col == toCol && row == toRow) {
+        return;
+      }
+      int twice = 2 * err;
+      if (twice >= dr) {
+        err += dr;
+        col += stepCol;
+      }
+      if (twice <= dc) {
+        err += dc;
+        row += stepRow;
+      }
+    }
+  }
+
+  /**
+   * Draws a line across the whole width of the image.
+   *
+   * @param line  is the line to draw, such as the one from fitLine.
+   * @param color is the color of the line.
+   */
+  public void addLine(Line line, Color color) {
+    addLine(xMin, line.getSlope() * xMin + line.getIntercept(),
+        xMax, line.getSlope() * xMax + line.getIntercept(), color);
+  }
+
+  /**
+   * Draws the counts of a grid made for this image. Every non-empty cell colors its pixel,
+   * more strongly the more points it holds, by the tone map. The color is the mix of the
+   * colors of the clusters in the cell, weighted by their counts; points counted without
+   * labels take the given color.
+   *
+   * @param grid    is the grid of counts, with one cell per pixel.
+   * @param toneMap is the way counts become shades.
+   * @param color   is the color of points counted without labels.
+   * @throws IllegalArgumentException if the grid is not the size of the image.
+   */
+  public void addDensity(DensityGrid grid, ToneMap toneMap, Color color)
+      throws IllegalArgumentException {
+    if (grid.getWidth() != width || grid.getHeight() != height) {
+      throw new IllegalArgumentException("Grid must be the size of the image");
+    }
+    int[] totals = grid.getTotals();
+    int clusters = grid.getClusters();
+    int[][] counts = new int[clusters + 1][];
+    int[] colors = new int[clusters + 1];
+    counts[0] = grid.getClusterCounts(-1);
+    colors[0] = noiseColor;
+    for (int c = 0; c < clusters; c++) {
+      counts[c + 1] = grid.getClusterCounts(c);
+      colors[c + 1] = palette[c % palette.length];
+    }
+    double[] shades = shades(totals, toneMap);
+    int plain = color.getRGB();
+    for (int p = 0; p < totals.length; p++) {
+      int total = totals[p];
+      if (total == 0) {
+        continue;
+      }
+      // Mix the colors of the cell, then lay the mix over the pixel by the shade.
+      double red = 0;
+      double green = 0;
+      double blue = 0;
+      int labelled = 0;
+      for (int c = 0; c < counts.length; c++) {
+        int count = counts[c] == null ? 0 : counts[c][p];
+        if (count > 0) {
+          red += count * ((colors[c] >> 16) & 0xFF);
+          green += count * ((colors[c] >> 8) & 0xFF);
+          blue += count * (colors[c] & 0xFF);
+          labelled += count;
+        }
+      }
+      int unlabelled = total - labelled;
+      red += unlabelled * ((plain >> 16) & 0xFF);
+      green += unlabelled * ((plain >> 8) & 0xFF);
+      blue += unlabelled * (plain & 0xFF);
+      double shade = shades[p];
+      int under = pixels[p];
+      pixels[p] = 0xFF000000
+          | blend((under >> 16) & 0xFF, red / total, shade) << 16
+          | blend((under >> 8) & 0xFF, green / total, shade) << 8
+          | blend(under & 0xFF, blue / total, shade);
+    }
+  }
+
+  /**
+   * Gets the image. It shares its pixels with this plotter, so later drawing shows up in it.
+   *
+   * @return the image.
+   */
+  public BufferedImage getImage() {
+    return this.image;
+  }
+
+  /**
+   * Writes the image to a PNG file.
+   *
+   * @param fileName is the name of the file.
+   * @throws IOException if the file cannot be written.
+   */
+  public void write(String fileName) throws IOException {
+    if (!ImageIO.write(image, "png", new File(fileName))) {
+      throw new IOException("No PNG writer for " + fileName);
+    }
+  }
+
+  /**
+   * Gets the shade of every cell, from 0 for an empty cell to 1 for the most crowded one.
+   *
+   * @param totals  is the count of every cell.
+   * @param toneMap is the way counts become shades.
+   * @return the shade of each cell.
+   */
+  private static double[] shades(int[] totals, ToneMap toneMap) {
+    double[] shades = new double[totals.length];
+    int max = 0;
+    for (int total : totals) {
+      max = Math.max(max, total);
+    }
+    if (max == 0) {
+      return shades;
+    }
+    if (toneMap == ToneMap.EQUALIZED) {
+      // The shade of a count is the share of non-empty cells that hold no more than it.
+      int[] sorted = totals.clone();
+      Arrays.sort(sorted);
+      int empty = upperBound(sorted, 0);
+      double nonEmpty = sorted.length - empty;
+      for (int p = 0; p < totals.length; p++) {
+        if (totals[p] > 0) {
+          shades[p] = (upperBound(sorted, totals[p]) - empty) / nonEmpty;
+        }
+      }
+      return shades;
+    }
+    double logMax = Math.log1p(max);
+    for (int p = 0; p < totals.length; p++) {
+      shades[p] = toneMap == ToneMap.LOG
+          ? Math.log1p(totals[p]) / logMax
+          : (double) totals[p] / max;
+    }
+    return shades;
+  }
+
+  /**
+   * Gets the number of values in a sorted array that are no more than a value.
+   *
+   * @param sorted is the sorted array.
+   * @param value  is the value.
+   * @return the position after the last value no more than value.
+   */
+  private static int upperBound(int[] sorted, int value) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sorted[middle] <= value) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Lays one channel of a color over the channel under it.
+   *
+   * @param under is the channel under, from 0 to 255.
+   * @param over  is the channel laid over, from 0 to 255.
+   * @param shade is how much of the channel over shows, from 0 to 1.
+   * @return the channel seen.
+   */
+  private static int blend(int under, double over, double shade) {
+    return (int) Math.round(under + (over - under) * shade);
+  }
+
+  /**
+   * Gets the pixel holding a position on one axis of the image, kept inside the image.
+   *
+   * @param position is the position, from 0 to size.
+   * @param size     is the number of pixels on the axis.
+   * @return the pixel.
+   */
+  private static int pixel(double position, int size) {
+    return Math.max(0, Math.min(size - 1, (int) Math.floor(position)));
+  }
+
+  /**
+   * Wraps two columns in one block.
+   *
+   * @param xs is the x values.
+   * @param ys is the y values.
+   * @return the block over the columns.
+   * @throws IllegalArgumentException if the columns are not the same length.
+   */
+  private static PointBlock wrap(double[] xs, double[] ys) throws IllegalArgumentException {
+    if (xs.length != ys.length) {
+      throw new IllegalArgumentException("xs and ys must be the same length");
+    }
+    PointBlock block = new PointBlock();
+    block.xs = xs;
+    block.ys = ys;
+    block.offset = 0;
+    block.start = 0;
+    block.length = xs.length;
+    return block;
+  }
+
+  /**
+   * Checks that there is one label per point.
+   *
+   * @param n      is the number of points.
+   * @param labels is the labels.
+   * @throws IllegalArgumentException if there is not one label per point.
+   */
+  private static void checkLabels(int n, int[] labels) throws IllegalArgumentException {
+    if (labels.length != n) {
+      throw new IllegalArgumentException("labels must have one label per point");
+    }
+  }
+
+  /**
+   * Draws points, band by band. Every band reads all the points but only writes the rows it
+   * owns, so the bands need no locks.
+   *
+   * @param columns is the columns holding the points, or null to draw whole.
+   * @param whole   is the block holding all the points when columns is null.
+   * @param labels  is the cluster of each point, or null to draw in one color.
+   * @param argb    is the color of the points when labels is null.
+   */
+  private void render(PointColumns columns, PointBlock whole, int[] labels, int argb) {
+    int n = columns != null ? columns.size() : whole.length;
+    if (n == 0) {
+      return;
+    }
+    try (ChunkRunner runner = ChunkRunner.create(parallelism, null)) {
+      int bands = Math.min(runner.getParallelism(), height);
+      int bandHeight = (height + bands - 1) / bands;
+      runner.run(bands, band -> {
+        int top = band * bandHeight;
+        int bottom = Math.min(height, top + bandHeight);
+        if (columns == null) {
+          drawBlock(whole, top, bottom, labels, argb);
+          return;
+        }
+        PointBlock block = new PointBlock();
+        for (int from = 0; from < n; from += PointColumns.BLOCK_SIZE) {
+          columns.load(from, Math.min(PointColumns.BLOCK_SIZE, n - from), block);
+          drawBlock(block, top, bottom, labels, argb);
+        }
+      });
+    }
+  }
+
+  /**
+   * Draws the points of a block that fall in a band of rows.
+   *
+   * @param block  is the block of points.
+   * @param top    is the first row of the band.
+   * @param bottom is the row after the last row of the band.
+   * @param labels is the cluster of each point, or null to draw in one color.
+   * @param argb   is the color of the points when labels is null.
+   */
+  private void drawBlock(PointBlock block, int top, int bottom, int[] labels, int argb) {
+    double scaleX = width / (xMax - xMin);
+    double scaleY = height / (yMax - yMin);
+    int size = pointSize;
+    int half = size / 2;
+    double[] xs = block.xs;
+    double[] ys = block.ys;
+    for (int i = 0; i < block.length; i++) {
+      // The row is checked first, so most points outside the band cost one multiply.
+      double row = (yMax - ys[block.offset + i]) * scaleY;
+      if (!(row >= top - size && row < bottom + size)) {
+        continue;
+      }
+      double col = (xs[block.offset + i] - xMin) * scaleX;
+      if (!(col >= -size && col < width + size)) {
+        continue;
+      }
+      int firstRow = (int) Math.floor(row) - half;
+      int firstCol = (int) Math.floor(col) - half;
+      int rowFrom = Math.max(firstRow, top);
+      int rowTo = Math.min(firstRow + size, bottom);
+      int colFrom = Math.max(firstCol, 0);
+      int colTo = Math.min(firstCol + size, width);
+      int color = argb;
+      if (labels != null) {
+        int label = labels[block.start + i];
+        color = label < 0 ? noiseColor : palette[label % palette.length];
+      }
+      for (int r = rowFrom; r < rowTo; r++) {
+        int base = r * width;
+        for (int c = colFrom; c < colTo; c++) {
+          pixels[base + c] = color;
+        }
+      }
+    }
+  }
+}
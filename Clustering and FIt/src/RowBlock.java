@@ -0,0 +1,28 @@
+/**
+ * This class is a window over a run of consecutive rows from a VectorRows, seen as one
+ * row-major double array. Value j of row {@code start + i} is at
+ * {@code values[offset + i * dimensions + j]} for {@code 0 <= i < length}. Double rows hand
+ * out their own array, and other rows copy into an array owned by the block, like
+ * PointBlock.
+ */
+final class RowBlock {
+  double[] values;
+  int offset;
+  int start;
+  int length;
+  private double[] ownValues;
+
+  /**
+   * Points values at the array owned by this block, made big enough for count values, and
+   * sets offset to 0.
+   *
+   * @param count is the number of values the array must hold.
+   */
+  void ensureOwnCapacity(int count) {
+    if (ownValues == null || ownValues.length < count) {
+      ownValues = new double[count];
+    }
+    values = ownValues;
+    offset = 0;
+  }
+}
@@ -0,0 +1,39 @@
+/**
+ * This class is the time a kMeans run may take: a time limit counted from when the budget
+ * is made, and for anytime runs, the interrupt flag of the thread running it. Runs check it
+ * between iterations, so an iteration that has started always finishes.
+ */
+final class RunBudget {
+  private final long start;
+  private final long timeLimitNanos;
+  private final boolean interruptible;
+
+  /**
+   * Constructor for a budget that starts now.
+   *
+   * @param options       is the options with the time limit, if any.
+   * @param interruptible is true if an interrupt of the running thread ends the run.
+   */
+  RunBudget(KMeansOptions options, boolean interruptible) {
+    this.start = System.nanoTime();
+    this.timeLimitNanos = options.getTimeLimitNanos();
+    this.interruptible = interruptible;
+  }
+
+  /**
+   * Checks if the run has to stop before its next iteration. The interrupt flag is left
+   * set, so the caller still sees it.
+   *
+   * @return INTERRUPTED or DEADLINE if the run has to stop, or null if it may go on.
+   */
+  KMeansResult.Status exhausted() {
+    if (interruptible && Thread.currentThread().isInterrupted()) {
+      return KMeansResult.Status.INTERRUPTED;
+    }
+    if (timeLimitNanos > 0 && System.nanoTime() - start >= timeLimitNanos) {
+      return KMeansResult.Status.DEADLINE;
+    }
+    return null;
+  }
+
+}
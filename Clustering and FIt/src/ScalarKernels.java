@@ -0,0 +1,50 @@
+/**
+ * This class is the plain Java backend of the kernels, one point at a time.
+ */
+final class ScalarKernels extends Kernels {
+
+  @Override
+  String name() {
+    return "scalar";
+  }
+
+  @Override
+  void nearest(double[] xs, double[] ys, int offset, int length, double[] centersX,
+               double[] centersY, int k, int[] nearest, double[] distances) {
+    for (int i = 0; i < length; i++) {
+      double x = xs[offset + i];
+      double y = ys[offset + i];
+      int best = 0;
+      double bestDistance = Double.POSITIVE_INFINITY;
+      for (int c = 0; c < k; c++) {
+        double dx = x - centersX[c];
+        double dy = y - centersY[c];
+        double distance = (dx * dx) + (dy * dy);
+        if (distance < bestDistance) {
+          bestDistance = distance;
+          best = c;
+        }
+      }
+      nearest[i] = best;
+      distances[i] = bestDistance;
+    }
+  }
+
+  @Override
+  void lowerDistances(double[] xs, double[] ys, int offset, int length, double x, double y,
+                      double[] distances, int to) {
+    for (int i = 0; i < length; i++) {
+      double dx = xs[offset + i] - x;
+      double dy = ys[offset + i] - y;
+      double distance = (dx * dx) + (dy * dy);
+      if (distance < distances[to + i]) {
+        distances[to + i] = distance;
+      }
+    }
+  }
+
+  @Override
+  void fitSums(double[] xs, double[] ys, int offset, int length, double[] sums) {
+    FitSums.addBlock(xs, ys, offset, length, sums);
+  }
+}
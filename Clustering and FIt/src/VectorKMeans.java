@@ -0,0 +1,356 @@
+import java.util.SplittableRandom;
+
+/**
+ * This class runs kMeans over the rows of a ListOfVectors with Lloyd iterations. The centers
+ * are kept row-major like the rows, k rows of the same width.
+ *
+ * <p>The passes over the rows have one inner loop written out for two dimensions and one
+ * for any number. The two-dimensional loop does the same arithmetic in the same order as
+ * the Lloyd step and seeding of ListOfPoints, so two-dimensional vectors cluster exactly
+ * like the same points in a ListOfPoints. The loop for any number of dimensions keeps four
+ * partial sums over the dimensions of a row, so the additions do not wait on each other.
+ * Chunks and merges follow KMeansStep.
+ */
+final class VectorKMeans {
+
+  private VectorKMeans() {
+  }
+
+  /**
+   * Clusters the rows into k clusters within a budget.
+   *
+   * @param rows    is the rows to cluster.
+   * @param k       is the number of clusters, between 1 and the number of rows.
+   * @param options is the options for the run.
+   * @param budget  is the time the run may take.
+   * @return the clusters found, with the status saying how the run ended.
+   * @throws IllegalArgumentException if options has initial centers but not k of the rows'
+   *                                  dimensions.
+   */
+  static VectorKMeansResult run(VectorRows rows, int k, KMeansOptions options,
+                                RunBudget budget) throws IllegalArgumentException {
+    int n = rows.size();
+    int d = rows.dimensions;
+    double[] centers = new double[k * d];
+    int[] clusters = new int[n];
+    int[] counts = new int[k];
+    try (ChunkRunner runner = ChunkRunner.forOptions(options)) {
+      seed(rows, k, options, runner, centers);
+
+      int chunks = ChunkRunner.chunkCount(n);
+      double[] partialSums = new double[chunks * k * d];
+      int[] partialCounts = new int[chunks * k];
+      double[] partialErrors = new double[chunks];
+      double[] sums = new double[k * d];
+      double error = Double.POSITIVE_INFINITY;
+      int i = 0;
+      KMeansResult.Status status = null;
+      while (status == null) {
+        runner.run(chunks, chunk -> assignChunk(rows, chunk, k, centers, clusters,
+            partialSums, partialCounts, partialErrors));
+
+        // Merge the chunks in order, then move every center that has rows.
+        KMeansStep.mergeChunks(partialSums, chunks, k * d, sums);
+        KMeansStep.mergeChunks(partialCounts, chunks, k, counts);
+        double newError = 0;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+          newError = partialErrors[chunk] + newError;
+        }
+        KMeansStep.moveCenters(sums, counts, k, d, centers);
+
+        i++;
+        if (KMeans.converged(error, newError, counts, options.getTolerance())) {
+          status = KMeansResult.Status.CONVERGED;
+        } else if (i >= options.getMaxIterations()) {
+          status = KMeansResult.Status.ITERATION_LIMIT;
+        } else {
+          status = budget.exhausted();
+        }
+        error = newError;
+      }
+      return new VectorKMeansResult(clusters, centers, d, error, i, (long) i * n * k,
+          status);
+    }
+  }
+
+  /**
+   * Assigns the rows of one chunk to their nearest centers and stores the chunk's sums,
+   * counts and error at its place in the partial arrays.
+   *
+   * @param rows          is the rows to cluster.
+   * @param chunk         is the number of the chunk.
+   * @param k             is the number of clusters.
+   * @param centers       is the centers, row-major.
+   * @param clusters      is filled with the cluster of each row in the chunk.
+   * @param partialSums   is the sums of each chunk, k rows per chunk.
+   * @param partialCounts is the counts of each chunk, k per chunk.
+   * @param partialErrors is the error of each chunk.
+   */
+  private static void assignChunk(VectorRows rows, int chunk, int k, double[] centers,
+                                  int[] clusters, double[] partialSums, int[] partialCounts,
+                                  double[] partialErrors) {
+    int n = rows.size();
+    int d = rows.dimensions;
+    int from = chunk * ChunkRunner.CHUNK_SIZE;
+    int to = Math.min(n, from + ChunkRunner.CHUNK_SIZE);
+    // Sums are kept local to the chunk and copied out at the end, like LloydStep.
+    double[] sums = new double[k * d];
+    int[] counts = new int[k];
+    double error = 0;
+    // Two-dimensional centers are split into x and y arrays, the layout LloydStep scans.
+    double[] centersX = null;
+    double[] centersY = null;
+    if (d == 2) {
+      centersX = new double[k];
+      centersY = new double[k];
+      for (int c = 0; c < k; c++) {
+        centersX[c] = centers[2 * c];
+        centersY[c] = centers[2 * c + 1];
+      }
+    }
+    int blockRows = rows.blockRows();
+    RowBlock block = new RowBlock();
+    for (int start = from; start < to; start += blockRows) {
+      rows.load(start, Math.min(blockRows, to - start), block);
+      if (d == 2) {
+        error = assignBlock2(block, k, centersX, centersY, clusters, sums, counts, error);
+      } else {
+        error = assignBlock(block, d, k, centers, clusters, sums, counts, error);
+      }
+    }
+    System.arraycopy(sums, 0, partialSums, chunk * k * d, k * d);
+    System.arraycopy(counts, 0, partialCounts, chunk * k, k);
+    partialErrors[chunk] = error;
+  }
+
+  /**
+   * Assigns a block of two-dimensional rows, in the order of LloydStep. Ties go to the
+   * lowest cluster.
+   *
+   * @param block    is the block of rows.
+   * @param k        is the number of clusters.
+   * @param centersX is the x values of the centers.
+   * @param centersY is the y values of the centers.
+   * @param clusters is filled with the cluster of each row.
+   * @param sums     is the sums of the chunk to add onto.
+   * @param counts   is the counts of the chunk to add onto.
+   * @param error    is the error of the chunk so far.
+   * @return the error with the squared distances of the rows to their nearest centers
+   *         added on.
+   */
+  private static double assignBlock2(RowBlock block, int k, double[] centersX,
+                                     double[] centersY, int[] clusters, double[] sums,
+                                     int[] counts, double error) {
+    double[] values = block.values;
+    int offset = block.offset;
+    int start = block.start;
+    for (int i = 0; i < block.length; i++) {
+      double x = values[offset + 2 * i];
+      double y = values[offset + 2 * i + 1];
+      int nearest = 0;
+      double nearestDistance = Double.POSITIVE_INFINITY;
+      for (int c = 0; c < k; c++) {
+        double dx = x - centersX[c];
+        double dy = y - centersY[c];
+        double distance = (dx * dx) + (dy * dy);
+        if (distance < nearestDistance) {
+          nearestDistance = distance;
+          nearest = c;
+        }
+      }
+      clusters[start + i] = nearest;
+      sums[2 * nearest] = x + sums[2 * nearest];
+      sums[2 * nearest + 1] = y + sums[2 * nearest + 1];
+      counts[nearest]++;
+      error = nearestDistance + error;
+    }
+    return error;
+  }
+
+  /**
+   * Assigns a block of rows of any width. Ties go to the lowest cluster.
+   *
+   * @param block    is the block of rows.
+   * @param d        is the number of dimensions.
+   * @param k        is the number of clusters.
+   * @param centers  is the centers, row-major.
+   * @param clusters is filled with the cluster of each row.
+   * @param sums     is the sums of the chunk to add onto.
+   * @param counts   is the counts of the chunk to add onto.
+   * @param error    is the error of the chunk so far.
+   * @return the error with the squared distances of the rows to their nearest centers
+   *         added on.
+   */
+  private static double assignBlock(RowBlock block, int d, int k, double[] centers,
+                                    int[] clusters, double[] sums, int[] counts,
+                                    double error) {
+    double[] values = block.values;
+    for (int i = 0; i < block.length; i++) {
+      int row = block.offset + i * d;
+      int nearest = 0;
+      double nearestDistance = Double.POSITIVE_INFINITY;
+      for (int c = 0; c < k; c++) {
+        double distance = distance(values, row, centers, c * d, d);
+        if (distance < nearestDistance) {
+          nearestDistance = distance;
+          nearest = c;
+        }
+      }
+      clusters[block.start + i] = nearest;
+      int sum = nearest * d;
+      for (int j = 0; j < d; j++) {
+        sums[sum + j] = values[row + j] + sums[sum + j];
+      }
+      counts[nearest]++;
+      error = nearestDistance + error;
+    }
+    return error;
+  }
+
+  /**
+   * Gets the squared distance between a row and a center of any width. Four partial sums
+   * run over the dimensions in turn and are added up at the end.
+   *
+   * @param values  is the array holding the row.
+   * @param row     is the position of the row in values.
+   * @param centers is the centers, row-major.
+   * @param center  is the position of the center in centers.
+   * @param d       is the number of dimensions.
+   * @return the squared distance.
+   */
+  static double distance(double[] values, int row, double[] centers, int center, int d) {
+    double s0 = 0;
+    double s1 = 0;
+    double s2 = 0;
+    double s3 = 0;
+    int j = 0;
+    for (; j + 3 < d; j += 4) {
+      double d0 = values[row + j] - centers[center + j];
+      double d1 = values[row + j + 1] - centers[center + j + 1];
+      double d2 = values[row + j + 2] - centers[center + j + 2];
+      double d3 = values[row + j + 3] - centers[center + j + 3];
+      s0 += d0 * d0;
+      s1 += d1 * d1;
+      s2 += d2 * d2;
+      s3 += d3 * d3;
+    }
+    for (; j < d; j++) {
+      double dj = values[row + j] - centers[center + j];
+      s0 += dj * dj;
+    }
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  /**
+   * Picks the first k centers as options says, by the random or kMeans++ seeding of
+   * KMeansSeeding. kMeans|| seeding picks by kMeans++, since its weighted candidates are
+   * only kept for points. Two-dimensional rows pick the same centers as KMeansSeeding picks
+   * from the same points for random and kMeans++ seeding.
+   *
+   * @param rows    is the rows to pick centers from.
+   * @param k       is the number of centers to pick.
+   * @param options is the options for the run.
+   * @param runner  is the runner for the chunks of each pass over the rows.
+   * @param centers is filled with the centers, row-major.
+   * @throws IllegalArgumentException if options has initial centers but not k of the rows'
+   *                                  dimensions.
+   */
+  static void seed(VectorRows rows, int k, KMeansOptions options, ChunkRunner runner,
+                   double[] centers) throws IllegalArgumentException {
+    options.checkInitialCenters(k, rows.dimensions);
+    double[] initial = options.getInitialCenters();
+    if (initial != null) {
+      System.arraycopy(initial, 0, centers, 0, initial.length);
+      return;
+    }
+    RowSpace space = new RowSpace(rows, runner, centers);
+    SplittableRandom random = new SplittableRandom(options.getSeed());
+    switch (options.getInit()) {
+      case RANDOM:
+        KMeansSeeding.randomCenters(space, k, random);
+        break;
+      default:
+        KMeansSeeding.plusPlusCenters(space, k, random);
+        break;
+    }
+  }
+
+  /**
+   * This class is the rows of a ListOfVectors as a space to pick centers from.
+   */
+  private static final class RowSpace implements KMeansSeeding.Space {
+    private final VectorRows rows;
+    private final ChunkRunner runner;
+    private final double[] centers;
+
+    /**
+     * Constructor for the space of some rows.
+     *
+     * @param rows    is the rows.
+     * @param runner  is the runner for the chunks of each pass over the rows.
+     * @param centers is the centers, row-major.
+     */
+    RowSpace(VectorRows rows, ChunkRunner runner, double[] centers) {
+      this.rows = rows;
+      this.runner = runner;
+      this.centers = centers;
+    }
+
+    @Override
+    public int size() {
+      return rows.size();
+    }
+
+    @Override
+    public void setCenter(int c, int index) {
+      int d = rows.dimensions;
+      for (int j = 0; j < d; j++) {
+        centers[c * d + j] = rows.get(index, j);
+      }
+    }
+
+    @Override
+    public double closerTo(int first, int last, double[] distances, double[] chunkTotals) {
+      int n = rows.size();
+      int d = rows.dimensions;
+      int blockRows = rows.blockRows();
+      int chunks = ChunkRunner.chunkCount(n);
+      runner.run(chunks, chunk -> {
+        int from = chunk * ChunkRunner.CHUNK_SIZE;
+        int to = Math.min(n, from + ChunkRunner.CHUNK_SIZE);
+        double total = 0;
+        RowBlock block = new RowBlock();
+        for (int start = from; start < to; start += blockRows) {
+          rows.load(start, Math.min(blockRows, to - start), block);
+          double[] values = block.values;
+          for (int i = 0; i < block.length; i++) {
+            int index = block.start + i;
+            double nearest = distances[index];
+            for (int c = first; c < last; c++) {
+              double distance;
+              if (d == 2) {
+                double dx = values[block.offset + 2 * i] - centers[2 * c];
+                double dy = values[block.offset + 2 * i + 1] - centers[2 * c + 1];
+                distance = (dx * dx) + (dy * dy);
+              } else {
+                distance = distance(values, block.offset + i * d, centers, c * d, d);
+              }
+              if (distance < nearest) {
+                nearest = distance;
+              }
+            }
+            distances[index] = nearest;
+            total = nearest + total;
+          }
+        }
+        chunkTotals[chunk] = total;
+      });
+
+      double total = 0;
+      for (int chunk = 0; chunk < chunks; chunk++) {
+        total = chunkTotals[chunk] + total;
+      }
+      return total;
+    }
+  }
+}
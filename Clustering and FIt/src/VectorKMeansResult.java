@@ -0,0 +1,126 @@
+/**
+ * This class holds the outcome of a kMeans run on a ListOfVectors: the cluster of every
+ * vector, the centers of the clusters, and how the run went.
+ */
+public class VectorKMeansResult {
+
+  private final int[] labels;
+  private final double[] centers;
+  private final int dimensions;
+  private final double inertia;
+  private final int iterations;
+  private final long distanceComputations;
+  private final KMeansResult.Status status;
+
+  /**
+   * Constructor for a kMeans result. The arrays are kept, not copied.
+   *
+   * @param labels     is the cluster of each vector.
+   * @param centers    is the center of each cluster, row-major.
+   * @param dimensions is the number of dimensions of each center.
+   * @param inertia    is the sum of squared distances from the last assignment pass.
+   * @param iterations is the number of iterations the run took.
+   * @param computed   is the number of vector to center distances computed.
+   * @param status     is how the run ended.
+   */
+  VectorKMeansResult(int[] labels, double[] centers, int dimensions, double inertia,
+                     int iterations, long computed, KMeansResult.Status status) {
+    this.labels = labels;
+    this.centers = centers;
+    this.dimensions = dimensions;
+    this.inertia = inertia;
+    this.iterations = iterations;
+    this.distanceComputations = computed;
+    this.status = status;
+  }
+
+  /**
+   * Gets the cluster of every vector. The ith element is the cluster of the ith vector. The
+   * array is not copied, so it should not be changed.
+   *
+   * @return the array of clusters.
+   */
+  public int[] getLabels() {
+    return this.labels;
+  }
+
+  /**
+   * Gets the number of clusters.
+   *
+   * @return the number of clusters.
+   */
+  public int getK() {
+    return this.centers.length / this.dimensions;
+  }
+
+  /**
+   * Gets the number of dimensions of the centers.
+   *
+   * @return the number of dimensions.
+   */
+  public int getDimensions() {
+    return this.dimensions;
+  }
+
+  /**
+   * Gets the center of a cluster.
+   *
+   * @param cluster is the cluster to get the center of.
+   * @return a copy of the center.
+   * @throws IndexOutOfBoundsException if there is no such cluster.
+   */
+  public double[] getCentroid(int cluster) throws IndexOutOfBoundsException {
+    if (cluster < 0 || cluster >= getK()) {
+      throw new IndexOutOfBoundsException("No cluster " + cluster);
+    }
+    double[] centroid = new double[dimensions];
+    System.arraycopy(centers, cluster * dimensions, centroid, 0, dimensions);
+    return centroid;
+  }
+
+  /**
+   * Gets the sum of squared distances between every vector and the center it was assigned
+   * to in the last pass of the run.
+   *
+   * @return the inertia of the clustering.
+   */
+  public double getInertia() {
+    return this.inertia;
+  }
+
+  /**
+   * Gets the number of iterations the run took.
+   *
+   * @return the number of iterations.
+   */
+  public int getIterations() {
+    return this.iterations;
+  }
+
+  /**
+   * Gets the number of vector to center distances the iterations computed.
+   *
+   * @return the number of distances computed.
+   */
+  public long getDistanceComputations() {
+    return this.distanceComputations;
+  }
+
+  /**
+   * Gets how the run ended. Only anytime runs return results that did not converge.
+   *
+   * @return the status of the run.
+   */
+  public KMeansResult.Status getStatus() {
+    return this.status;
+  }
+
+  /**
+   * Gets the centers, row-major. The array is not copied.
+   *
+   * @return the centers.
+   */
+  double[] getCenters() {
+    return this.centers;
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * This class is the storage behind a ListOfVectors. Every vector has the same number of
+ * dimensions, and the vectors are kept one after another in one flat row-major array, so
+ * vector i is at [i * dimensions, (i + 1) * dimensions). The algorithms read them a block of
+ * rows at a time.
+ */
+abstract class VectorRows {
+
+  /**
+   * The number of values algorithms read from the rows at once, so a block of rows of any
+   * width stays about the size of a block of points.
+   */
+  static final int BLOCK_VALUES = 2 * PointColumns.BLOCK_SIZE;
+
+  final int dimensions;
+
+  /**
+   * Constructor for rows of the given width.
+   *
+   * @param dimensions is the number of values in every row.
+   */
+  VectorRows(int dimensions) {
+    this.dimensions = dimensions;
+  }
+
+  /**
+   * Gets the number of rows that algorithms read at once.
+   *
+   * @return the number of rows in a block.
+   */
+  final int blockRows() {
+    return Math.max(16, BLOCK_VALUES / dimensions);
+  }
+
+  /**
+   * Gets the number of rows.
+   *
+   * @return the number of rows stored.
+   */
+  abstract int size();
+
+  /**
+   * Gets one value of a row.
+   *
+   * @param index     is the position of the row.
+   * @param dimension is the dimension of the value.
+   * @return the value.
+   */
+  abstract double get(int index, int dimension);
+
+  /**
+   * Appends count rows taken from a row-major array starting at row from.
+   *
+   * @param values is the array of rows.
+   * @param from   is the first row to copy.
+   * @param count  is the number of rows to copy.
+   */
+  abstract void addAll(double[] values, int from, int count);
+
+  /**
+   * Points block at the rows [from, from + count).
+   *
+   * @param from  is the first row of the block.
+   * @param count is the number of rows in the block.
+   * @param block is the block to fill in, it is reused between calls.
+   * @return the block that was passed in.
+   */
+  abstract RowBlock load(int from, int count, RowBlock block);
+}
@@ -0,0 +1,141 @@
+import java.util.Random;
+import java.util.concurrent.TimeoutException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is the test class for the ClusteringSession.
+ */
+public class ClusteringSessionTest {
+
+  ListOfPoints testPoints;
+  Random random;
+
+  /**
+   * Setup for the session testing.
+   */
+  @Before
+  public void setUp() {
+    testPoints = new ListOfPoints();
+    random = new Random(12);
+    addBlobs(20000);
+  }
+
+  /**
+   * Adds points spread over five blobs that overlap a little.
+   *
+   * @param count is the number of points to add.
+   */
+  private void addBlobs(int count) {
+    for (int i = 0; i < count; i++) {
+      int blob = random.nextInt(5);
+      testPoints.addPoint(blob * 100 + random.nextGaussian() * 30,
+          (blob % 2) * 80 + random.nextGaussian() * 30);
+    }
+  }
+
+  /**
+   * Tests that a run after a small append starts from the last centers, takes few
+   * iterations, and gives the clusters a Lloyd run from those centers gives.
+   */
+  @Test
+  public void reclusterAfterAppend() throws TimeoutException {
+    KMeansOptions options = new KMeansOptions(13)
+        .algorithm(KMeansOptions.Algorithm.HAMERLY)
+        .maxIterations(500);
+    ClusteringSession session = testPoints.clusteringSession(5, options);
+    assertNull(session.getLastResult());
+    KMeansResult first = session.recluster();
+    assertEquals(20000, first.getLabels().length);
+
+    addBlobs(200);
+    KMeansResult second = session.recluster();
+    assertEquals(20200, second.getLabels().length);
+    assertEquals(20000, first.getLabels().length);
+    assertTrue(second.getIterations() < first.getIterations());
+    assertTrue(second.getIterations() <= 10);
+    assertTrue(second.getSkippedDistanceComputations() > 0);
+
+    double[] centersX = new double[5];
+    double[] centersY = new double[5];
+    for (int c = 0; c < 5; c++) {
+      centersX[c] = first.getCentroid(c).getxCoor();
+      centersY[c] = first.getCentroid(c).getyCoor();
+    }
+    KMeansResult lloyd = testPoints.kmeans(5, new KMeansOptions(0)
+        .initialCenters(centersX, centersY)
+        .maxIterations(500));
+    assertArrayEquals(lloyd.getLabels(), second.getLabels());
+    assertEquals(lloyd.getInertia(), second.getInertia(), 0);
+    assertEquals(lloyd.getIterations(), second.getIterations());
+    assertEquals(second, session.getLastResult());
+  }
+
+  /**
+   * Tests that a session with Lloyd iterations also starts from the last centers. With no
+   * tolerance the first run ends where nothing moves any more, so the second run only takes
+   * the two iterations needed to see that.
+   */
+  @Test
+  public void reclusterLloyd() throws TimeoutException {
+    ClusteringSession session = testPoints.clusteringSession(5,
+        new KMeansOptions(14).tolerance(0).maxIterations(1000));
+    KMeansResult first = session.recluster();
+    KMeansResult again = session.recluster();
+    assertArrayEquals(first.getLabels(), again.getLabels());
+    assertEquals(2, again.getIterations());
+  }
+
+  /**
+   * Tests that points added since the last run start without a cluster, so the first
+   * iteration of the next run counts every one of them as moved into a cluster, even the
+   * ones that land in cluster 0.
+   */
+  @Test
+  public void reclusterNewPointsHaveNoCluster() throws TimeoutException {
+    for (KMeansOptions.Algorithm algorithm : new KMeansOptions.Algorithm[] {
+        KMeansOptions.Algorithm.LLOYD, KMeansOptions.Algorithm.HAMERLY}) {
+      setUp();
+      long[] firstReassigned = {-1};
+      KMeansOptions options = new KMeansOptions(16).algorithm(algorithm).tolerance(0)
+          .maxIterations(1000).listener(stats -> {
+            if (stats.getIteration() == 1) {
+              firstReassigned[0] = stats.getReassignments();
+            }
+          });
+      ClusteringSession session = testPoints.clusteringSession(5, options);
+      KMeansResult first = session.recluster();
+      Point center = first.getCentroid(0);
+      for (int i = 0; i < 100; i++) {
+        testPoints.addPoint(center.getxCoor(), center.getyCoor());
+      }
+      KMeansResult second = session.recluster();
+      assertTrue(firstReassigned[0] >= 100);
+      for (int i = 20000; i < 20100; i++) {
+        assertEquals(0, second.getLabels()[i]);
+      }
+    }
+  }
+
+  /**
+   * Tests that initial centers must number k.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidInitialCenters() throws TimeoutException {
+    testPoints.kmeans(3, new KMeansOptions(15).initialCenters(new double[2], new double[2]));
+  }
+
+  /**
+   * Tests that a session cannot use the mini-batch algorithm.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testMiniBatchSession() {
+    testPoints.clusteringSession(3,
+        new KMeansOptions(16).algorithm(KMeansOptions.Algorithm.MINI_BATCH));
+  }
+}
@@ -0,0 +1,126 @@
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is the test class for the Coreset.
+ */
+public class CoresetTest {
+
+  /**
+   * Makes a list of points in four blobs of the same size and a fifth blob around (80, -10)
+   * that holds one point in fifty.
+   *
+   * @param n is the number of points.
+   * @return the list.
+   */
+  private static ListOfPoints blobs(int n) {
+    ListOfPoints lop = SamplePoints.blobs(21, n - n / 50, 2, new double[] {0, 40, -40, 10},
+        new double[] {0, 30, 25, -50});
+    SamplePoints.addBlobs(lop, 22, n / 50, 2, new double[] {80}, new double[] {-10});
+    return lop;
+  }
+
+  /**
+   * Tests that a list no larger than the size is its own coreset and clusters the same.
+   */
+  @Test
+  public void smallListIsItsOwnCoreset() throws TimeoutException {
+    ListOfPoints lop = blobs(500);
+    KMeansOptions options = new KMeansOptions(2).tolerance(0);
+    Coreset coreset = lop.coreset(5, 500, options);
+    assertEquals(500, coreset.size());
+    assertEquals(500, coreset.getTotalWeight(), 0);
+    for (int i = 0; i < 500; i += 37) {
+      assertEquals(1, coreset.getWeight(i), 0);
+      assertEquals(lop.getPointArrayList().get(i).getxCoor(), coreset.getPoint(i).getxCoor(), 0);
+    }
+    double[] initialX = {0, 40, -40, 10, 80};
+    double[] initialY = {0, 30, 25, -50, -10};
+    options.initialCenters(initialX, initialY);
+    KMeansResult expected = lop.kmeans(5, options);
+    KMeansResult result = lop.kmeansCoreset(5, 500, options);
+    assertArrayEquals(expected.getLabels(), result.getLabels());
+    assertEquals(expected.getInertia(), result.getInertia(), 1e-6);
+  }
+
+  /**
+   * Tests that a coreset is about the asked size, weighs about as much as the list and
+   * keeps the small blob.
+   */
+  @Test
+  public void summarizesTheList() {
+    ListOfPoints lop = blobs(200000);
+    Coreset coreset = lop.coreset(5, 2000, new KMeansOptions(3));
+    assertTrue(coreset.size() > 1500 && coreset.size() <= 2200);
+    assertEquals(200000, coreset.getTotalWeight(), 20000);
+
+    double smallBlob = 0;
+    for (int i = 0; i < coreset.size(); i++) {
+      if (coreset.getPoint(i).getxCoor() > 60) {
+        smallBlob += coreset.getWeight(i);
+      }
+    }
+    assertEquals(4000, smallBlob, 1000);
+  }
+
+  /**
+   * Tests that clustering the coreset finds the blobs and a cost close to clustering the
+   * whole list, and labels every point.
+   */
+  @Test
+  public void clustersCloseToFullRun() throws TimeoutException {
+    ListOfPoints lop = blobs(200000);
+    KMeansOptions options = new KMeansOptions(4).restarts(4);
+    KMeansResult full = lop.kmeans(5, options);
+    KMeansResult approximate = lop.kmeansCoreset(5, 2000, options);
+
+    assertEquals(200000, approximate.getLabels().length);
+    assertTrue(approximate.getInertia() < full.getInertia() * 1.05);
+    int agree = 0;
+    for (int i = 0; i < 200000; i++) {
+      if (approximate.getCentroid(approximate.getLabels()[i]).distance(
+          full.getCentroid(full.getLabels()[i])) < 1) {
+        agree++;
+      }
+    }
+    assertTrue(agree > 199000);
+  }
+
+  /**
+   * Tests that the coreset and the clusters are the same on one thread and on three.
+   */
+  @Test
+  public void sameForAnyParallelism() throws TimeoutException {
+    ListOfPoints lop = blobs(300000);
+    KMeansResult one = lop.kmeansCoreset(5, 1000, new KMeansOptions(8).parallelism(1));
+    KMeansResult three = lop.kmeansCoreset(5, 1000, new KMeansOptions(8).parallelism(3));
+    assertArrayEquals(one.getLabels(), three.getLabels());
+    assertEquals(one.getInertia(), three.getInertia(), 0);
+  }
+
+  /**
+   * Tests that a weighted point pulls its center by its weight.
+   */
+  @Test
+  public void weightedKmeans() throws TimeoutException {
+    Coreset coreset = new Coreset(new double[] {0, 10, 100}, new double[] {0, 0, 0},
+        new double[] {3, 1, 2}, 0);
+    KMeansResult result = coreset.kmeans(2, new KMeansOptions(1)
+        .initialCenters(new double[] {0, 100}, new double[] {0, 0}));
+    assertEquals(2.5, result.getCentroid(0).getxCoor(), 1e-12);
+    assertEquals(100, result.getCentroid(1).getxCoor(), 1e-12);
+    assertEquals(3 * 2.5 * 2.5 + 7.5 * 7.5, result.getInertia(), 1e-9);
+  }
+
+  /**
+   * Tests that a coreset smaller than k is refused.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void sizeBelowK() {
+    blobs(100).coreset(5, 4, new KMeansOptions(1));
+  }
+}
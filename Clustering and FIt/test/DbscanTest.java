@@ -0,0 +1,232 @@
+import java.util.HashMap;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * This is the test class for dbscan, checked against DBSCAN done with every pair of points.
+ */
+public class DbscanTest {
+
+  /**
+   * Makes two interleaved half moons with a scattering of noise over them.
+   *
+   * @param each   is the number of points in each moon.
+   * @param noise  is the number of noise points.
+   * @param random is the source of random points.
+   * @return the points.
+   */
+  private static ListOfPoints moons(int each, int noise, Random random) {
+    ListOfPoints points = new ListOfPoints();
+    for (int i = 0; i < each; i++) {
+      double angle = random.nextDouble() * Math.PI;
+      points.addPoint(Math.cos(angle) * 10 + random.nextGaussian() * 0.3,
+          Math.sin(angle) * 10 + random.nextGaussian() * 0.3);
+      angle = random.nextDouble() * Math.PI;
+      points.addPoint(10 - Math.cos(angle) * 10 + random.nextGaussian() * 0.3,
+          3 - Math.sin(angle) * 10 + random.nextGaussian() * 0.3);
+    }
+    for (int i = 0; i < noise; i++) {
+      points.addPoint(random.nextDouble() * 40 - 15, random.nextDouble() * 40 - 20);
+    }
+    return points;
+  }
+
+  /**
+   * Runs DBSCAN by measuring every pair of points, with border points joining the cluster of
+   * their nearest core point, and clusters numbered in the order of their first point.
+   *
+   * @param points is the points.
+   * @param eps    is the largest distance between neighbours.
+   * @param minPts is the number of neighbours that makes a core point.
+   * @return the cluster of each point, or -1 for noise.
+   */
+  private static int[] bruteForce(ListOfPoints points, double eps, int minPts) {
+    int n = points.size();
+    double[] xs = new double[n];
+    double[] ys = new double[n];
+    for (int i = 0; i < n; i++) {
+      xs[i] = points.getPointArrayList().get(i).getxCoor();
+      ys[i] = points.getPointArrayList().get(i).getyCoor();
+    }
+    boolean[] core = new boolean[n];
+    for (int i = 0; i < n; i++) {
+      int count = 0;
+      for (int j = 0; j < n; j++) {
+        if (distance(xs, ys, i, j) <= eps * eps) {
+          count++;
+        }
+      }
+      core[i] = count >= minPts;
+    }
+    int[] group = new int[n];
+    for (int i = 0; i < n; i++) {
+      group[i] = i;
+    }
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        if (core[i] && core[j] && distance(xs, ys, i, j) <= eps * eps) {
+          int a = find(group, i);
+          int b = find(group, j);
+          group[Math.max(a, b)] = Math.min(a, b);
+        }
+      }
+    }
+    int[] labels = new int[n];
+    HashMap<Integer, Integer> numbers = new HashMap<Integer, Integer>();
+    for (int i = 0; i < n; i++) {
+      int nearest = -1;
+      if (core[i]) {
+        nearest = i;
+      } else {
+        for (int j = 0; j < n; j++) {
+          if (core[j] && distance(xs, ys, i, j) <= eps * eps && (nearest < 0
+              || distance(xs, ys, i, j) < distance(xs, ys, i, nearest))) {
+            nearest = j;
+          }
+        }
+      }
+      if (nearest < 0) {
+        labels[i] = -1;
+      } else {
+        int root = find(group, nearest);
+        if (!numbers.containsKey(root)) {
+          numbers.put(root, numbers.size());
+        }
+        labels[i] = numbers.get(root);
+      }
+    }
+    return labels;
+  }
+
+  /**
+   * Finds the root of a group.
+   *
+   * @param group is the parent of each point.
+   * @param i     is the point.
+   * @return the root.
+   */
+  private static int find(int[] group, int i) {
+    while (group[i] != i) {
+      i = group[i];
+    }
+    return i;
+  }
+
+  /**
+   * Gets the squared distance between two points.
+   *
+   * @param xs is the xCoords.
+   * @param ys is the yCoords.
+   * @param i  is one point.
+   * @param j  is the other.
+   * @return the squared distance.
+   */
+  private static double distance(double[] xs, double[] ys, int i, int j) {
+    double dx = xs[i] - xs[j];
+    double dy = ys[i] - ys[j];
+    return (dx * dx) + (dy * dy);
+  }
+
+  /**
+   * Tests that the grid gives the same labels as measuring every pair, for a range of eps
+   * and minPts.
+   */
+  @Test
+  public void matchesBruteForce() {
+    ListOfPoints points = moons(1200, 300, new Random(51));
+    double[] epsValues = {0.3, 0.7, 1.5, 4};
+    int[] minPtsValues = {1, 4, 12};
+    for (double eps : epsValues) {
+      for (int minPts : minPtsValues) {
+        assertArrayEquals("eps " + eps + " minPts " + minPts, bruteForce(points, eps, minPts),
+            points.dbscan(eps, minPts));
+      }
+    }
+  }
+
+  /**
+   * Tests that points on a grid, where many distances are exactly eps, match too.
+   */
+  @Test
+  public void gridPoints() {
+    ListOfPoints points = new ListOfPoints();
+    Random random = new Random(52);
+    for (int i = 0; i < 1500; i++) {
+      points.addPoint(random.nextInt(60), random.nextInt(60));
+    }
+    for (int minPts = 1; minPts <= 5; minPts++) {
+      assertArrayEquals(bruteForce(points, 1, minPts), points.dbscan(1, minPts));
+      assertArrayEquals(bruteForce(points, Math.sqrt(2), minPts),
+          points.dbscan(Math.sqrt(2), minPts));
+    }
+  }
+
+  /**
+   * Tests that the two moons come out as two clusters, which kmeans cannot split.
+   */
+  @Test
+  public void findsMoons() {
+    ListOfPoints points = moons(5000, 0, new Random(53));
+    int[] labels = points.dbscan(1, 5);
+    for (int i = 0; i < labels.length; i++) {
+      assertEquals(labels[i % 2], labels[i]);
+    }
+    assertEquals(0, labels[0]);
+    assertEquals(1, labels[1]);
+    assertNotEquals(labels[0], labels[1]);
+  }
+
+  /**
+   * Tests that the labels are the same on any number of threads.
+   */
+  @Test
+  public void parallel() {
+    ListOfPoints points = moons(20000, 5000, new Random(54));
+    int[] one = points.dbscan(0.5, 6, 1);
+    assertArrayEquals(one, points.dbscan(0.5, 6, 4));
+    assertArrayEquals(one, points.dbscan(0.5, 6));
+  }
+
+  /**
+   * Tests an empty list and a single point.
+   */
+  @Test
+  public void smallLists() {
+    assertEquals(0, new ListOfPoints().dbscan(1, 1).length);
+    ListOfPoints one = new ListOfPoints();
+    one.addPoint(4, 4);
+    assertArrayEquals(new int[] {0}, one.dbscan(1, 1));
+    assertArrayEquals(new int[] {-1}, one.dbscan(1, 2));
+  }
+
+  /**
+   * Tests that eps must be positive.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidEps() {
+    moons(10, 0, new Random(55)).dbscan(0, 3);
+  }
+
+  /**
+   * Tests that minPts must be positive.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMinPts() {
+    moons(10, 0, new Random(56)).dbscan(1, 0);
+  }
+
+  /**
+   * Tests that an eps far too small for the spread of the points is refused.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testTinyEps() {
+    ListOfPoints points = new ListOfPoints();
+    points.addPoint(-1e300, -1e300);
+    points.addPoint(1e300, 1e300);
+    points.dbscan(1e-300, 2);
+  }
+}
@@ -0,0 +1,108 @@
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This is the test class for the DensityGrid.
+ */
+public class DensityGridTest {
+
+  /**
+   * Tests that points are counted into the cell under them, with the edges of the area in
+   * the last row and column, and points outside not counted.
+   */
+  @Test
+  public void add() {
+    ListOfPoints lop = new ListOfPoints();
+    lop.addPoints(new double[] {0.5, 0.7, 3.9, 0, 4, 4, -1, 2, Double.NaN},
+        new double[] {3.5, 3.1, 0.2, 0, 4, 0, 1, 4.5, 1});
+    DensityGrid grid = new DensityGrid(4, 4, 0, 4, 0, 4);
+    grid.add(lop);
+    assertEquals(2, grid.getCount(0, 0));
+    assertEquals(2, grid.getCount(3, 3));
+    assertEquals(1, grid.getCount(0, 3));
+    assertEquals(1, grid.getCount(3, 0));
+    assertEquals(3 + 3, grid.getTotal());
+    assertEquals(2, grid.getMaxCount());
+    assertEquals(0, grid.getClusters());
+  }
+
+  /**
+   * Tests that labelled points are also counted by cluster, and negative labels as noise.
+   */
+  @Test
+  public void addLabels() {
+    ListOfPoints lop = new ListOfPoints();
+    lop.addPoints(new double[] {1, 1, 1, 9}, new double[] {1, 1, 1, 9});
+    DensityGrid grid = new DensityGrid(2, 2, 0, 10, 0, 10);
+    grid.add(lop, new int[] {2, 0, -1, 2});
+    assertEquals(3, grid.getClusters());
+    assertEquals(3, grid.getCount(0, 1));
+    assertEquals(1, grid.getCount(0, 0, 1));
+    assertEquals(0, grid.getCount(1, 0, 1));
+    assertEquals(1, grid.getCount(2, 0, 1));
+    assertEquals(1, grid.getCount(-1, 0, 1));
+    assertEquals(1, grid.getCount(2, 1, 0));
+    assertEquals(0, grid.getCount(7, 1, 0));
+  }
+
+  /**
+   * Tests that counting on several threads gives the same grids as counting on one.
+   */
+  @Test
+  public void addParallel() {
+    Random random = new Random(6);
+    int n = 300000;
+    double[] xs = new double[n];
+    double[] ys = new double[n];
+    int[] labels = new int[n];
+    for (int i = 0; i < n; i++) {
+      xs[i] = random.nextGaussian() * 20;
+      ys[i] = random.nextGaussian() * 20;
+      labels[i] = random.nextInt(5) - 1;
+    }
+    ListOfPoints lop = new ListOfPoints();
+    lop.addPoints(xs, ys);
+    DensityGrid single = new DensityGrid(61, 47, -50, 50, -40, 40);
+    single.add(lop, labels);
+    DensityGrid parallel = new DensityGrid(61, 47, -50, 50, -40, 40);
+    parallel.setParallelism(4);
+    parallel.add(lop, labels);
+    assertEquals(single.getTotal(), parallel.getTotal());
+    for (int row = 0; row < 47; row++) {
+      for (int col = 0; col < 61; col++) {
+        assertEquals(single.getCount(col, row), parallel.getCount(col, row));
+        for (int c = -1; c < 4; c++) {
+          assertEquals(single.getCount(c, col, row), parallel.getCount(c, col, row));
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that labels must match the points.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidLabels() {
+    ListOfPoints lop = new ListOfPoints();
+    lop.addPoint(1, 1);
+    new DensityGrid(2, 2, 0, 1, 0, 1).add(lop, new int[2]);
+  }
+
+  /**
+   * Tests that an empty area is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidDimensions() {
+    new DensityGrid(2, 2, 0, 1, 1, 1);
+  }
+
+  /**
+   * Tests that asking for a cell outside the grid is rejected.
+   */
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testInvalidCell() {
+    new DensityGrid(2, 2, 0, 1, 0, 1).getCount(2, 0);
+  }
+}
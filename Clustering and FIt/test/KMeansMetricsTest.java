@@ -0,0 +1,126 @@
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeoutException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is the test class for the IterationListener hooks and KMeansMetrics.
+ */
+public class KMeansMetricsTest {
+
+  ListOfPoints testPoints;
+
+  /**
+   * Setup with six blobs of points.
+   */
+  @Before
+  public void setUp() {
+    testPoints = new ListOfPoints();
+    Random random = new Random(31);
+    for (int i = 0; i < 30000; i++) {
+      int blob = random.nextInt(6);
+      testPoints.addPoint((blob % 3) * 100 + random.nextGaussian() * 25,
+          (blob / 3) * 100 + random.nextGaussian() * 25);
+    }
+  }
+
+  /**
+   * Tests that every iteration is recorded, the error never goes up, and a run that ends
+   * where nothing moves reassigns every point first and none last.
+   */
+  @Test
+  public void recordsIterations() throws TimeoutException {
+    for (KMeansOptions.Algorithm algorithm : new KMeansOptions.Algorithm[] {
+        KMeansOptions.Algorithm.LLOYD, KMeansOptions.Algorithm.HAMERLY}) {
+      KMeansMetrics metrics = new KMeansMetrics();
+      KMeansOptions options = new KMeansOptions(32).algorithm(algorithm).tolerance(0)
+          .maxIterations(1000);
+      KMeansResult plain = testPoints.kmeans(6, options);
+      KMeansResult watched = testPoints.kmeans(6, options.listener(metrics));
+      assertArrayEquals(plain.getLabels(), watched.getLabels());
+
+      assertEquals(watched.getIterations(), metrics.getIterationCount());
+      double[] inertias = metrics.getInertias();
+      long[] reassignments = metrics.getReassignments();
+      assertEquals(30000, reassignments[0]);
+      assertEquals(0, reassignments[reassignments.length - 1]);
+      assertEquals(watched.getInertia(), inertias[inertias.length - 1], 0);
+      for (int i = 1; i < inertias.length; i++) {
+        assertTrue(inertias[i] <= inertias[i - 1]);
+        assertEquals(i + 1, metrics.getStats().get(i).getIteration());
+      }
+      for (long nanos : metrics.getAssignNanos()) {
+        assertTrue(nanos > 0);
+      }
+      assertTrue(metrics.getTotalUpdateNanos() > 0);
+      assertEquals(0, metrics.getEmptyClusterEvents());
+
+      metrics.clear();
+      assertEquals(0, metrics.getIterationCount());
+    }
+  }
+
+  /**
+   * Tests that clusters left without points are recorded.
+   */
+  @Test
+  public void recordsEmptyClusters() {
+    ListOfPoints twoPlaces = new ListOfPoints();
+    for (int i = 0; i < 100; i++) {
+      twoPlaces.addPoint(3, 3);
+      twoPlaces.addPoint(50, 50);
+    }
+    KMeansMetrics metrics = new KMeansMetrics();
+    KMeansResult result = twoPlaces.kmeansAnytime(3, new KMeansOptions(33).maxIterations(4)
+        .listener(metrics));
+    assertEquals(KMeansResult.Status.ITERATION_LIMIT, result.getStatus());
+    assertEquals(4, metrics.getIterationCount());
+    assertEquals(4, metrics.getEmptyClusterEvents());
+    for (IterationStats stats : metrics.getStats()) {
+      assertEquals(1, stats.getEmptyClusters().length);
+    }
+  }
+
+  /**
+   * Tests that restarts report the iterations of every restart, on the calling thread.
+   */
+  @Test
+  public void recordsRestarts() throws TimeoutException {
+    Thread caller = Thread.currentThread();
+    int[] perRestart = new int[4];
+    KMeansOptions options = new KMeansOptions(34).restarts(4).pruneRestarts(false)
+        .parallelism(2).listener(stats -> {
+          assertEquals(caller, Thread.currentThread());
+          perRestart[stats.getRestart()]++;
+          assertEquals(perRestart[stats.getRestart()], stats.getIteration());
+        });
+    KMeansResult result = testPoints.kmeans(6, options);
+    int total = 0;
+    for (int count : perRestart) {
+      assertTrue(count > 0);
+      total += count;
+    }
+    assertTrue(total > result.getIterations());
+  }
+
+  /**
+   * Tests that a session reports only the points a later run moves.
+   */
+  @Test
+  public void recordsSession() throws TimeoutException {
+    KMeansMetrics metrics = new KMeansMetrics();
+    ClusteringSession session = testPoints.clusteringSession(6, new KMeansOptions(35)
+        .tolerance(0).maxIterations(1000).listener(metrics));
+    session.recluster();
+    metrics.clear();
+    session.recluster();
+    List<IterationStats> stats = metrics.getStats();
+    assertEquals(2, stats.size());
+    assertEquals(0, stats.get(0).getReassignments());
+  }
+}
@@ -0,0 +1,149 @@
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is the test class for chooseK and the KSelection.
+ */
+public class KSelectionTest {
+
+  ListOfPoints testPoints;
+
+  /**
+   * Setup with four well separated blobs.
+   */
+  @Before
+  public void setUp() {
+    testPoints = new ListOfPoints();
+    Random random = new Random(21);
+    for (int i = 0; i < 8000; i++) {
+      int blob = random.nextInt(4);
+      testPoints.addPoint((blob % 2) * 100 + random.nextGaussian() * 5,
+          (blob / 2) * 100 + random.nextGaussian() * 5);
+    }
+  }
+
+  /**
+   * Tests that every score finds the four blobs and the curve covers the range.
+   */
+  @Test
+  public void chooseKBlobs() {
+    KSelection selection = testPoints.chooseK(1, 9, new KMeansOptions(22));
+    assertEquals(4, selection.getRecommendedK());
+    assertEquals(4, selection.getGapK());
+    assertEquals(4, selection.getElbowK());
+    assertEquals(4, selection.getSilhouetteK());
+    assertEquals(1, selection.getKMin());
+    assertEquals(9, selection.getKMax());
+    assertTrue(Double.isNaN(selection.getSilhouette(1)));
+    assertTrue(selection.getSilhouette(4) > 0.8);
+    for (int k = 2; k <= 4; k++) {
+      assertTrue(selection.getInertia(k) < selection.getInertia(k - 1));
+    }
+    for (int k = 1; k <= 9; k++) {
+      assertTrue(selection.getIterations(k) > 0);
+      assertTrue(selection.getGapError(k) >= 0);
+    }
+  }
+
+  /**
+   * Tests that the scores do not depend on the number of threads.
+   */
+  @Test
+  public void chooseKParallel() {
+    KSelection one = testPoints.chooseK(2, 12, new KMeansOptions(23));
+    KSelection many = testPoints.chooseK(2, 12, new KMeansOptions(23).parallelism(4));
+    for (int k = 2; k <= 12; k++) {
+      assertEquals(one.getInertia(k), many.getInertia(k), 0);
+      assertEquals(one.getSilhouette(k), many.getSilhouette(k), 0);
+      assertEquals(one.getGap(k), many.getGap(k), 0);
+    }
+    assertEquals(one.getRecommendedK(), many.getRecommendedK());
+  }
+
+  /**
+   * Tests that a k above the size of the gap reference sets finishes, with a reference set
+   * big enough to seed it.
+   */
+  @Test(timeout = 60000)
+  public void chooseKAboveReferenceSize() {
+    int k = KSweep.GAP_REFERENCE_SIZE + 1;
+    KSelection selection = testPoints.chooseK(k, k, new KMeansOptions(23).gapReferences(1)
+        .maxIterations(3));
+    assertEquals(k, selection.getKMin());
+    assertEquals(k, selection.getKMax());
+    assertTrue(!Double.isNaN(selection.getGap(k)));
+  }
+
+  /**
+   * Tests that k equal to the number of points, where every point is its own cluster, still
+   * has a gap, and the two groups of points are picked.
+   */
+  @Test
+  public void chooseKEveryPoint() {
+    ListOfPoints few = new ListOfPoints();
+    Random random = new Random(25);
+    for (int i = 0; i < 10; i++) {
+      few.addPoint((i % 2) * 100 + random.nextDouble(), random.nextDouble());
+    }
+    KSelection selection = few.chooseK(1, 10, new KMeansOptions(1));
+    for (int k = 1; k <= 10; k++) {
+      assertTrue(Double.isFinite(selection.getGap(k)));
+      assertTrue(Double.isFinite(selection.getGapError(k)));
+    }
+    assertEquals(2, selection.getGapK());
+  }
+
+  /**
+   * Tests that points that all sit in one place, where every k fits them with no error, have
+   * a gap for every k and are given one cluster.
+   */
+  @Test
+  public void chooseKIdenticalPoints() {
+    ListOfPoints same = new ListOfPoints();
+    for (int i = 0; i < 50; i++) {
+      same.addPoint(3, 4);
+    }
+    KSelection selection = same.chooseK(1, 3, new KMeansOptions(1));
+    for (int k = 1; k <= 3; k++) {
+      assertTrue(Double.isFinite(selection.getGap(k)));
+    }
+    assertEquals(1, selection.getGapK());
+    assertEquals(1, selection.getRecommendedK());
+  }
+
+  /**
+   * Tests that a k outside the curve is not accepted.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testKNotTried() {
+    testPoints.chooseK(2, 3, new KMeansOptions(24)).getInertia(4);
+  }
+
+  /**
+   * Tests that kMin must be positive.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidKMin() {
+    testPoints.chooseK(0, 3);
+  }
+
+  /**
+   * Tests that kMax must not be less than kMin.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidKRange() {
+    testPoints.chooseK(5, 3);
+  }
+
+  /**
+   * Tests that kMax must not be larger than the number of points.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManyClusters() {
+    testPoints.chooseK(1, 8001);
+  }
+}
@@ -0,0 +1,192 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This is the test class for the KdTree, checked against scans over every point.
+ */
+public class KdTreeTest {
+
+  ListOfPoints testPoints;
+  double[] xs;
+  double[] ys;
+
+  /**
+   * Setup with scattered points, some of them repeated and some on a grid so that many
+   * share a coordinate.
+   */
+  @Before
+  public void setUp() {
+    testPoints = new ListOfPoints();
+    Random random = new Random(41);
+    int n = 20000;
+    xs = new double[n];
+    ys = new double[n];
+    for (int i = 0; i < n; i++) {
+      if (i % 5 == 0) {
+        xs[i] = random.nextInt(20);
+        ys[i] = random.nextInt(20);
+      } else if (i % 7 == 0) {
+        xs[i] = xs[i - 1];
+        ys[i] = ys[i - 1];
+      } else {
+        xs[i] = random.nextGaussian() * 10;
+        ys[i] = random.nextDouble() * 40 - 20;
+      }
+    }
+    testPoints.addPoints(xs, ys);
+  }
+
+  /**
+   * Gets the squared distance from (x, y) to point i.
+   *
+   * @param x is the xCoord.
+   * @param y is the yCoord.
+   * @param i is the index of the point.
+   * @return the squared distance.
+   */
+  private double distance(double x, double y, int i) {
+    double dx = x - xs[i];
+    double dy = y - ys[i];
+    return (dx * dx) + (dy * dy);
+  }
+
+  /**
+   * Tests the nearest neighbours against a sort of every point.
+   */
+  @Test
+  public void nearest() {
+    KdTree tree = testPoints.kdTree();
+    assertEquals(20000, tree.size());
+    Random random = new Random(42);
+    for (int q = 0; q < 200; q++) {
+      double x = random.nextDouble() * 60 - 30;
+      double y = random.nextDouble() * 60 - 30;
+      Integer[] order = new Integer[xs.length];
+      for (int i = 0; i < order.length; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, Comparator.comparingDouble((Integer i) -> distance(x, y, i))
+          .thenComparingInt(i -> i));
+      int k = 1 + random.nextInt(30);
+      int[] expected = new int[k];
+      for (int i = 0; i < k; i++) {
+        expected[i] = order[i];
+      }
+      assertArrayEquals(expected, tree.nearest(x, y, k));
+      assertEquals(expected[0], tree.nearest(x, y));
+    }
+  }
+
+  /**
+   * Tests the radius and box queries against scans.
+   */
+  @Test
+  public void radiusAndBox() {
+    KdTree tree = testPoints.kdTree();
+    Random random = new Random(43);
+    for (int q = 0; q < 200; q++) {
+      double x = random.nextInt(20);
+      double y = random.nextDouble() * 40 - 20;
+      double radius = random.nextDouble() * 5;
+      ArrayList<Integer> expected = new ArrayList<Integer>();
+      for (int i = 0; i < xs.length; i++) {
+        if (distance(x, y, i) <= radius * radius) {
+          expected.add(i);
+        }
+      }
+      int[] found = tree.withinRadius(x, y, radius);
+      assertArrayEquals(expected.stream().mapToInt(i -> i).toArray(), found);
+      assertEquals(found.length, tree.countWithinRadius(x, y, radius));
+
+      double maxX = x + random.nextInt(6);
+      double maxY = y + random.nextDouble() * 6;
+      expected.clear();
+      for (int i = 0; i < xs.length; i++) {
+        if (xs[i] >= x && xs[i] <= maxX && ys[i] >= y && ys[i] <= maxY) {
+          expected.add(i);
+        }
+      }
+      assertArrayEquals(expected.stream().mapToInt(i -> i).toArray(),
+          tree.inBox(x, y, maxX, maxY));
+    }
+  }
+
+  /**
+   * Tests that a tree built on several threads answers the same as one built on one.
+   */
+  @Test
+  public void parallelBuild() {
+    KdTree one = testPoints.kdTree(1);
+    KdTree four = testPoints.kdTree(4);
+    Random random = new Random(44);
+    for (int q = 0; q < 50; q++) {
+      double x = random.nextDouble() * 60 - 30;
+      double y = random.nextDouble() * 60 - 30;
+      assertArrayEquals(one.nearest(x, y, 10), four.nearest(x, y, 10));
+      assertArrayEquals(one.withinRadius(x, y, 3), four.withinRadius(x, y, 3));
+    }
+  }
+
+  /**
+   * Tests that a tree over centers finds the same nearest center and distance as the kernels
+   * for a block of points, ties, repeated centers and points without a finite distance
+   * included.
+   */
+  @Test
+  public void nearestCenters() {
+    int k = 300;
+    KdTree tree = new KdTree(xs, ys, k, ChunkRunner.sequential());
+    double[] queryXs = Arrays.copyOf(xs, xs.length + 2);
+    double[] queryYs = Arrays.copyOf(ys, ys.length + 2);
+    queryXs[xs.length] = Double.NaN;
+    queryXs[xs.length + 1] = Double.POSITIVE_INFINITY;
+    int length = queryXs.length - 5;
+    int[] expected = new int[length];
+    double[] expectedDistances = new double[length];
+    new ScalarKernels().nearest(queryXs, queryYs, 5, length, xs, ys, k, expected,
+        expectedDistances);
+    int[] nearest = new int[length];
+    double[] distances = new double[length];
+    tree.nearest(queryXs, queryYs, 5, length, nearest, distances);
+    assertArrayEquals(expected, nearest);
+    assertArrayEquals(expectedDistances, distances, 0);
+  }
+
+  /**
+   * Tests queries on an empty tree and a k beyond the number of points.
+   */
+  @Test
+  public void smallTrees() {
+    KdTree empty = new ListOfPoints().kdTree();
+    assertEquals(-1, empty.nearest(0, 0));
+    assertEquals(0, empty.withinRadius(0, 0, 10).length);
+    ListOfPoints three = new ListOfPoints();
+    three.addPoint(0, 0);
+    three.addPoint(2, 0);
+    three.addPoint(1, 0);
+    assertArrayEquals(new int[] {1, 2, 0}, three.kdTree().nearest(1.9, 0, 10));
+  }
+
+  /**
+   * Tests that k must be positive.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidK() {
+    testPoints.kdTree().nearest(0, 0, 0);
+  }
+
+  /**
+   * Tests that a box must not be inside out.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBox() {
+    testPoints.kdTree().inBox(1, 0, 0, 1);
+  }
+}
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is the test class for the Kernels. The backend in use, vector or scalar, must give
+ * the same bits as the scalar backend.
+ */
+public class KernelsTest {
+
+  private final Kernels kernels = Kernels.get();
+  private final Kernels scalar = new ScalarKernels();
+
+  /**
+   * Makes an array of random coordinates with a few ties, infinities and NaNs in it.
+   *
+   * @param random is the source of random numbers.
+   * @param n      is the length of the array.
+   * @return the array.
+   */
+  private static double[] coordinates(Random random, int n) {
+    double[] values = new double[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = random.nextInt(20) == 0 ? random.nextInt(3) : random.nextGaussian() * 100;
+    }
+    values[n / 3] = Double.NaN;
+    values[n / 2] = Double.POSITIVE_INFINITY;
+    return values;
+  }
+
+  /**
+   * Tests that the nearest centers and their distances match the scalar backend for every
+   * length and offset around the vector width.
+   */
+  @Test
+  public void nearestMatchesScalar() {
+    Random random = new Random(3);
+    double[] xs = coordinates(random, 200);
+    double[] ys = coordinates(random, 200);
+    double[] centersX = {0, 1, 2, 0, 50, -50, 1, 0, 2};
+    double[] centersY = {0, 0, 1, 0, 50, 20, 0, 2, 1};
+    for (int k = 1; k <= centersX.length; k += 4) {
+      for (int offset = 0; offset < 5; offset++) {
+        for (int length = 0; length < 40; length++) {
+          int[] expected = new int[length];
+          double[] expectedDistances = new double[length];
+          int[] nearest = new int[length];
+          double[] distances = new double[length];
+          scalar.nearest(xs, ys, offset, length, centersX, centersY, k, expected,
+              expectedDistances);
+          kernels.nearest(xs, ys, offset, length, centersX, centersY, k, nearest, distances);
+          assertArrayEquals(expected, nearest);
+          assertArrayEquals(expectedDistances, distances, 0);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that lowering distances to a center matches the scalar backend.
+   */
+  @Test
+  public void lowerDistancesMatchesScalar() {
+    Random random = new Random(4);
+    double[] xs = coordinates(random, 100);
+    double[] ys = coordinates(random, 100);
+    for (int length = 0; length < 40; length++) {
+      double[] expected = new double[length + 3];
+      Arrays.fill(expected, 5000);
+      expected[1] = Double.POSITIVE_INFINITY;
+      double[] distances = expected.clone();
+      scalar.lowerDistances(xs, ys, 7, length, 1.5, -2, expected, 3);
+      kernels.lowerDistances(xs, ys, 7, length, 1.5, -2, distances, 3);
+      assertArrayEquals(expected, distances, 0);
+    }
+  }
+
+  /**
+   * Tests that the fit sums match the scalar backend to the last bit.
+   */
+  @Test
+  public void fitSumsMatchScalar() {
+    Random random = new Random(5);
+    double[] xs = new double[300];
+    double[] ys = new double[300];
+    for (int i = 0; i < xs.length; i++) {
+      xs[i] = random.nextDouble() * 1e6;
+      ys[i] = random.nextGaussian();
+    }
+    for (int offset = 0; offset < 4; offset++) {
+      for (int length = 0; length < 290; length += 7) {
+        double[] expected = {1, 2, 3, 4};
+        double[] sums = expected.clone();
+        scalar.fitSums(xs, ys, offset, length, expected);
+        kernels.fitSums(xs, ys, offset, length, sums);
+        assertArrayEquals(expected, sums, 0);
+      }
+    }
+  }
+
+  /**
+   * Tests that the backend has a name.
+   */
+  @Test
+  public void name() {
+    assertTrue(kernels.name().equals("scalar") || kernels.name().startsWith("vector"));
+    assertEquals("scalar", scalar.name());
+  }
+}
@@ -0,0 +1,120 @@
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is the test class for the LineFitAccumulator.
+ */
+public class LineFitAccumulatorTest {
+
+  LineFitAccumulator testFit;
+
+  /**
+   * Setup for the accumulator testing.
+   */
+  @Before
+  public void setUp() {
+    testFit = new LineFitAccumulator();
+  }
+
+  /**
+   * Tests that adding points gives the same line as fitLine.
+   */
+  @Test
+  public void add() {
+    testFit.add(10, 4);
+    testFit.add(10, 2);
+    testFit.add(40, 75);
+    testFit.add(32, 100);
+
+    assertEquals(4, testFit.getCount());
+    assertEquals(-22.87, testFit.currentLine().getIntercept(), 0.01);
+    assertEquals(2.96, testFit.currentLine().getSlope(), 0.01);
+  }
+
+  /**
+   * Tests that removing a point gives the line of the points left.
+   */
+  @Test
+  public void remove() {
+    testFit.add(10, 4);
+    testFit.add(-5, 6);
+    testFit.add(10, 2);
+    testFit.add(40, 75);
+    testFit.add(32, 100);
+    testFit.remove(-5, 6);
+
+    assertEquals(4, testFit.getCount());
+    assertEquals(-22.87, testFit.currentLine().getIntercept(), 0.01);
+    assertEquals(2.96, testFit.currentLine().getSlope(), 0.01);
+
+    testFit.remove(10, 4);
+    testFit.remove(10, 2);
+    testFit.remove(40, 75);
+    testFit.remove(32, 100);
+    assertEquals(0, testFit.getCount());
+  }
+
+  /**
+   * Tests that removing from an empty fit is rejected.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testInvalidRemove() {
+    testFit.remove(1, 1);
+  }
+
+  /**
+   * Tests that merging two halves gives the line of all the points, even far from the
+   * origin.
+   */
+  @Test
+  public void merge() {
+    Random random = new Random(8);
+    LineFitAccumulator other = new LineFitAccumulator();
+    ListOfPoints lop = new ListOfPoints();
+    for (int i = 0; i < 10000; i++) {
+      double x = 1e6 + random.nextDouble() * 100;
+      double y = 3 * x + 5 + random.nextGaussian();
+      lop.addPoint(x, y);
+      if (i % 3 == 0) {
+        testFit.add(x, y);
+      } else {
+        other.add(x, y);
+      }
+    }
+    testFit.merge(other);
+    Line line = testFit.currentLine();
+
+    assertEquals(10000, testFit.getCount());
+    assertEquals(3, line.getSlope(), 0.01);
+    assertEquals(3e6 + 5, line.getSlope() * 1e6 + line.getIntercept(), 0.1);
+    assertEquals(line.getSlope(), lop.attachLineFit().currentLine().getSlope(), 1e-9);
+  }
+
+  /**
+   * Tests that an attached fit follows the points added to a ListOfPoints.
+   */
+  @Test
+  public void attachLineFit() {
+    ListOfPoints lop = new ListOfPoints();
+    lop.addPoint(10, 4);
+    lop.addPoint(10, 2);
+    LineFitAccumulator attached = lop.attachLineFit();
+    assertSame(attached, lop.attachLineFit());
+    lop.addPoint(40, 75);
+    lop.addPoints(new double[]{32}, new double[]{100});
+
+    assertEquals(4, attached.getCount());
+    assertEquals(-22.87, lop.fitLine().getIntercept(), 0.01);
+    assertEquals(2.96, lop.fitLine().getSlope(), 0.01);
+
+    lop.detachLineFit();
+    lop.addPoint(0, 0);
+    assertEquals(4, attached.getCount());
+    assertTrue(lop.fitLine().getSlope() > 0);
+  }
+}
@@ -1,12 +1,18 @@
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.junit.Test;
 import org.junit.Before;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 
 /**
@@ -58,6 +64,64 @@ public class ListOfPointsTest {
 
   }
 
+  @Test
+  public void addPoints() {
+    testLop.addPoint(0, 0);
+    testLop.addPoints(new double[]{1, 2, 3}, new double[]{-1, -2, -3});
+    assertEquals(4, testLop.size());
+    assertEquals(2, testLop.getPointArrayList().get(2).getxCoor(), 0.01);
+    assertEquals(-3, testLop.getPointArrayList().get(3).getyCoor(), 0.01);
+  }
+
+  /**
+   * Tests that points added after the list was handed out show up on the next call.
+   */
+  @Test
+  public void getPointArrayListAfterAdd() {
+    testLop.addPoint(0, 0);
+    assertEquals(1, testLop.getPointArrayList().size());
+
+    testLop.addPoint(5, 6);
+    ArrayList<Point> gottenList = testLop.getPointArrayList();
+    assertEquals(2, gottenList.size());
+    assertEquals(5, gottenList.get(1).getxCoor(), 0.01);
+    assertEquals(6, gottenList.get(1).getyCoor(), 0.01);
+  }
+
+  /**
+   * Tests that the list handed out cannot be changed, so it always matches the points.
+   */
+  @Test
+  public void getPointArrayListReadOnly() {
+    testLop.addPoint(1, 2);
+    ArrayList<Point> gottenList = testLop.getPointArrayList();
+    try {
+      gottenList.add(new Point(3, 4));
+      assertTrue("add should have thrown", false);
+    } catch (UnsupportedOperationException e) {
+      assertEquals(1, gottenList.size());
+    }
+    try {
+      gottenList.iterator().next();
+      gottenList.subList(0, 1).set(0, new Point(5, 6));
+      assertTrue("set should have thrown", false);
+    } catch (UnsupportedOperationException e) {
+      assertEquals(1, gottenList.get(0).getxCoor(), 0);
+    }
+
+    testLop.addPoint(7, 8);
+    assertEquals(2, testLop.getPointArrayList().size());
+    assertEquals(7, testLop.getPointArrayList().get(1).getxCoor(), 0);
+  }
+
+  /**
+   * Tests that adding arrays of different lengths is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidAddPoints() {
+    testLop.addPoints(new double[]{1, 2}, new double[]{1});
+  }
+
   @Test
   public void fitLine() {
     for (int i = 0; i < 100; i++) {
@@ -78,6 +142,28 @@ public class ListOfPointsTest {
     assertEquals(testFitLine.getSlope(), 2.96, 0.01);
   }
 
+  /**
+   * Tests that the parallel line fit gives the same line as the one on the calling thread.
+   */
+  @Test
+  public void fitLineParallel() {
+    Random random = new Random(3);
+    for (int i = 0; i < 500001; i++) {
+      double x = random.nextDouble() * 1000 - 500;
+      testLop.addPoint(x, 2.5 * x - 7 + random.nextGaussian());
+    }
+    Line single = testLop.fitLine(1);
+    Line parallel = testLop.fitLine(4);
+    Line auto = testLop.fitLine();
+
+    assertEquals(2.5, single.getSlope(), 0.01);
+    assertEquals(-7, single.getIntercept(), 0.05);
+    assertEquals(single.getSlope(), parallel.getSlope(), 0);
+    assertEquals(single.getIntercept(), parallel.getIntercept(), 0);
+    assertEquals(single.getSlope(), auto.getSlope(), 0);
+    assertEquals(single.getIntercept(), auto.getIntercept(), 0);
+  }
+
   /**
    * Tests for the kMeans cluster
    *
@@ -108,6 +194,306 @@ public class ListOfPointsTest {
     assertEquals(firstCluster, secondCluster);
   }
 
+  /**
+   * Tests that kmeans++ seeding finds three well separated blobs.
+   * @throws TimeoutException    if no kmeans can be thrown.
+   */
+  @Test
+  public void kmeansPlusPlus() throws TimeoutException {
+    addBlobs(testLop, 300);
+    KMeansResult result = testLop.kmeans(3, new KMeansOptions(42));
+    assertBlobsFound(result, 300);
+  }
+
+  /**
+   * Tests that kmeans|| seeding finds three well separated blobs.
+   * @throws TimeoutException    if no kmeans can be thrown.
+   */
+  @Test
+  public void kmeansParallelInit() throws TimeoutException {
+    addBlobs(testLop, 300);
+    KMeansResult result = testLop.kmeans(3,
+        new KMeansOptions(7).init(KMeansOptions.Init.KMEANS_PARALLEL));
+    assertBlobsFound(result, 300);
+  }
+
+  /**
+   * Tests that the same seed gives the same clusters.
+   * @throws TimeoutException    if no kmeans can be thrown.
+   */
+  @Test
+  public void kmeansSameSeed() throws TimeoutException {
+    addBlobs(testLop, 200);
+    for (KMeansOptions.Init init : KMeansOptions.Init.values()) {
+      KMeansResult first = testLop.kmeans(5, new KMeansOptions(99).init(init));
+      KMeansResult second = testLop.kmeans(5, new KMeansOptions(99).init(init));
+      assertArrayEquals(first.getLabels(), second.getLabels());
+      assertEquals(first.getInertia(), second.getInertia(), 0);
+      assertEquals(first.getIterations(), second.getIterations());
+    }
+  }
+
+  /**
+   * Tests that kmeans++ never picks the same point twice, even when every point is in one of
+   * two places.
+   * @throws TimeoutException    if no kmeans can be thrown.
+   */
+  @Test
+  public void kmeansPlusPlusDuplicates() throws TimeoutException {
+    for (int i = 0; i < 50; i++) {
+      testLop.addPoint(3, 3);
+      testLop.addPoint(5000, 5000);
+    }
+    KMeansResult result = testLop.kmeans(2, new KMeansOptions(1));
+    int[] labels = result.getLabels();
+    assertNotEquals(labels[0], labels[1]);
+    assertEquals(0, result.getInertia(), 0.01);
+  }
+
+  /**
+   * Tests that Hamerly iterations give exactly the same clusters as Lloyd iterations while
+   * skipping most of the distances.
+   * @throws TimeoutException    if no kmeans can be thrown.
+   */
+  @Test
+  public void kmeansHamerlyMatchesLloyd() throws TimeoutException {
+    Random random = new Random(5);
+    for (int i = 0; i < 5000; i++) {
+      testLop.addPoint(random.nextDouble() * 1000, random.nextDouble() * 1000);
+    }
+    for (int k : new int[]{1, 2, 16, 40}) {
+      KMeansOptions options = new KMeansOptions(k).tolerance(0).maxIterations(500);
+      KMeansResult lloyd = testLop.kmeans(k, options);
+      KMeansResult hamerly = testLop.kmeans(k,
+          options.algorithm(KMeansOptions.Algorithm.HAMERLY));
+
+      assertArrayEquals(lloyd.getLabels(), hamerly.getLabels());
+      assertEquals(lloyd.getInertia(), hamerly.getInertia(), 0);
+      assertEquals(lloyd.getIterations(), hamerly.getIterations());
+      assertEquals(0, lloyd.getSkippedDistanceComputations());
+      if (k > 2) {
+        assertTrue(hamerly.getSkippedDistanceComputations()
+            > hamerly.getDistanceComputations());
+      }
+    }
+  }
+
+  /**
+   * Tests that running on several threads gives exactly the same clusters as running on one,
+   * for both algorithms and for an executor passed in.
+   * @throws TimeoutException    if no kmeans can be thrown.
+   */
+  @Test
+  public void kmeansParallel() throws TimeoutException {
+    Random random = new Random(11);
+    double[] xs = new double[300000];
+    double[] ys = new double[300000];
+    for (int i = 0; i < xs.length; i++) {
+      xs[i] = random.nextGaussian() * 100;
+      ys[i] = random.nextGaussian() * 100;
+    }
+    testLop.addPoints(xs, ys);
+
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      for (KMeansOptions.Algorithm algorithm : KMeansOptions.Algorithm.values()) {
+        for (KMeansOptions.Init init : KMeansOptions.Init.values()) {
+          KMeansOptions options = new KMeansOptions(3).algorithm(algorithm).init(init)
+              .maxIterations(500);
+          KMeansResult single = testLop.kmeans(8, options);
+          KMeansResult parallel = testLop.kmeans(8, options.parallelism(4));
+          KMeansResult pooled = testLop.kmeans(8, options.parallelism(1).executor(pool));
+
+          assertArrayEquals(single.getLabels(), parallel.getLabels());
+          assertArrayEquals(single.getLabels(), pooled.getLabels());
+          assertEquals(single.getInertia(), parallel.getInertia(), 0);
+          assertEquals(single.getInertia(), pooled.getInertia(), 0);
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Tests that restarts keep the lowest inertia, and give the same clusters on any number
+   * of threads, with and without pruning.
+   */
+  @Test
+  public void kmeansRestarts() throws TimeoutException {
+    Random random = new Random(17);
+    for (int i = 0; i < 20000; i++) {
+      int blob = random.nextInt(9);
+      testLop.addPoint((blob % 3) * 100 + random.nextGaussian() * 10,
+          (blob / 3) * 100 + random.nextGaussian() * 10);
+    }
+
+    KMeansOptions options = new KMeansOptions(18).init(KMeansOptions.Init.RANDOM)
+        .maxIterations(500);
+    KMeansResult single = testLop.kmeans(9, options);
+    KMeansResult once = testLop.kmeans(9, options.restarts(1));
+    assertArrayEquals(single.getLabels(), once.getLabels());
+
+    KMeansResult all = testLop.kmeans(9, options.restarts(8).pruneRestarts(false));
+    assertTrue(all.getInertia() <= single.getInertia());
+    assertTrue(all.getDistanceComputations() > single.getDistanceComputations());
+    KMeansResult byDefault = testLop.kmeans(9, new KMeansOptions(18)
+        .init(KMeansOptions.Init.RANDOM).maxIterations(500).restarts(8));
+    assertArrayEquals(all.getLabels(), byDefault.getLabels());
+    assertEquals(all.getDistanceComputations(), byDefault.getDistanceComputations());
+
+    KMeansResult pruned = testLop.kmeans(9, options.pruneRestarts(true));
+    assertTrue(pruned.getInertia() <= single.getInertia());
+    assertTrue(pruned.getDistanceComputations() <= all.getDistanceComputations());
+
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      KMeansResult pooled = testLop.kmeans(9, options.executor(pool));
+      assertArrayEquals(pruned.getLabels(), pooled.getLabels());
+      assertEquals(pruned.getDistanceComputations(), pooled.getDistanceComputations());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Tests that an anytime run that settles gives the same clusters as kmeans.
+   */
+  @Test
+  public void kmeansAnytimeConverged() throws TimeoutException {
+    addBlobs(testLop, 1000);
+    KMeansOptions options = new KMeansOptions(25);
+    KMeansResult anytime = testLop.kmeansAnytime(3, options);
+    assertEquals(KMeansResult.Status.CONVERGED, anytime.getStatus());
+    assertBlobsFound(anytime, 1000);
+    KMeansResult result = testLop.kmeans(3, options);
+    assertArrayEquals(result.getLabels(), anytime.getLabels());
+    assertEquals(result.getIterations(), anytime.getIterations());
+    assertEquals(KMeansResult.Status.CONVERGED, result.getStatus());
+  }
+
+  /**
+   * Tests that anytime runs that cannot settle return what they have when the iteration
+   * limit or the time limit is reached.
+   */
+  @Test
+  public void kmeansAnytimeLimits() {
+    for (int i = 0; i < 6000; i++) {
+      testLop.addPoint(3, 3);
+      testLop.addPoint(5000, 5000);
+    }
+    KMeansResult limited = testLop.kmeansAnytime(3, new KMeansOptions(26).maxIterations(7));
+    assertEquals(KMeansResult.Status.ITERATION_LIMIT, limited.getStatus());
+    assertEquals(7, limited.getIterations());
+    assertEquals(12000, limited.getLabels().length);
+    assertEquals(3, limited.getK());
+
+    KMeansResult late = testLop.kmeansAnytime(3, new KMeansOptions(27)
+        .maxIterations(Integer.MAX_VALUE).timeLimit(20, TimeUnit.MILLISECONDS));
+    assertEquals(KMeansResult.Status.DEADLINE, late.getStatus());
+    assertTrue(late.getIterations() >= 1);
+    assertEquals(12000, late.getLabels().length);
+  }
+
+  /**
+   * Tests that kmeans throws when it reaches the time limit.
+   */
+  @Test(expected = TimeoutException.class)
+  public void testTimeLimit() throws TimeoutException {
+    for (int i = 0; i < 6000; i++) {
+      testLop.addPoint(3, 3);
+      testLop.addPoint(5000, 5000);
+    }
+    testLop.kmeans(3, new KMeansOptions(28).maxIterations(Integer.MAX_VALUE)
+        .timeLimit(20, TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * Tests that an interrupt stops an anytime run after one iteration, with or without
+   * restarts, and is left set.
+   */
+  @Test
+  public void kmeansAnytimeInterrupted() {
+    addBlobs(testLop, 1000);
+    try {
+      Thread.currentThread().interrupt();
+      KMeansResult single = testLop.kmeansAnytime(3, new KMeansOptions(29).tolerance(0));
+      assertEquals(KMeansResult.Status.INTERRUPTED, single.getStatus());
+      assertEquals(1, single.getIterations());
+      assertTrue(Thread.currentThread().isInterrupted());
+
+      KMeansResult restarts = testLop.kmeansAnytime(3, new KMeansOptions(30).tolerance(0)
+          .restarts(4).pruneRestarts(false));
+      assertEquals(KMeansResult.Status.INTERRUPTED, restarts.getStatus());
+      assertEquals(1, restarts.getIterations());
+      assertEquals(3000, restarts.getLabels().length);
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  /**
+   * Tests that an interrupt stops an anytime run on several threads the same way, with every
+   * seeding, instead of throwing out of the pass.
+   */
+  @Test
+  public void kmeansAnytimeInterruptedParallel() {
+    addBlobs(testLop, 40000);
+    try {
+      for (KMeansOptions.Init init : KMeansOptions.Init.values()) {
+        Thread.currentThread().interrupt();
+        KMeansResult result = testLop.kmeansAnytime(3, new KMeansOptions(31).init(init)
+            .tolerance(0).parallelism(3));
+        assertEquals(KMeansResult.Status.INTERRUPTED, result.getStatus());
+        assertEquals(1, result.getIterations());
+        assertTrue(Thread.currentThread().isInterrupted());
+        for (int label : result.getLabels()) {
+          assertTrue(label >= 0 && label < 3);
+        }
+        Thread.interrupted();
+        KMeansResult expected = testLop.kmeansAnytime(3, new KMeansOptions(31).init(init)
+            .tolerance(0).maxIterations(1));
+        assertArrayEquals(expected.getLabels(), result.getLabels());
+      }
+
+      Thread.currentThread().interrupt();
+      KMeansResult restarts = testLop.kmeansAnytime(3, new KMeansOptions(32).tolerance(0)
+          .restarts(3).parallelism(3));
+      assertEquals(KMeansResult.Status.INTERRUPTED, restarts.getStatus());
+      assertEquals(1, restarts.getIterations());
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  /**
+   * Adds three blobs of points around (0, 0), (100, 100) and (-100, 100).
+   *
+   * @param lop  is the list to add to.
+   * @param each is the number of points in each blob.
+   */
+  private static void addBlobs(ListOfPoints lop, int each) {
+    SamplePoints.addBlobs(lop, 1234, 3 * each, 5, new double[] {0, 100, -100},
+        new double[] {0, 100, 100});
+  }
+
+  /**
+   * Checks that the points added by addBlobs were split into their three blobs.
+   *
+   * @param result is the clustering to check.
+   * @param each   is the number of points in each blob.
+   */
+  private static void assertBlobsFound(KMeansResult result, int each) {
+    int[] labels = result.getLabels();
+    assertEquals(3 * each, labels.length);
+    assertNotEquals(labels[0], labels[1]);
+    assertNotEquals(labels[1], labels[2]);
+    assertNotEquals(labels[0], labels[2]);
+    for (int i = 0; i < labels.length; i++) {
+      assertEquals(labels[i % 3], labels[i]);
+    }
+  }
+
   /**
    * Tests an invalid argument for kmeans.
    * @throws TimeoutException    if no kmeans can be thrown.
@@ -136,6 +522,54 @@ public class ListOfPointsTest {
   }
 
 
+  /**
+   * Tests that a single precision list rounds its points to floats, and that fitLine and
+   * kmeans on it give the same answers as on a plain list of the rounded points.
+   */
+  @Test
+  public void singlePrecisionMatchesRoundedPoints() throws TimeoutException {
+    Random random = new Random(31);
+    ListOfPoints compact = ListOfPoints.singlePrecision();
+    ListOfPoints rounded = new ListOfPoints();
+    double[] xs = new double[30000];
+    double[] ys = new double[30000];
+    for (int i = 0; i < xs.length; i++) {
+      xs[i] = 1000 * (i % 3) + random.nextGaussian() * 10;
+      ys[i] = 123456.789 + 0.5 * xs[i] + random.nextGaussian();
+      rounded.addPoint((float) xs[i], (float) ys[i]);
+    }
+    compact.addPoints(xs, ys);
+    compact.addPoint(0.1, 0.2);
+    rounded.addPoint(0.1f, 0.2f);
+
+    assertEquals(rounded.size(), compact.size());
+    assertEquals(0.1f, compact.getPointArrayList().get(30000).getxCoor(), 0);
+    assertEquals(rounded.fitLine().getSlope(), compact.fitLine().getSlope(), 0);
+    assertEquals(rounded.fitLine().getIntercept(), compact.fitLine().getIntercept(), 0);
+
+    KMeansOptions options = new KMeansOptions(6).algorithm(KMeansOptions.Algorithm.HAMERLY);
+    KMeansResult expected = rounded.kmeans(3, options);
+    KMeansResult result = compact.kmeans(3, options);
+    assertArrayEquals(expected.getLabels(), result.getLabels());
+    assertEquals(expected.getInertia(), result.getInertia(), 0);
+  }
+
+  /**
+   * Tests that a line fit attached to a single precision list sees the rounded points.
+   */
+  @Test
+  public void singlePrecisionLineFit() {
+    ListOfPoints compact = ListOfPoints.singlePrecision();
+    LineFitAccumulator fit = compact.attachLineFit();
+    for (int i = 0; i < 1000; i++) {
+      compact.addPoint(i * 0.001, 1e5 + i * 0.3);
+    }
+    compact.addPoints(new double[] {1.1, 2.2}, new double[] {3.3, 4.4});
+    Line summed = compact.fitLine(1);
+    assertEquals(summed.getSlope(), fit.currentLine().getSlope(), 1e-7);
+    assertEquals(summed.getIntercept(), fit.currentLine().getIntercept(), 1e-6);
+  }
+
   /**
    * Tests that the function properly timesout.
    * @throws IllegalArgumentException    if invalid arguement is passed for k.
@@ -0,0 +1,323 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeoutException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is the test class for the ListOfVectors class.
+ */
+public class ListOfVectorsTest {
+
+  private ListOfVectors vectors;
+
+  /**
+   * Setup for the ListOfVectors testing.
+   */
+  @Before
+  public void setUp() {
+    vectors = new ListOfVectors(3);
+  }
+
+  /**
+   * Tests adding vectors one at a time and in a batch.
+   */
+  @Test
+  public void addVectors() {
+    vectors.add(1, 2, 3);
+    vectors.addAll(new double[] {4, 5, 6, 7, 8, 9});
+    assertEquals(3, vectors.size());
+    assertEquals(3, vectors.getDimensions());
+    assertEquals(8, vectors.get(2, 1), 0);
+    assertArrayEquals(new double[] {4, 5, 6}, vectors.getVector(1), 0);
+  }
+
+  /**
+   * Tests that a vector with the wrong number of dimensions is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidAdd() {
+    vectors.add(1, 2);
+  }
+
+  /**
+   * Tests that a batch that does not hold whole vectors is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidAddAll() {
+    vectors.addAll(new double[] {1, 2, 3, 4});
+  }
+
+  /**
+   * Tests that a list without dimensions is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidDimensions() {
+    new ListOfVectors(0);
+  }
+
+  /**
+   * Tests that reading past the end of the list is rejected.
+   */
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testInvalidGet() {
+    vectors.add(1, 2, 3);
+    vectors.get(0, 3);
+  }
+
+  /**
+   * Tests that two-dimensional vectors give exactly the clusters of the same points in a
+   * ListOfPoints.
+   *
+   * @throws TimeoutException if no kmeans can be determined.
+   */
+  @Test
+  public void kmeansMatchesListOfPoints() throws TimeoutException {
+    Random random = new Random(8);
+    ListOfPoints points = new ListOfPoints();
+    ListOfVectors plane = new ListOfVectors(2);
+    for (int i = 0; i < 5000; i++) {
+      int blob = random.nextInt(7);
+      double x = blob * 40 + random.nextGaussian() * 15;
+      double y = (blob % 3) * 30 + random.nextGaussian() * 15;
+      points.addPoint(x, y);
+      plane.add(x, y);
+    }
+    KMeansOptions.Init[] inits = {KMeansOptions.Init.KMEANS_PLUS_PLUS,
+        KMeansOptions.Init.RANDOM};
+    for (KMeansOptions.Init init : inits) {
+      KMeansOptions options = new KMeansOptions(31).init(init)
+          .algorithm(KMeansOptions.Algorithm.LLOYD);
+      KMeansResult expected = points.kmeans(7, options);
+      VectorKMeansResult result = plane.kmeans(7, options);
+      assertArrayEquals(expected.getLabels(), result.getLabels());
+      assertEquals(expected.getInertia(), result.getInertia(), 0);
+      assertEquals(expected.getIterations(), result.getIterations());
+      for (int c = 0; c < 7; c++) {
+        assertEquals(expected.getCentroid(c).getxCoor(), result.getCentroid(c)[0], 0);
+        assertEquals(expected.getCentroid(c).getyCoor(), result.getCentroid(c)[1], 0);
+      }
+    }
+  }
+
+  /**
+   * Tests that well separated blobs in many dimensions are found, on one thread or several.
+   *
+   * @throws TimeoutException if no kmeans can be determined.
+   */
+  @Test
+  public void kmeansHighDimensions() throws TimeoutException {
+    int d = 33;
+    int each = 400;
+    ListOfVectors wide = new ListOfVectors(d);
+    Random random = new Random(12);
+    double[] vector = new double[d];
+    for (int i = 0; i < 4 * each; i++) {
+      int blob = i % 4;
+      for (int j = 0; j < d; j++) {
+        vector[j] = (j % 4 == blob ? 50 : 0) + random.nextGaussian();
+      }
+      wide.add(vector);
+    }
+    VectorKMeansResult result = wide.kmeans(4, new KMeansOptions(5));
+    assertEquals(d, result.getDimensions());
+    int[] labels = result.getLabels();
+    for (int i = 4; i < labels.length; i++) {
+      assertEquals(labels[i % 4], labels[i]);
+    }
+    assertEquals(4, Arrays.stream(labels, 0, 4).distinct().count());
+    double[] centroid = result.getCentroid(labels[1]);
+    assertEquals(50, centroid[1], 1);
+    assertEquals(0, centroid[0], 1);
+
+    VectorKMeansResult parallel = wide.kmeans(4, new KMeansOptions(5).parallelism(3));
+    assertArrayEquals(labels, parallel.getLabels());
+    assertEquals(result.getInertia(), parallel.getInertia(), 0);
+  }
+
+  /**
+   * Tests that a run on several threads gives the same clusters as a run on one, across
+   * chunk boundaries.
+   *
+   * @throws TimeoutException if no kmeans can be determined.
+   */
+  @Test
+  public void kmeansParallel() throws TimeoutException {
+    ListOfVectors many = new ListOfVectors(5);
+    Random random = new Random(21);
+    double[] values = new double[5 * 150000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random.nextGaussian() * 10 + (i / 5 % 6) * 8;
+    }
+    many.addAll(values);
+    KMeansOptions options = new KMeansOptions(4).maxIterations(500);
+    VectorKMeansResult single = many.kmeans(6, options);
+    VectorKMeansResult parallel = many.kmeans(6, new KMeansOptions(4).maxIterations(500)
+        .parallelism(3));
+    assertArrayEquals(single.getLabels(), parallel.getLabels());
+    assertEquals(single.getInertia(), parallel.getInertia(), 0);
+    assertEquals(single.getIterations(), parallel.getIterations());
+  }
+
+  /**
+   * Tests that a single precision list holds each value rounded to a float, and clusters
+   * like a plain list of the rounded values.
+   *
+   * @throws TimeoutException if no kmeans can be determined.
+   */
+  @Test
+  public void singlePrecision() throws TimeoutException {
+    ListOfVectors floats = ListOfVectors.singlePrecision(4);
+    ListOfVectors rounded = new ListOfVectors(4);
+    Random random = new Random(2);
+    for (int i = 0; i < 2000; i++) {
+      double[] vector = new double[4];
+      double[] roundedVector = new double[4];
+      for (int j = 0; j < 4; j++) {
+        vector[j] = random.nextGaussian() * 1000 + (i % 3) * 3000;
+        roundedVector[j] = (float) vector[j];
+      }
+      floats.add(vector);
+      rounded.add(roundedVector);
+      assertArrayEquals(roundedVector, floats.getVector(i), 0);
+    }
+    VectorKMeansResult expected = rounded.kmeans(3, new KMeansOptions(6));
+    VectorKMeansResult result = floats.kmeans(3, new KMeansOptions(6));
+    assertArrayEquals(expected.getLabels(), result.getLabels());
+    assertEquals(expected.getInertia(), result.getInertia(), 0);
+  }
+
+  /**
+   * Tests that an anytime run that cannot settle returns what it has at the iteration limit,
+   * while kmeans throws.
+   */
+  @Test
+  public void kmeansAnytimeLimit() {
+    Random random = new Random(9);
+    for (int i = 0; i < 3000; i++) {
+      vectors.add(random.nextDouble(), random.nextDouble(), random.nextDouble());
+    }
+    KMeansOptions options = new KMeansOptions(3).maxIterations(1);
+    VectorKMeansResult result = vectors.kmeansAnytime(10, options);
+    assertEquals(KMeansResult.Status.ITERATION_LIMIT, result.getStatus());
+    assertEquals(1, result.getIterations());
+    assertEquals(3000, result.getLabels().length);
+    try {
+      vectors.kmeans(10, options);
+      assertTrue("kmeans should have thrown", false);
+    } catch (TimeoutException e) {
+      assertEquals("Ran too long -- No kMeans determined", e.getMessage());
+    }
+  }
+
+  /**
+   * Tests that asking for more clusters than vectors is rejected.
+   *
+   * @throws TimeoutException if no kmeans can be determined.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidkMeans() throws TimeoutException {
+    vectors.add(1, 2, 3);
+    vectors.kmeans(2, new KMeansOptions(1));
+  }
+
+  /**
+   * Tests that two-dimensional initial centers do not fit vectors of other dimensions.
+   *
+   * @throws TimeoutException if no kmeans can be determined.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidInitialCenters() throws TimeoutException {
+    vectors.add(1, 2, 3);
+    vectors.add(4, 5, 6);
+    vectors.kmeans(2, new KMeansOptions(1).initialCenters(new double[] {0, 1},
+        new double[] {0, 1}));
+  }
+
+  /**
+   * Tests that a run from row-major initial centers starts from them, and that two-dimensional
+   * vectors take the centers of a ListOfPoints either way they are given.
+   *
+   * @throws TimeoutException if no kmeans can be determined.
+   */
+  @Test
+  public void initialCenters() throws TimeoutException {
+    Random random = new Random(14);
+    for (int i = 0; i < 3000; i++) {
+      int blob = i % 3;
+      vectors.add(blob * 20 + random.nextGaussian(), random.nextGaussian(),
+          blob * 10 + random.nextGaussian());
+    }
+    double[] centers = {40, 0, 20, 0, 0, 0, 20, 0, 10};
+    KMeansOptions options = new KMeansOptions(1).initialCenters(centers, 3).maxIterations(1)
+        .tolerance(0);
+    VectorKMeansResult result = vectors.kmeansAnytime(3, options);
+    assertEquals(1, result.getLabels()[0]);
+    assertEquals(2, result.getLabels()[1]);
+    assertEquals(0, result.getLabels()[2]);
+    assertArrayEquals(centers, options.getInitialCenters(), 0);
+    assertEquals(3, options.getInitialDimensions());
+
+    ListOfPoints points = new ListOfPoints();
+    ListOfVectors plane = new ListOfVectors(2);
+    for (int i = 0; i < 2000; i++) {
+      double x = (i % 4) * 30 + random.nextGaussian() * 8;
+      double y = random.nextGaussian() * 8;
+      points.addPoint(x, y);
+      plane.add(x, y);
+    }
+    double[] xs = {0, 30, 60, 90};
+    double[] ys = {1, -1, 1, -1};
+    KMeansResult expected = points.kmeans(4, new KMeansOptions(1).initialCenters(xs, ys));
+    VectorKMeansResult fromPairs = plane.kmeans(4, new KMeansOptions(1).initialCenters(xs, ys));
+    VectorKMeansResult fromRows = plane.kmeans(4,
+        new KMeansOptions(1).initialCenters(new double[] {0, 1, 30, -1, 60, 1, 90, -1}, 2));
+    assertArrayEquals(expected.getLabels(), fromPairs.getLabels());
+    assertArrayEquals(expected.getLabels(), fromRows.getLabels());
+    assertEquals(expected.getInertia(), fromRows.getInertia(), 0);
+  }
+
+  /**
+   * Tests that row-major initial centers that do not hold whole centers are rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidRowMajorCenters() {
+    new KMeansOptions(1).initialCenters(new double[] {1, 2, 3, 4}, 3);
+  }
+
+  /**
+   * Tests that kMeans|| seeding, which vectors pick by kMeans++, takes options that work
+   * for points and finds the clusters of a kMeans++ run.
+   *
+   * @throws TimeoutException if no kmeans can be determined.
+   */
+  @Test
+  public void testParallelInitFallsBack() throws TimeoutException {
+    for (int i = 0; i < 30; i++) {
+      vectors.add(i % 3 * 10 + i * 0.01, i % 3, -i * 0.02);
+    }
+    VectorKMeansResult parallel =
+        vectors.kmeans(3, new KMeansOptions(4).init(KMeansOptions.Init.KMEANS_PARALLEL));
+    VectorKMeansResult plusPlus =
+        vectors.kmeans(3, new KMeansOptions(4).init(KMeansOptions.Init.KMEANS_PLUS_PLUS));
+    assertArrayEquals(plusPlus.getLabels(), parallel.getLabels());
+    assertArrayEquals(plusPlus.getCenters(), parallel.getCenters(), 0);
+  }
+
+  /**
+   * Tests that three-dimensional initial centers do not fit a ListOfPoints.
+   *
+   * @throws TimeoutException if no kmeans can be determined.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPointCenters() throws TimeoutException {
+    ListOfPoints points = new ListOfPoints();
+    points.addPoint(1, 2);
+    points.addPoint(3, 4);
+    points.kmeans(2, new KMeansOptions(1).initialCenters(new double[] {0, 1, 2, 3, 4, 5}, 3));
+  }
+}
@@ -0,0 +1,127 @@
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is the test class for the MiniBatchKMeans.
+ */
+public class MiniBatchKMeansTest {
+
+  private static final double[] BLOB_X = {0, 300, 0, 300};
+  private static final double[] BLOB_Y = {0, 0, 300, 300};
+
+  /**
+   * Tests that a mini-batch run over a ListOfPoints finds the blobs.
+   */
+  @Test
+  public void kmeansMiniBatch() throws TimeoutException {
+    double[] xs = new double[40000];
+    double[] ys = new double[40000];
+    SamplePoints.fill(11, 5, BLOB_X, BLOB_Y, xs, ys);
+    ListOfPoints lop = new ListOfPoints();
+    lop.addPoints(xs, ys);
+
+    KMeansOptions options = new KMeansOptions(5)
+        .algorithm(KMeansOptions.Algorithm.MINI_BATCH)
+        .batchSize(256)
+        .maxIterations(1000);
+    KMeansResult result = lop.kmeans(4, options);
+    assertTrue(result.getIterations() < 1000);
+    assertEquals(40000, result.getLabels().length);
+
+    int[] labels = result.getLabels();
+    for (int i = 0; i < xs.length; i++) {
+      Point center = result.getCentroid(labels[i]);
+      assertEquals(xs[i], center.getxCoor(), 30);
+      assertEquals(ys[i], center.getyCoor(), 30);
+    }
+    assertTrue(result.getInertia() < 40000 * 2 * 25 * 1.1);
+
+    KMeansResult again = lop.kmeans(4, options);
+    assertArrayEquals(labels, again.getLabels());
+  }
+
+  /**
+   * Tests learning from a stream of points and predicting clusters.
+   */
+  @Test
+  public void partialFit() {
+    double[] xs = new double[8000];
+    double[] ys = new double[8000];
+    SamplePoints.fill(11, 5, BLOB_X, BLOB_Y, xs, ys);
+    MiniBatchKMeans model = new MiniBatchKMeans(4, new KMeansOptions(6).batchSize(100));
+    assertFalse(model.hasCenters());
+    for (int i = 0; i < 50; i++) {
+      model.partialFit(xs[i], ys[i]);
+    }
+    assertFalse(model.hasCenters());
+    model.partialFit(xs, ys);
+    assertTrue(model.hasCenters());
+    assertEquals(80, model.getBatches());
+
+    for (int blob = 0; blob < 4; blob++) {
+      Point center = model.getCentroid(model.predict(BLOB_X[blob], BLOB_Y[blob]));
+      assertEquals(BLOB_X[blob], center.getxCoor(), 2);
+      assertEquals(BLOB_Y[blob], center.getyCoor(), 2);
+      for (int other = 0; other < blob; other++) {
+        assertNotEquals(model.predict(BLOB_X[other], BLOB_Y[other]),
+            model.predict(BLOB_X[blob], BLOB_Y[blob]));
+      }
+    }
+  }
+
+  /**
+   * Tests that flush learns from a batch that is not full yet.
+   */
+  @Test
+  public void flush() {
+    MiniBatchKMeans model = new MiniBatchKMeans(2, new KMeansOptions(7));
+    model.partialFit(0, 0);
+    model.flush();
+    assertFalse(model.hasCenters());
+    model.partialFit(10, 10);
+    model.flush();
+    assertTrue(model.hasCenters());
+    assertEquals(1, model.getBatches());
+    assertNotEquals(model.predict(0, 0), model.predict(10, 10));
+  }
+
+  /**
+   * Tests that the floored learning rate keeps following a cluster that moves, while the
+   * per center rate settles on the mean of everything seen.
+   */
+  @Test
+  public void flooredLearningRate() {
+    MiniBatchKMeans mean = new MiniBatchKMeans(1, new KMeansOptions(8).batchSize(10));
+    MiniBatchKMeans floored = new MiniBatchKMeans(1, new KMeansOptions(8).batchSize(10)
+        .learningRate(KMeansOptions.LearningRate.FLOORED).minLearningRate(0.05));
+    for (int i = 0; i < 2000; i++) {
+      double x = i < 1000 ? 0 : 100;
+      mean.partialFit(x, 0);
+      floored.partialFit(x, 0);
+    }
+    assertEquals(50, mean.getCentroid(0).getxCoor(), 1e-9);
+    assertEquals(100, floored.getCentroid(0).getxCoor(), 1e-6);
+  }
+
+  /**
+   * Tests that predict needs centers.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testPredictBeforeCenters() {
+    new MiniBatchKMeans(3, new KMeansOptions(9)).predict(1, 1);
+  }
+
+  /**
+   * Tests that an invalid batch size is not allowed.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBatchSize() {
+    new KMeansOptions(10).batchSize(0);
+  }
+}
@@ -0,0 +1,207 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeoutException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is the test class for the OutOfCoreKMeans.
+ */
+public class OutOfCoreKMeansTest {
+
+  private static final double[] BLOB_X = {0, 50, 100, 150};
+  private static final double[] BLOB_Y = {0, 50, 0, 150};
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Reads a labels file.
+   *
+   * @param path is the labels file.
+   * @return the cluster of each point.
+   * @throws IOException if the file cannot be read.
+   */
+  private static int[] readLabels(Path path) throws IOException {
+    ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+    int[] labels = new int[bytes.remaining() / Integer.BYTES];
+    bytes.asIntBuffer().get(labels);
+    return labels;
+  }
+
+  /**
+   * Checks that an out-of-core run matches an in-memory run on the same points.
+   *
+   * @param lop       is the points.
+   * @param points    is the point file holding the same points.
+   * @param binary    is whether the point file is binary.
+   * @param options   is the options for both runs.
+   * @throws IOException      if the files cannot be read or written.
+   * @throws TimeoutException if the in-memory run does not converge.
+   */
+  private void assertMatchesInMemory(ListOfPoints lop, Path points, boolean binary,
+                                     KMeansOptions options)
+      throws IOException, TimeoutException {
+    KMeansResult expected = lop.kmeans(4, options);
+    Path labels = folder.newFile().toPath();
+    KMeansResult result = OutOfCoreKMeans.run(
+        () -> binary ? new PointDataStream(points) : new PointFileReader(points),
+        4, options, labels, 700);
+
+    assertEquals(KMeansResult.Status.CONVERGED, result.getStatus());
+    assertEquals(0, result.getLabels().length);
+    assertArrayEquals(expected.getCentersX(), result.getCentersX(), 1e-9);
+    assertArrayEquals(expected.getCentersY(), result.getCentersY(), 1e-9);
+    assertEquals(expected.getInertia(), result.getInertia(), 1e-6);
+    assertArrayEquals(expected.getLabels(), readLabels(labels));
+  }
+
+  /**
+   * Tests that a run over a binary point file read in small chunks finds the same centers
+   * and labels as kmeans on the heap.
+   */
+  @Test
+  public void binaryFileMatchesInMemory() throws IOException, TimeoutException {
+    ListOfPoints lop = SamplePoints.blobs(5, 5000, 3, BLOB_X, BLOB_Y);
+    File file = folder.newFile();
+    PointDataFile.write(lop, file.getPath());
+    assertMatchesInMemory(lop, file.toPath(), true, new KMeansOptions(3).tolerance(0));
+  }
+
+  /**
+   * Tests that a run over a text point file finds the same centers and labels as kmeans on
+   * the heap, seeding with k-means++ over a sample that holds every point.
+   */
+  @Test
+  public void textFileMatchesInMemory() throws IOException, TimeoutException {
+    ListOfPoints lop = SamplePoints.blobs(5, 3001, 3, BLOB_X, BLOB_Y);
+    File file = folder.newFile();
+    try (PrintWriter out = new PrintWriter(file, "US-ASCII")) {
+      for (Point p : lop.getPointArrayList()) {
+        out.println(p.getxCoor() + " " + p.getyCoor());
+      }
+    }
+    assertMatchesInMemory(lop, file.toPath(), false,
+        new KMeansOptions(8).init(KMeansOptions.Init.KMEANS_PLUS_PLUS).tolerance(0)
+            .parallelism(2));
+  }
+
+  /**
+   * Tests that the public run detects the format of the file and writes a label per point.
+   */
+  @Test
+  public void detectsFormat() throws IOException {
+    ListOfPoints lop = SamplePoints.blobs(5, 2000, 3, BLOB_X, BLOB_Y);
+    File file = folder.newFile();
+    PointDataFile.write(lop, file.getPath());
+    File labels = folder.newFile();
+    KMeansResult result = OutOfCoreKMeans.run(file.getPath(), 4, new KMeansOptions(1),
+        labels.getPath());
+    assertTrue(result.getIterations() > 0);
+    assertEquals(2000 * Integer.BYTES, labels.length());
+  }
+
+  /**
+   * Tests that a run stops at the iteration limit and still writes the labels.
+   */
+  @Test
+  public void iterationLimit() throws IOException {
+    File file = folder.newFile();
+    PointDataFile.write(SamplePoints.blobs(5, 2000, 3, BLOB_X, BLOB_Y), file.getPath());
+    File labels = folder.newFile();
+    KMeansResult result = OutOfCoreKMeans.run(file.getPath(), 4,
+        new KMeansOptions(1).maxIterations(1).tolerance(0), labels.getPath());
+    assertEquals(KMeansResult.Status.ITERATION_LIMIT, result.getStatus());
+    assertEquals(1, result.getIterations());
+    assertEquals(2000 * Integer.BYTES, labels.length());
+  }
+
+  /**
+   * Tests that an interrupted run stops without writing labels and keeps the interrupt.
+   */
+  @Test
+  public void interrupted() throws IOException {
+    File file = folder.newFile();
+    PointDataFile.write(SamplePoints.blobs(5, 2000, 3, BLOB_X, BLOB_Y), file.getPath());
+    File labels = folder.newFile();
+    labels.delete();
+    try {
+      Thread.currentThread().interrupt();
+      KMeansResult result = OutOfCoreKMeans.run(file.getPath(), 4, new KMeansOptions(1),
+          labels.getPath());
+      assertTrue(Thread.currentThread().isInterrupted());
+      assertEquals(KMeansResult.Status.INTERRUPTED, result.getStatus());
+      assertFalse(labels.exists());
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  /**
+   * Tests that a run interrupted while it writes the labels leaves the old labels file as it
+   * was and no partial file beside it.
+   */
+  @Test
+  public void interruptedWhileLabelling() throws IOException {
+    File file = folder.newFile();
+    PointDataFile.write(SamplePoints.blobs(5, 2000, 3, BLOB_X, BLOB_Y), file.getPath());
+    File labels = folder.newFile();
+    byte[] old = {1, 2, 3};
+    Files.write(labels.toPath(), old);
+    Thread caller = Thread.currentThread();
+    int[] opens = {0};
+    try {
+      // The third pass is the labels pass; the caller is interrupted after its first chunk.
+      KMeansResult result = OutOfCoreKMeans.run(() -> {
+        PointSource source = new PointDataStream(file.toPath());
+        if (++opens[0] < 3) {
+          return source;
+        }
+        int[] reads = {0};
+        return new PointSource() {
+          @Override
+          public int read(double[] xs, double[] ys) throws IOException {
+            if (++reads[0] == 2) {
+              caller.interrupt();
+            }
+            return source.read(xs, ys);
+          }
+
+          @Override
+          public void close() throws IOException {
+            source.close();
+          }
+        };
+      }, 4, new KMeansOptions(1).maxIterations(1), labels.toPath(), 500);
+      assertTrue(Thread.currentThread().isInterrupted());
+      assertEquals(KMeansResult.Status.INTERRUPTED, result.getStatus());
+    } finally {
+      Thread.interrupted();
+    }
+    assertEquals(3, opens[0]);
+    assertArrayEquals(old, Files.readAllBytes(labels.toPath()));
+    assertEquals(2, folder.getRoot().list().length);
+  }
+
+  /**
+   * Tests that asking for more clusters than points throws.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void moreClustersThanPoints() throws IOException {
+    File file = folder.newFile();
+    PointDataFile.write(SamplePoints.blobs(5, 3, 3, BLOB_X, BLOB_Y), file.getPath());
+    OutOfCoreKMeans.run(file.getPath(), 4, new KMeansOptions(1),
+        folder.newFile().getPath());
+  }
+}
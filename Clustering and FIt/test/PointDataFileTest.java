@@ -0,0 +1,105 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeoutException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This is the test class for the PointDataFile.
+ */
+public class PointDataFileTest {
+
+  private static final double[] BLOB_X = {0, 100, 200};
+  private static final double[] BLOB_Y = {0, 200, 400};
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Tests that the points written are the points opened.
+   */
+  @Test
+  public void writeAndOpen() throws IOException {
+    ListOfPoints lop = SamplePoints.blobs(9, 100000, 1, BLOB_X, BLOB_Y);
+    File file = folder.newFile();
+    PointDataFile.write(lop, file.getPath());
+    assertEquals(24 + 16 * 100000, file.length());
+
+    ListOfPoints mapped = PointDataFile.open(file.getPath());
+    assertEquals(lop.size(), mapped.size());
+    for (int i = 0; i < lop.size(); i += 997) {
+      assertEquals(lop.getPointArrayList().get(i).getxCoor(),
+          mapped.getPointArrayList().get(i).getxCoor(), 0);
+      assertEquals(lop.getPointArrayList().get(i).getyCoor(),
+          mapped.getPointArrayList().get(i).getyCoor(), 0);
+    }
+  }
+
+  /**
+   * Tests that fitLine and kmeans on an opened file give the same answers as on the heap.
+   */
+  @Test
+  public void fitAndClusterMapped() throws IOException, TimeoutException {
+    ListOfPoints lop = SamplePoints.blobs(9, 100000, 1, BLOB_X, BLOB_Y);
+    File file = folder.newFile();
+    PointDataFile.write(lop, file.getPath());
+    ListOfPoints mapped = PointDataFile.open(file.getPath());
+
+    assertEquals(lop.fitLine().getSlope(), mapped.fitLine().getSlope(), 0);
+    assertEquals(lop.fitLine().getIntercept(), mapped.fitLine().getIntercept(), 0);
+
+    KMeansOptions options = new KMeansOptions(4).algorithm(KMeansOptions.Algorithm.HAMERLY);
+    KMeansResult heap = lop.kmeans(3, options);
+    KMeansResult fromFile = mapped.kmeans(3, options);
+    assertArrayEquals(heap.getLabels(), fromFile.getLabels());
+    assertEquals(heap.getInertia(), fromFile.getInertia(), 0);
+  }
+
+  /**
+   * Tests writing and opening a file with no points.
+   */
+  @Test
+  public void writeEmpty() throws IOException {
+    File file = folder.newFile();
+    PointDataFile.write(new ListOfPoints(), file.getPath());
+    assertEquals(0, PointDataFile.open(file.getPath()).size());
+  }
+
+  /**
+   * Tests that an opened file cannot be added to.
+   */
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAddToMapped() throws IOException {
+    File file = folder.newFile();
+    PointDataFile.write(SamplePoints.blobs(9, 10, 1, BLOB_X, BLOB_Y), file.getPath());
+    PointDataFile.open(file.getPath()).addPoint(1, 1);
+  }
+
+  /**
+   * Tests that a file that is not a point file cannot be opened.
+   */
+  @Test(expected = IOException.class)
+  public void testNotPointFile() throws IOException {
+    File file = folder.newFile();
+    Files.write(file.toPath(), "1 2\n3 4\n5 6\n7 8\n9 10\n11 12\n".getBytes("US-ASCII"));
+    PointDataFile.open(file.getPath());
+  }
+
+  /**
+   * Tests that a point file cut short cannot be opened.
+   */
+  @Test(expected = IOException.class)
+  public void testTruncated() throws IOException {
+    File file = folder.newFile();
+    PointDataFile.write(SamplePoints.blobs(9, 10, 1, BLOB_X, BLOB_Y), file.getPath());
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 8));
+    PointDataFile.open(file.getPath());
+  }
+}
@@ -0,0 +1,142 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.Scanner;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This is the test class for the PointFileReader.
+ */
+public class PointFileReaderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Writes text to a new file in the temporary folder.
+   *
+   * @param text is the contents of the file.
+   * @return the path of the file.
+   * @throws IOException if the file cannot be written.
+   */
+  private String write(String text) throws IOException {
+    File file = folder.newFile();
+    Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+    return file.getPath();
+  }
+
+  /**
+   * Tests reading points split by different separators.
+   */
+  @Test
+  public void readPoints() throws IOException {
+    String path = write("1 2\n-3.5\t4.25\r\n5,6\n  7 ;  -8\n\n+9e1 1E-2\n");
+    ListOfPoints lop = PointFileReader.readPoints(path);
+    assertEquals(5, lop.size());
+    double[] xs = {1, -3.5, 5, 7, 90};
+    double[] ys = {2, 4.25, 6, -8, 0.01};
+    for (int i = 0; i < xs.length; i++) {
+      assertEquals(xs[i], lop.getPointArrayList().get(i).getxCoor(), 0);
+      assertEquals(ys[i], lop.getPointArrayList().get(i).getyCoor(), 0);
+    }
+  }
+
+  /**
+   * Tests that values the fast path cannot do exactly are still parsed like
+   * Double.parseDouble.
+   */
+  @Test
+  public void readUnusualNumbers() throws IOException {
+    String[] values = {"0.1234567890123456789", "12345678901234567890", "1e300", "-2.5e-310",
+        "4.9e-324", "-0.0", ".5", "7.", "NaN", "-Infinity", "0.000000000000000000000001"};
+    StringBuilder text = new StringBuilder();
+    for (String value : values) {
+      text.append(value).append(' ').append(value).append('\n');
+    }
+    ListOfPoints lop = PointFileReader.readPoints(write(text.toString()));
+    assertEquals(values.length, lop.size());
+    for (int i = 0; i < values.length; i++) {
+      double expected = Double.parseDouble(values[i]);
+      assertEquals(Double.doubleToLongBits(expected),
+          Double.doubleToLongBits(lop.getPointArrayList().get(i).getxCoor()));
+      assertEquals(Double.doubleToLongBits(expected),
+          Double.doubleToLongBits(lop.getPointArrayList().get(i).getyCoor()));
+    }
+  }
+
+  /**
+   * Tests a file larger than the read buffer against Scanner, so values are split across
+   * buffer refills.
+   */
+  @Test
+  public void readLargeFile() throws IOException {
+    Random random = new Random(8);
+    File file = folder.newFile();
+    try (PrintWriter out = new PrintWriter(file, "US-ASCII")) {
+      for (int i = 0; i < 150000; i++) {
+        out.println((random.nextDouble() * 2000 - 1000) + " "
+            + (Math.round(random.nextGaussian() * 1e6) / 1e3));
+      }
+    }
+    ListOfPoints lop = PointFileReader.readPoints(file.getPath());
+    assertEquals(150000, lop.size());
+
+    Scanner sc = new Scanner(new FileInputStream(file));
+    for (int i = 0; i < 150000; i++) {
+      assertEquals(sc.nextDouble(), lop.getPointArrayList().get(i).getxCoor(), 0);
+      assertEquals(sc.nextDouble(), lop.getPointArrayList().get(i).getyCoor(), 0);
+    }
+    sc.close();
+  }
+
+  /**
+   * Tests reading into small arrays a batch at a time.
+   */
+  @Test
+  public void readBatches() throws IOException {
+    String path = write("1 1 2 2 3 3 4 4 5 5");
+    double[] xs = new double[2];
+    double[] ys = new double[2];
+    try (PointFileReader reader = new PointFileReader(path)) {
+      assertEquals(2, reader.read(xs, ys));
+      assertEquals(2, ys[1], 0);
+      assertEquals(2, reader.read(xs, ys));
+      assertEquals(4, xs[1], 0);
+      assertEquals(1, reader.read(xs, ys));
+      assertEquals(5, xs[0], 0);
+      assertEquals(-1, reader.read(xs, ys));
+    }
+  }
+
+  /**
+   * Tests that an empty file gives no points.
+   */
+  @Test
+  public void readEmptyFile() throws IOException {
+    assertEquals(0, PointFileReader.readPoints(write(" \n\n")).size());
+  }
+
+  /**
+   * Tests that a file with half a point is an error.
+   */
+  @Test(expected = IOException.class)
+  public void testOddValues() throws IOException {
+    PointFileReader.readPoints(write("1 2\n3\n"));
+  }
+
+  /**
+   * Tests that a value that is not a number is an error.
+   */
+  @Test(expected = IOException.class)
+  public void testNotANumber() throws IOException {
+    PointFileReader.readPoints(write("1 2\n3 x4\n"));
+  }
+}
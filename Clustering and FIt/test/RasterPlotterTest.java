@@ -0,0 +1,216 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This is the test class for the RasterPlotter.
+ */
+public class RasterPlotterTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Gets every pixel of an image.
+   *
+   * @param image is the image.
+   * @return the pixels, row by row.
+   */
+  private static int[] pixels(BufferedImage image) {
+    return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+  }
+
+  /**
+   * Tests that a point lands on the pixel under it, with y going up.
+   */
+  @Test
+  public void addPointsPixel() {
+    RasterPlotter plotter = new RasterPlotter(10, 10);
+    plotter.setDimensions(0, 10, 0, 10);
+    plotter.setPointSize(1);
+    plotter.addPoints(new double[] {2.5, 20}, new double[] {7.5, 5}, Color.BLUE);
+    BufferedImage image = plotter.getImage();
+    assertEquals(Color.BLUE.getRGB(), image.getRGB(2, 2));
+    assertEquals(Color.WHITE.getRGB(), image.getRGB(2, 7));
+    int blue = 0;
+    for (int pixel : pixels(image)) {
+      blue += pixel == Color.BLUE.getRGB() ? 1 : 0;
+    }
+    assertEquals(1, blue);
+  }
+
+  /**
+   * Tests that points take the color of their cluster, and noise the noise color.
+   */
+  @Test
+  public void addPointsLabels() {
+    RasterPlotter plotter = new RasterPlotter(20, 20);
+    plotter.setPalette(Color.RED, Color.GREEN);
+    plotter.setNoiseColor(Color.BLACK);
+    plotter.addPoints(new double[] {5, 10, 15, 10}, new double[] {10, 10, 10, 5},
+        new int[] {0, 1, 2, -1});
+    BufferedImage image = plotter.getImage();
+    assertEquals(Color.RED.getRGB(), image.getRGB(5, 10));
+    assertEquals(Color.GREEN.getRGB(), image.getRGB(10, 10));
+    assertEquals(Color.RED.getRGB(), image.getRGB(15, 10));
+    assertEquals(Color.BLACK.getRGB(), image.getRGB(10, 15));
+    assertEquals(Color.BLACK.getRGB(), image.getRGB(11, 16));
+  }
+
+  /**
+   * Tests that drawing on several threads gives the same image as drawing on one, and that
+   * a ListOfPoints draws like its columns.
+   */
+  @Test
+  public void addPointsParallel() {
+    Random random = new Random(4);
+    int n = 200000;
+    double[] xs = new double[n];
+    double[] ys = new double[n];
+    int[] labels = new int[n];
+    ListOfPoints lop = new ListOfPoints();
+    for (int i = 0; i < n; i++) {
+      xs[i] = random.nextGaussian() * 30;
+      ys[i] = random.nextGaussian() * 30;
+      labels[i] = random.nextInt(12) - 1;
+    }
+    lop.addPoints(xs, ys);
+
+    RasterPlotter single = new RasterPlotter(123, 97);
+    single.setDimensions(-100, 100, -80, 80);
+    single.addPoints(xs, ys, labels);
+    for (int parallelism : new int[] {3, 0}) {
+      RasterPlotter parallel = new RasterPlotter(123, 97);
+      parallel.setDimensions(-100, 100, -80, 80);
+      parallel.setParallelism(parallelism);
+      parallel.addPoints(lop, labels);
+      assertArrayEquals(pixels(single.getImage()), pixels(parallel.getImage()));
+    }
+  }
+
+  /**
+   * Tests that a fitted line is drawn across the image, and a line off the image is not.
+   */
+  @Test
+  public void addLine() {
+    RasterPlotter plotter = new RasterPlotter(50, 40);
+    plotter.setDimensions(-5, 5, -4, 4);
+    plotter.addLine(new Line(0, 0.1), Color.RED);
+    plotter.addLine(-1e9, 100, 1e9, 100, Color.BLUE);
+    BufferedImage image = plotter.getImage();
+    for (int col = 0; col < 50; col++) {
+      assertEquals(Color.RED.getRGB(), image.getRGB(col, 19));
+    }
+    for (int pixel : pixels(image)) {
+      assertEquals(true, pixel != Color.BLUE.getRGB());
+    }
+  }
+
+  /**
+   * Tests that the image written is the image drawn.
+   */
+  @Test
+  public void write() throws IOException {
+    RasterPlotter plotter = new RasterPlotter(30, 20);
+    plotter.addPoints(new double[] {3, 15}, new double[] {4, 10}, new int[] {0, 1});
+    File file = new File(folder.getRoot(), "plot.png");
+    plotter.write(file.getPath());
+    BufferedImage read = ImageIO.read(file);
+    assertEquals(30, read.getWidth());
+    assertEquals(20, read.getHeight());
+    assertArrayEquals(pixels(plotter.getImage()), pixels(read));
+  }
+
+  /**
+   * Tests that the most crowded cell takes the full color of its cluster, a cell of two
+   * clusters their mix, and an empty cell keeps the background.
+   */
+  @Test
+  public void addDensity() {
+    ListOfPoints lop = new ListOfPoints();
+    lop.addPoints(new double[] {0.5, 0.5, 0.5, 0.5, 1.5, 1.5, 2.5},
+        new double[] {0.5, 0.5, 0.5, 0.5, 0.5, 0.5, 0.5});
+    DensityGrid grid = new DensityGrid(4, 1, 0, 4, 0, 1);
+    grid.add(lop, new int[] {0, 0, 0, 0, 0, 1, -1});
+    RasterPlotter plotter = new RasterPlotter(4, 1);
+    plotter.setPalette(Color.RED, Color.BLUE);
+    plotter.setNoiseColor(Color.BLACK);
+    plotter.addDensity(grid, RasterPlotter.ToneMap.LINEAR, Color.GREEN);
+    BufferedImage image = plotter.getImage();
+    assertEquals(Color.RED.getRGB(), image.getRGB(0, 0));
+    assertEquals(new Color(191, 128, 191).getRGB(), image.getRGB(1, 0));
+    assertEquals(new Color(191, 191, 191).getRGB(), image.getRGB(2, 0));
+    assertEquals(Color.WHITE.getRGB(), image.getRGB(3, 0));
+  }
+
+  /**
+   * Tests that the log and equalized tone maps keep the order of the counts, and that the
+   * least crowded cell still shows.
+   */
+  @Test
+  public void addDensityToneMaps() {
+    ListOfPoints lop = new ListOfPoints();
+    int[] counts = {1, 10, 1000};
+    for (int col = 0; col < counts.length; col++) {
+      for (int i = 0; i < counts[col]; i++) {
+        lop.addPoint(col + 0.5, 0.5);
+      }
+    }
+    DensityGrid grid = new DensityGrid(4, 1, 0, 4, 0, 1);
+    grid.add(lop);
+    for (RasterPlotter.ToneMap toneMap : RasterPlotter.ToneMap.values()) {
+      RasterPlotter plotter = new RasterPlotter(4, 1);
+      plotter.addDensity(grid, toneMap, Color.BLACK);
+      BufferedImage image = plotter.getImage();
+      int last = 256;
+      for (int col = 0; col < 3; col++) {
+        int red = new Color(image.getRGB(col, 0)).getRed();
+        assertEquals(true, red < last);
+        last = red;
+      }
+      assertEquals(0, last);
+      assertEquals(Color.WHITE.getRGB(), image.getRGB(3, 0));
+    }
+    RasterPlotter log = new RasterPlotter(4, 1);
+    log.addDensity(grid, RasterPlotter.ToneMap.LOG, Color.BLACK);
+    RasterPlotter equalized = new RasterPlotter(4, 1);
+    equalized.addDensity(grid, RasterPlotter.ToneMap.EQUALIZED, Color.BLACK);
+    assertEquals(new Color(255 - 255 / 3, 255 - 255 / 3, 255 - 255 / 3).getRGB(),
+        equalized.getImage().getRGB(0, 0));
+    assertEquals(true, new Color(log.getImage().getRGB(0, 0)).getRed() < 255);
+  }
+
+  /**
+   * Tests that a grid of another size is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidDensity() {
+    new RasterPlotter(4, 4).addDensity(new DensityGrid(4, 3, 0, 1, 0, 1),
+        RasterPlotter.ToneMap.LOG, Color.BLACK);
+  }
+
+  /**
+   * Tests that labels must match the points.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidLabels() {
+    new RasterPlotter(10, 10).addPoints(new double[] {1, 2}, new double[] {1, 2}, new int[1]);
+  }
+
+  /**
+   * Tests that an empty area is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidDimensions() {
+    new RasterPlotter(10, 10).setDimensions(0, 0, 0, 1);
+  }
+}
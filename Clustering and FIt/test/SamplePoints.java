@@ -0,0 +1,70 @@
+import java.util.Random;
+
+/**
+ * This class makes the points the tests cluster: Gaussian blobs around given centers, drawn
+ * from a seeded Random so that every run of a test sees the same points.
+ */
+final class SamplePoints {
+
+  /**
+   * Not for instances.
+   */
+  private SamplePoints() {
+  }
+
+  /**
+   * Fills two arrays with points in blobs. Point i is in blob i modulo the number of centers,
+   * so the blobs take turns, and its coordinates are the center's plus Gaussian noise.
+   *
+   * @param seed     is the seed of the noise.
+   * @param spread   is the standard deviation of the noise in each coordinate.
+   * @param centersX is the xCoord of each blob's center.
+   * @param centersY is the yCoord of each blob's center.
+   * @param xs       is filled with the xCoords.
+   * @param ys       is filled with the yCoords.
+   */
+  static void fill(long seed, double spread, double[] centersX, double[] centersY,
+                   double[] xs, double[] ys) {
+    Random random = new Random(seed);
+    for (int i = 0; i < xs.length; i++) {
+      int blob = i % centersX.length;
+      xs[i] = centersX[blob] + random.nextGaussian() * spread;
+      ys[i] = centersY[blob] + random.nextGaussian() * spread;
+    }
+  }
+
+  /**
+   * Adds points in blobs to a list, as fill makes them.
+   *
+   * @param lop      is the list to add to.
+   * @param seed     is the seed of the noise.
+   * @param n        is the number of points to add.
+   * @param spread   is the standard deviation of the noise in each coordinate.
+   * @param centersX is the xCoord of each blob's center.
+   * @param centersY is the yCoord of each blob's center.
+   */
+  static void addBlobs(ListOfPoints lop, long seed, int n, double spread, double[] centersX,
+                       double[] centersY) {
+    double[] xs = new double[n];
+    double[] ys = new double[n];
+    fill(seed, spread, centersX, centersY, xs, ys);
+    lop.addPoints(xs, ys);
+  }
+
+  /**
+   * Makes a list of points in blobs, as fill makes them.
+   *
+   * @param seed     is the seed of the noise.
+   * @param n        is the number of points.
+   * @param spread   is the standard deviation of the noise in each coordinate.
+   * @param centersX is the xCoord of each blob's center.
+   * @param centersY is the yCoord of each blob's center.
+   * @return the list.
+   */
+  static ListOfPoints blobs(long seed, int n, double spread, double[] centersX,
+                            double[] centersY) {
+    ListOfPoints lop = new ListOfPoints();
+    addBlobs(lop, seed, n, spread, centersX, centersY);
+    return lop;
+  }
+}
@@ -0,0 +1,140 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * This class is the SIMD backend of the kernels, built on the jdk.incubator.vector module.
+ * The distance kernels work on as many points at once as the widest vector register holds.
+ * The fit sums use four lanes, the four interleaved sums of FitSums.addBlock, so the sums
+ * are added in the same order as the scalar backend and come out the same to the last bit.
+ * Points left over at the end of a range go through the scalar code.
+ *
+ * <p>This class is compiled on its own with --add-modules jdk.incubator.vector, and Kernels
+ * loads it by name, so the rest of the code builds and runs without the module.
+ */
+final class VectorKernels extends Kernels {
+
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Double> FOUR = DoubleVector.SPECIES_256;
+
+  private final ScalarKernels scalar = new ScalarKernels();
+
+  @Override
+  String name() {
+    return "vector" + SPECIES.length();
+  }
+
+  @Override
+  boolean isVector() {
+    return true;
+  }
+
+  @Override
+  boolean usable() {
+    return SPECIES.length() >= 2;
+  }
+
+  @Override
+  void nearest(double[] xs, double[] ys, int offset, int length, double[] centersX,
+               double[] centersY, int k, int[] nearest, double[] distances) {
+    int lanes = SPECIES.length();
+    double[] bests = new double[lanes];
+    DoubleVector infinity = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+    DoubleVector zero = DoubleVector.zero(SPECIES);
+    int i = 0;
+    for (; i + lanes <= length; i += lanes) {
+      DoubleVector x = DoubleVector.fromArray(SPECIES, xs, offset + i);
+      DoubleVector y = DoubleVector.fromArray(SPECIES, ys, offset + i);
+      DoubleVector bestDistance = infinity;
+      DoubleVector best = zero;
+      for (int c = 0; c < k; c++) {
+        DoubleVector dx = x.sub(centersX[c]);
+        DoubleVector dy = y.sub(centersY[c]);
+        DoubleVector distance = dx.mul(dx).add(dy.mul(dy));
+        // Strictly less, like the scalar loop, so ties keep the lower center.
+        VectorMask<Double> closer = distance.compare(VectorOperators.LT, bestDistance);
+        bestDistance = bestDistance.blend(distance, closer);
+        best = best.blend(c, closer);
+      }
+      bestDistance.intoArray(distances, i);
+      best.intoArray(bests, 0);
+      for (int lane = 0; lane < lanes; lane++) {
+        nearest[i + lane] = (int) bests[lane];
+      }
+    }
+    for (; i < length; i++) {
+      double x = xs[offset + i];
+      double y = ys[offset + i];
+      int best = 0;
+      double bestDistance = Double.POSITIVE_INFINITY;
+      for (int c = 0; c < k; c++) {
+        double dx = x - centersX[c];
+        double dy = y - centersY[c];
+        double distance = (dx * dx) + (dy * dy);
+        if (distance < bestDistance) {
+          bestDistance = distance;
+          best = c;
+        }
+      }
+      nearest[i] = best;
+      distances[i] = bestDistance;
+    }
+  }
+
+  @Override
+  void lowerDistances(double[] xs, double[] ys, int offset, int length, double x, double y,
+                      double[] distances, int to) {
+    int lanes = SPECIES.length();
+    int i = 0;
+    for (; i + lanes <= length; i += lanes) {
+      DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, offset + i).sub(x);
+      DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, offset + i).sub(y);
+      DoubleVector distance = dx.mul(dx).add(dy.mul(dy));
+      DoubleVector current = DoubleVector.fromArray(SPECIES, distances, to + i);
+      current.blend(distance, distance.compare(VectorOperators.LT, current))
+          .intoArray(distances, to + i);
+    }
+    scalar.lowerDistances(xs, ys, offset + i, length - i, x, y, distances, to + i);
+  }
+
+  @Override
+  void fitSums(double[] xs, double[] ys, int offset, int length, double[] sums) {
+    if (SPECIES.vectorBitSize() < FOUR.vectorBitSize()) {
+      // Four lanes would not fit in one register and would run slower than scalar code.
+      scalar.fitSums(xs, ys, offset, length, sums);
+      return;
+    }
+    DoubleVector sx = DoubleVector.zero(FOUR);
+    DoubleVector sy = sx;
+    DoubleVector sxx = sx;
+    DoubleVector sxy = sx;
+    int end = offset + length;
+    int i = offset;
+    for (; i + 3 < end; i += 4) {
+      DoubleVector x = DoubleVector.fromArray(FOUR, xs, i);
+      DoubleVector y = DoubleVector.fromArray(FOUR, ys, i);
+      sx = sx.add(x);
+      sy = sy.add(y);
+      sxx = sxx.add(x.mul(x));
+      sxy = sxy.add(x.mul(y));
+    }
+    double[] lanes = new double[16];
+    sx.intoArray(lanes, 0);
+    sy.intoArray(lanes, 4);
+    sxx.intoArray(lanes, 8);
+    sxy.intoArray(lanes, 12);
+    for (; i < end; i++) {
+      double x = xs[i];
+      double y = ys[i];
+      lanes[0] += x;
+      lanes[4] += y;
+      lanes[8] += x * x;
+      lanes[12] += x * y;
+    }
+    for (int j = 0; j < 4; j++) {
+      int base = j * 4;
+      sums[j] += (lanes[base] + lanes[base + 1]) + (lanes[base + 2] + lanes[base + 3]);
+    }
+  }
+}